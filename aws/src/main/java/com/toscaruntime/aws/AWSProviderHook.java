@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.inject.Module;
 import com.toscaruntime.aws.nodes.Instance;
 import com.toscaruntime.aws.nodes.PublicNetwork;
+import com.toscaruntime.constant.ProviderConstant;
 import com.toscaruntime.sdk.AbstractProviderHook;
 import com.toscaruntime.sdk.Deployment;
 import com.toscaruntime.sdk.util.DeploymentUtil;
@@ -51,4 +52,9 @@ public class AWSProviderHook extends AbstractProviderHook {
             compute.setTagApi(tagApi);
         });
     }
+
+    @Override
+    public String getProviderName() {
+        return ProviderConstant.AWS;
+    }
 }
@@ -6,6 +6,7 @@ import com.toscaruntime.cli.Attributes
 import com.toscaruntime.cli.util.AgentUtil
 import com.toscaruntime.exception.client.BadRequestException
 import com.toscaruntime.rest.client.ToscaRuntimeClient
+import com.toscaruntime.rest.model.DeploymentDTO
 import com.typesafe.scalalogging.LazyLogging
 import sbt.complete.DefaultParsers._
 import sbt.{Command, Help}
@@ -287,7 +288,8 @@ object AgentsCommand extends LazyLogging {
       deleteAgent(client, deploymentId)
       (s"Deleted by force [$deploymentId]", Future.successful(None))
     } else {
-      val details = AgentUtil.getDeploymentDetails(client, deploymentId)
+      // Only the last execution is needed to know if the deployment is busy
+      val details = AgentUtil.getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.NodesField, DeploymentDTO.RelationshipsField, DeploymentDTO.ExecutionsField), Some(1))
       if (details.executions.nonEmpty && details.executions.head.endTime.isEmpty) {
         ("Deployment has unfinished execution, please wait or cancel execution first", Future.failed(new BadRequestException("Deployment has unfinished execution, please wait or cancel execution first")))
       } else if (AgentUtil.hasLivingNodes(details)) {
@@ -362,19 +364,19 @@ object AgentsCommand extends LazyLogging {
   }
 
   def getNodesDetails(client: ToscaRuntimeClient, deploymentId: String) = {
-    AgentUtil.getNodesDetails(AgentUtil.getDeploymentDetails(client, deploymentId))
+    AgentUtil.getNodesDetails(AgentUtil.getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.NodesField)))
   }
 
   def getExecutionsDetails(client: ToscaRuntimeClient, deploymentId: String) = {
-    AgentUtil.getExecutionsDetails(AgentUtil.getDeploymentDetails(client, deploymentId))
+    AgentUtil.getExecutionsDetails(AgentUtil.getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.ExecutionsField)))
   }
 
   def getRelationshipsDetails(client: ToscaRuntimeClient, deploymentId: String) = {
-    AgentUtil.getRelationshipsDetails(AgentUtil.getDeploymentDetails(client, deploymentId))
+    AgentUtil.getRelationshipsDetails(AgentUtil.getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.RelationshipsField)))
   }
 
   def getOutputsDetails(client: ToscaRuntimeClient, deploymentId: String) = {
-    AgentUtil.getOutputsDetails(AgentUtil.getDeploymentDetails(client, deploymentId))
+    AgentUtil.getOutputsDetails(AgentUtil.getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.OutputsField)))
   }
 
   def updateDeploymentRecipe(client: ToscaRuntimeClient, deploymentId: String, basedir: Path) = {
@@ -88,8 +88,8 @@ object AgentUtil extends LazyLogging {
     Await.result(client.teardown(provider, target), forEver)
   }
 
-  def getDeploymentDetails(client: ToscaRuntimeClient, deploymentId: String) = {
-    Await.result(client.getDeploymentAgentInfo(deploymentId), forEver)
+  def getDeploymentDetails(client: ToscaRuntimeClient, deploymentId: String, fields: Set[String] = DeploymentDTO.AllFields, executionsLimit: Option[Int] = None) = {
+    Await.result(client.getDeploymentAgentInfo(deploymentId, fields, executionsLimit = executionsLimit), forEver)
   }
 
   def printDetails(client: ToscaRuntimeClient, deploymentId: String): Unit = {
@@ -196,7 +196,7 @@ object AgentUtil extends LazyLogging {
   }
 
   def printExecutionDetails(client: ToscaRuntimeClient, deploymentId: String, executionId: String): Unit = {
-    val deploymentDetails = getDeploymentDetails(client, deploymentId)
+    val deploymentDetails = getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.ExecutionsField))
     deploymentDetails.executions.find(_.id == executionId) match {
       case Some(execution) =>
         val executionData = List(
@@ -214,7 +214,7 @@ object AgentUtil extends LazyLogging {
   }
 
   def printNodeDetails(client: ToscaRuntimeClient, deploymentId: String, nodeId: String): Unit = {
-    val deploymentDetails = getDeploymentDetails(client, deploymentId)
+    val deploymentDetails = getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.NodesField))
     deploymentDetails.nodes.find(_.id == nodeId) match {
       case Some(node) =>
         if (node.properties.nonEmpty) {
@@ -232,7 +232,7 @@ object AgentUtil extends LazyLogging {
   }
 
   def printInstanceDetails(client: ToscaRuntimeClient, deploymentId: String, instanceId: String): Unit = {
-    val deploymentDetails = getDeploymentDetails(client, deploymentId)
+    val deploymentDetails = getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.NodesField))
     deploymentDetails.nodes.flatMap { node =>
       node.instances.find(_.id == instanceId)
     }.headOption match {
@@ -248,7 +248,7 @@ object AgentUtil extends LazyLogging {
   }
 
   def printRelationshipInstanceDetails(client: ToscaRuntimeClient, deploymentId: String, source: String, target: String, relationshipType: String): Unit = {
-    val deploymentDetails = getDeploymentDetails(client, deploymentId)
+    val deploymentDetails = getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.RelationshipsField))
     deploymentDetails.relationships.filter(relationship => relationship.relationshipType == relationshipType).flatMap { relationship =>
       relationship.relationshipInstances.find(relationshipInstance =>
         relationshipInstance.sourceInstanceId == source && relationshipInstance.targetInstanceId == target
@@ -266,7 +266,7 @@ object AgentUtil extends LazyLogging {
   }
 
   def printRelationshipDetails(client: ToscaRuntimeClient, deploymentId: String, source: String, target: String, relationshipType: String): Unit = {
-    val deploymentDetails = getDeploymentDetails(client, deploymentId)
+    val deploymentDetails = getDeploymentDetails(client, deploymentId, Set(DeploymentDTO.RelationshipsField))
     deploymentDetails.relationships.find(relationship => relationship.sourceNodeId == source && relationship.targetNodeId == target && relationship.relationshipType == relationshipType) match {
       case Some(relationship) =>
         if (relationship.properties.nonEmpty) {
@@ -303,7 +303,7 @@ object AgentUtil extends LazyLogging {
     // Avoid that it freezes on some systems
     Thread.sleep(4000L)
     FailSafeUtil.doActionWithRetry(new Action[Any] {
-      override def doAction(): Any = Await.result(client.getDeploymentAgentInfo(deploymentId), forEver)
+      override def doAction(): Any = Await.result(client.getDeploymentAgentInfo(deploymentId, Set.empty), forEver)
     }, "Wait for deployment " + deploymentId, Integer.MAX_VALUE, 2, TimeUnit.SECONDS, classOf[Throwable])
   }
 
@@ -311,7 +311,7 @@ object AgentUtil extends LazyLogging {
     // Avoid that it freezes on some systems
     Thread.sleep(4000L)
     FailSafeUtil.doActionWithRetry(new Action[Any] {
-      override def doAction(): Any = Await.result(client.getBootstrapAgentInfo(provider, target), forEver)
+      override def doAction(): Any = Await.result(client.getBootstrapAgentInfo(provider, target, Set.empty), forEver)
     }, "Wait for bootstrap " + provider, Integer.MAX_VALUE, 2, TimeUnit.SECONDS, classOf[Throwable])
   }
 }
@@ -11,6 +11,7 @@ import com.toscaruntime.artifact.ArtifactExecutorUtil;
 import com.toscaruntime.artifact.ArtifactUploader;
 import com.toscaruntime.exception.deployment.artifact.ArtifactExecutionException;
 import com.toscaruntime.exception.deployment.artifact.ArtifactInterruptedException;
+import com.toscaruntime.exception.deployment.artifact.ArtifactUploadException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +21,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Docker executor is based on docker exec command
@@ -30,18 +32,29 @@ public class DockerExecutor implements Closeable, ArtifactExecutor, ArtifactUplo
 
     private static final Logger log = LoggerFactory.getLogger(DockerExecutor.class);
 
+    private static final int ARCHIVE_PIPE_SIZE = 64 * 1024;
+
     private DockerClient dockerClient;
 
     private String containerId;
 
     private boolean elevatePrivilege;
 
+    private RecipeSynchronizer recipeSynchronizer = new RecipeSynchronizer();
+
     public DockerExecutor(DockerClient dockerClient, String containerId, boolean elevatePrivilege) {
         this.dockerClient = dockerClient;
         this.containerId = containerId;
         this.elevatePrivilege = elevatePrivilege;
     }
 
+    /**
+     * @param recipeSynchronizer synchronizer shared by the executors of the deployment, it holds the bandwidth limit of uploads
+     */
+    public void setRecipeSynchronizer(RecipeSynchronizer recipeSynchronizer) {
+        this.recipeSynchronizer = recipeSynchronizer;
+    }
+
     @Override
     public void initialize() {
     }
@@ -50,24 +63,16 @@ public class DockerExecutor implements Closeable, ArtifactExecutor, ArtifactUplo
     public Map<String, String> executeArtifact(String operationName, Path localArtifactPath, String remoteArtifactPath, Map<String, String> env) {
         log.info("Begin to execute [{}][{}] with env [{}]", operationName, remoteArtifactPath, env);
         String artifactName = Paths.get(remoteArtifactPath).getFileName().toString();
-        String statusCodeToken = UUID.randomUUID().toString();
-        String environmentVariablesToken = UUID.randomUUID().toString();
-        String remotePath;
-        String sheBang;
+        String outputToken = UUID.randomUUID().toString();
+        String command;
+        String script;
         try {
-            sheBang = ArtifactExecutorUtil.readSheBang(localArtifactPath);
-            Path artifactWrapper = ArtifactExecutorUtil.createArtifactWrapper(remoteArtifactPath, env, statusCodeToken, environmentVariablesToken, sheBang, elevatePrivilege);
-            remotePath = REMOTE_TEMP_DIR + artifactWrapper.getFileName().toString();
-            dockerClient.copyArchiveToContainerCmd(containerId).withHostResource(artifactWrapper.toString()).withRemotePath(REMOTE_TEMP_DIR).exec();
+            command = ArtifactExecutorUtil.getExecutionCommand(ArtifactExecutorUtil.readSheBang(localArtifactPath), elevatePrivilege);
+            script = ArtifactExecutorUtil.createExecutionScript(remoteArtifactPath, env, outputToken);
         } catch (IOException e) {
-            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] Error happened while trying to generate wrapper script", e);
+            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] Error happened while trying to generate execution script", e);
         }
-        // Not need to close byte array streams as they are in memory
-        ByteArrayOutputStream scriptToExecute = new ByteArrayOutputStream();
-        PrintWriter commandWriter = new PrintWriter(new OutputStreamWriter(scriptToExecute, StandardCharsets.UTF_8), true);
-        ArtifactExecutorUtil.createArtifactExecutor(commandWriter, remotePath, sheBang, statusCodeToken, environmentVariablesToken);
-
-        DockerStdOutLogger dockerStdOutLogger = new DockerStdOutLogger(statusCodeToken, environmentVariablesToken);
+        DockerStdOutLogger dockerStdOutLogger = new DockerStdOutLogger(outputToken);
         CommandLogger commandLogger = line -> {
             switch (line.getStreamType()) {
                 case STDOUT:
@@ -82,11 +87,12 @@ public class DockerExecutor implements Closeable, ArtifactExecutor, ArtifactUplo
                     break;
             }
         };
-        Integer statusCode = runCommand("/bin/sh", commandLogger, new ByteArrayInputStream(scriptToExecute.toByteArray()));
+        // The script is sent on the exec's standard input and the outputs come back on its standard output, the execution takes one round trip
+        Integer statusCode = runCommand(command, commandLogger, new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
         if (dockerStdOutLogger.getStatusCode() != null) {
             statusCode = dockerStdOutLogger.getStatusCode();
         }
-        if (statusCode != 0) {
+        if (statusCode == null || statusCode != 0) {
             throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] failed to executed with exit status [" + statusCode + "]");
         } else {
             log.info("[{}][{}] execution finished normally", operationName, artifactName);
@@ -148,11 +154,72 @@ public class DockerExecutor implements Closeable, ArtifactExecutor, ArtifactUplo
         return response.getExitCode();
     }
 
+    private String readRemoteManifest(String remotePath) {
+        StringBuilder manifest = new StringBuilder();
+        String command = RecipeSynchronizer.getReadManifestCommand(remotePath);
+        Integer exitStatus = runCommand("/bin/sh", line -> {
+            switch (line.getStreamType()) {
+                case STDOUT:
+                case RAW:
+                    manifest.append(line.getData()).append("\n");
+                    break;
+                default:
+                    log.info("[Read recipe manifest][stderr]: {}", line.getData());
+                    break;
+            }
+        }, new ByteArrayInputStream(command.getBytes(StandardCharsets.UTF_8)));
+        if (exitStatus != null && exitStatus != 0) {
+            throw new ArtifactUploadException("Command " + command + " exec has exited with error status " + exitStatus + " for container " + containerId);
+        }
+        return manifest.length() == 0 ? null : manifest.toString();
+    }
+
+    /**
+     * Only files which changed since the last upload are transferred, the remote manifest is compared with the local recipe
+     * then the delta is streamed as a tar archive that the daemon extracts in the container.
+     */
     @Override
     public void upload(String localPath, String remotePath) {
-        String prepareCommand = "if [ -e \"" + remotePath + "\" ]; then echo \"Remote path [" + remotePath + "] already exist, will overwrite\"; rm -rf \"" + remotePath + "\"; mkdir -p \"" + remotePath + "\"; else mkdir -p \"" + remotePath + "\"; fi";
-        runCommand("Prepare recipe dir for upload", prepareCommand, log);
-        dockerClient.copyArchiveToContainerCmd(containerId).withHostResource(localPath).withDirChildrenOnly(true).withRemotePath(remotePath).exec();
+        Path localRecipePath = Paths.get(localPath);
+        RecipeSynchronizer.Delta delta;
+        try {
+            delta = recipeSynchronizer.computeDelta(recipeSynchronizer.createManifest(localRecipePath), readRemoteManifest(remotePath));
+        } catch (IOException e) {
+            throw new ArtifactUploadException("Could not compute manifest of [" + localPath + "]", e);
+        }
+        if (delta.isEmpty()) {
+            log.info("Remote path [{}] is already up to date with [{}] for container {}", remotePath, localPath, containerId);
+            return;
+        }
+        log.info("Upload [{}] to [{}] for container {}, full synchronization [{}], [{}] changed files, [{}] deleted files", localPath, remotePath, containerId, delta.isFullSynchronization(), delta.getChangedFiles().size(), delta.getDeletedFiles().size());
+        runCommand("Prepare recipe dir for upload", RecipeSynchronizer.getPrepareCommand(remotePath, delta), log);
+        // The archive is produced while the daemon consumes it, it's never held entirely in memory
+        AtomicReference<IOException> archiveError = new AtomicReference<>();
+        try (PipedInputStream archiveInput = new PipedInputStream(ARCHIVE_PIPE_SIZE);
+             PipedOutputStream archiveOutput = new PipedOutputStream(archiveInput)) {
+            Thread archiveWriter = new Thread(() -> {
+                try {
+                    recipeSynchronizer.writeArchive(localRecipePath, delta, archiveOutput);
+                } catch (IOException e) {
+                    archiveError.set(e);
+                }
+            }, "Recipe_Archive_Writer_" + containerId);
+            archiveWriter.setDaemon(true);
+            archiveWriter.start();
+            try {
+                dockerClient.copyArchiveToContainerCmd(containerId).withTarInputStream(archiveInput).withRemotePath(remotePath).exec();
+                archiveWriter.join();
+            } catch (InterruptedException e) {
+                throw new ArtifactInterruptedException("Upload [" + localPath + "] to [" + remotePath + "] for container " + containerId + " has been interrupted", e);
+            } finally {
+                archiveWriter.interrupt();
+            }
+        } catch (IOException e) {
+            throw new ArtifactUploadException("Upload [" + localPath + "] to [" + remotePath + "] for container " + containerId + " has failed", e);
+        }
+        if (archiveError.get() != null) {
+            throw new ArtifactUploadException("Could not write recipe archive of [" + localPath + "] for container " + containerId, archiveError.get());
+        }
     }
 
     @Override
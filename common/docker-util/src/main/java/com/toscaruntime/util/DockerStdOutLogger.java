@@ -4,7 +4,7 @@ import com.toscaruntime.artifact.ArtifactOutputProcessor;
 
 class DockerStdOutLogger extends ArtifactOutputProcessor {
 
-    DockerStdOutLogger(String statusCodeToken, String environmentVariablesToken) {
-        super(statusCodeToken, environmentVariablesToken);
+    DockerStdOutLogger(String outputToken) {
+        super(outputToken);
     }
 }
@@ -3,40 +3,45 @@ package com.toscaruntime.util;
 import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.StreamType;
 import com.github.dockerjava.core.async.ResultCallbackTemplate;
-import com.google.common.collect.Lists;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Decoder for docker stream protocol
+ * Decoder for docker stream protocol, frames are demultiplexed to a {@link StreamLineDecoder} per stream which decodes their payload in place.
  */
 public class DockerStreamDecoder extends ResultCallbackTemplate<DockerStreamDecoder, Frame> {
 
     private CommandLogger logger;
 
-    private StringBuilder stdinBuffer;
+    private StreamLineDecoder stdinDecoder;
 
-    private StringBuilder stdoutBuffer;
+    private StreamLineDecoder stdoutDecoder;
 
-    private StringBuilder stderrBuffer;
+    private StreamLineDecoder stderrDecoder;
+
+    /**
+     * Raw and stdout frames share the same decoder, lines are logged with the type of the frame which completes them
+     */
+    private StreamType stdoutStreamType = StreamType.STDOUT;
 
     DockerStreamDecoder(CommandLogger logger) {
         this.logger = logger;
-        this.stdinBuffer = new StringBuilder();
-        this.stdoutBuffer = new StringBuilder();
-        this.stderrBuffer = new StringBuilder();
+        this.stdinDecoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, line -> logger.log(new DecoderResult(StreamType.STDIN, line)));
+        this.stdoutDecoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, line -> logger.log(new DecoderResult(stdoutStreamType, line)));
+        this.stderrDecoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, line -> logger.log(new DecoderResult(StreamType.STDERR, line)));
     }
 
-    private StringBuilder getBuffer(StreamType streamType) throws IOException {
+    private StreamLineDecoder getDecoder(StreamType streamType) throws IOException {
         switch (streamType) {
             case STDIN:
-                return stdinBuffer;
+                return stdinDecoder;
             case RAW:
             case STDOUT:
-                return stdoutBuffer;
+                stdoutStreamType = streamType;
+                return stdoutDecoder;
             case STDERR:
-                return stderrBuffer;
+                return stderrDecoder;
             default:
                 throw new IOException("Docker stream is corrupted");
         }
@@ -44,27 +49,23 @@ public class DockerStreamDecoder extends ResultCallbackTemplate<DockerStreamDeco
 
     @Override
     public void onNext(Frame frame) {
-        List<DecoderResult> result = Lists.newArrayList();
         try {
-            StringBuilder currentLine = getBuffer(frame.getStreamType());
-            String newData = new String(frame.getPayload(), "UTF-8");
-            for (int i = 0; i < newData.length(); i++) {
-                char c = newData.charAt(i);
-                if (c == '\n') {
-                    result.add(new DecoderResult(frame.getStreamType(), currentLine.toString()));
-                    currentLine.setLength(0);
-                } else {
-                    currentLine.append(c);
-                }
-            }
-            for (DecoderResult line : result) {
-                logger.log(line);
-            }
+            byte[] payload = frame.getPayload();
+            getDecoder(frame.getStreamType()).decode(payload, 0, payload.length);
         } catch (IOException e) {
             onError(e);
         }
     }
 
+    @Override
+    public void onComplete() {
+        // The last lines of the streams might not end with a line feed
+        stdinDecoder.flush();
+        stdoutDecoder.flush();
+        stderrDecoder.flush();
+        super.onComplete();
+    }
+
     static class DecoderResult {
 
         private StreamType streamType;
@@ -0,0 +1,129 @@
+package com.toscaruntime.util;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.function.Consumer;
+
+/**
+ * Assemble lines from the bytes of one stream as they arrive in chunks.
+ * The charset decoder is kept between chunks so that characters split across chunks are decoded correctly, bytes are decoded in place into a fixed line buffer.
+ * A line longer than the buffer is emitted in pieces of the buffer's size, so that memory stays bounded whatever the output.
+ *
+ * @author Minh Khang VU
+ */
+public class StreamLineDecoder {
+
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * Big enough for the bytes of an incomplete character of any charset
+     */
+    private static final int CARRY_SIZE = 16;
+
+    private final CharsetDecoder decoder;
+
+    private final Consumer<String> lineConsumer;
+
+    /**
+     * Bytes at the end of the previous chunk which do not form a complete character yet
+     */
+    private final ByteBuffer carry = ByteBuffer.allocate(CARRY_SIZE);
+
+    /**
+     * Characters of the line being assembled, lines are emitted in place and only the incomplete one is moved to the beginning
+     */
+    private final CharBuffer line;
+
+    /**
+     * Characters of the line buffer before this position have been scanned for new lines already
+     */
+    private int scanned = 0;
+
+    public StreamLineDecoder(Charset charset, int maxLineLength, Consumer<String> lineConsumer) {
+        if (maxLineLength < 2) {
+            throw new IllegalArgumentException("Max line length must be at least 2 to hold surrogate pairs but is " + maxLineLength);
+        }
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.line = CharBuffer.allocate(maxLineLength);
+        this.lineConsumer = lineConsumer;
+    }
+
+    /**
+     * Decode a chunk of the stream, complete lines are emitted to the consumer without their line feed
+     *
+     * @param bytes  the chunk, it's not retained after the call
+     * @param offset offset of the chunk's data
+     * @param length length of the chunk's data
+     */
+    public void decode(byte[] bytes, int offset, int length) {
+        ByteBuffer input = ByteBuffer.wrap(bytes, offset, length);
+        // Complete the character which was split by the previous chunk
+        while (carry.position() > 0 && input.hasRemaining()) {
+            carry.put(input.get());
+            carry.flip();
+            decode(carry, false);
+            carry.compact();
+        }
+        decode(input, false);
+        if (input.hasRemaining()) {
+            carry.put(input);
+        }
+    }
+
+    /**
+     * Signal the end of the stream, the last line is emitted even if it does not end with a line feed
+     */
+    public void flush() {
+        carry.flip();
+        decode(carry, true);
+        carry.clear();
+        while (decoder.flush(line).isOverflow()) {
+            drainLines(true);
+        }
+        drainLines(false);
+        if (line.position() > 0) {
+            lineConsumer.accept(new String(line.array(), 0, line.position()));
+            line.clear();
+        }
+        scanned = 0;
+        decoder.reset();
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+        CoderResult result;
+        do {
+            // Malformed input is replaced so only underflow or overflow can happen
+            result = decoder.decode(input, line, endOfInput);
+            drainLines(result.isOverflow());
+        } while (result.isOverflow());
+    }
+
+    /**
+     * @param overflow the last decoding stopped because the buffer could not hold the next character, which can be a surrogate pair when only one char is free
+     */
+    private void drainLines(boolean overflow) {
+        char[] chars = line.array();
+        int end = line.position();
+        int lineStart = 0;
+        for (int i = scanned; i < end; i++) {
+            if (chars[i] == '\n') {
+                lineConsumer.accept(new String(chars, lineStart, i - lineStart));
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart == 0 && end > 0 && (overflow || end == line.capacity())) {
+            // The line is too long to be held, what has been assembled is emitted as a line
+            lineConsumer.accept(new String(chars, 0, end));
+            lineStart = end;
+        }
+        if (lineStart > 0) {
+            System.arraycopy(chars, lineStart, chars, 0, end - lineStart);
+            line.position(end - lineStart);
+        }
+        scanned = line.position();
+    }
+}
@@ -0,0 +1,112 @@
+package com.toscaruntime.util;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Micro benchmark of the line assembly of docker exec output, {@link StreamLineDecoder} against the previous decoding which created a string per frame
+ * and built lines char by char. Run it with its main method, it prints the throughput and the allocation of both decoders.
+ */
+public class DockerStreamDecoderBenchmark {
+
+    private static final int OUTPUT_SIZE = 64 * 1024 * 1024;
+
+    private static final int ITERATIONS = 5;
+
+    /**
+     * The previous decoding of a frame
+     */
+    private static class LegacyLineDecoder {
+
+        private StringBuilder currentLine = new StringBuilder();
+
+        private Consumer<String> lineConsumer;
+
+        private LegacyLineDecoder(Consumer<String> lineConsumer) {
+            this.lineConsumer = lineConsumer;
+        }
+
+        private void decode(byte[] payload) throws Exception {
+            List<String> result = new ArrayList<>();
+            String newData = new String(payload, "UTF-8");
+            for (int i = 0; i < newData.length(); i++) {
+                char c = newData.charAt(i);
+                if (c == '\n') {
+                    result.add(currentLine.toString());
+                    currentLine.setLength(0);
+                } else {
+                    currentLine.append(c);
+                }
+            }
+            result.forEach(lineConsumer);
+        }
+    }
+
+    /**
+     * Output of a chatty install script cut in frames of random sizes as the daemon sends them
+     */
+    private static List<byte[]> createFrames() {
+        String[] samples = {
+                "Get:42 http://archive.ubuntu.com/ubuntu trusty-updates/main libssl1.0.0 amd64 1.0.1f-1ubuntu2.19 [830 kB]",
+                "Setting up libc-bin (2.19-0ubuntu6.9) ...",
+                "[INFO] Downloaded: https://repo.maven.apache.org/maven2/org/apache/commons/commons-lang3/3.4/commons-lang3-3.4.jar (426 KB at 1523.2 KB/sec)",
+                "Param\u00e9trage de \u00ab locales \u00bb \u2014 g\u00e9n\u00e9ration des param\u00e8tres r\u00e9gionaux\u2026",
+                ""
+        };
+        Random random = new Random(42);
+        StringBuilder output = new StringBuilder();
+        while (output.length() < OUTPUT_SIZE) {
+            output.append(samples[random.nextInt(samples.length)]).append('\n');
+        }
+        byte[] bytes = output.toString().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> frames = new ArrayList<>();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, 1 + random.nextInt(16 * 1024));
+            byte[] frame = new byte[length];
+            System.arraycopy(bytes, offset, frame, 0, length);
+            frames.add(frame);
+            offset += length;
+        }
+        return frames;
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void report(String name, long totalBytes, long nanos, long allocatedBytes, long lines) {
+        System.out.printf("%-18s %8.1f MB/s %10.1f bytes allocated per input byte %12d lines%n", name, totalBytes * 1000.0 / nanos, allocatedBytes / (double) totalBytes, lines);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<byte[]> frames = createFrames();
+        long totalBytes = frames.stream().mapToLong(frame -> frame.length).sum();
+        long[] lineCount = new long[1];
+        Consumer<String> lineConsumer = line -> lineCount[0]++;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            lineCount[0] = 0;
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            LegacyLineDecoder legacyDecoder = new LegacyLineDecoder(lineConsumer);
+            for (byte[] frame : frames) {
+                legacyDecoder.decode(frame);
+            }
+            report("legacy", totalBytes, System.nanoTime() - start, getAllocatedBytes() - allocatedBefore, lineCount[0]);
+
+            lineCount[0] = 0;
+            allocatedBefore = getAllocatedBytes();
+            start = System.nanoTime();
+            StreamLineDecoder streamLineDecoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, lineConsumer);
+            for (byte[] frame : frames) {
+                streamLineDecoder.decode(frame, 0, frame.length);
+            }
+            streamLineDecoder.flush();
+            report("stream line", totalBytes, System.nanoTime() - start, getAllocatedBytes() - allocatedBefore, lineCount[0]);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.toscaruntime.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StreamLineDecoderTest {
+
+    @Test
+    public void testMultiByteCharactersSplitAcrossChunks() {
+        String text = "Param\u00e9trage de l'h\u00f4te\n\u65e5\u672c\u8a9e\u306e\u51fa\u529b\n\ud83d\ude00 emoji\n";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < bytes.length; split++) {
+            List<String> lines = new ArrayList<>();
+            StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, lines::add);
+            decoder.decode(bytes, 0, split);
+            decoder.decode(bytes, split, bytes.length - split);
+            decoder.flush();
+            Assert.assertEquals("Split at byte " + split, Arrays.asList("Param\u00e9trage de l'h\u00f4te", "\u65e5\u672c\u8a9e\u306e\u51fa\u529b", "\ud83d\ude00 emoji"), lines);
+        }
+    }
+
+    @Test
+    public void testByteByByte() {
+        byte[] bytes = "\u00e9\n\n\u00e0 la ligne\n".getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, 4, lines::add);
+        for (int i = 0; i < bytes.length; i++) {
+            decoder.decode(bytes, i, 1);
+        }
+        decoder.flush();
+        Assert.assertEquals(Arrays.asList("\u00e9", "", "\u00e0 la", " lig", "ne"), lines);
+    }
+
+    @Test
+    public void testOverlongLineIsEmittedInPieces() {
+        List<String> lines = new ArrayList<>();
+        StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, 8, lines::add);
+        byte[] bytes = (String.join("", Collections.nCopies(20, "x")) + "\nend\n").getBytes(StandardCharsets.UTF_8);
+        decoder.decode(bytes, 0, bytes.length);
+        decoder.flush();
+        Assert.assertEquals(Arrays.asList("xxxxxxxx", "xxxxxxxx", "xxxx", "end"), lines);
+    }
+
+    @Test(timeout = 5000)
+    public void testSurrogatePairDoesNotFitInLineBuffer() {
+        List<String> lines = new ArrayList<>();
+        StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, 4, lines::add);
+        byte[] bytes = "abc\ud83d\ude00x\n".getBytes(StandardCharsets.UTF_8);
+        decoder.decode(bytes, 0, bytes.length);
+        decoder.flush();
+        Assert.assertEquals(Arrays.asList("abc", "\ud83d\ude00x"), lines);
+    }
+
+    @Test
+    public void testLastLineWithoutLineFeedIsEmittedOnFlush() {
+        List<String> lines = new ArrayList<>();
+        StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, lines::add);
+        byte[] bytes = "first\nlast".getBytes(StandardCharsets.UTF_8);
+        decoder.decode(bytes, 0, bytes.length);
+        Assert.assertEquals(Collections.singletonList("first"), lines);
+        decoder.flush();
+        Assert.assertEquals(Arrays.asList("first", "last"), lines);
+    }
+
+    @Test
+    public void testMalformedInputIsReplaced() {
+        List<String> lines = new ArrayList<>();
+        StreamLineDecoder decoder = new StreamLineDecoder(StandardCharsets.UTF_8, StreamLineDecoder.DEFAULT_MAX_LINE_LENGTH, lines::add);
+        byte[] bytes = new byte[]{'a', (byte) 0xff, 'b', '\n', (byte) 0xe6};
+        decoder.decode(bytes, 0, bytes.length);
+        decoder.flush();
+        Assert.assertEquals(Arrays.asList("a\ufffdb", "\ufffd"), lines);
+    }
+}
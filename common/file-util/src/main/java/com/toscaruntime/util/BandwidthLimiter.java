@@ -0,0 +1,101 @@
+package com.toscaruntime.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by all the streams that it limits, the total throughput of the streams does not exceed the configured rate.
+ * A burst of at most one second of transfer is allowed after an idle period.
+ *
+ * @author Minh Khang VU
+ */
+public class BandwidthLimiter {
+
+    /**
+     * Writes are split in slices so that concurrent streams get their share of the bandwidth
+     */
+    private static final int SLICE_SIZE = 16 * 1024;
+
+    private long maxBytesPerSecond;
+
+    private double availableBytes;
+
+    private long lastRefillTime = System.nanoTime();
+
+    /**
+     * @param maxBytesPerSecond the maximum total throughput, 0 or negative for unlimited
+     */
+    public BandwidthLimiter(long maxBytesPerSecond) {
+        setMaxBytesPerSecond(maxBytesPerSecond);
+    }
+
+    public synchronized void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.availableBytes = Math.max(0, maxBytesPerSecond);
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    public synchronized long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    /**
+     * Block until the given number of bytes can be transferred
+     *
+     * @param bytes number of bytes to transfer
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(int bytes) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            if (maxBytesPerSecond <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            availableBytes = Math.min(maxBytesPerSecond, availableBytes + (now - lastRefillTime) * maxBytesPerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+            lastRefillTime = now;
+            // The bytes are reserved right away, the debt makes the following callers wait for their turn
+            availableBytes -= bytes;
+            waitNanos = availableBytes < 0 ? (long) (-availableBytes * TimeUnit.SECONDS.toNanos(1) / maxBytesPerSecond) : 0;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for bandwidth");
+                interruptedIOException.initCause(e);
+                throw interruptedIOException;
+            }
+        }
+    }
+
+    /**
+     * @param output the stream to limit
+     * @return a stream which writes to the given stream within the limit of this limiter
+     */
+    public OutputStream limit(OutputStream output) {
+        return new FilterOutputStream(output) {
+
+            @Override
+            public void write(int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int slice = Math.min(len, SLICE_SIZE);
+                    acquire(slice);
+                    out.write(b, off, slice);
+                    off += slice;
+                    len -= slice;
+                }
+            }
+        };
+    }
+}
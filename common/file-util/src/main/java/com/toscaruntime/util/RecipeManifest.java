@@ -0,0 +1,93 @@
+package com.toscaruntime.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Content hash of every file of a recipe, indexed by the file's relative linux path.
+ * The manifest is kept on the target next to the uploaded recipe so that the next upload only transfers what has changed.
+ *
+ * @author Minh Khang VU
+ */
+public class RecipeManifest {
+
+    public static final String FILE_NAME = ".toscaruntime_manifest";
+
+    private static final String HEADER = "# toscaruntime recipe manifest v1";
+
+    private static final String SEPARATOR = "  ";
+
+    private final SortedMap<String, String> hashes;
+
+    public RecipeManifest(Map<String, String> hashes) {
+        this.hashes = Collections.unmodifiableSortedMap(new TreeMap<>(hashes));
+    }
+
+    /**
+     * Parse the content of a manifest file
+     *
+     * @param content the content of the manifest file, null if the file does not exist
+     * @return the manifest or null if the content is not a valid manifest, in this case the target must be fully synchronized
+     */
+    public static RecipeManifest parse(String content) {
+        if (content == null) {
+            return null;
+        }
+        String[] lines = content.split("\n");
+        if (!HEADER.equals(lines[0].trim())) {
+            return null;
+        }
+        Map<String, String> hashes = new TreeMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int separatorIndex = line.indexOf(SEPARATOR);
+            if (separatorIndex <= 0) {
+                // Truncated manifest, the upload which wrote it must have been interrupted
+                return null;
+            }
+            hashes.put(line.substring(separatorIndex + SEPARATOR.length()), line.substring(0, separatorIndex));
+        }
+        return new RecipeManifest(hashes);
+    }
+
+    /**
+     * @return the content of the manifest file, the same format as sha256sum's output with a header
+     */
+    public String serialize() {
+        StringBuilder content = new StringBuilder(HEADER).append("\n");
+        hashes.forEach((path, hash) -> content.append(hash).append(SEPARATOR).append(path).append("\n"));
+        return content.toString();
+    }
+
+    public SortedMap<String, String> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * @param remoteManifest manifest of the target
+     * @return files of this manifest which are missing on the target or whose content is different
+     */
+    public List<String> getChangedFiles(RecipeManifest remoteManifest) {
+        List<String> changedFiles = new ArrayList<>();
+        hashes.forEach((path, hash) -> {
+            if (!hash.equals(remoteManifest.hashes.get(path))) {
+                changedFiles.add(path);
+            }
+        });
+        return changedFiles;
+    }
+
+    /**
+     * @param remoteManifest manifest of the target
+     * @return files of the target which do not exist in this manifest anymore
+     */
+    public List<String> getDeletedFiles(RecipeManifest remoteManifest) {
+        List<String> deletedFiles = new ArrayList<>();
+        remoteManifest.hashes.keySet().stream().filter(path -> !hashes.containsKey(path)).forEach(deletedFiles::add);
+        return deletedFiles;
+    }
+}
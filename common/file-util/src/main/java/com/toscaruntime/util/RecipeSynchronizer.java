@@ -0,0 +1,277 @@
+package com.toscaruntime.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Synchronize a local recipe with a remote directory by only transferring the files which changed since the last upload.
+ * The changed files are streamed as a tar archive, the new {@link RecipeManifest} is its last entry so that an interrupted upload leaves no manifest on the target.
+ * All uploads which use the same synchronizer share its bandwidth limit and its cache of file hashes.
+ *
+ * @author Minh Khang VU
+ */
+public class RecipeSynchronizer {
+
+    private static final int FILE_MODE = 0100644;
+
+    private static final int EXECUTABLE_FILE_MODE = 0100755;
+
+    private final BandwidthLimiter bandwidthLimiter;
+
+    private final boolean compressed;
+
+    /**
+     * Hashes of local files are only computed again when their size or modification time changes
+     */
+    private final Map<Path, FileDigest> digests = new ConcurrentHashMap<>();
+
+    /**
+     * Create a synchronizer with unlimited bandwidth which compresses the transferred archives
+     */
+    public RecipeSynchronizer() {
+        this(0, true);
+    }
+
+    /**
+     * @param maxBytesPerSecond total throughput of all uploads, 0 or negative for unlimited
+     * @param compressed        compress the transferred archives
+     */
+    public RecipeSynchronizer(long maxBytesPerSecond, boolean compressed) {
+        this.bandwidthLimiter = new BandwidthLimiter(maxBytesPerSecond);
+        this.compressed = compressed;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Compute the manifest of a local recipe
+     *
+     * @param localPath the recipe directory
+     * @return the manifest of all regular files of the directory
+     * @throws IOException if files cannot be read
+     */
+    public RecipeManifest createManifest(Path localPath) throws IOException {
+        Map<String, String> hashes = new TreeMap<>();
+        Files.walkFileTree(localPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = getRelativePath(localPath, file);
+                if (attrs.isRegularFile() && !RecipeManifest.FILE_NAME.equals(relativePath)) {
+                    hashes.put(relativePath, getHash(file, attrs));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new RecipeManifest(hashes);
+    }
+
+    /**
+     * Compute what must be transferred to the target
+     *
+     * @param localManifest         manifest of the local recipe
+     * @param remoteManifestContent content of the target's manifest file, null if it does not exist
+     * @return the delta between the local recipe and the target
+     */
+    public Delta computeDelta(RecipeManifest localManifest, String remoteManifestContent) {
+        RecipeManifest remoteManifest = RecipeManifest.parse(remoteManifestContent);
+        if (remoteManifest == null) {
+            return new Delta(localManifest, true, new ArrayList<>(localManifest.getHashes().keySet()), new ArrayList<>());
+        } else {
+            return new Delta(localManifest, false, localManifest.getChangedFiles(remoteManifest), localManifest.getDeletedFiles(remoteManifest));
+        }
+    }
+
+    /**
+     * Write the changed files of the delta then the new manifest as a tar archive, compressed if configured, the output is closed at the end
+     *
+     * @param localPath the recipe directory
+     * @param delta     the delta to transfer
+     * @param output    where to write the archive
+     * @throws IOException if files cannot be read or the archive cannot be written
+     */
+    public void writeArchive(Path localPath, Delta delta, OutputStream output) throws IOException {
+        OutputStream limitedOutput = bandwidthLimiter.limit(output);
+        OutputStream archiveOutput = new BufferedOutputStream(compressed ? new GZIPOutputStream(limitedOutput) : limitedOutput);
+        try (TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(archiveOutput, StandardCharsets.UTF_8.name())) {
+            tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            for (String changedFile : delta.changedFiles) {
+                Path file = localPath.resolve(changedFile);
+                TarArchiveEntry entry = new TarArchiveEntry(file.toFile(), changedFile);
+                entry.setMode(Files.isExecutable(file) ? EXECUTABLE_FILE_MODE : FILE_MODE);
+                tarOutput.putArchiveEntry(entry);
+                try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+                    IOUtils.copy(input, tarOutput);
+                }
+                tarOutput.closeArchiveEntry();
+            }
+            byte[] manifest = delta.localManifest.serialize().getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry manifestEntry = new TarArchiveEntry(RecipeManifest.FILE_NAME);
+            manifestEntry.setSize(manifest.length);
+            manifestEntry.setMode(FILE_MODE);
+            manifestEntry.setModTime(new Date());
+            tarOutput.putArchiveEntry(manifestEntry);
+            tarOutput.write(manifest);
+            tarOutput.closeArchiveEntry();
+            tarOutput.finish();
+        }
+    }
+
+    /**
+     * @param remotePath the remote recipe directory
+     * @return shell command which prints the target's manifest, it prints nothing if the manifest does not exist
+     */
+    public static String getReadManifestCommand(String remotePath) {
+        String manifestPath = quote(remotePath + "/" + RecipeManifest.FILE_NAME);
+        return "if [ -f " + manifestPath + " ]; then cat " + manifestPath + "; fi";
+    }
+
+    /**
+     * The remote directory is emptied for a full synchronization, else the old manifest and the deleted files are removed.
+     *
+     * @param remotePath the remote recipe directory
+     * @param delta      the delta to transfer
+     * @return shell command which prepares the remote directory to receive the archive, the current directory is the remote directory at the end
+     */
+    public static String getPrepareCommand(String remotePath, Delta delta) {
+        StringBuilder command = new StringBuilder();
+        String quotedRemotePath = quote(remotePath);
+        if (delta.fullSynchronization) {
+            command.append("rm -rf ").append(quotedRemotePath).append(" && ");
+        }
+        command.append("mkdir -p ").append(quotedRemotePath).append(" && cd ").append(quotedRemotePath).append(" && rm -f ").append(quote(RecipeManifest.FILE_NAME));
+        delta.deletedFiles.forEach(deletedFile -> command.append(" ").append(quote(deletedFile)));
+        return command.toString();
+    }
+
+    /**
+     * @return shell command which extracts the archive from the standard input into the current directory
+     */
+    public String getExtractCommand() {
+        return compressed ? "tar -xzf -" : "tar -xf -";
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static String getRelativePath(Path base, Path file) {
+        String relativePath = base.relativize(file).toString();
+        String separator = base.getFileSystem().getSeparator();
+        return "/".equals(separator) ? relativePath : relativePath.replace(separator, "/");
+    }
+
+    private String getHash(Path file, BasicFileAttributes attrs) throws IOException {
+        Path key = file.toAbsolutePath();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        FileDigest digest = digests.get(key);
+        if (digest == null || digest.size != attrs.size() || digest.lastModified != lastModified) {
+            digest = new FileDigest(attrs.size(), lastModified, computeHash(file));
+            digests.put(key, digest);
+        }
+        return digest.hash;
+    }
+
+    private static String computeHash(Path file) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : messageDigest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static class FileDigest {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String hash;
+
+        private FileDigest(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * What must be transferred to bring a target up to date with the local recipe
+     */
+    public static class Delta {
+
+        private final RecipeManifest localManifest;
+
+        private final boolean fullSynchronization;
+
+        private final List<String> changedFiles;
+
+        private final List<String> deletedFiles;
+
+        private Delta(RecipeManifest localManifest, boolean fullSynchronization, List<String> changedFiles, List<String> deletedFiles) {
+            this.localManifest = localManifest;
+            this.fullSynchronization = fullSynchronization;
+            this.changedFiles = changedFiles;
+            this.deletedFiles = deletedFiles;
+        }
+
+        /**
+         * @return true if the target has no manifest, it is emptied then receives the whole recipe
+         */
+        public boolean isFullSynchronization() {
+            return fullSynchronization;
+        }
+
+        public List<String> getChangedFiles() {
+            return changedFiles;
+        }
+
+        public List<String> getDeletedFiles() {
+            return deletedFiles;
+        }
+
+        /**
+         * @return true if the target is already up to date
+         */
+        public boolean isEmpty() {
+            return !fullSynchronization && changedFiles.isEmpty() && deletedFiles.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.toscaruntime.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BandwidthLimiterTest {
+
+    @Test
+    public void testUnlimited() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(0);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        try (OutputStream limited = limiter.limit(output)) {
+            limited.write(new byte[10 * 1024 * 1024]);
+        }
+        Assert.assertEquals(10 * 1024 * 1024, output.size());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+    }
+
+    @Test
+    public void testThroughputIsLimited() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(64 * 1024);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        try (OutputStream limited = limiter.limit(output)) {
+            // One second of burst then two seconds at the limit
+            limited.write(new byte[3 * 64 * 1024]);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertEquals(3 * 64 * 1024, output.size());
+        Assert.assertTrue("Transfer took " + elapsedMillis + " ms", elapsedMillis >= 1800);
+    }
+
+    @Test
+    public void testStreamsShareTheLimit() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter(64 * 1024);
+        // Consume the burst
+        limiter.acquire(64 * 1024);
+        long start = System.nanoTime();
+        Thread other = new Thread(() -> {
+            try {
+                limiter.limit(new ByteArrayOutputStream()).write(new byte[32 * 1024]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        other.start();
+        limiter.limit(new ByteArrayOutputStream()).write(new byte[32 * 1024]);
+        other.join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue("Transfer took " + elapsedMillis + " ms", elapsedMillis >= 900);
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void testInterruptedWhileWaiting() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024);
+        limiter.acquire(1024);
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire(1024);
+        } finally {
+            Assert.assertTrue(Thread.interrupted());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.toscaruntime.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RecipeManifestTest {
+
+    private static RecipeManifest createManifest(String... pathsAndHashes) {
+        Map<String, String> hashes = new HashMap<>();
+        for (int i = 0; i < pathsAndHashes.length; i += 2) {
+            hashes.put(pathsAndHashes[i], pathsAndHashes[i + 1]);
+        }
+        return new RecipeManifest(hashes);
+    }
+
+    @Test
+    public void testSerializeAndParse() {
+        RecipeManifest manifest = createManifest("scripts/install.sh", "aaa", "file with  spaces.txt", "bbb");
+        String content = manifest.serialize();
+        Assert.assertEquals("# toscaruntime recipe manifest v1\nbbb  file with  spaces.txt\naaa  scripts/install.sh\n", content);
+        Assert.assertEquals(manifest.getHashes(), RecipeManifest.parse(content).getHashes());
+    }
+
+    @Test
+    public void testParseEmptyManifest() {
+        RecipeManifest manifest = RecipeManifest.parse(createManifest().serialize());
+        Assert.assertNotNull(manifest);
+        Assert.assertTrue(manifest.getHashes().isEmpty());
+    }
+
+    @Test
+    public void testParseInvalidManifest() {
+        Assert.assertNull(RecipeManifest.parse(null));
+        Assert.assertNull(RecipeManifest.parse(""));
+        Assert.assertNull(RecipeManifest.parse("aaa  scripts/install.sh\n"));
+        // Truncated by an interrupted upload
+        Assert.assertNull(RecipeManifest.parse("# toscaruntime recipe manifest v1\naaa  scripts/install.sh\nbb"));
+    }
+
+    @Test
+    public void testDiff() {
+        RecipeManifest remote = createManifest("unchanged.sh", "aaa", "changed.sh", "bbb", "deleted.sh", "ccc");
+        RecipeManifest local = createManifest("unchanged.sh", "aaa", "changed.sh", "ddd", "added.sh", "eee");
+        Assert.assertEquals(Arrays.asList("added.sh", "changed.sh"), local.getChangedFiles(remote));
+        Assert.assertEquals(Collections.singletonList("deleted.sh"), local.getDeletedFiles(remote));
+        Assert.assertTrue(local.getChangedFiles(local).isEmpty());
+        Assert.assertTrue(local.getDeletedFiles(local).isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+package com.toscaruntime.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RecipeSynchronizerTest {
+
+    private Path recipe;
+
+    @Before
+    public void before() throws IOException {
+        recipe = Files.createTempDirectory("recipe");
+        Files.createDirectories(recipe.resolve("scripts"));
+        Files.write(recipe.resolve("scripts").resolve("install.sh"), "#!/bin/sh\necho install\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(recipe.resolve("config.txt"), "key=value\n".getBytes(StandardCharsets.UTF_8));
+        // The manifest of a previous synchronization is not part of the recipe
+        Files.write(recipe.resolve(RecipeManifest.FILE_NAME), "old manifest".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void after() throws IOException {
+        FileUtil.delete(recipe);
+    }
+
+    private static Map<String, byte[]> readArchive(byte[] archive, boolean compressed, List<TarArchiveEntry> entries) throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        InputStream input = new ByteArrayInputStream(archive);
+        try (TarArchiveInputStream tarInput = new TarArchiveInputStream(compressed ? new GZIPInputStream(input) : input, StandardCharsets.UTF_8.name())) {
+            TarArchiveEntry entry;
+            while ((entry = tarInput.getNextTarEntry()) != null) {
+                entries.add(entry);
+                contents.put(entry.getName(), IOUtils.toByteArray(tarInput));
+            }
+        }
+        return contents;
+    }
+
+    @Test
+    public void testCreateManifest() throws IOException {
+        RecipeManifest manifest = new RecipeSynchronizer().createManifest(recipe);
+        Assert.assertEquals(Arrays.asList("config.txt", "scripts/install.sh"), new ArrayList<>(manifest.getHashes().keySet()));
+        String configHash = manifest.getHashes().get("config.txt");
+        Files.write(recipe.resolve("config.txt"), "key=other value\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertNotEquals(configHash, new RecipeSynchronizer().createManifest(recipe).getHashes().get("config.txt"));
+    }
+
+    @Test
+    public void testComputeDelta() throws IOException {
+        RecipeSynchronizer synchronizer = new RecipeSynchronizer();
+        RecipeManifest localManifest = synchronizer.createManifest(recipe);
+        RecipeSynchronizer.Delta fullDelta = synchronizer.computeDelta(localManifest, null);
+        Assert.assertTrue(fullDelta.isFullSynchronization());
+        Assert.assertEquals(Arrays.asList("config.txt", "scripts/install.sh"), fullDelta.getChangedFiles());
+        Assert.assertTrue(synchronizer.computeDelta(localManifest, localManifest.serialize()).isEmpty());
+        Map<String, String> remoteHashes = new LinkedHashMap<>(localManifest.getHashes());
+        remoteHashes.put("config.txt", "outdated");
+        remoteHashes.put("deleted.txt", "deleted");
+        RecipeSynchronizer.Delta delta = synchronizer.computeDelta(localManifest, new RecipeManifest(remoteHashes).serialize());
+        Assert.assertFalse(delta.isFullSynchronization());
+        Assert.assertEquals(Collections.singletonList("config.txt"), delta.getChangedFiles());
+        Assert.assertEquals(Collections.singletonList("deleted.txt"), delta.getDeletedFiles());
+    }
+
+    @Test
+    public void testCommandsAreQuoted() throws IOException {
+        RecipeSynchronizer synchronizer = new RecipeSynchronizer();
+        RecipeManifest localManifest = synchronizer.createManifest(recipe);
+        Assert.assertEquals("if [ -f '/opt/it'\\''s recipe/.toscaruntime_manifest' ]; then cat '/opt/it'\\''s recipe/.toscaruntime_manifest'; fi",
+                RecipeSynchronizer.getReadManifestCommand("/opt/it's recipe"));
+        Assert.assertEquals("rm -rf '/opt/recipe' && mkdir -p '/opt/recipe' && cd '/opt/recipe' && rm -f '.toscaruntime_manifest'",
+                RecipeSynchronizer.getPrepareCommand("/opt/recipe", synchronizer.computeDelta(localManifest, null)));
+        Map<String, String> remoteHashes = new LinkedHashMap<>(localManifest.getHashes());
+        remoteHashes.put("it's deleted.txt", "deleted");
+        Assert.assertEquals("mkdir -p '/opt/recipe' && cd '/opt/recipe' && rm -f '.toscaruntime_manifest' 'it'\\''s deleted.txt'",
+                RecipeSynchronizer.getPrepareCommand("/opt/recipe", synchronizer.computeDelta(localManifest, new RecipeManifest(remoteHashes).serialize())));
+    }
+
+    @Test
+    public void testArchiveLayout() throws IOException {
+        Files.setPosixFilePermissions(recipe.resolve("scripts").resolve("install.sh"), PosixFilePermissions.fromString("rwxr-xr-x"));
+        RecipeSynchronizer synchronizer = new RecipeSynchronizer();
+        RecipeManifest localManifest = synchronizer.createManifest(recipe);
+        RecipeSynchronizer.Delta delta = synchronizer.computeDelta(localManifest, null);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        synchronizer.writeArchive(recipe, delta, archive);
+        Assert.assertEquals("tar -xzf -", synchronizer.getExtractCommand());
+        List<TarArchiveEntry> entries = new ArrayList<>();
+        Map<String, byte[]> contents = readArchive(archive.toByteArray(), true, entries);
+        // The manifest is the last entry so that an interrupted upload leaves no manifest
+        Assert.assertEquals(Arrays.asList("config.txt", "scripts/install.sh", RecipeManifest.FILE_NAME), new ArrayList<>(contents.keySet()));
+        Assert.assertEquals("key=value\n", new String(contents.get("config.txt"), StandardCharsets.UTF_8));
+        Assert.assertEquals(localManifest.serialize(), new String(contents.get(RecipeManifest.FILE_NAME), StandardCharsets.UTF_8));
+        Assert.assertEquals(0100644, entries.get(0).getMode());
+        Assert.assertEquals(0100755, entries.get(1).getMode());
+    }
+
+    @Test
+    public void testUncompressedArchiveWithOnlyChangedFiles() throws IOException {
+        RecipeSynchronizer synchronizer = new RecipeSynchronizer(0, false);
+        RecipeManifest localManifest = synchronizer.createManifest(recipe);
+        Map<String, String> remoteHashes = new LinkedHashMap<>(localManifest.getHashes());
+        remoteHashes.put("config.txt", "outdated");
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        synchronizer.writeArchive(recipe, synchronizer.computeDelta(localManifest, new RecipeManifest(remoteHashes).serialize()), archive);
+        Assert.assertEquals("tar -xf -", synchronizer.getExtractCommand());
+        Map<String, byte[]> contents = readArchive(archive.toByteArray(), false, new ArrayList<>());
+        Assert.assertEquals(Arrays.asList("config.txt", RecipeManifest.FILE_NAME), new ArrayList<>(contents.keySet()));
+    }
+}
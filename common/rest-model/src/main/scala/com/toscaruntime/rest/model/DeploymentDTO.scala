@@ -44,14 +44,44 @@ object ExecutionDTO {
   implicit val ExecutionDTOFormat = Json.format[ExecutionDTO]
 }
 
+/**
+  * Transition of an execution (eventType execution) or of one of its tasks (eventType task), pushed by the agent as server sent events.
+  * Execution id is not defined for a transient execution.
+  */
+case class ExecutionEventDTO(executionId: Option[String], workflowId: String, eventType: String, task: Option[String], status: String, error: Option[String], timestamp: Long)
+
+object ExecutionEventDTO {
+
+  val ExecutionEventType = "execution"
+
+  val TaskEventType = "task"
+
+  implicit val ExecutionEventDTOFormat = Json.format[ExecutionEventDTO]
+}
+
+/**
+  * Information of a deployment, only selected fields are filled, the others are empty.
+  * Executions are sorted from the most recent and can be paginated, executionsCount is then the total number of executions of the deployment.
+  */
 case class DeploymentDTO(name: String,
                          nodes: List[NodeDTO],
                          relationships: List[RelationshipNodeDTO],
                          outputs: Map[String, Any],
-                         executions: List[ExecutionDTO])
+                         executions: List[ExecutionDTO],
+                         executionsCount: Option[Int] = None)
 
 object DeploymentDTO {
 
+  val NodesField = "nodes"
+
+  val RelationshipsField = "relationships"
+
+  val OutputsField = "outputs"
+
+  val ExecutionsField = "executions"
+
+  val AllFields = Set(NodesField, RelationshipsField, OutputsField, ExecutionsField)
+
   implicit val DeploymentDTOFormat = Json.format[DeploymentDTO]
 }
 
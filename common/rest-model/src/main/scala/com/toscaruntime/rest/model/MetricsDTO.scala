@@ -0,0 +1,19 @@
+package com.toscaruntime.rest.model
+
+import play.api.libs.json.Json
+
+/**
+  * Distribution of durations in milliseconds, bucket i counts values lower or equal to bucketBounds(i) and greater than the previous bound,
+  * the last bucket counts values greater than the last bound
+  */
+case class HistogramDTO(count: Long, sum: Long, min: Long, max: Long, mean: Long, p50: Long, p95: Long, p99: Long, bucketBounds: List[Long], bucketCounts: List[Long])
+
+object HistogramDTO {
+  implicit val HistogramDTOFormat = Json.format[HistogramDTO]
+}
+
+case class MetricsDTO(histograms: Map[String, HistogramDTO], counters: Map[String, Long])
+
+object MetricsDTO {
+  implicit val MetricsDTOFormat = Json.format[MetricsDTO]
+}
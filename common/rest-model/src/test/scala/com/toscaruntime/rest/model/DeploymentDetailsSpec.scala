@@ -2,6 +2,7 @@ package com.toscaruntime.rest.model
 
 import com.toscaruntime.rest.model.JSONMapStringAnyFormat._
 import com.typesafe.scalalogging.LazyLogging
+import org.joda.time.DateTime
 import org.scalatest.{MustMatchers, WordSpec}
 import play.api.libs.json.{JsArray, JsObject, JsString, Json}
 
@@ -96,4 +97,34 @@ class DeploymentDetailsSpec extends WordSpec with MustMatchers with LazyLogging
       convertedDetails must be(details)
     }
   }
+
+  "Partial DeploymentDetails" must {
+    "be able to be converted to JsValue and vice versa" in {
+      val details = DeploymentDTO(
+        name = "test",
+        nodes = List.empty,
+        relationships = List.empty,
+        outputs = Map.empty,
+        executions = List(
+          ExecutionDTO(
+            id = "testExecution",
+            workflowId = "install",
+            startTime = new DateTime(0L),
+            endTime = None,
+            error = None,
+            status = "RUNNING",
+            inputs = Map("a" -> "b")
+          )
+        ),
+        executionsCount = Some(10)
+      )
+      val serialized = Json.toJson(details)
+      val convertedDetails = Json.fromJson[DeploymentDTO](serialized).get
+      convertedDetails.executions.map(_.id) must be(List("testExecution"))
+      convertedDetails.executionsCount must be(Some(10))
+      // Information returned by an agent which does not support pagination
+      val withoutCount = Json.fromJson[DeploymentDTO](serialized.as[JsObject] - "executionsCount").get
+      withoutCount.executionsCount must be(empty)
+    }
+  }
 }
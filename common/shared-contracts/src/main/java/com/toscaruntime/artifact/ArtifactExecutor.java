@@ -10,8 +10,6 @@ import java.util.Map;
  */
 public interface ArtifactExecutor {
 
-    String REMOTE_TEMP_DIR = "/tmp/";
-
     /**
      * Must be called to initialize the executor
      */
@@ -1,12 +1,10 @@
 package com.toscaruntime.artifact;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -21,59 +19,57 @@ import java.util.stream.Collectors;
  */
 public class ArtifactExecutorUtil {
 
-    public static void createArtifactExecutor(PrintWriter commandWriter, String remotePath, String sheBang, String statusCodeToken, String environmentVariablesToken) {
-        // Remove #! from the shebang to get the path to shell binary
-        String shellPath = sheBang.substring(2);
-        commandWriter.println("chmod +x " + remotePath);
-        commandWriter.println(shellPath + " < " + remotePath);
-        // Try to execute commands to capture exit status and environment variables
-        captureExitStatusAndEnvironmentVariables(commandWriter, statusCodeToken, environmentVariablesToken);
-        commandWriter.println("exit");
-        commandWriter.flush();
-    }
+    static final String OUTPUTS_FRAME = "outputs";
+
+    static final String STATUS_FRAME = "status";
 
-    private static void captureExitStatusAndEnvironmentVariables(PrintWriter commandWriter, String statusCodeToken, String environmentVariablesToken) {
-        // Check exit code
-        commandWriter.println("_toscaruntime_rc=$?");
-        // Mark the beginning of environment variables
-        commandWriter.println("echo " + environmentVariablesToken + "`printenv | sed -e ':a' -e 'N' -e '$!ba' -e 's/\\n/" + environmentVariablesToken + "/g'`");
-        // Print env in order to be able to capture environment variables
-        // Mark the beginning of status code
-        commandWriter.println("echo " + statusCodeToken + "$_toscaruntime_rc");
+    /**
+     * Command of the exec channel which runs the script created by {@link #createExecutionScript(String, Map, String)} from its standard input.
+     * The shell is a login shell so that the profile of the user is loaded as it was when artifacts were executed in an interactive shell.
+     *
+     * @param sheBang          she bang of the artifact, its shell will execute the script
+     * @param elevatePrivilege run the shell as root
+     * @return the command to execute
+     */
+    public static String getExecutionCommand(String sheBang, boolean elevatePrivilege) {
+        // Remove #! from the shebang to get the path to shell binary
+        String shellCommand = sheBang.substring(2).trim() + " -l -s";
+        return elevatePrivilege ? "sudo " + shellCommand : shellCommand;
     }
 
-    public static Path createArtifactWrapper(String artifactPath, Map<String, String> env, String statusCodeToken, String environmentVariablesToken, String sheBang, boolean elevatePrivilege) throws IOException {
-        Path localGeneratedScriptPath = Files.createTempFile("", ".sh");
-        try (PrintWriter commandWriter = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(Files.newOutputStream(localGeneratedScriptPath)), StandardCharsets.UTF_8))) {
-            commandWriter.println(sheBang);
-            if (elevatePrivilege) {
-                commandWriter.println("sudo -s");
-            }
+    /**
+     * Create the script which executes the artifact and writes its outputs then its exit status on the standard output, each one preceded by a line marked with the output token.
+     * The script is sent on the standard input of the exec channel so that the execution takes one round trip without any temporary file on the remote host.
+     *
+     * @param artifactPath path to the artifact on the remote host
+     * @param env          inputs of the artifact
+     * @param outputToken  random token which marks the frames of outputs, see {@link ArtifactOutputProcessor}
+     * @return the script to write to the exec channel's standard input
+     */
+    public static String createExecutionScript(String artifactPath, Map<String, String> env, String outputToken) {
+        StringWriter script = new StringWriter();
+        try (PrintWriter commandWriter = new PrintWriter(script)) {
             // Set env
-            List<String> setEnvCommands = ArtifactExecutorUtil.getSetEnvCommands(env);
-            setEnvCommands.stream().forEach(commandWriter::println);
+            getSetEnvCommands(env).forEach(commandWriter::println);
             // Make executable
-            commandWriter.println("chmod +x " + artifactPath);
-            // Launch the script
-            commandWriter.println(". " + artifactPath);
-            // Try to execute commands to capture exit status and environment variables
-            captureExitStatusAndEnvironmentVariables(commandWriter, statusCodeToken, environmentVariablesToken);
-            // Exit the ssh session
-            if (elevatePrivilege) {
-                commandWriter.println("exit");
-            }
-            commandWriter.println("exit");
-            // If elevatePrivilege is enabled then perform sudo -s
-            commandWriter.flush();
+            commandWriter.println("chmod +x \"" + artifactPath + "\"");
+            // Launch the script, it must not consume the rest of this script from the standard input
+            commandWriter.println(". \"" + artifactPath + "\" < /dev/null");
+            // Capture exit status and environment variables
+            commandWriter.println("_toscaruntime_rc=$?");
+            commandWriter.println("echo \"" + outputToken + " " + OUTPUTS_FRAME + "\"");
+            commandWriter.println("printenv");
+            commandWriter.println("echo \"" + outputToken + " " + STATUS_FRAME + " $_toscaruntime_rc\"");
+            commandWriter.println("exit $_toscaruntime_rc");
         }
-        return localGeneratedScriptPath;
+        return script.toString();
     }
 
     private static List<String> getSetEnvCommands(Map<String, String> env) {
         // Set envs
         if (env != null) {
             return env.entrySet().stream().filter(envEntry -> envEntry.getValue() != null).map(
-                    envEntry -> "export " + envEntry.getKey() + "='" + envEntry.getValue() + "'"
+                    envEntry -> "export " + envEntry.getKey() + "='" + envEntry.getValue().replace("'", "'\\''") + "'"
             ).collect(Collectors.toList());
         } else {
             return new ArrayList<>();
@@ -6,40 +6,49 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Process the standard output of a script created by {@link ArtifactExecutorUtil#createExecutionScript(String, Map, String)}.
+ * Lines of the artifact are returned to be logged, the outputs and the exit status are captured from the frames marked with the output token.
+ */
 public abstract class ArtifactOutputProcessor {
 
-    private static final Pattern ENV_VAR_PATTERN = Pattern.compile("^(\\S+)=(.+)$");
+    private static final Pattern ENV_VAR_PATTERN = Pattern.compile("^([A-Za-z_][A-Za-z0-9_]*)=(.*)$");
 
-    private String statusCodeToken;
+    private String outputsFrame;
 
-    private String environmentVariablesToken;
+    private String statusFrame;
+
+    private boolean inOutputsFrame;
+
+    private String lastCapturedEnvVar;
 
     protected AtomicReference<Integer> statusCode = new AtomicReference<>();
 
     protected Map<String, String> capturedEnvVars = new HashMap<>();
 
-    public ArtifactOutputProcessor(String statusCodeToken, String environmentVariablesToken) {
-        this.statusCodeToken = statusCodeToken;
-        this.environmentVariablesToken = environmentVariablesToken;
+    public ArtifactOutputProcessor(String outputToken) {
+        this.outputsFrame = outputToken + " " + ArtifactExecutorUtil.OUTPUTS_FRAME;
+        this.statusFrame = outputToken + " " + ArtifactExecutorUtil.STATUS_FRAME + " ";
     }
 
     public String processNewLine(String line) {
-        if (line.startsWith(environmentVariablesToken)) {
-            String[] allEnvVarsWithValues = line.split(environmentVariablesToken);
-            for (String envVarWithValue : allEnvVarsWithValues) {
-                if (statusCode.get() == null) {
-                    // Only update the env vars with the ones of the wrapper script first
-                    Matcher matcher = ENV_VAR_PATTERN.matcher(envVarWithValue);
-                    if (matcher.matches()) {
-                        capturedEnvVars.put(matcher.group(1), matcher.group(2));
-                    }
-                }
-            }
+        if (statusCode.get() != null) {
+            return line;
+        } else if (line.equals(outputsFrame)) {
+            inOutputsFrame = true;
+            return null;
+        } else if (line.startsWith(statusFrame)) {
+            inOutputsFrame = false;
+            statusCode.set(Integer.parseInt(line.substring(statusFrame.length()).trim()));
             return null;
-        } else if (line.startsWith(statusCodeToken)) {
-            if (statusCode.get() == null) {
-                // Only update status code with the one of the wrapper script first
-                statusCode.set(Integer.parseInt(line.substring(statusCodeToken.length())));
+        } else if (inOutputsFrame) {
+            Matcher matcher = ENV_VAR_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                lastCapturedEnvVar = matcher.group(1);
+                capturedEnvVars.put(lastCapturedEnvVar, matcher.group(2));
+            } else if (lastCapturedEnvVar != null) {
+                // Value on multiple lines
+                capturedEnvVars.put(lastCapturedEnvVar, capturedEnvVars.get(lastCapturedEnvVar) + "\n" + line);
             }
             return null;
         } else {
@@ -5,4 +5,5 @@ public class ProviderConstant {
     public static final String DOCKER = "docker";
     public static final String DEFAULT_TARGET = "default";
     public static final String AWS = "aws";
+    public static final String MOCK = "mock";
 }
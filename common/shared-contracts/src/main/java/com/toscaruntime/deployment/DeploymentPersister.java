@@ -20,6 +20,22 @@ public interface DeploymentPersister {
 
     void syncDeleteInstance(String id);
 
+    /**
+     * Insert in one transaction the node instances and relationship instances which do not exist yet, with the node instances' initial attributes
+     *
+     * @param instances             node instances to insert
+     * @param relationshipInstances relationship instances to insert
+     */
+    void syncInsertInstancesIfNotExist(List<InstanceDTO> instances, List<RelationshipInstanceDTO> relationshipInstances);
+
+    /**
+     * Delete in one transaction the given relationship instances and node instances
+     *
+     * @param instanceIds   ids of node instances to delete
+     * @param relationships relationship instances to delete
+     */
+    void syncDeleteInstances(List<String> instanceIds, List<RelationshipTaskDTO.Relationship> relationships);
+
     void syncSaveInstanceState(String id, String newState);
 
     String syncGetInstanceState(String id);
@@ -62,47 +78,58 @@ public interface DeploymentPersister {
 
     String syncGetRelationshipInstanceState(String sourceInstanceId, String targetInstanceId, String relationshipType);
 
-    boolean hasExistingData();
-
-    void syncInsertNewNodeTask(String instanceId, String interfaceName, String operationName);
-
-    void syncStartNodeTask(String instanceId, String interfaceName, String operationName);
-
-    void syncFinishNodeTask(String instanceId, String interfaceName, String operationName);
+    /**
+     * @return instances count of all nodes : node id to instances count
+     */
+    Map<String, Integer> syncGetNodeInstancesCounts();
 
-    void syncStopNodeTask(String instanceId, String interfaceName, String operationName, String error);
+    /**
+     * @return persisted state of all node instances : instance id to snapshot
+     */
+    Map<String, InstanceSnapshotDTO> syncGetInstanceSnapshots();
 
-    void syncInsertNewTask(String taskId);
+    /**
+     * @return persisted state of all relationship instances : relationship to snapshot
+     */
+    Map<RelationshipTaskDTO.Relationship, InstanceSnapshotDTO> syncGetRelationshipInstanceSnapshots();
 
-    void syncStartTask(String taskId);
-
-    void syncFinishTask(String taskId);
-
-    void syncStopTask(String taskId, String error);
-
-    void syncInsertNewRelationshipTask(String sourceInstanceId, String targetInstanceId, String relationshipType, String interfaceName, String operationName);
+    boolean hasExistingData();
 
-    void syncStartRelationshipTask(String sourceInstanceId, String targetInstanceId, String relationshipType, String interfaceName, String operationName);
+    /**
+     * Persist in order and in a single transaction a batch of task transitions, they may concern several running executions
+     *
+     * @param transitions the transitions to persist, in the order they happened
+     */
+    void syncSaveTaskTransitions(List<TaskTransitionDTO> transitions);
 
-    void syncFinishRelationshipTask(String sourceInstanceId, String targetInstanceId, String relationshipType, String interfaceName, String operationName);
+    /**
+     * @return all executions which have not ended, several executions can run at the same time if they concern different instances
+     */
+    List<RunningExecutionDTO> syncGetRunningExecutions();
 
-    void syncStopRelationshipTask(String sourceInstanceId, String targetInstanceId, String relationshipType, String interfaceName, String operationName, String error);
+    Map<NodeTaskDTO, String> syncGetExecutionNodeTasks(String executionId);
 
-    RunningExecutionDTO syncGetRunningExecution();
+    Map<RelationshipTaskDTO, String> syncGetExecutionRelationshipTasks(String executionId);
 
-    Map<NodeTaskDTO, String> syncGetRunningExecutionNodeTasks();
+    Map<TaskDTO, String> syncGetExecutionTasks(String executionId);
 
-    Map<RelationshipTaskDTO, String> syncGetRunningExecutionRelationshipTasks();
+    /**
+     * @return average duration in milliseconds of the node tasks which succeeded in all executions, by operation of the node
+     */
+    Map<NodeOperationDTO, Long> syncGetNodeTaskDurations();
 
-    Map<TaskDTO, String> syncGetRunningExecutionTasks();
+    /**
+     * @return average duration in milliseconds of the relationship tasks which succeeded in all executions, by operation of the relationship between the nodes
+     */
+    Map<RelationshipOperationDTO, Long> syncGetRelationshipTaskDurations();
 
-    void syncInsertExecutionInputs(Map<String, Object> inputs);
+    void syncInsertExecutionInputs(String executionId, Map<String, Object> inputs);
 
-    void syncFinishRunningExecution();
+    void syncFinishExecution(String executionId);
 
-    void syncStopRunningExecution(String error);
+    void syncStopExecution(String executionId, String error);
 
-    void syncStopRunningExecution();
+    void syncStopExecution(String executionId);
 
-    void syncCancelRunningExecution();
+    void syncCancelExecution(String executionId);
 }
@@ -0,0 +1,48 @@
+package com.toscaruntime.deployment;
+
+import java.util.Map;
+
+/**
+ * This represents a new node instance to persist with its initial attributes
+ *
+ * @author Minh Khang VU
+ */
+public class InstanceDTO {
+
+    private String id;
+
+    private String nodeId;
+
+    private String state;
+
+    private Map<String, String> attributes;
+
+    /**
+     * @param id         id of the instance
+     * @param nodeId     id of the instance's node
+     * @param state      initial state of the instance
+     * @param attributes initial raw attributes : key to json value
+     */
+    public InstanceDTO(String id, String nodeId, String state, Map<String, String> attributes) {
+        this.id = id;
+        this.nodeId = nodeId;
+        this.state = state;
+        this.attributes = attributes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+}
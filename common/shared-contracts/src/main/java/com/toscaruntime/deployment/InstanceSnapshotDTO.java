@@ -0,0 +1,40 @@
+package com.toscaruntime.deployment;
+
+import java.util.Map;
+
+/**
+ * This represents the persisted state of a node or relationship instance, all snapshots are loaded in bulk at initial load
+ *
+ * @author Minh Khang VU
+ */
+public class InstanceSnapshotDTO {
+
+    private String state;
+
+    private Map<String, String> attributes;
+
+    private Map<String, Map<String, Map<String, String>>> outputs;
+
+    /**
+     * @param state      state of the instance
+     * @param attributes raw attributes : key to json value
+     * @param outputs    last operation outputs : interface name to operation name to key to value
+     */
+    public InstanceSnapshotDTO(String state, Map<String, String> attributes, Map<String, Map<String, Map<String, String>>> outputs) {
+        this.state = state;
+        this.attributes = attributes;
+        this.outputs = outputs;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public Map<String, Map<String, Map<String, String>>> getOutputs() {
+        return outputs;
+    }
+}
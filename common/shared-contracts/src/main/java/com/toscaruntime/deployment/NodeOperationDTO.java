@@ -0,0 +1,54 @@
+package com.toscaruntime.deployment;
+
+/**
+ * This represents an operation of a node, whatever the instance which runs it
+ *
+ * @author Minh Khang VU
+ */
+public class NodeOperationDTO {
+
+    private String nodeId;
+
+    private String interfaceName;
+
+    private String operationName;
+
+    public NodeOperationDTO(String nodeId, String interfaceName, String operationName) {
+        this.nodeId = nodeId;
+        this.interfaceName = interfaceName;
+        this.operationName = operationName;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        NodeOperationDTO that = (NodeOperationDTO) o;
+
+        if (!getNodeId().equals(that.getNodeId())) return false;
+        if (!getInterfaceName().equals(that.getInterfaceName())) return false;
+        return getOperationName().equals(that.getOperationName());
+
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getNodeId().hashCode();
+        result = 31 * result + getInterfaceName().hashCode();
+        result = 31 * result + getOperationName().hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package com.toscaruntime.deployment;
+
+/**
+ * This represents a new relationship instance to persist
+ *
+ * @author Minh Khang VU
+ */
+public class RelationshipInstanceDTO {
+
+    private RelationshipTaskDTO.Relationship relationship;
+
+    private String sourceNodeId;
+
+    private String targetNodeId;
+
+    private String state;
+
+    public RelationshipInstanceDTO(String sourceInstanceId, String targetInstanceId, String sourceNodeId, String targetNodeId, String relationshipType, String state) {
+        this.relationship = new RelationshipTaskDTO.Relationship(sourceInstanceId, targetInstanceId, relationshipType);
+        this.sourceNodeId = sourceNodeId;
+        this.targetNodeId = targetNodeId;
+        this.state = state;
+    }
+
+    public RelationshipTaskDTO.Relationship getRelationship() {
+        return relationship;
+    }
+
+    public String getSourceInstanceId() {
+        return relationship.getSourceInstanceId();
+    }
+
+    public String getTargetInstanceId() {
+        return relationship.getTargetInstanceId();
+    }
+
+    public String getRelationshipType() {
+        return relationship.getRelationshipType();
+    }
+
+    public String getSourceNodeId() {
+        return sourceNodeId;
+    }
+
+    public String getTargetNodeId() {
+        return targetNodeId;
+    }
+
+    public String getState() {
+        return state;
+    }
+}
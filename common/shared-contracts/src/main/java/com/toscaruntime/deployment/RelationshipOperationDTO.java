@@ -0,0 +1,72 @@
+package com.toscaruntime.deployment;
+
+/**
+ * This represents an operation of a relationship between two nodes, whatever the instances which run it
+ *
+ * @author Minh Khang VU
+ */
+public class RelationshipOperationDTO {
+
+    private String sourceNodeId;
+
+    private String targetNodeId;
+
+    private String relationshipType;
+
+    private String interfaceName;
+
+    private String operationName;
+
+    public RelationshipOperationDTO(String sourceNodeId, String targetNodeId, String relationshipType, String interfaceName, String operationName) {
+        this.sourceNodeId = sourceNodeId;
+        this.targetNodeId = targetNodeId;
+        this.relationshipType = relationshipType;
+        this.interfaceName = interfaceName;
+        this.operationName = operationName;
+    }
+
+    public String getSourceNodeId() {
+        return sourceNodeId;
+    }
+
+    public String getTargetNodeId() {
+        return targetNodeId;
+    }
+
+    public String getRelationshipType() {
+        return relationshipType;
+    }
+
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        RelationshipOperationDTO that = (RelationshipOperationDTO) o;
+
+        if (!getSourceNodeId().equals(that.getSourceNodeId())) return false;
+        if (!getTargetNodeId().equals(that.getTargetNodeId())) return false;
+        if (!getRelationshipType().equals(that.getRelationshipType())) return false;
+        if (!getInterfaceName().equals(that.getInterfaceName())) return false;
+        return getOperationName().equals(that.getOperationName());
+
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getSourceNodeId().hashCode();
+        result = 31 * result + getTargetNodeId().hashCode();
+        result = 31 * result + getRelationshipType().hashCode();
+        result = 31 * result + getInterfaceName().hashCode();
+        result = 31 * result + getOperationName().hashCode();
+        return result;
+    }
+}
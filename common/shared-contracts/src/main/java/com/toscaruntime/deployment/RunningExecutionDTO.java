@@ -9,15 +9,22 @@ import java.util.Map;
  */
 public class RunningExecutionDTO {
 
+    private String id;
+
     private String workflowId;
 
     private Map<String, Object> inputs;
 
-    public RunningExecutionDTO(String workflowId, Map<String, Object> inputs) {
+    public RunningExecutionDTO(String id, String workflowId, Map<String, Object> inputs) {
+        this.id = id;
         this.workflowId = workflowId;
         this.inputs = inputs;
     }
 
+    public String getId() {
+        return id;
+    }
+
     public String getWorkflowId() {
         return workflowId;
     }
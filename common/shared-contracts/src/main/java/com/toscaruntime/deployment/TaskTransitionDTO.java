@@ -0,0 +1,116 @@
+package com.toscaruntime.deployment;
+
+import java.util.Arrays;
+
+/**
+ * This represents a state transition of a task (node task, relationship task or generic task) of a running execution.
+ * The status determines the nature of the transition: {@link com.toscaruntime.constant.ExecutionConstant#INITIAL} for insertion,
+ * {@link com.toscaruntime.constant.ExecutionConstant#RUNNING} for start, {@link com.toscaruntime.constant.ExecutionConstant#SUCCESS} for finish and
+ * {@link com.toscaruntime.constant.ExecutionConstant#STOPPED} for stop. A finish or a stop transition which carries a start time has been coalesced with its start.
+ *
+ * @author Minh Khang VU
+ */
+public class TaskTransitionDTO {
+
+    private String executionId;
+
+    private NodeTaskDTO nodeTask;
+
+    private RelationshipTaskDTO relationshipTask;
+
+    private TaskDTO task;
+
+    private String status;
+
+    private Long startTime;
+
+    private Long endTime;
+
+    private String error;
+
+    private TaskTransitionDTO(String executionId, String status, Long startTime, Long endTime, String error) {
+        this.executionId = executionId;
+        this.status = status;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.error = error;
+    }
+
+    public TaskTransitionDTO(String executionId, NodeTaskDTO nodeTask, String status, Long startTime, Long endTime, String error) {
+        this(executionId, status, startTime, endTime, error);
+        this.nodeTask = nodeTask;
+    }
+
+    public TaskTransitionDTO(String executionId, RelationshipTaskDTO relationshipTask, String status, Long startTime, Long endTime, String error) {
+        this(executionId, status, startTime, endTime, error);
+        this.relationshipTask = relationshipTask;
+    }
+
+    public TaskTransitionDTO(String executionId, TaskDTO task, String status, Long startTime, Long endTime, String error) {
+        this(executionId, status, startTime, endTime, error);
+        this.task = task;
+    }
+
+    /**
+     * @return id of the execution which owns the task
+     */
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * @return the node task concerned by the transition or null if it concerns another kind of task
+     */
+    public NodeTaskDTO getNodeTask() {
+        return nodeTask;
+    }
+
+    /**
+     * @return the relationship task concerned by the transition or null if it concerns another kind of task
+     */
+    public RelationshipTaskDTO getRelationshipTask() {
+        return relationshipTask;
+    }
+
+    /**
+     * @return the generic task concerned by the transition or null if it concerns another kind of task
+     */
+    public TaskDTO getTask() {
+        return task;
+    }
+
+    /**
+     * @return the identity of the concerned task within its execution, whatever its kind
+     */
+    public Object getTaskKey() {
+        if (nodeTask != null) {
+            return Arrays.asList(executionId, nodeTask);
+        } else if (relationshipTask != null) {
+            return Arrays.asList(executionId, relationshipTask);
+        } else {
+            return Arrays.asList(executionId, task);
+        }
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return start time in milliseconds since epoch or null if the transition does not start the task
+     */
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return end time in milliseconds since epoch or null if the transition does not finish the task
+     */
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
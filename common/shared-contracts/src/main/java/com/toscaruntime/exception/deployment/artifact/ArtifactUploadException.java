@@ -4,6 +4,10 @@ import com.toscaruntime.exception.ThirdPartyException;
 
 public class ArtifactUploadException extends ThirdPartyException {
 
+    public ArtifactUploadException(String message) {
+        super(message);
+    }
+
     public ArtifactUploadException(String message, Throwable cause) {
         super(message, cause);
     }
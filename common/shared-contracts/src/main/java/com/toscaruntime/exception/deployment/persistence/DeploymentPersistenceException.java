@@ -9,6 +9,10 @@ import com.toscaruntime.exception.UnexpectedException;
  */
 public class DeploymentPersistenceException extends UnexpectedException {
 
+    public DeploymentPersistenceException(String message) {
+        super(message);
+    }
+
     public DeploymentPersistenceException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,63 @@
+package com.toscaruntime.artifact;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ArtifactExecutorUtilTest {
+
+    @Test
+    public void testExecutionCommandIsALoginShell() {
+        Assert.assertEquals("/bin/bash -l -s", ArtifactExecutorUtil.getExecutionCommand("#!/bin/bash", false));
+        Assert.assertEquals("sudo /usr/bin/env bash -l -s", ArtifactExecutorUtil.getExecutionCommand("#! /usr/bin/env bash", true));
+    }
+
+    @Test
+    public void testExecutionScript() {
+        Map<String, String> env = new LinkedHashMap<>();
+        env.put("IP", "10.0.0.1");
+        env.put("MESSAGE", "it's \"quoted\" $HOME");
+        env.put("UNSET", null);
+        List<String> lines = Arrays.asList(ArtifactExecutorUtil.createExecutionScript("/tmp/my artifact.sh", env, "token").split("\n"));
+        Assert.assertEquals(Arrays.asList(
+                "export IP='10.0.0.1'",
+                "export MESSAGE='it'\\''s \"quoted\" $HOME'",
+                "chmod +x \"/tmp/my artifact.sh\"",
+                ". \"/tmp/my artifact.sh\" < /dev/null",
+                "_toscaruntime_rc=$?",
+                "echo \"token outputs\"",
+                "printenv",
+                "echo \"token status $_toscaruntime_rc\"",
+                "exit $_toscaruntime_rc"
+        ), lines);
+    }
+
+    @Test
+    public void testExecutionScriptWithoutEnv() {
+        Assert.assertTrue(ArtifactExecutorUtil.createExecutionScript("/tmp/artifact.sh", null, "token").startsWith("chmod +x \"/tmp/artifact.sh\""));
+    }
+
+    @Test
+    public void testReadSheBang() throws IOException {
+        Path script = Files.createTempFile("artifact", ".sh");
+        try {
+            Files.write(script, "\n  #!/bin/bash\necho hello\n".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("#!/bin/bash", ArtifactExecutorUtil.readSheBang(script));
+            Files.write(script, "echo hello\n".getBytes(StandardCharsets.UTF_8));
+            Assert.assertEquals("#!/bin/sh", ArtifactExecutorUtil.readSheBang(script));
+        } finally {
+            Files.delete(script);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.toscaruntime.artifact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ArtifactOutputProcessorTest {
+
+    private static class TestOutputProcessor extends ArtifactOutputProcessor {
+
+        private List<String> logged = new ArrayList<>();
+
+        TestOutputProcessor(String outputToken) {
+            super(outputToken);
+        }
+
+        void process(String... lines) {
+            for (String line : lines) {
+                String toLog = processNewLine(line);
+                if (toLog != null) {
+                    logged.add(toLog);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOutputsAndStatusAreCaptured() {
+        TestOutputProcessor processor = new TestOutputProcessor("token");
+        processor.process(
+                "Installing",
+                "token outputs",
+                "IP=10.0.0.1",
+                "MULTI_LINE=first",
+                "second",
+                "EMPTY=",
+                "token status 3"
+        );
+        Assert.assertEquals(Arrays.asList("Installing"), processor.logged);
+        Assert.assertEquals("10.0.0.1", processor.getCapturedEnvVars().get("IP"));
+        Assert.assertEquals("first\nsecond", processor.getCapturedEnvVars().get("MULTI_LINE"));
+        Assert.assertEquals("", processor.getCapturedEnvVars().get("EMPTY"));
+        Assert.assertEquals(Integer.valueOf(3), processor.getStatusCode());
+    }
+
+    @Test
+    public void testLinesWhichLookLikeFramesAreLogged() {
+        TestOutputProcessor processor = new TestOutputProcessor("token");
+        processor.process("IP=10.0.0.1", "other outputs", "token status 0", "token outputs", "after the status");
+        Assert.assertEquals(Arrays.asList("IP=10.0.0.1", "other outputs", "token outputs", "after the status"), processor.logged);
+        Assert.assertTrue(processor.getCapturedEnvVars().isEmpty());
+        Assert.assertEquals(Integer.valueOf(0), processor.getStatusCode());
+    }
+
+    @Test
+    public void testNoStatusWhenTheArtifactExitsTheShell() {
+        TestOutputProcessor processor = new TestOutputProcessor("token");
+        processor.process("Installing", "exit 1");
+        Assert.assertNull(processor.getStatusCode());
+    }
+}
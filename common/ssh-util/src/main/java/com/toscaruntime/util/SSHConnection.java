@@ -0,0 +1,115 @@
+package com.toscaruntime.util;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.schmizz.keepalive.KeepAliveProvider;
+import net.schmizz.sshj.DefaultConfig;
+import net.schmizz.sshj.SSHClient;
+
+/**
+ * A pooled SSH connection shared by all executors which target the same host with the same credentials.
+ * Operations are multiplexed over the connection as channels, the number of concurrently opened channels is bounded.
+ *
+ * @author Minh Khang VU
+ */
+public class SSHConnection {
+
+    private static final Logger log = LoggerFactory.getLogger(SSHConnection.class);
+
+    /**
+     * Connect and authenticate a newly created client
+     */
+    @FunctionalInterface
+    public interface SSHConnector {
+        void connect(SSHClient client) throws IOException;
+    }
+
+    private final String id;
+
+    private final String name;
+
+    private final SSHConnector connector;
+
+    private final int keepAliveInterval;
+
+    private final Semaphore channels;
+
+    private SSHClient client;
+
+    private int references;
+
+    SSHConnection(String id, String name, SSHConnector connector, int maxChannels, int keepAliveInterval) {
+        this.id = id;
+        this.name = name;
+        this.connector = connector;
+        this.keepAliveInterval = keepAliveInterval;
+        this.channels = new Semaphore(maxChannels, true);
+    }
+
+    String getId() {
+        return id;
+    }
+
+    synchronized void retain() {
+        references++;
+    }
+
+    synchronized int release() {
+        return --references;
+    }
+
+    /**
+     * Get the client of the connection, connect it if it was never connected or if it has been disconnected
+     *
+     * @return the connected client
+     * @throws IOException if the connection or the authentication fails
+     */
+    public synchronized SSHClient getClient() throws IOException {
+        if (client == null || !client.isConnected() || !client.isAuthenticated()) {
+            close();
+            log.info("Connecting to {}", name);
+            DefaultConfig config = new DefaultConfig();
+            // Unlike the default heart beat, keep alive requests detect dead connections
+            config.setKeepAliveProvider(KeepAliveProvider.KEEP_ALIVE);
+            SSHClient newClient = new SSHClient(config);
+            newClient.getConnection().getKeepAlive().setKeepAliveInterval(keepAliveInterval);
+            try {
+                connector.connect(newClient);
+            } catch (IOException | RuntimeException e) {
+                newClient.close();
+                throw e;
+            }
+            client = newClient;
+            log.info("Connected to {}", name);
+        }
+        return client;
+    }
+
+    /**
+     * Wait until a channel can be opened on the connection, it must be released with {@link #releaseChannel()} once closed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquireChannel() throws InterruptedException {
+        channels.acquire();
+    }
+
+    public void releaseChannel() {
+        channels.release();
+    }
+
+    synchronized void close() {
+        try {
+            if (client != null) {
+                client.close();
+                client = null;
+            }
+        } catch (IOException e) {
+            log.warn("Could not close connection to " + name, e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.toscaruntime.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of SSH connections per host and credentials, a connection is closed when the last executor which uses it releases it.
+ * Output of all executors' channels is read by the same thread pool.
+ *
+ * @author Minh Khang VU
+ */
+public class SSHConnectionPool {
+
+    /**
+     * Default MaxSessions of OpenSSH, the server refuses to open more channels on the same connection
+     */
+    public static final int DEFAULT_MAX_CHANNELS_PER_CONNECTION = 10;
+
+    public static final int DEFAULT_KEEP_ALIVE_INTERVAL_SECONDS = 30;
+
+    private static final SSHConnectionPool INSTANCE = new SSHConnectionPool(DEFAULT_MAX_CHANNELS_PER_CONNECTION, DEFAULT_KEEP_ALIVE_INTERVAL_SECONDS);
+
+    private final ExecutorService ioExecutorService = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("SSHJ_IO_Thread_" + count.incrementAndGet());
+            return t;
+        }
+    });
+
+    private final Map<String, SSHConnection> connections = new HashMap<>();
+
+    private final int maxChannelsPerConnection;
+
+    private final int keepAliveInterval;
+
+    public SSHConnectionPool(int maxChannelsPerConnection, int keepAliveInterval) {
+        this.maxChannelsPerConnection = maxChannelsPerConnection;
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    public static SSHConnectionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquire the connection identified by the given id, it's created if no executor is using it
+     *
+     * @param id        identifies the host and the credentials of the connection
+     * @param name      name of the connection for logging, must not contain the credentials
+     * @param connector connect and authenticate the connection's client
+     * @return the pooled connection, to be released with {@link #release(SSHConnection)}
+     */
+    public synchronized SSHConnection acquire(String id, String name, SSHConnection.SSHConnector connector) {
+        SSHConnection connection = connections.computeIfAbsent(id, connectionId -> new SSHConnection(connectionId, name, connector, maxChannelsPerConnection, keepAliveInterval));
+        connection.retain();
+        return connection;
+    }
+
+    /**
+     * Take another reference on a connection which is already acquired, so that it stays open while an operation uses it even if its executor is closed meanwhile
+     *
+     * @param connection the acquired connection
+     */
+    public synchronized void retain(SSHConnection connection) {
+        connection.retain();
+    }
+
+    public synchronized void release(SSHConnection connection) {
+        if (connection.release() == 0) {
+            connections.remove(connection.getId());
+            connection.close();
+        }
+    }
+
+    public ExecutorService getIOExecutorService() {
+        return ioExecutorService;
+    }
+}
@@ -11,13 +11,11 @@ import net.schmizz.sshj.common.SSHException;
 import net.schmizz.sshj.common.SecurityUtils;
 import net.schmizz.sshj.connection.ConnectionException;
 import net.schmizz.sshj.connection.channel.direct.Session;
-import net.schmizz.sshj.connection.channel.direct.SessionChannel;
 import net.schmizz.sshj.transport.TransportException;
 import net.schmizz.sshj.userauth.UserAuthException;
 import net.schmizz.sshj.userauth.keyprovider.FileKeyProvider;
 import net.schmizz.sshj.userauth.keyprovider.KeyFormat;
 import net.schmizz.sshj.userauth.keyprovider.KeyProviderUtil;
-import net.schmizz.sshj.xfer.scp.SCPFileTransfer;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.slf4j.Logger;
@@ -25,14 +23,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.Security;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUploader {
 
@@ -48,20 +47,11 @@ public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUpload
         }
     }
 
-    private ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+    private SSHConnectionPool connectionPool = SSHConnectionPool.getInstance();
 
-        private AtomicInteger count = new AtomicInteger();
+    private SSHConnection connection;
 
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("SSHJ_Thread_" + count.incrementAndGet());
-            return t;
-        }
-    });
-
-    private SSHClient sshClient;
+    private RecipeSynchronizer recipeSynchronizer = new RecipeSynchronizer();
 
     private String user;
 
@@ -91,25 +81,43 @@ public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUpload
         this.elevatePrivilege = elevatePrivilege;
     }
 
+    /**
+     * @param recipeSynchronizer synchronizer shared by the executors of the deployment, it holds the bandwidth limit of uploads
+     */
+    public void setRecipeSynchronizer(RecipeSynchronizer recipeSynchronizer) {
+        this.recipeSynchronizer = recipeSynchronizer;
+    }
+
+    private void connect(SSHClient sshClient) throws IOException {
+        // Trust every host
+        sshClient.addHostKeyVerifier((h, p, k) -> true);
+        sshClient.connect(ip, port);
+        if (StringUtils.isNotBlank(pemPath)) {
+            sshClient.authPublickey(user, pemPath);
+        } else {
+            KeyFormat format = KeyProviderUtil.detectKeyFileFormat(pemContent, false);
+            final FileKeyProvider fkp =
+                    Factory.Named.Util.create(sshClient.getTransport().getConfig().getFileKeyProviderFactories(), format.toString());
+            if (fkp == null)
+                throw new SSHException("No provider available for " + format + " key file");
+            fkp.init(pemContent, null);
+            sshClient.authPublickey(user, fkp);
+        }
+    }
+
     @Override
-    public void initialize() {
+    public synchronized void initialize() {
         close();
-        // Trust every host
+        String connectionName = user + "@" + ip + ":" + port;
+        // Executors with the same host and the same key share the connection
+        String connectionId = connectionName + "|" + (StringUtils.isNotBlank(pemPath) ? pemPath : pemContent);
+        connection = connectionPool.acquire(connectionId, connectionName, this::connect);
+        getClient(connection);
+    }
+
+    private SSHClient getClient(SSHConnection connection) {
         try {
-            sshClient = new SSHClient();
-            sshClient.addHostKeyVerifier((h, p, k) -> true);
-            sshClient.connect(ip, port);
-            if (StringUtils.isNotBlank(pemPath)) {
-                sshClient.authPublickey(user, pemPath);
-            } else {
-                KeyFormat format = KeyProviderUtil.detectKeyFileFormat(pemContent, false);
-                final FileKeyProvider fkp =
-                        Factory.Named.Util.create(sshClient.getTransport().getConfig().getFileKeyProviderFactories(), format.toString());
-                if (fkp == null)
-                    throw new SSHException("No provider available for " + format + " key file");
-                fkp.init(pemContent, null);
-                sshClient.authPublickey(user, fkp);
-            }
+            return connection.getClient();
         } catch (UserAuthException e) {
             throw new ArtifactAuthenticationFailureException("User authentication failure : " + e.getMessage(), e);
         } catch (IOException e) {
@@ -117,47 +125,73 @@ public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUpload
         }
     }
 
-    private synchronized void checkConnection() {
-        if (sshClient == null || !sshClient.isConnected() || !sshClient.isAuthenticated()) {
-            log.info("Reconnecting the session for " + user + "@" + ip);
-            initialize();
-            log.info("Reconnected the session for " + user + "@" + ip);
+    /**
+     * Wait for a free channel on the connection, the channel must be released with {@link #releaseChannel(SSHConnection)} once the operation is finished.
+     * The operation holds a reference on the connection so that closing the executor meanwhile does not close the connection under the operation.
+     */
+    private SSHConnection acquireChannel(String operationName) {
+        SSHConnection channelConnection;
+        synchronized (this) {
+            if (connection == null) {
+                initialize();
+            }
+            channelConnection = connection;
+            connectionPool.retain(channelConnection);
+        }
+        try {
+            channelConnection.acquireChannel();
+        } catch (InterruptedException e) {
+            connectionPool.release(channelConnection);
+            throw new ArtifactInterruptedException("[" + operationName + "] interrupted while waiting for a free channel to " + user + "@" + ip, e);
         }
+        return channelConnection;
+    }
+
+    private void releaseChannel(SSHConnection channelConnection) {
+        channelConnection.releaseChannel();
+        connectionPool.release(channelConnection);
     }
 
     @Override
     public Map<String, String> executeArtifact(String operationName, Path localArtifactPath, String remoteArtifactPath, Map<String, String> env) {
         log.info("Begin to execute [{}][{}] with env [{}]", operationName, remoteArtifactPath, env);
-        checkConnection();
-        String artifactName = Paths.get(remoteArtifactPath).getFileName().toString();
-        String statusCodeToken = UUID.randomUUID().toString();
-        String environmentVariablesToken = UUID.randomUUID().toString();
-        String remotePath;
-        String sheBang;
+        SSHConnection channelConnection = acquireChannel(operationName);
+        try {
+            // The connection is established again if it has been lost
+            return doExecuteArtifact(getClient(channelConnection), operationName, localArtifactPath, remoteArtifactPath, env);
+        } finally {
+            releaseChannel(channelConnection);
+        }
+    }
 
+    private Map<String, String> doExecuteArtifact(SSHClient sshClient, String operationName, Path localArtifactPath, String remoteArtifactPath, Map<String, String> env) {
+        String artifactName = Paths.get(remoteArtifactPath).getFileName().toString();
+        String outputToken = UUID.randomUUID().toString();
+        String command;
+        String script;
         try {
-            sheBang = ArtifactExecutorUtil.readSheBang(localArtifactPath);
-            Path artifactWrapper = ArtifactExecutorUtil.createArtifactWrapper(remoteArtifactPath, env, statusCodeToken, environmentVariablesToken, sheBang, elevatePrivilege);
-            SCPFileTransfer scpFileTransfer = sshClient.newSCPFileTransfer();
-            remotePath = REMOTE_TEMP_DIR + artifactWrapper.getFileName().toString();
-            scpFileTransfer.upload(artifactWrapper.toString(), remotePath);
+            command = ArtifactExecutorUtil.getExecutionCommand(ArtifactExecutorUtil.readSheBang(localArtifactPath), elevatePrivilege);
+            script = ArtifactExecutorUtil.createExecutionScript(remoteArtifactPath, env, outputToken);
         } catch (IOException e) {
-            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] Error happened while trying to generate wrapper script", e);
+            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] Error happened while trying to generate execution script", e);
         }
         Future<?> stdOutFuture;
         Future<?> stdErrFuture;
-        Map<String, String> capturedEnvs;
+        SSHJStdOutLogger stdOutLogger;
+        Integer exitStatus;
+        // The script is sent on the exec channel and the outputs come back on the same channel, the execution takes one round trip
         try (Session session = sshClient.startSession();
-             SessionChannel shell = (SessionChannel) session.startShell();
-             PrintWriter commandWriter = new PrintWriter(shell.getOutputStream())) {
-            SSHJStdOutLogger stdOutLogger = new SSHJStdOutLogger(operationName, artifactName, log, statusCodeToken, environmentVariablesToken, shell.getInputStream());
-            stdOutFuture = executorService.submit(stdOutLogger);
-            stdErrFuture = executorService.submit(new SSHJStdErrLogger(operationName, artifactName, log, shell.getErrorStream()));
-            // Trigger execution of the artifact
-            ArtifactExecutorUtil.createArtifactExecutor(commandWriter, remotePath, sheBang, statusCodeToken, environmentVariablesToken);
-            while (true) {
+             Session.Command sshCommand = session.exec(command)) {
+            stdOutLogger = new SSHJStdOutLogger(operationName, artifactName, log, outputToken, sshCommand.getInputStream());
+            stdOutFuture = connectionPool.getIOExecutorService().submit(stdOutLogger);
+            stdErrFuture = connectionPool.getIOExecutorService().submit(new SSHJStdErrLogger(operationName, artifactName, log, sshCommand.getErrorStream()));
+            try (OutputStream scriptInput = sshCommand.getOutputStream()) {
+                scriptInput.write(script.getBytes(StandardCharsets.UTF_8));
+            }
+            // The artifact may exit the shell before its status is written, in this case the channel's exit status is used
+            while (sshCommand.isOpen() && stdOutLogger.getStatusCode() == null) {
                 try {
-                    session.join(5, TimeUnit.SECONDS);
+                    sshCommand.join(5, TimeUnit.SECONDS);
                 } catch (ConnectionException e) {
                     boolean isInterrupted = ExceptionUtils.indexOfType(e, InterruptedException.class) >= 0;
                     if (isInterrupted) {
@@ -167,22 +201,12 @@ public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUpload
                         throw new ArtifactInterruptedException("Execution has been interrupted", e);
                     }
                 }
-                if (stdOutLogger.getStatusCode() != null) {
-                    break;
-                }
-            }
-            Integer statusCode = shell.getExitStatus();
-            if (stdOutLogger.getStatusCode() != null) {
-                statusCode = stdOutLogger.getStatusCode();
             }
-            if (statusCode != 0) {
-                throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] failed to executed with exit status " + statusCode);
-            } else {
-                log.info("[{}][{}] execution finished normally", operationName, artifactName);
-            }
-            capturedEnvs = stdOutLogger.getCapturedEnvVars();
+            exitStatus = sshCommand.getExitStatus();
         } catch (ConnectionException | TransportException e) {
             throw new ArtifactConnectException("[" + operationName + "][" + remoteArtifactPath + "] execution connection error", e);
+        } catch (IOException e) {
+            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] Error happened while trying to send execution script", e);
         }
         try {
             stdOutFuture.get();
@@ -194,71 +218,81 @@ public class SSHJExecutor implements Closeable, ArtifactExecutor, ArtifactUpload
         } catch (Exception ignored) {
             log.error("Could not read artifact output", ignored);
         }
-        return capturedEnvs;
+        Integer statusCode = stdOutLogger.getStatusCode() != null ? stdOutLogger.getStatusCode() : exitStatus;
+        if (statusCode == null || statusCode != 0) {
+            throw new ArtifactExecutionException("[" + operationName + "][" + remoteArtifactPath + "] failed to executed with exit status " + statusCode);
+        } else {
+            log.info("[{}][{}] execution finished normally", operationName, artifactName);
+        }
+        return stdOutLogger.getCapturedEnvVars();
     }
 
-    private void prepareUpload(Session session, String command) {
-        try (Session.Command sshCommand = session.exec(command)) {
+    private String readRemoteManifest(SSHClient sshClient, String remotePath) throws IOException {
+        String command = RecipeSynchronizer.getReadManifestCommand(remotePath);
+        try (Session session = sshClient.startSession();
+             Session.Command sshCommand = session.exec(command)) {
+            String manifest = IOUtils.readFully(sshCommand.getInputStream()).toString(StandardCharsets.UTF_8.name());
             sshCommand.join();
-            if (sshCommand.getExitStatus() != 0) {
-                throw new ArtifactExecutionException("Command " + command + " failed with exit status " + sshCommand.getExitStatus());
-            } else {
-                log.info("Prepare upload finished normally with standard output [{}] and error output [{}]",
-                        command,
-                        new String(IOUtils.readFully(sshCommand.getInputStream()).toByteArray()),
-                        new String(IOUtils.readFully(sshCommand.getErrorStream()).toByteArray()));
-            }
-        } catch (IOException e) {
-            if (ExceptionUtils.indexOfType(e, InterruptedException.class) >= 0) {
-                throw new ArtifactInterruptedException("Execution has been interrupted", e);
-            } else {
-                throw new ArtifactExecutionException("Command " + command + " has failed", e);
+            if (sshCommand.getExitStatus() == null || sshCommand.getExitStatus() != 0) {
+                throw new ArtifactUploadException("Command " + command + " failed with exit status " + sshCommand.getExitStatus());
             }
+            return manifest.isEmpty() ? null : manifest;
         }
     }
 
-    private static String getPrepareUploadArtifactCommand(String remotePath) {
-        String pathToCreateDirectory;
-        Path parentPath = Paths.get(remotePath).getParent();
-        if (parentPath != null) {
-            pathToCreateDirectory = parentPath.toString();
-        } else {
-            pathToCreateDirectory = null;
-        }
-        if (pathToCreateDirectory != null) {
-            // Delete if already exists and create the parent if given remote path has parent
-            return "if [ -e \"" + remotePath + "\" ]; then echo \"Remote path [" + remotePath + "] already exist, will overwrite\"; rm -rf \"" + remotePath + "\"; mkdir -p \"" + pathToCreateDirectory + "\"; else mkdir -p \"" + pathToCreateDirectory + "\"; fi";
-        } else {
-            return "if [ -e \"" + remotePath + "\" ]; then echo \"Remote path [" + remotePath + "] already exist, will overwrite\"; rm -rf \"" + remotePath + "\"; fi";
-        }
-    }
-
+    /**
+     * Only files which changed since the last upload are transferred, the remote manifest is compared with the local recipe
+     * then the delta is streamed as a tar archive on the standard input of the remote extraction command.
+     */
     @Override
     public void upload(String localPath, String remotePath) {
-        checkConnection();
+        SSHConnection channelConnection = acquireChannel("Upload " + localPath);
         try {
-            String prepareCommand = getPrepareUploadArtifactCommand(remotePath);
-            try (Session session = sshClient.startSession()) {
-                prepareUpload(session, prepareCommand);
+            SSHClient sshClient = getClient(channelConnection);
+            Path localRecipePath = Paths.get(localPath);
+            RecipeManifest localManifest = recipeSynchronizer.createManifest(localRecipePath);
+            RecipeSynchronizer.Delta delta = recipeSynchronizer.computeDelta(localManifest, readRemoteManifest(sshClient, remotePath));
+            if (delta.isEmpty()) {
+                log.info("Remote path [{}] is already up to date with [{}]", remotePath, localPath);
+                return;
             }
-            SCPFileTransfer scpFileTransfer = sshClient.newSCPFileTransfer();
-            scpFileTransfer.upload(localPath, remotePath);
-        } catch (ConnectionException | TransportException e) {
-            throw new ArtifactConnectException("Upload [" + localPath + "] to [" + remotePath + "] encountered connection error", e);
+            log.info("Upload [{}] to [{}], full synchronization [{}], [{}] changed files, [{}] deleted files", localPath, remotePath, delta.isFullSynchronization(), delta.getChangedFiles().size(), delta.getDeletedFiles().size());
+            String command = RecipeSynchronizer.getPrepareCommand(remotePath, delta) + " && " + recipeSynchronizer.getExtractCommand();
+            try (Session session = sshClient.startSession();
+                 Session.Command sshCommand = session.exec(command)) {
+                Future<String> errorOutput = connectionPool.getIOExecutorService().submit(() -> IOUtils.readFully(sshCommand.getErrorStream()).toString(StandardCharsets.UTF_8.name()));
+                recipeSynchronizer.writeArchive(localRecipePath, delta, sshCommand.getOutputStream());
+                sshCommand.join();
+                if (sshCommand.getExitStatus() == null || sshCommand.getExitStatus() != 0) {
+                    String error;
+                    try {
+                        error = errorOutput.get();
+                    } catch (ExecutionException e) {
+                        error = e.getCause().getMessage();
+                    }
+                    throw new ArtifactUploadException("Upload [" + localPath + "] to [" + remotePath + "] failed with exit status " + sshCommand.getExitStatus() + " and error output [" + error + "]");
+                }
+            }
+        } catch (InterruptedException | InterruptedIOException e) {
+            throw new ArtifactInterruptedException("Upload [" + localPath + "] to [" + remotePath + "] has been interrupted", e);
         } catch (IOException e) {
-            throw new ArtifactUploadException("Fatal error happened while trying to upload", e);
+            if (ExceptionUtils.indexOfType(e, InterruptedException.class) >= 0) {
+                throw new ArtifactInterruptedException("Upload [" + localPath + "] to [" + remotePath + "] has been interrupted", e);
+            } else if (e instanceof ConnectionException || e instanceof TransportException) {
+                throw new ArtifactConnectException("Upload [" + localPath + "] to [" + remotePath + "] encountered connection error", e);
+            } else {
+                throw new ArtifactUploadException("Fatal error happened while trying to upload", e);
+            }
+        } finally {
+            releaseChannel(channelConnection);
         }
     }
 
     @Override
-    public void close() {
-        try {
-            if (sshClient != null) {
-                sshClient.close();
-                sshClient = null;
-            }
-        } catch (IOException e) {
-            log.warn("Could not close ssh executor", e);
+    public synchronized void close() {
+        if (connection != null) {
+            connectionPool.release(connection);
+            connection = null;
         }
     }
 }
@@ -19,8 +19,8 @@ public class SSHJStdOutLogger extends ArtifactOutputProcessor implements Callabl
 
     private InputStream scriptOutput;
 
-    public SSHJStdOutLogger(String operationName, String scriptName, Logger logger, String statusToken, String environmentVariablesToken, InputStream scriptOutput) {
-        super(statusToken, environmentVariablesToken);
+    public SSHJStdOutLogger(String operationName, String scriptName, Logger logger, String outputToken, InputStream scriptOutput) {
+        super(outputToken);
         this.operationName = operationName;
         this.scriptName = scriptName;
         this.logger = logger;
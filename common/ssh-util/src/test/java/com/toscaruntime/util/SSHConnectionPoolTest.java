@@ -0,0 +1,91 @@
+package com.toscaruntime.util;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import net.schmizz.sshj.SSHClient;
+
+@RunWith(JUnit4.class)
+public class SSHConnectionPoolTest {
+
+    private static final SSHConnection.SSHConnector NO_OP_CONNECTOR = client -> {
+    };
+
+    @Test
+    public void testConnectionsAreSharedByIdUntilReleased() {
+        SSHConnectionPool pool = new SSHConnectionPool(2, 30);
+        SSHConnection first = pool.acquire("host1", "host1", NO_OP_CONNECTOR);
+        SSHConnection second = pool.acquire("host1", "host1", NO_OP_CONNECTOR);
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, pool.acquire("host2", "host2", NO_OP_CONNECTOR));
+        pool.release(first);
+        Assert.assertSame(first, pool.acquire("host1", "host1", NO_OP_CONNECTOR));
+        pool.release(first);
+        pool.release(second);
+        // The last release closes the connection, a new one is created
+        Assert.assertNotSame(first, pool.acquire("host1", "host1", NO_OP_CONNECTOR));
+    }
+
+    @Test
+    public void testRunningOperationKeepsTheConnection() {
+        SSHConnectionPool pool = new SSHConnectionPool(2, 30);
+        SSHConnection executorConnection = pool.acquire("host", "host", NO_OP_CONNECTOR);
+        // An operation starts then the executor is closed before it finishes
+        pool.retain(executorConnection);
+        pool.release(executorConnection);
+        Assert.assertSame(executorConnection, pool.acquire("host", "host", NO_OP_CONNECTOR));
+        pool.release(executorConnection);
+        // The operation finishes
+        pool.release(executorConnection);
+        Assert.assertNotSame(executorConnection, pool.acquire("host", "host", NO_OP_CONNECTOR));
+    }
+
+    @Test
+    public void testChannelsAreBounded() throws Exception {
+        SSHConnection connection = new SSHConnectionPool(2, 30).acquire("host", "host", NO_OP_CONNECTOR);
+        connection.acquireChannel();
+        connection.acquireChannel();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread third = new Thread(() -> {
+            try {
+                connection.acquireChannel();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        third.start();
+        Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        connection.releaseChannel();
+        Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        third.join();
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        SSHConnection connection = new SSHConnectionPool(2, 30).acquire("host", "host", client -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("Connection refused");
+            }
+        });
+        try {
+            connection.getClient();
+            Assert.fail("The first connection must fail");
+        } catch (IOException e) {
+            Assert.assertEquals("Connection refused", e.getMessage());
+        }
+        // A failed or lost connection is established again at the next use
+        SSHClient client = connection.getClient();
+        Assert.assertNotNull(client);
+        Assert.assertNotSame(client, connection.getClient());
+        Assert.assertEquals(3, attempts.get());
+    }
+}
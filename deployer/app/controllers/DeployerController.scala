@@ -17,15 +17,18 @@ import com.typesafe.config.impl.ConfigImpl
 import dao.DeploymentDAO
 import models.ExecutionEntity
 import org.joda.time.DateTime
+import play.api.inject.ApplicationLifecycle
+import play.api.libs.EventSource
 import play.api.libs.concurrent.Execution.Implicits.defaultContext
-import play.api.libs.json.Json
+import play.api.libs.iteratee.Enumeratee
+import play.api.libs.json.{JsValue, Json}
 import play.api.mvc.{Action, BodyParsers, Controller}
 
 import scala.collection.JavaConverters._
 import scala.concurrent.Future
 import scala.language.postfixOps
 
-class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Controller with Logging {
+class DeployerController @Inject()(deploymentDAO: DeploymentDAO, lifecycle: ApplicationLifecycle) extends Controller with Logging {
 
   lazy val recipePath = Paths.get(play.Play.application().configuration().getString("com.toscaruntime.deployment.recipeDir"))
 
@@ -56,11 +59,22 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
     }.toMap
   }
 
+  @volatile private var deploymentCreated = false
+
   lazy val deployment: Deployment = {
     if (!deploymentDAO.isSchemaCreated) {
       deploymentDAO.createSchema()
+    } else {
+      deploymentDAO.migrateSchema()
     }
-    Deployer.createDeployment(deploymentName, recipePath, deploymentInputsPath, providerConfiguration, bootstrapContextPath, bootstrap, play.Play.application().classloader(), deploymentDAO)
+    val createdDeployment = Deployer.createDeployment(deploymentName, recipePath, deploymentInputsPath, providerConfiguration, bootstrapContextPath, bootstrap, play.Play.application().classloader(), deploymentDAO)
+    deploymentCreated = true
+    createdDeployment
+  }
+
+  lifecycle.addStopHook { () =>
+    // Task transitions recorded until now are persisted before the database is closed
+    Future(if (deploymentCreated) deployment.shutdown())
   }
 
   private def createExecution(workflowExecutionRequest: WorkflowExecutionRequest) = {
@@ -128,16 +142,26 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
               Future(InternalServerError(s"Failed to launch transient ${workflowExecutionRequest.workflowId} workflow, error is ${e.getMessage}"))
           }
         } else {
-          deploymentDAO.startExecution(workflowExecutionRequest.workflowId, workflowExecutionRequest.inputs).map { executionId =>
-            log.info(s"Execution has been created for ${workflowExecutionRequest.workflowId} workflow with id $executionId")
-            try {
-              val workflowExecution = createExecution(workflowExecutionRequest)
-              deployment.run(workflowExecution)
-              (executionId, workflowExecution)
-            } catch {
+          Future(createExecution(workflowExecutionRequest)).flatMap { workflowExecution =>
+            // Reserve the instances concerned by the execution before persisting it, so that overlapping executions are rejected.
+            // Install and scale are admitted as they're created, atomically with the changes they make to the deployment
+            deployment.admit(workflowExecution)
+            deploymentDAO.startExecution(workflowExecutionRequest.workflowId, workflowExecutionRequest.inputs).map { executionId =>
+              log.info(s"Execution has been created for ${workflowExecutionRequest.workflowId} workflow with id $executionId")
+              try {
+                workflowExecution.setExecutionId(executionId)
+                deployment.run(workflowExecution)
+                (executionId, workflowExecution)
+              } catch {
+                case e: Exception =>
+                  deploymentDAO.failExecution(executionId, e.getMessage)
+                  throw e
+              }
+            }.recoverWith {
               case e: Exception =>
-                deploymentDAO.failRunningExecution(e.getMessage)
-                throw e
+                // Undo the changes made to the deployment by the execution which could not be launched
+                deployment.reject(workflowExecution)
+                Future.failed(e)
             }
           }.map {
             case (executionId, workflowExecution) =>
@@ -156,21 +180,22 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
     )
   }
 
-  def cancel(force: Boolean = false) = Action { implicit request =>
+  def cancel(executionId: Option[String], force: Boolean = false) = Action { implicit request =>
     try {
-      deployment.cancel(force)
-      Ok(s"Execution has been cancelled")
+      val execution = deployment.cancel(executionId.orNull, force)
+      Ok(s"Execution ${execution.getExecutionId} has been cancelled")
     } catch {
       case e: RunningExecutionNotFound =>
-        deploymentDAO.cancelRunningExecution()
+        executionId.map(deploymentDAO.cancelExecution).getOrElse(deploymentDAO.cancelRunningExecutions())
         BadRequest("No running execution is found to be cancelled")
+      case e: BadUsageException => BadRequest(e.getMessage)
     }
   }
 
-  def resume() = Action.async { implicit request =>
+  def resume(executionId: Option[String]) = Action.async { implicit request =>
     try {
-      deployment.resume()
-      deploymentDAO.resumeRunningExecution().map { rowHit =>
+      val execution = deployment.resume(executionId.orNull)
+      deploymentDAO.resumeExecution(execution.getExecutionId).map { rowHit =>
         if (rowHit == 0) {
           log.error("No running execution found in persistence to resume")
         }
@@ -178,15 +203,17 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
       }
     } catch {
       case e: RunningExecutionNotFound => Future(BadRequest("No running execution is found to be resumed"))
+      case e: BadUsageException => Future(BadRequest(e.getMessage))
     }
   }
 
-  def stop(force: Boolean = false) = Action { implicit request =>
+  def stop(executionId: Option[String], force: Boolean = false) = Action { implicit request =>
     try {
-      deployment.stop(force)
-      Ok("Execution has been stopped")
+      val execution = deployment.stop(executionId.orNull, force)
+      Ok(s"Execution ${execution.getExecutionId} has been stopped")
     } catch {
       case e: RunningExecutionNotFound => BadRequest("No running execution is found to be stopped")
+      case e: BadUsageException => BadRequest(e.getMessage)
     }
   }
 
@@ -202,11 +229,14 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
   /**
     * Convert from java deployment to deployment information to return back to rest client
     *
-    * @param deployment the managed deployment
+    * @param deployment       the managed deployment
+    * @param fields           fields of the deployment information to fill, the others are left empty
+    * @param executionsOffset number of most recent executions to skip
+    * @param executionsLimit  maximum number of executions to return, all if not defined
     * @return current deployment information
     */
-  def fromDeployment(name: String, deployment: Deployment) = {
-    val nodes = deployment.getNodes.asScala.map { node =>
+  def fromDeployment(name: String, deployment: Deployment, fields: Set[String] = DeploymentDTO.AllFields, executionsOffset: Int = 0, executionsLimit: Option[Int] = None) = {
+    val nodes = if (!fields.contains(DeploymentDTO.NodesField)) List.empty else deployment.getNodes.asScala.map { node =>
       val instances = node.getInstances.asScala.map { instance =>
         val instanceAttributes = JavaScalaConversionUtil.toScalaMap(instance.getAttributes)
         InstanceDTO(instance.getId, instance.getState, instanceAttributes)
@@ -214,7 +244,7 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
       val nodeProperties = JavaScalaConversionUtil.toScalaMap(node.getProperties)
       NodeDTO(node.getId, nodeProperties, instances)
     }.toList
-    val relationships = deployment.getRelationshipNodes.asScala.map { relationshipNode =>
+    val relationships = if (!fields.contains(DeploymentDTO.RelationshipsField)) List.empty else deployment.getRelationshipNodes.asScala.map { relationshipNode =>
       val relationshipInstances = relationshipNode.getRelationshipInstances.asScala.map { relationshipInstance =>
         val relationshipInstanceAttributes = JavaScalaConversionUtil.toScalaMap(relationshipInstance.getAttributes)
         RelationshipInstanceDTO(relationshipInstance.getSource.getId, relationshipInstance.getTarget.getId, relationshipInstance.getState, relationshipInstanceAttributes)
@@ -222,20 +252,67 @@ class DeployerController @Inject()(deploymentDAO: DeploymentDAO) extends Control
       val relationshipNodeProperties = JavaScalaConversionUtil.toScalaMap(relationshipNode.getProperties)
       RelationshipNodeDTO(relationshipNode.getSourceNodeId, relationshipNode.getTargetNodeId, relationshipNode.getRelationshipName, relationshipNodeProperties, relationshipInstances)
     }.toList
-    val executions = deploymentDAO.listExecutions().flatMap { executions =>
-      Future.sequence(executions.map {
-        case execution: ExecutionEntity =>
-          deploymentDAO.getExecutionInputs(execution.id).map { inputs =>
-            ExecutionDTO(execution.id, execution.workflowId, new DateTime(execution.startTime.getTime), execution.endTime.map(endTime => new DateTime(endTime.getTime)), execution.error, execution.status, inputs)
-          }
-      })
+    val outputs = if (!fields.contains(DeploymentDTO.OutputsField)) Map.empty[String, Any] else JavaScalaConversionUtil.toScalaMap(deployment.getOutputs)
+    val executions = if (!fields.contains(DeploymentDTO.ExecutionsField)) {
+      Future.successful((List.empty[ExecutionDTO], None))
+    } else {
+      deploymentDAO.listExecutionsWithInputs(executionsOffset, executionsLimit).zip(deploymentDAO.countExecutions()).map {
+        case (executionsWithInputs, executionsCount) =>
+          val exes = executionsWithInputs.map {
+            case (execution, inputs) =>
+              ExecutionDTO(execution.id, execution.workflowId, new DateTime(execution.startTime.getTime), execution.endTime.map(endTime => new DateTime(endTime.getTime)), execution.error, execution.status, inputs)
+          }.toList
+          (exes, Some(executionsCount))
+      }
     }
-    executions.map { exes =>
-      DeploymentDTO(name, nodes, relationships, JavaScalaConversionUtil.toScalaMap(deployment.getOutputs), exes.toList)
+    executions.map {
+      case (exes, executionsCount) => DeploymentDTO(name, nodes, relationships, outputs, exes, executionsCount)
+    }
+  }
+
+  /**
+    * @param fields           comma separated fields of the deployment information to return, all if not defined
+    * @param executionsOffset number of most recent executions to skip
+    * @param executionsLimit  maximum number of executions to return, all if not defined
+    */
+  def getDeploymentInformation(fields: Option[String], executionsOffset: Int, executionsLimit: Option[Int]) = Action.async { implicit request =>
+    val selectedFields = fields.map(_.split(",").map(_.trim).filter(_.nonEmpty).toSet).getOrElse(DeploymentDTO.AllFields)
+    val unknownFields = selectedFields -- DeploymentDTO.AllFields
+    if (unknownFields.nonEmpty) {
+      Future.successful(BadRequest(s"Unknown fields [${unknownFields.mkString(", ")}], expecting some of [${DeploymentDTO.AllFields.mkString(", ")}]"))
+    } else if (executionsOffset < 0 || executionsLimit.exists(_ < 0)) {
+      Future.successful(BadRequest("Executions offset and limit must not be negative"))
+    } else {
+      fromDeployment(deploymentName, deployment, selectedFields, executionsOffset, executionsLimit).map(d => Ok(Json.toJson(RestResponse.success[DeploymentDTO](Some(d)))))
     }
   }
 
-  def getDeploymentInformation = Action.async { implicit request =>
-    fromDeployment(deploymentName, deployment).map(d => Ok(Json.toJson(RestResponse.success[DeploymentDTO](Some(d)))))
+  private def toExecutionEventDTO(execution: ExecutionEntity) = {
+    ExecutionEventDTO(Some(execution.id), execution.workflowId, ExecutionEventDTO.ExecutionEventType, None, execution.status, execution.error, execution.endTime.getOrElse(execution.startTime).getTime)
+  }
+
+  /**
+    * Stream the transitions of executions and of their tasks as server sent events.
+    * The persisted state of the execution is sent first, so that a client cannot miss the end of an execution which happened before it subscribed.
+    *
+    * @param executionId id of the execution to follow, the stream ends once it's no longer running.
+    *                    If not defined all executions are followed and the state of the last execution is sent first
+    */
+  def streamExecutionEvents(executionId: Option[String]) = Action { implicit request =>
+    val persistedExecution = () => executionId.map(deploymentDAO.getExecution).getOrElse(deploymentDAO.listExecutionsWithInputs(0, Some(1)).map(_.map(_._1))).map(_.headOption.map(toExecutionEventDTO))
+    val events = ExecutionEventStream(deployment.getEventPublisher, executionId, persistedExecution)
+    Ok.chunked(events &> Enumeratee.map[ExecutionEventDTO](Json.toJson(_): JsValue) &> EventSource()).as(EVENT_STREAM)
+  }
+
+  def getMetrics = Action { implicit request =>
+    val metricRegistry = deployment.getMetricRegistry
+    val histograms = metricRegistry.getHistograms.asScala.map {
+      case (name, histogram) => (name, HistogramDTO(histogram.getCount, histogram.getSum, histogram.getMin, histogram.getMax, histogram.getMean,
+        histogram.getP50, histogram.getP95, histogram.getP99, histogram.getBucketBounds.toList, histogram.getBucketCounts.toList))
+    }.toMap
+    val counters = metricRegistry.getCounters.asScala.map {
+      case (name, value) => (name, value.longValue())
+    }.toMap
+    Ok(Json.toJson(RestResponse.success[MetricsDTO](Some(MetricsDTO(histograms, counters)))))
   }
 }
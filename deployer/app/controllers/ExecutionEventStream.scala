@@ -0,0 +1,82 @@
+package controllers
+
+import java.util.concurrent.atomic.AtomicReference
+import java.util.function.Consumer
+
+import com.toscaruntime.constant.ExecutionConstant
+import com.toscaruntime.rest.model.ExecutionEventDTO
+import com.toscaruntime.sdk.workflow.{ExecutionEvent, ExecutionEventPublisher}
+import play.api.libs.iteratee.Concurrent.Channel
+import play.api.libs.iteratee.{Concurrent, Enumerator}
+
+import scala.collection.mutable.ListBuffer
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+  * Stream of the transitions of executions and of their tasks.
+  * The persisted state of the execution is sent first, live events which are published meanwhile are buffered and sent after it in their order.
+  *
+  * @author Minh Khang VU
+  */
+object ExecutionEventStream {
+
+  def toExecutionEventDTO(event: ExecutionEvent) = {
+    ExecutionEventDTO(Option(event.getExecutionId), event.getWorkflowId, event.getType, Option(event.getTask), event.getStatus, Option(event.getError), event.getTimestamp)
+  }
+
+  /**
+    * Forward the events to the channel once the persisted state has been sent
+    */
+  private class SnapshotFirstForwarder(channel: Channel[ExecutionEventDTO], executionId: Option[String]) extends Consumer[ExecutionEvent] {
+
+    private val pending = ListBuffer[ExecutionEventDTO]()
+
+    private var snapshotSent = false
+
+    private var ended = false
+
+    private def push(event: ExecutionEventDTO) = {
+      if (!ended) {
+        channel.push(event)
+        if (executionId.isDefined && event.eventType == ExecutionEventDTO.ExecutionEventType && event.status != ExecutionConstant.RUNNING) {
+          ended = true
+          channel.eofAndEnd()
+        }
+      }
+    }
+
+    override def accept(event: ExecutionEvent): Unit = {
+      if (executionId.forall(_ == event.getExecutionId)) synchronized {
+        if (snapshotSent) push(toExecutionEventDTO(event)) else pending += toExecutionEventDTO(event)
+      }
+    }
+
+    def snapshotReceived(snapshot: Option[ExecutionEventDTO]): Unit = synchronized {
+      snapshot.foreach(push)
+      pending.foreach(push)
+      pending.clear()
+      snapshotSent = true
+    }
+  }
+
+  /**
+    * @param eventPublisher     publisher of the deployment's live events
+    * @param executionId        id of the execution to follow, the stream ends once it's no longer running. If not defined all executions are followed
+    * @param persistedExecution read the persisted state of the followed execution, it's called once subscribed so that no transition is missed
+    * @return the events, persisted state first
+    */
+  def apply(eventPublisher: ExecutionEventPublisher, executionId: Option[String], persistedExecution: () => Future[Option[ExecutionEventDTO]])(implicit executionContext: ExecutionContext): Enumerator[ExecutionEventDTO] = {
+    val subscriber = new AtomicReference[Consumer[ExecutionEvent]]()
+    val unsubscribe = () => Option(subscriber.get()).foreach(eventPublisher.unsubscribe)
+    Concurrent.unicast[ExecutionEventDTO](
+      onStart = channel => {
+        val forwarder = new SnapshotFirstForwarder(channel, executionId)
+        subscriber.set(forwarder)
+        eventPublisher.subscribe(forwarder)
+        persistedExecution().onComplete(result => forwarder.snapshotReceived(result.toOption.flatten))
+      },
+      onComplete = unsubscribe(),
+      onError = (_, _) => unsubscribe()
+    )
+  }
+}
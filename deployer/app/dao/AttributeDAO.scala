@@ -2,7 +2,7 @@ package dao
 
 import javax.inject.{Inject, Singleton}
 
-import models.AttributeEntity
+import models.{AttributeEntity, InstanceEntity}
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
 import slick.driver.JdbcProfile
 
@@ -39,11 +39,22 @@ class AttributeDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvi
 
   private val Attributes = TableQuery[AttributeTable]
 
-  def get(instanceId: String): Future[Seq[AttributeEntity]] = {
-    db.run(Attributes.filter(_.instanceId === instanceId).result)
+  def getAction(instanceId: String) = Attributes.filter(_.instanceId === instanceId).result
+
+  def get(instanceId: String): Future[Seq[AttributeEntity]] = db.run(getAction(instanceId))
+
+  /**
+   * All instances joined with their attributes, an instance without attribute is returned once with None
+   */
+  def getAllWithInstances(): Future[Seq[(InstanceEntity, Option[AttributeEntity])]] = {
+    db.run((TableQuery[InstanceTable] joinLeft Attributes on (_.id === _.instanceId)).result)
   }
 
-  def save(attributeEntity: AttributeEntity): Future[Int] = db.run(Attributes insertOrUpdate attributeEntity)
+  def saveAction(attributeEntity: AttributeEntity) = Attributes insertOrUpdate attributeEntity
+
+  def save(attributeEntity: AttributeEntity): Future[Int] = db.run(saveAction(attributeEntity))
+
+  def insertAllAction(attributeEntities: Seq[AttributeEntity]) = Attributes ++= attributeEntities
 
   def delete(instanceId: String, key: String) = {
     db.run(Attributes.filter(attribute => attribute.instanceId === instanceId && attribute.key === key).delete)
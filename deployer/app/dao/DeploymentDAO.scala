@@ -10,6 +10,7 @@ import com.toscaruntime.deployment._
 import com.toscaruntime.util.JavaScalaConversionUtil
 import models._
 import play.api.libs.concurrent.Execution.Implicits.defaultContext
+import slick.dbio.DBIO
 
 import scala.collection.JavaConverters._
 import scala.concurrent.duration.DurationInt
@@ -36,12 +37,15 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   private val forever = 365 days
 
-  def createSchema() = schema.createSchema()
+  // Running executions known by the execution DAO and cached task durations do not survive the schema
+  def createSchema() = schema.createSchema().andThen { case _ => executionDAO.invalidateRunningExecutions(); invalidateTaskDurations() }
 
-  def dropSchema() = schema.dropSchema()
+  def dropSchema() = schema.dropSchema().andThen { case _ => executionDAO.invalidateRunningExecutions(); invalidateTaskDurations() }
 
   def isSchemaCreated = Await.result(schema.isSchemaCreated, forever)
 
+  def migrateSchema() = Await.result(schema.migrateSchema(), forever)
+
   def listNodes() = nodeDAO.all()
 
   def countNodes() = nodeDAO.count()
@@ -58,6 +62,29 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   def deleteInstance(id: String) = instanceDAO.delete(id)
 
+  /**
+   * Insert with batch statements in one transaction the instances which do not exist yet, attributes are inserted only for the new instances, else they are updated one by one
+   */
+  def insertInstancesIfNotExist(instances: Seq[InstanceDTO], relationshipInstances: Seq[RelationshipInstanceDTO]) = executionDAO.runTransactionally {
+    val instanceEntities = instances.map(instance => InstanceEntity(instance.getId, instance.getNodeId, instance.getState))
+    val relationshipInstanceEntities = relationshipInstances.map { relIns =>
+      RelationshipInstanceEntity(relIns.getSourceInstanceId, relIns.getTargetInstanceId, relIns.getSourceNodeId, relIns.getTargetNodeId, relIns.getRelationshipType, relIns.getState)
+    }
+    instanceDAO.insertAllIfNotExistAction(instanceEntities).flatMap { newInstances =>
+      val newInstanceIds = newInstances.map(_.id).toSet
+      val (newInstancesAttributes, existingInstancesAttributes) = instances.flatMap { instance =>
+        instance.getAttributes.asScala.map { case (key, value) => AttributeEntity(instance.getId, key, value) }
+      }.partition(attribute => newInstanceIds.contains(attribute.instanceId))
+      val insertAttributesAction = if (newInstancesAttributes.nonEmpty) attributeDAO.insertAllAction(newInstancesAttributes).map(_ => ()) else DBIO.successful(())
+      DBIO.seq(insertAttributesAction +: existingInstancesAttributes.map(attributeDAO.saveAction): _*)
+    }.andThen(relationshipInstanceDAO.insertAllIfNotExistAction(relationshipInstanceEntities))
+  }
+
+  def deleteInstances(instanceIds: Seq[String], relationships: Seq[RelationshipTaskDTO.Relationship]) = executionDAO.runTransactionally {
+    relationshipInstanceDAO.deleteAllAction(relationships.map(relationship => (relationship.getSourceInstanceId, relationship.getTargetInstanceId, relationship.getRelationshipType)))
+      .andThen(instanceDAO.deleteAllAction(instanceIds))
+  }
+
   def saveNodeInstancesCount(id: String, newInstancesCount: Int) = nodeDAO.saveInstancesCount(id, newInstancesCount)
 
   def saveInstanceState(id: String, newState: String) = instanceDAO.saveState(id, newState)
@@ -93,6 +120,38 @@ class DeploymentDAO @Inject()(schema: Schema,
     }.toMap)
   }
 
+  /**
+   * Group outputs (interface name, operation name, key, value) by interface name then by operation name
+   */
+  private def toSnapshotOutputs(outputs: Seq[(String, String, String, String)]): util.Map[String, util.Map[String, util.Map[String, String]]] = {
+    outputs.groupBy(_._1).map {
+      case (interfaceName, interfaceOutputs) => (interfaceName, interfaceOutputs.groupBy(_._2).map {
+        case (operationName, operationOutputs) => (operationName, operationOutputs.map(output => (output._3, output._4)).toMap.asJava)
+      }.asJava)
+    }.asJava
+  }
+
+  def getNodeInstancesCounts() = nodeDAO.all().map(_.map(node => (node.id, node.instancesCount)).toMap)
+
+  /**
+   * Load the state, attributes and outputs of all instances with 2 queries instead of several queries for each instance
+   */
+  def getInstanceSnapshots() = {
+    val outputsFuture = outputDAO.all()
+    for {
+      instancesWithAttributes <- attributeDAO.getAllWithInstances()
+      outputs <- outputsFuture
+    } yield {
+      val outputsByInstance = outputs.groupBy(_.instanceId)
+      instancesWithAttributes.groupBy(_._1.id).map {
+        case (instanceId, rows) =>
+          val attributes = rows.flatMap(_._2).map(attribute => (attribute.key, attribute.value)).toMap
+          val instanceOutputs = outputsByInstance.getOrElse(instanceId, Seq.empty).map(output => (output.interfaceName, output.operationName, output.key, output.value))
+          (instanceId, new InstanceSnapshotDTO(rows.head._1.state, attributes.asJava, toSnapshotOutputs(instanceOutputs)))
+      }
+    }
+  }
+
   def listRelationships() = relationshipDAO.all()
 
   def insertRelationshipIfNotExist(sourceId: String, targetId: String, relationshipType: String) = relationshipDAO.insertIfNotExist(RelationshipEntity(sourceId, targetId, relationshipType))
@@ -140,92 +199,221 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   def getRelationshipOutputOperations(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String) = relationshipOutputDAO.getOperations(sourceInstanceId, targetInstanceId, relationshipType, interfaceName)
 
+  /**
+   * Load the state, attributes and outputs of all relationship instances with 2 queries instead of several queries for each relationship instance
+   */
+  def getRelationshipInstanceSnapshots() = {
+    val outputsFuture = relationshipOutputDAO.all()
+    for {
+      relationshipInstancesWithAttributes <- relationshipAttributeDAO.getAllWithRelationshipInstances()
+      outputs <- outputsFuture
+    } yield {
+      val outputsByRelationship = outputs.groupBy(output => new RelationshipTaskDTO.Relationship(output.sourceInstanceId, output.targetInstanceId, output.relationshipType))
+      relationshipInstancesWithAttributes.groupBy {
+        case (relationshipInstance, _) => new RelationshipTaskDTO.Relationship(relationshipInstance.sourceInstanceId, relationshipInstance.targetInstanceId, relationshipInstance.relationshipType)
+      }.map {
+        case (relationship, rows) =>
+          val attributes = rows.flatMap(_._2).map(attribute => (attribute.key, attribute.value)).toMap
+          val relationshipOutputs = outputsByRelationship.getOrElse(relationship, Seq.empty).map(output => (output.interfaceName, output.operationName, output.key, output.value))
+          (relationship, new InstanceSnapshotDTO(rows.head._1.state, attributes.asJava, toSnapshotOutputs(relationshipOutputs)))
+      }
+    }
+  }
+
   def listExecutions() = executionDAO.all()
 
+  def countExecutions() = executionDAO.count()
+
+  def listExecutionsWithInputs(offset: Int, limit: Option[Int]) = executionInputDAO.getExecutionsWithInputs(offset, limit)
+
   def getExecutionInputs(executionId: String) = executionInputDAO.get(executionId)
 
-  def insertExecutionInputs(inputs: Map[String, Any]) = getRunningExecution.map {
-    case Some(executionEntity) => executionInputDAO.insert(executionEntity.id, inputs)
-  }
+  def insertExecutionInputs(executionId: String, inputs: Map[String, Any]) = executionInputDAO.insert(executionId, inputs)
 
   def getExecution(executionId: String) = executionDAO.get(executionId)
 
-  def getRunningExecution = executionDAO.getRunningExecution
+  def getRunningExecutions = executionDAO.getRunningExecutions
 
   def startExecution(workflowId: String, inputs: Map[String, Any] = Map.empty) = {
     val uuid = UUID.randomUUID().toString
     executionDAO.insert(ExecutionEntity(uuid, workflowId, new Timestamp(System.currentTimeMillis()), None, None, RUNNING))
-      .map { _ =>
-        executionInputDAO.insert(uuid, inputs)
-        uuid
-      }
+      .flatMap(_ => executionInputDAO.insert(uuid, inputs))
+      .map(_ => uuid)
   }
 
-  def stopExecution(error: Option[String]) = executionDAO.stop(error)
+  def stopExecution(executionId: String, error: Option[String]) = executionDAO.stop(executionId, error)
 
-  def finishRunningExecution() = executionDAO.finish(SUCCESS, None)
+  def finishExecution(executionId: String) = executionDAO.finish(executionId, SUCCESS, None)
 
-  def resumeRunningExecution() = executionDAO.resume()
+  def resumeExecution(executionId: String) = executionDAO.resume(executionId)
 
-  def failRunningExecution(error: String) = executionDAO.finish(FAILURE, Some(error))
+  def failExecution(executionId: String, error: String) = executionDAO.finish(executionId, FAILURE, Some(error))
 
-  def cancelRunningExecution() = executionDAO.finish(CANCELED, None)
+  def cancelExecution(executionId: String) = executionDAO.finish(executionId, CANCELED, None)
+
+  def cancelRunningExecutions() = executionDAO.finishAll(CANCELED, None)
 
   def saveOperation(instanceId: String, interfaceName: String, operationName: String) = {
     operationDAO.save(OperationEntity(instanceId, interfaceName, operationName))
   }
 
-  def insertNewNodeTask(instanceId: String, interfaceName: String, operationName: String): Future[Int] = {
+  def insertNewNodeTask(executionId: String, instanceId: String, interfaceName: String, operationName: String): Future[Int] = {
     val operation = OperationEntity(instanceId, interfaceName, operationName)
     operationDAO.save(operation).flatMap { _ =>
-      nodeTaskDAO.insertNewTask(operation)
+      nodeTaskDAO.insertNewTask(executionId, operation)
     }
   }
 
-  def startNodeTask(instanceId: String, interfaceName: String, operationName: String) = {
-    nodeTaskDAO.startTask(OperationEntity(instanceId, interfaceName, operationName))
+  def startNodeTask(executionId: String, instanceId: String, interfaceName: String, operationName: String) = {
+    nodeTaskDAO.startTask(executionId, OperationEntity(instanceId, interfaceName, operationName))
   }
 
-  def finishNodeTask(instanceId: String, interfaceName: String, operationName: String) = {
-    nodeTaskDAO.finishTask(OperationEntity(instanceId, interfaceName, operationName))
+  def finishNodeTask(executionId: String, instanceId: String, interfaceName: String, operationName: String) = {
+    nodeTaskDAO.finishTask(executionId, OperationEntity(instanceId, interfaceName, operationName))
   }
 
-  def stopNodeTask(instanceId: String, interfaceName: String, operationName: String, error: String) = {
-    nodeTaskDAO.stopTask(OperationEntity(instanceId, interfaceName, operationName), error)
+  def stopNodeTask(executionId: String, instanceId: String, interfaceName: String, operationName: String, error: String) = {
+    nodeTaskDAO.stopTask(executionId, OperationEntity(instanceId, interfaceName, operationName), error)
   }
 
-  def insertNewTask(taskId: String): Future[Int] = taskDAO.insertNewTask(taskId)
+  def insertNewTask(executionId: String, taskId: String): Future[Int] = taskDAO.insertNewTask(executionId, taskId)
 
-  def startTask(taskId: String) = taskDAO.startTask(taskId)
+  def startTask(executionId: String, taskId: String) = taskDAO.startTask(executionId, taskId)
 
-  def finishTask(taskId: String) = taskDAO.finishTask(taskId)
+  def finishTask(executionId: String, taskId: String) = taskDAO.finishTask(executionId, taskId)
 
-  def stopTask(taskId: String, error: String) = taskDAO.stopTask(taskId, error)
+  def stopTask(executionId: String, taskId: String, error: String) = taskDAO.stopTask(executionId, taskId, error)
 
-  def insertNewRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
+  def insertNewRelationshipTask(executionId: String, sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
     val operation = RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName)
-    relationshipOperationDAO.save(operation).map { _ =>
-      relationshipTaskDAO.insertNewTask(operation)
+    relationshipOperationDAO.save(operation).flatMap { _ =>
+      relationshipTaskDAO.insertNewTask(executionId, operation)
+    }
+  }
+
+  def startRelationshipTask(executionId: String, sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
+    relationshipTaskDAO.startTask(executionId, RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName))
+  }
+
+  def finishRelationshipTask(executionId: String, sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
+    relationshipTaskDAO.finishTask(executionId, RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName))
+  }
+
+  def stopRelationshipTask(executionId: String, sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String, error: String) = {
+    relationshipTaskDAO.stopTask(executionId, RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName), error)
+  }
+
+  def saveTaskTransitions(transitions: Seq[TaskTransitionDTO]) = executionDAO.runTransactionally {
+    DBIO.seq(groupConsecutiveInserts(transitions).map {
+      case (true, inserts) => insertNewTasksAction(inserts)
+      case (false, others) => DBIO.seq(others.map(transition => taskTransitionAction(transition.getExecutionId, transition)): _*)
+    }: _*)
+  }.andThen {
+    case _ => if (transitions.exists(_.getStatus == SUCCESS)) invalidateTaskDurations()
+  }
+
+  /**
+    * Average durations of the node and relationship tasks, they are loaded once and kept until a task succeeds as workflows are built far more often
+    */
+  private var taskDurationsLoading: Option[Future[(Map[(String, String, String), Long], Map[(String, String, String, String, String), Long])]] = None
+
+  private def getTaskDurations = synchronized {
+    taskDurationsLoading.getOrElse {
+      val nodeTaskDurations = nodeTaskDAO.getSuccessfulTaskDurations
+      val relationshipTaskDurations = relationshipTaskDAO.getSuccessfulTaskDurations
+      val loading = nodeTaskDurations.zip(relationshipTaskDurations)
+      loading.onFailure {
+        case _ => synchronized {
+          if (taskDurationsLoading.contains(loading)) taskDurationsLoading = None
+        }
+      }
+      taskDurationsLoading = Some(loading)
+      loading
     }
   }
 
-  def startRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
-    relationshipTaskDAO.startTask(RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName))
+  private def invalidateTaskDurations(): Unit = synchronized {
+    taskDurationsLoading = None
   }
 
-  def finishRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String) = {
-    relationshipTaskDAO.finishTask(RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName))
+  /**
+   * Group consecutive transitions by whether they're inserts, the order of the transitions is kept
+   */
+  private def groupConsecutiveInserts(transitions: Seq[TaskTransitionDTO]) = {
+    transitions.foldLeft(Vector.empty[(Boolean, Vector[TaskTransitionDTO])]) { (groups, transition) =>
+      val isInsert = transition.getStatus == INITIAL
+      groups.lastOption match {
+        case Some((`isInsert`, group)) => groups.init :+ (isInsert, group :+ transition)
+        case _ => groups :+ (isInsert, Vector(transition))
+      }
+    }
   }
 
-  def stopRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String, error: String) = {
-    relationshipTaskDAO.stopTask(RelationshipOperationEntity(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName), error)
+  /**
+   * Insert new tasks with batch statements, as done when an execution's tasks are persisted
+   */
+  private def insertNewTasksAction(inserts: Seq[TaskTransitionDTO]): DBIO[Unit] = {
+    val nodeTasks = inserts.filter(_.getNodeTask != null).map { transition =>
+      val nodeTask = transition.getNodeTask
+      (transition.getExecutionId, OperationEntity(nodeTask.getNodeInstanceId, nodeTask.getInterfaceName, nodeTask.getOperationName))
+    }
+    val relationshipTasks = inserts.filter(_.getRelationshipTask != null).map { transition =>
+      val relationshipTask = transition.getRelationshipTask
+      (transition.getExecutionId, RelationshipOperationEntity(relationshipTask.getSourceInstanceId, relationshipTask.getTargetInstanceId, relationshipTask.getRelationshipType, relationshipTask.getInterfaceName, relationshipTask.getOperationName))
+    }
+    val tasks = inserts.filter(_.getTask != null).map(transition => (transition.getExecutionId, transition.getTask.getTaskId))
+    val actions = Seq.newBuilder[DBIO[_]]
+    if (nodeTasks.nonEmpty) {
+      actions += operationDAO.saveAllAction(nodeTasks.map(_._2))
+      actions += nodeTaskDAO.insertNewTasksAction(nodeTasks)
+    }
+    if (relationshipTasks.nonEmpty) {
+      actions += relationshipOperationDAO.saveAllAction(relationshipTasks.map(_._2))
+      actions += relationshipTaskDAO.insertNewTasksAction(relationshipTasks)
+    }
+    if (tasks.nonEmpty) {
+      actions += taskDAO.insertNewTasksAction(tasks)
+    }
+    DBIO.seq(actions.result: _*)
   }
 
-  def getNodeTasks = nodeTaskDAO.getRunningExecutionTasks
+  private def taskTransitionAction(executionId: String, transition: TaskTransitionDTO): DBIO[Int] = {
+    val startTime = Option(transition.getStartTime).map(time => new Timestamp(time))
+    val endTime = Option(transition.getEndTime).map(time => new Timestamp(time))
+    if (transition.getNodeTask != null) {
+      val nodeTask = transition.getNodeTask
+      val operation = OperationEntity(nodeTask.getNodeInstanceId, nodeTask.getInterfaceName, nodeTask.getOperationName)
+      transition.getStatus match {
+        case INITIAL => operationDAO.saveAction(operation).andThen(nodeTaskDAO.insertNewTaskAction(executionId, operation))
+        case RUNNING => nodeTaskDAO.startTaskAction(executionId, operation, startTime.get)
+        case SUCCESS => nodeTaskDAO.finishTaskAction(executionId, operation, startTime, endTime.get)
+        case STOPPED => nodeTaskDAO.stopTaskAction(executionId, operation, startTime, transition.getError)
+      }
+    } else if (transition.getRelationshipTask != null) {
+      val relationshipTask = transition.getRelationshipTask
+      val operation = RelationshipOperationEntity(relationshipTask.getSourceInstanceId, relationshipTask.getTargetInstanceId, relationshipTask.getRelationshipType, relationshipTask.getInterfaceName, relationshipTask.getOperationName)
+      transition.getStatus match {
+        case INITIAL => relationshipOperationDAO.saveAction(operation).andThen(relationshipTaskDAO.insertNewTaskAction(executionId, operation))
+        case RUNNING => relationshipTaskDAO.startTaskAction(executionId, operation, startTime.get)
+        case SUCCESS => relationshipTaskDAO.finishTaskAction(executionId, operation, startTime, endTime.get)
+        case STOPPED => relationshipTaskDAO.stopTaskAction(executionId, operation, startTime, transition.getError)
+      }
+    } else {
+      val taskId = transition.getTask.getTaskId
+      transition.getStatus match {
+        case INITIAL => taskDAO.insertNewTaskAction(executionId, taskId)
+        case RUNNING => taskDAO.startTaskAction(executionId, taskId, startTime.get)
+        case SUCCESS => taskDAO.finishTaskAction(executionId, taskId, startTime, endTime.get)
+        case STOPPED => taskDAO.stopTaskAction(executionId, taskId, startTime, transition.getError)
+      }
+    }
+  }
+
+  def getNodeTasks(executionId: String) = nodeTaskDAO.getExecutionTasks(executionId)
 
-  def getRelationshipTasks = relationshipTaskDAO.getRunningExecutionTasks
+  def getRelationshipTasks(executionId: String) = relationshipTaskDAO.getExecutionTasks(executionId)
 
-  def getTasks = taskDAO.getRunningExecutionTasks
+  def getTasks(executionId: String) = taskDAO.getExecutionTasks(executionId)
 
   override def syncInsertNodeIfNotExist(id: String, instancesCount: Int): Unit = Await.result(insertNodeIfNotExist(id, instancesCount), forever)
 
@@ -233,6 +421,10 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   override def syncDeleteInstance(id: String): Unit = Await.result(deleteInstance(id), forever)
 
+  override def syncInsertInstancesIfNotExist(instances: util.List[InstanceDTO], relationshipInstances: util.List[RelationshipInstanceDTO]): Unit = Await.result(insertInstancesIfNotExist(instances.asScala, relationshipInstances.asScala), forever)
+
+  override def syncDeleteInstances(instanceIds: util.List[String], relationships: util.List[RelationshipTaskDTO.Relationship]): Unit = Await.result(deleteInstances(instanceIds.asScala, relationships.asScala), forever)
+
   override def syncSaveInstanceAttribute(instanceId: String, key: String, value: String): Unit = Await.result(saveInstanceAttribute(instanceId, key, value), forever)
 
   override def syncSaveInstanceOutputs(instanceId: String, interfaceName: String, operationName: String, outputs: java.util.Map[String, String]): Unit = Await.result(saveAllOutputs(instanceId, interfaceName, operationName, outputs.asScala.toMap), forever)
@@ -265,6 +457,14 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   override def syncGetInstanceState(id: String): String = Await.result(getInstanceState(id), forever)
 
+  override def syncGetNodeInstancesCounts(): util.Map[String, Integer] = Await.result(getNodeInstancesCounts(), forever).map {
+    case (nodeId, instancesCount) => (nodeId, Int.box(instancesCount))
+  }.asJava
+
+  override def syncGetInstanceSnapshots(): util.Map[String, InstanceSnapshotDTO] = Await.result(getInstanceSnapshots(), forever).asJava
+
+  override def syncGetRelationshipInstanceSnapshots(): util.Map[RelationshipTaskDTO.Relationship, InstanceSnapshotDTO] = Await.result(getRelationshipInstanceSnapshots(), forever).asJava
+
   override def hasExistingData: Boolean = Await.result(countInstances(), forever) > 0
 
   override def syncGetRelationshipAttributes(sourceInstanceId: String, targetInstanceId: String, relationshipType: String): util.Map[String, String] = Await.result(getRelationshipAttributes(sourceInstanceId, targetInstanceId, relationshipType), forever).asJava
@@ -281,64 +481,53 @@ class DeploymentDAO @Inject()(schema: Schema,
 
   override def syncDeleteRelationshipAttribute(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, key: String): Unit = Await.result(relationshipAttributeDAO.delete(sourceInstanceId, targetInstanceId, relationshipType, key), forever)
 
-  override def syncInsertNewNodeTask(instanceId: String, interfaceName: String, operationName: String): Unit = Await.result(insertNewNodeTask(instanceId, interfaceName, operationName), forever)
-
-  override def syncStopNodeTask(instanceId: String, interfaceName: String, operationName: String, error: String): Unit = Await.result(stopNodeTask(instanceId, interfaceName, operationName, error), forever)
-
-  override def syncFinishNodeTask(instanceId: String, interfaceName: String, operationName: String): Unit = Await.result(finishNodeTask(instanceId, interfaceName, operationName), forever)
-
-  override def syncStartNodeTask(instanceId: String, interfaceName: String, operationName: String): Unit = Await.result(startNodeTask(instanceId, interfaceName, operationName), forever)
-
-  override def syncInsertNewRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String): Unit = Await.result(insertNewRelationshipTask(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName), forever)
+  override def syncSaveTaskTransitions(transitions: util.List[TaskTransitionDTO]): Unit = Await.result(saveTaskTransitions(transitions.asScala), forever)
 
-  override def syncFinishRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String): Unit = Await.result(finishRelationshipTask(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName), forever)
-
-  override def syncStopRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String, error: String): Unit = Await.result(stopRelationshipTask(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName, error), forever)
-
-  override def syncStartRelationshipTask(sourceInstanceId: String, targetInstanceId: String, relationshipType: String, interfaceName: String, operationName: String): Unit = Await.result(startRelationshipTask(sourceInstanceId, targetInstanceId, relationshipType, interfaceName, operationName), forever)
-
-  override def syncGetRunningExecution(): RunningExecutionDTO = Await.result(getRunningExecution.flatMap {
-    _.map { executionEntity =>
-      val workflowId = executionEntity.workflowId
+  override def syncGetRunningExecutions(): util.List[RunningExecutionDTO] = Await.result(getRunningExecutions.flatMap { executionEntities =>
+    Future.sequence(executionEntities.map { executionEntity =>
       executionInputDAO.get(executionEntity.id).map { inputs =>
-        new RunningExecutionDTO(workflowId, JavaScalaConversionUtil.toJavaMap(inputs))
+        new RunningExecutionDTO(executionEntity.id, executionEntity.workflowId, JavaScalaConversionUtil.toJavaMap(inputs))
       }
-    }.getOrElse(Future.successful(null))
-  }, forever)
+    })
+  }.map(_.asJava), forever)
 
-  override def syncGetRunningExecutionNodeTasks(): util.Map[NodeTaskDTO, String] = Await.result(getNodeTasks.map { nodeTasks =>
+  override def syncGetExecutionNodeTasks(executionId: String): util.Map[NodeTaskDTO, String] = Await.result(getNodeTasks(executionId).map { nodeTasks =>
     nodeTasks.map { nodeTask =>
       (new NodeTaskDTO(nodeTask.instanceId, nodeTask.interfaceName, nodeTask.operationName), nodeTask.status)
     }.toMap.asJava
   }, forever)
 
-  override def syncGetRunningExecutionRelationshipTasks(): util.Map[RelationshipTaskDTO, String] = Await.result(getRelationshipTasks.map { relationshipTasks =>
+  override def syncGetExecutionRelationshipTasks(executionId: String): util.Map[RelationshipTaskDTO, String] = Await.result(getRelationshipTasks(executionId).map { relationshipTasks =>
     relationshipTasks.map { relationshipTask =>
       (new RelationshipTaskDTO(relationshipTask.sourceInstanceId, relationshipTask.targetInstanceId, relationshipTask.relationshipType, relationshipTask.interfaceName, relationshipTask.operationName), relationshipTask.status)
     }.toMap.asJava
   }, forever)
 
-  override def syncInsertNewTask(taskId: String): Unit = Await.result(insertNewTask(taskId), forever)
-
-  override def syncFinishTask(taskId: String): Unit = Await.result(finishTask(taskId), forever)
-
-  override def syncStopTask(taskId: String, error: String): Unit = Await.result(stopTask(taskId, error), forever)
-
-  override def syncStartTask(taskId: String): Unit = Await.result(startTask(taskId), forever)
-
-  override def syncGetRunningExecutionTasks(): util.Map[TaskDTO, String] = Await.result(getTasks.map { tasks =>
+  override def syncGetExecutionTasks(executionId: String): util.Map[TaskDTO, String] = Await.result(getTasks(executionId).map { tasks =>
     tasks.map { task =>
       (new TaskDTO(task.taskId), task.status)
     }.toMap.asJava
   }, forever)
 
-  override def syncInsertExecutionInputs(inputs: util.Map[String, AnyRef]): Unit = Await.result(insertExecutionInputs(JavaScalaConversionUtil.toScalaMap(inputs)), forever)
+  override def syncGetNodeTaskDurations(): util.Map[NodeOperationDTO, java.lang.Long] = Await.result(getTaskDurations.map { case (nodeTaskDurations, _) =>
+    nodeTaskDurations.map { case ((nodeId, interfaceName, operationName), duration) =>
+      (new NodeOperationDTO(nodeId, interfaceName, operationName), Long.box(duration))
+    }.asJava
+  }, forever)
+
+  override def syncGetRelationshipTaskDurations(): util.Map[RelationshipOperationDTO, java.lang.Long] = Await.result(getTaskDurations.map { case (_, relationshipTaskDurations) =>
+    relationshipTaskDurations.map { case ((sourceNodeId, targetNodeId, relationshipType, interfaceName, operationName), duration) =>
+      (new RelationshipOperationDTO(sourceNodeId, targetNodeId, relationshipType, interfaceName, operationName), Long.box(duration))
+    }.asJava
+  }, forever)
+
+  override def syncInsertExecutionInputs(executionId: String, inputs: util.Map[String, AnyRef]): Unit = Await.result(insertExecutionInputs(executionId, JavaScalaConversionUtil.toScalaMap(inputs)), forever)
 
-  override def syncFinishRunningExecution(): Unit = Await.result(finishRunningExecution(), forever)
+  override def syncFinishExecution(executionId: String): Unit = Await.result(finishExecution(executionId), forever)
 
-  override def syncStopRunningExecution(error: String): Unit = Await.result(stopExecution(Some(error)), forever)
+  override def syncStopExecution(executionId: String, error: String): Unit = Await.result(stopExecution(executionId, Some(error)), forever)
 
-  override def syncStopRunningExecution(): Unit = Await.result(stopExecution(None), forever)
+  override def syncStopExecution(executionId: String): Unit = Await.result(stopExecution(executionId, None), forever)
 
-  override def syncCancelRunningExecution(): Unit = Await.result(cancelRunningExecution(), forever)
+  override def syncCancelExecution(executionId: String): Unit = Await.result(cancelExecution(executionId), forever)
 }
@@ -4,12 +4,14 @@ import java.sql.Timestamp
 import javax.inject.{Inject, Singleton}
 
 import com.toscaruntime.constant.ExecutionConstant._
-import com.toscaruntime.exception.deployment.execution.ConcurrentWorkflowExecutionException
 import models.ExecutionEntity
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
 import play.api.libs.concurrent.Execution.Implicits.defaultContext
 import slick.driver.JdbcProfile
 
+import java.util.concurrent.ConcurrentHashMap
+
+import scala.collection.JavaConverters._
 import scala.concurrent.Future
 
 trait ExecutionsComponent {
@@ -31,6 +33,8 @@ trait ExecutionsComponent {
 
     def status = column[String]("STATUS")
 
+    def endTimeIndex = index("EXECUTION_END_TIME_IDX", (endTime, startTime))
+
     def * = (id, workflowId, startTime, endTime, error, status) <>(ExecutionEntity.tupled, ExecutionEntity.unapply)
   }
 
@@ -43,36 +47,101 @@ class ExecutionDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvi
 
   private val Executions = TableQuery[ExecutionTable]
 
+  /**
+    * Ids of running executions. It's loaded from the database at first use then kept up to date by this DAO, which is the only one to start and end executions.
+    * Stopping, resuming or finishing an execution which is not running does not query the executions table.
+    */
+  private val runningExecutions = ConcurrentHashMap.newKeySet[String]().asScala
+
+  private var runningExecutionsLoading: Option[Future[Unit]] = None
+
+  private def loadRunningExecutions(): Future[Unit] = synchronized {
+    runningExecutionsLoading.getOrElse {
+      val loading = db.run(Executions.filter(_.endTime.isEmpty).map(_.id).result).map { loaded =>
+        runningExecutions.clear()
+        runningExecutions ++= loaded
+        ()
+      }
+      loading.onFailure {
+        case _ => synchronized {
+          if (runningExecutionsLoading.contains(loading)) runningExecutionsLoading = None
+        }
+      }
+      runningExecutionsLoading = Some(loading)
+      loading
+    }
+  }
+
+  /**
+    * Run the given execution's modification once running executions have been loaded, so that the loading cannot overwrite the modification
+    */
+  private def withRunningExecutions[R](modification: => Future[R]): Future[R] = loadRunningExecutions().flatMap(_ => modification)
+
+  /**
+    * Forget running executions, they will be loaded again from the database at next use. It must be called when the schema is recreated.
+    */
+  def invalidateRunningExecutions(): Unit = synchronized {
+    runningExecutionsLoading = None
+    runningExecutions.clear()
+  }
+
   def get(executionId: String): Future[Seq[ExecutionEntity]] = db.run(Executions.filter(_.id === executionId).result)
 
   def all(): Future[Seq[ExecutionEntity]] = db.run(Executions.sortBy(_.endTime.desc.nullsFirst).result)
 
-  def getRunningExecution: Future[Option[ExecutionEntity]] = {
-    db.run(Executions.filter(_.endTime.isEmpty).result.headOption)
+  def count(): Future[Int] = db.run(Executions.length.result)
+
+  def getRunningExecutionsAction = Executions.filter(_.endTime.isEmpty).sortBy(_.startTime).result
+
+  def getRunningExecutions: Future[Seq[ExecutionEntity]] = db.run(getRunningExecutionsAction)
+
+  /**
+    * Run the given actions in a single transaction
+    *
+    * @param action the action to run
+    * @return the action's result
+    */
+  def runTransactionally[R](action: DBIO[R]): Future[R] = db.run(action.transactionally)
+
+  /**
+    * Insert a new execution, several executions can run at the same time, it's up to the deployment to decide if they overlap
+    *
+    * @param executionEntity the execution to insert
+    * @return number of inserted rows
+    */
+  def insert(executionEntity: ExecutionEntity): Future[Int] = withRunningExecutions(db.run(Executions += executionEntity)).map { count =>
+    if (executionEntity.endTime.isEmpty) runningExecutions += executionEntity.id
+    count
   }
 
-  def insert(executionEntity: ExecutionEntity): Future[Int] = {
-    val insertAction = Executions.filter { execution =>
-      execution.endTime.isEmpty
-    }.result.flatMap { runningExecutions =>
-      if (runningExecutions.isEmpty) {
-        Executions += executionEntity
-      } else {
-        throw new ConcurrentWorkflowExecutionException(s"Cannot start execution for workflow ${executionEntity.workflowId} because deployment has unfinished executions, consider running it in transient mode if this option is available")
-      }
-    }
-    db.run(insertAction.transactionally)
+  private def runningExecution(executionId: String) = Executions.filter(ex => ex.id === executionId && ex.endTime.isEmpty)
+
+  /**
+    * Update the execution by its primary key if it's running, without querying the database if it's not
+    */
+  private def updateRunningExecution(executionId: String)(update: => Future[Int]): Future[Int] = withRunningExecutions {
+    if (runningExecutions.contains(executionId)) update else Future.successful(0)
   }
 
-  def stop(error: Option[String]) = {
-    db.run(Executions.filter(_.endTime.isEmpty).map { ex => (ex.status, ex.error) }.update((STOPPED, error)))
+  def stop(executionId: String, error: Option[String]) = updateRunningExecution(executionId) {
+    db.run(runningExecution(executionId).map { ex => (ex.status, ex.error) }.update((STOPPED, error)))
   }
 
-  def resume() = {
-    db.run(Executions.filter(_.endTime.isEmpty).map { ex => (ex.status, ex.error) }.update((RUNNING, None)))
+  def resume(executionId: String) = updateRunningExecution(executionId) {
+    db.run(runningExecution(executionId).map { ex => (ex.status, ex.error) }.update((RUNNING, None)))
   }
 
-  def finish(status: String, error: Option[String]) = {
-    db.run(Executions.filter(_.endTime.isEmpty).map { ex => (ex.status, ex.endTime, ex.error) }.update((status, Some(new Timestamp(System.currentTimeMillis())), error)))
+  def finish(executionId: String, status: String, error: Option[String]) = updateRunningExecution(executionId) {
+    db.run(runningExecution(executionId).map { ex => (ex.status, ex.endTime, ex.error) }.update((status, Some(new Timestamp(System.currentTimeMillis())), error))).map { count =>
+      runningExecutions -= executionId
+      count
+    }
   }
-}
\ No newline at end of file
+
+  def finishAll(status: String, error: Option[String]) = withRunningExecutions {
+    db.run(Executions.filter(_.endTime.isEmpty).map { ex => (ex.status, ex.endTime, ex.error) }.update((status, Some(new Timestamp(System.currentTimeMillis())), error))).map { count =>
+      runningExecutions.clear()
+      count
+    }
+  }
+}
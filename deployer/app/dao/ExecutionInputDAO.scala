@@ -3,11 +3,13 @@ package dao
 import javax.inject.{Inject, Singleton}
 
 import com.toscaruntime.util.{JSONUtil, JavaScalaConversionUtil}
-import models.ExecutionInputEntity
+import models.{ExecutionEntity, ExecutionInputEntity}
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
 import play.api.libs.concurrent.Execution.Implicits.defaultContext
 import slick.driver.JdbcProfile
 
+import scala.concurrent.Future
+
 trait ExecutionInputsComponent extends ExecutionsComponent {
   self: HasDatabaseConfigProvider[JdbcProfile] =>
 
@@ -39,11 +41,30 @@ class ExecutionInputDAO @Inject()(protected val dbConfigProvider: DatabaseConfig
 
   private val ExecutionInputs = TableQuery[ExecutionInputTable]
 
+  private def toInput(executionInputEntity: ExecutionInputEntity) = (executionInputEntity.key, JavaScalaConversionUtil.toScala(JSONUtil.toObject(executionInputEntity.value)))
+
   def get(executionId: String) = {
     db.run(ExecutionInputs.filter(_.executionId === executionId).result).map {
-      _.map {
-        case executionInputEntity => (executionInputEntity.key, JavaScalaConversionUtil.toScala(JSONUtil.toObject(executionInputEntity.value)))
-      }.toMap
+      _.map(toInput).toMap
+    }
+  }
+
+  /**
+    * Load a page of executions with their inputs in a single query, executions are sorted from the most recent
+    *
+    * @param offset number of executions to skip
+    * @param limit  maximum number of executions to load, all if not defined
+    * @return executions with their inputs
+    */
+  def getExecutionsWithInputs(offset: Int, limit: Option[Int]): Future[Seq[(ExecutionEntity, Map[String, Any])]] = {
+    val sortedExecutions = TableQuery[ExecutionTable].sortBy(execution => (execution.endTime.desc.nullsFirst, execution.startTime.desc, execution.id))
+    val page = limit.map(sortedExecutions.drop(offset).take(_)).getOrElse(sortedExecutions.drop(offset))
+    val query = page.joinLeft(ExecutionInputs).on(_.id === _.executionId).sortBy {
+      case (execution, _) => (execution.endTime.desc.nullsFirst, execution.startTime.desc, execution.id)
+    }
+    db.run(query.result).map { rows =>
+      val inputs = rows.groupBy(_._1.id).mapValues(_.flatMap(_._2).map(toInput).toMap)
+      rows.map(_._1).distinct.map(execution => (execution, inputs(execution.id)))
     }
   }
 
@@ -56,8 +56,24 @@ class InstanceDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvid
     insertFuture
   }
 
+  /**
+   * Insert in batch the instances which do not exist yet
+   *
+   * @return the instances which have been inserted
+   */
+  def insertAllIfNotExistAction(instanceEntities: Seq[InstanceEntity]): DBIO[Seq[InstanceEntity]] = {
+    Instances.filter(_.id inSet instanceEntities.map(_.id).toSet).map(_.id).result.flatMap { existingIds =>
+      val existingIdSet = existingIds.toSet
+      val newInstances = instanceEntities.filterNot(instance => existingIdSet.contains(instance.id))
+      if (newInstances.isEmpty) DBIO.successful(newInstances)
+      else (Instances ++= newInstances).map(_ => newInstances)
+    }
+  }
+
   def delete(id: String) = db.run(Instances.filter(_.id === id).delete)
 
+  def deleteAllAction(ids: Seq[String]) = Instances.filter(_.id inSet ids).delete
+
   def saveState(id: String, newState: String) = {
     db.run(Instances.filter(_.id === id).map(_.state).update(newState))
   }
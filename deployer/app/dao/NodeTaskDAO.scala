@@ -57,9 +57,9 @@ class NodeTaskDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvid
 
   private val NodeTasks = TableQuery[NodeTaskTable]
 
-  private val Executions = TableQuery[ExecutionTable]
+  private val Instances = TableQuery[InstanceTable]
 
-  private def getRunningExecution = Executions.filter(_.endTime.isEmpty).map(_.id).result.head
+  private val millisecondsBetween = SimpleFunction.ternary[String, Option[Timestamp], Option[Timestamp], Option[Long]]("DATEDIFF")
 
   private def filterByTask(executionId: String, operation: OperationEntity) = {
     task: NodeTaskTable => {
@@ -70,39 +70,73 @@ class NodeTaskDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvid
     }
   }
 
-  def insertNewTask(operation: OperationEntity) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      NodeTasks += NodeTaskEntity(exId, operation.instanceId, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
-    ))
+  def insertNewTaskAction(executionId: String, operation: OperationEntity) = {
+    NodeTasks += NodeTaskEntity(executionId, operation.instanceId, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
+  }
+
+  /**
+   * Insert new tasks in batch
+   *
+   * @param tasks execution id and operation of each task
+   */
+  def insertNewTasksAction(tasks: Seq[(String, OperationEntity)]) = {
+    NodeTasks ++= tasks.map {
+      case (executionId, operation) => NodeTaskEntity(executionId, operation.instanceId, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
+    }
+  }
+
+  def startTaskAction(executionId: String, operation: OperationEntity, startTime: Timestamp) = {
+    NodeTasks.filter(filterByTask(executionId, operation))
+      .filter(_.endTime.isEmpty)
+      .map { task => (task.status, task.startTime) }.update((RUNNING, Some(startTime)))
+  }
+
+  def finishTaskAction(executionId: String, operation: OperationEntity, startTime: Option[Timestamp], endTime: Timestamp) = {
+    val unfinishedTask = NodeTasks.filter(filterByTask(executionId, operation)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.endTime) }.update((SUCCESS, startTime, Some(endTime)))
+      case None => unfinishedTask.map { task => (task.status, task.endTime) }.update((SUCCESS, Some(endTime)))
+    }
+  }
+
+  def stopTaskAction(executionId: String, operation: OperationEntity, startTime: Option[Timestamp], error: String) = {
+    val unfinishedTask = NodeTasks.filter(filterByTask(executionId, operation)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.error) }.update((STOPPED, startTime, Some(error)))
+      case None => unfinishedTask.map { task => (task.status, task.error) }.update((STOPPED, Some(error)))
+    }
+  }
+
+  def insertNewTask(executionId: String, operation: OperationEntity) = {
+    db.run(insertNewTaskAction(executionId, operation))
   }
 
-  def startTask(operation: OperationEntity) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      NodeTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.startTime) }.update((RUNNING, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def startTask(executionId: String, operation: OperationEntity) = {
+    db.run(startTaskAction(executionId, operation, new Timestamp(System.currentTimeMillis())))
   }
 
-  def finishTask(operation: OperationEntity) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      NodeTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.endTime) }.update((SUCCESS, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def finishTask(executionId: String, operation: OperationEntity) = {
+    db.run(finishTaskAction(executionId, operation, None, new Timestamp(System.currentTimeMillis())))
   }
 
-  def stopTask(operation: OperationEntity, error: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      NodeTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.error) }.update((STOPPED, Some(error)))
-    ))
+  def stopTask(executionId: String, operation: OperationEntity, error: String) = {
+    db.run(stopTaskAction(executionId, operation, None, error))
   }
 
-  def getRunningExecutionTasks: Future[Seq[NodeTaskEntity]] = {
-    db.run(getRunningExecution.flatMap(exId =>
-      NodeTasks.filter { task => task.executionId === exId }.result
-    ))
+  /**
+    * Average duration in milliseconds of the successful tasks of all executions, by node and operation.
+    * It's computed by the database so that tasks are not loaded, and by node so that new instances of a node are estimated too.
+    */
+  def getSuccessfulTaskDurations: Future[Map[(String, String, String), Long]] = {
+    db.run(NodeTasks.filter { task => task.status === SUCCESS && task.startTime.isDefined && task.endTime.isDefined }
+      .join(Instances).on(_.instanceId === _.id)
+      .map { case (task, instance) => (instance.nodeId, task.interfaceName, task.operationName, millisecondsBetween(LiteralColumn("MILLISECOND"), task.startTime, task.endTime)) }
+      .groupBy { case (nodeId, interfaceName, operationName, _) => (nodeId, interfaceName, operationName) }
+      .map { case (operation, tasks) => (operation, tasks.map(_._4).avg) }.result
+    ).map(_.collect { case (operation, Some(duration)) => (operation, duration) }.toMap)
   }
+
+  def getExecutionTasksAction(executionId: String) = NodeTasks.filter { task => task.executionId === executionId }.result
+
+  def getExecutionTasks(executionId: String): Future[Seq[NodeTaskEntity]] = db.run(getExecutionTasksAction(executionId))
 }
@@ -4,6 +4,7 @@ import javax.inject.{Inject, Singleton}
 
 import models.OperationEntity
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
+import play.api.libs.concurrent.Execution.Implicits.defaultContext
 import slick.driver.JdbcProfile
 
 import scala.concurrent.Future
@@ -39,7 +40,22 @@ class OperationDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvi
 
   private val Operations = TableQuery[OperationTable]
 
-  def save(operationEntity: OperationEntity): Future[Int] = db.run(Operations insertOrUpdate operationEntity)
+  def saveAction(operationEntity: OperationEntity) = Operations insertOrUpdate operationEntity
+
+  def save(operationEntity: OperationEntity): Future[Int] = db.run(saveAction(operationEntity))
+
+  /**
+   * Insert in batch the operations which do not exist yet
+   */
+  def saveAllAction(operationEntities: Seq[OperationEntity]): DBIO[Unit] = {
+    if (operationEntities.isEmpty) DBIO.successful(())
+    else Operations.filter(_.instanceId inSet operationEntities.map(_.instanceId).toSet).result.flatMap { existingOperations =>
+      val existingOperationSet = existingOperations.toSet
+      val newOperations = operationEntities.distinct.filterNot(existingOperationSet.contains)
+      if (newOperations.isEmpty) DBIO.successful(())
+      else (Operations ++= newOperations).map(_ => ())
+    }
+  }
 
 }
 
@@ -44,14 +44,19 @@ class OperationOutputDAO @Inject()(protected val dbConfigProvider: DatabaseConfi
 
   private val OperationOutputs = TableQuery[OperationOutputTable]
 
-  def get(instanceId: String, interfaceName: String, operationName: String): Future[Seq[OperationOutputEntity]] = {
-    db.run(OperationOutputs.filter(operationOutput =>
+  def getAction(instanceId: String, interfaceName: String, operationName: String) = {
+    OperationOutputs.filter(operationOutput =>
       operationOutput.instanceId === instanceId &&
         operationOutput.interfaceName === interfaceName &&
         operationOutput.operationName === operationName).result
-    )
   }
 
+  def get(instanceId: String, interfaceName: String, operationName: String): Future[Seq[OperationOutputEntity]] = {
+    db.run(getAction(instanceId, interfaceName, operationName))
+  }
+
+  def all(): Future[Seq[OperationOutputEntity]] = db.run(OperationOutputs.result)
+
   def getInterfaces(instanceId: String) = {
     db.run(OperationOutputs.filter(_.instanceId === instanceId).map(_.interfaceName).distinct.result)
   }
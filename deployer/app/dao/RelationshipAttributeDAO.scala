@@ -2,7 +2,7 @@ package dao
 
 import javax.inject.{Inject, Singleton}
 
-import models.RelationshipAttributeEntity
+import models.{RelationshipAttributeEntity, RelationshipInstanceEntity}
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
 import slick.driver.JdbcProfile
 
@@ -52,8 +52,23 @@ class RelationshipAttributeDAO @Inject()(protected val dbConfigProvider: Databas
     }
   }
 
+  def getAction(sourceInstanceId: String, targetInstanceId: String, relationshipType: String) = {
+    RelationshipAttributes.filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType)).result
+  }
+
   def get(sourceInstanceId: String, targetInstanceId: String, relationshipType: String): Future[Seq[RelationshipAttributeEntity]] = {
-    db.run(RelationshipAttributes.filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType)).result)
+    db.run(getAction(sourceInstanceId, targetInstanceId, relationshipType))
+  }
+
+  /**
+   * All relationship instances joined with their attributes, a relationship instance without attribute is returned once with None
+   */
+  def getAllWithRelationshipInstances(): Future[Seq[(RelationshipInstanceEntity, Option[RelationshipAttributeEntity])]] = {
+    db.run((TableQuery[RelationshipInstanceTable] joinLeft RelationshipAttributes on { (relationshipInstance, relationshipAttribute) =>
+      relationshipInstance.sourceInstanceId === relationshipAttribute.sourceInstanceId &&
+        relationshipInstance.targetInstanceId === relationshipAttribute.targetInstanceId &&
+        relationshipInstance.relationshipType === relationshipAttribute.relationshipType
+    }).result)
   }
 
   def save(attributeEntity: RelationshipAttributeEntity): Future[Int] = db.run(RelationshipAttributes insertOrUpdate attributeEntity)
@@ -34,6 +34,8 @@ trait RelationshipInstancesComponents extends InstancesComponent with Relationsh
 
     def state = column[String]("STATE")
 
+    def targetIndex = index("RELATIONSHIP_INSTANCE_TARGET_IDX", (targetInstanceId, relationshipType))
+
     def sourceInstance = foreignKey("RELATIONSHIP_INSTANCE_SOURCE_INSTANCE_FK", sourceInstanceId, Instances)(_.id, onUpdate = ForeignKeyAction.Cascade, onDelete = ForeignKeyAction.Cascade)
 
     def targetInstance = foreignKey("RELATIONSHIP_INSTANCE_TARGET_INSTANCE_FK", targetInstanceId, Instances)(_.id, onUpdate = ForeignKeyAction.Cascade, onDelete = ForeignKeyAction.Cascade)
@@ -63,9 +65,13 @@ class RelationshipInstanceDAO @Inject()(protected val dbConfigProvider: Database
 
   def all(): Future[Seq[RelationshipInstanceEntity]] = db.run(RelationshipInstances.result)
 
-  def getFromSource(sourceInstanceId: String): Future[Seq[RelationshipInstanceEntity]] = db.run(RelationshipInstances.filter(_.sourceInstanceId === sourceInstanceId).result)
+  def getFromSourceAction(sourceInstanceId: String) = RelationshipInstances.filter(_.sourceInstanceId === sourceInstanceId).result
+
+  def getFromSource(sourceInstanceId: String): Future[Seq[RelationshipInstanceEntity]] = db.run(getFromSourceAction(sourceInstanceId))
 
-  def getFromTarget(targetInstanceId: String): Future[Seq[RelationshipInstanceEntity]] = db.run(RelationshipInstances.filter(_.targetInstanceId === targetInstanceId).result)
+  def getFromTargetAction(targetInstanceId: String) = RelationshipInstances.filter(_.targetInstanceId === targetInstanceId).result
+
+  def getFromTarget(targetInstanceId: String): Future[Seq[RelationshipInstanceEntity]] = db.run(getFromTargetAction(targetInstanceId))
 
   def insertIfNotExist(relIns: RelationshipInstanceEntity): Future[Int] = {
     val insertAction = RelationshipInstances
@@ -77,6 +83,25 @@ class RelationshipInstanceDAO @Inject()(protected val dbConfigProvider: Database
     db.run(insertAction)
   }
 
+  /**
+   * Insert in batch the relationship instances which do not exist yet
+   */
+  def insertAllIfNotExistAction(relationshipInstances: Seq[RelationshipInstanceEntity]): DBIO[Unit] = {
+    def relationshipId(relIns: RelationshipInstanceEntity) = (relIns.sourceInstanceId, relIns.targetInstanceId, relIns.relationshipType)
+    RelationshipInstances.filter(_.sourceInstanceId inSet relationshipInstances.map(_.sourceInstanceId).toSet).result.flatMap { existingRelationshipInstances =>
+      val existingIdSet = existingRelationshipInstances.map(relationshipId).toSet
+      val newRelationshipInstances = relationshipInstances.filterNot(relIns => existingIdSet.contains(relationshipId(relIns)))
+      if (newRelationshipInstances.isEmpty) DBIO.successful(())
+      else (RelationshipInstances ++= newRelationshipInstances).map(_ => ())
+    }
+  }
+
+  def deleteAllAction(relationshipIds: Seq[(String, String, String)]) = {
+    DBIO.seq(relationshipIds.map {
+      case (sourceInstanceId, targetInstanceId, relationshipType) => RelationshipInstances.filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType)).delete
+    }: _*)
+  }
+
   def delete(sourceInstanceId: String, targetInstanceId: String, relationshipType: String) = {
     db.run(RelationshipInstances
       .filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType))
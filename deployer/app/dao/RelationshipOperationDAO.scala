@@ -4,6 +4,7 @@ import javax.inject.{Inject, Singleton}
 
 import models.RelationshipOperationEntity
 import play.api.db.slick.{DatabaseConfigProvider, HasDatabaseConfigProvider}
+import play.api.libs.concurrent.Execution.Implicits.defaultContext
 import slick.driver.JdbcProfile
 
 import scala.concurrent.Future
@@ -44,6 +45,21 @@ class RelationshipOperationDAO @Inject()(protected val dbConfigProvider: Databas
 
   private val RelationshipOperations = TableQuery[RelationshipOperationTable]
 
-  def save(relationshipOperation: RelationshipOperationEntity): Future[Int] = db.run(RelationshipOperations insertOrUpdate relationshipOperation)
+  def saveAction(relationshipOperation: RelationshipOperationEntity) = RelationshipOperations insertOrUpdate relationshipOperation
+
+  def save(relationshipOperation: RelationshipOperationEntity): Future[Int] = db.run(saveAction(relationshipOperation))
+
+  /**
+   * Insert in batch the relationship operations which do not exist yet
+   */
+  def saveAllAction(relationshipOperations: Seq[RelationshipOperationEntity]): DBIO[Unit] = {
+    if (relationshipOperations.isEmpty) DBIO.successful(())
+    else RelationshipOperations.filter(_.sourceInstanceId inSet relationshipOperations.map(_.sourceInstanceId).toSet).result.flatMap { existingOperations =>
+      val existingOperationSet = existingOperations.toSet
+      val newOperations = relationshipOperations.distinct.filterNot(existingOperationSet.contains)
+      if (newOperations.isEmpty) DBIO.successful(())
+      else (RelationshipOperations ++= newOperations).map(_ => ())
+    }
+  }
 
 }
@@ -60,6 +60,8 @@ class RelationshipOutputDAO @Inject()(protected val dbConfigProvider: DatabaseCo
     db.run(RelationshipOutputs.filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType)).result)
   }
 
+  def all(): Future[Seq[RelationshipOperationOutputEntity]] = db.run(RelationshipOutputs.result)
+
   def getInterfaces(sourceInstanceId: String, targetInstanceId: String, relationshipType: String) = {
     db.run(RelationshipOutputs.filter(filterByRelationshipIdFunction(sourceInstanceId, targetInstanceId, relationshipType)).map(_.interfaceName).distinct.result)
   }
@@ -63,7 +63,9 @@ class RelationshipTaskDAO @Inject()(protected val dbConfigProvider: DatabaseConf
 
   private val RelationshipTasks = TableQuery[RelationshipTaskTable]
 
-  private val Executions = TableQuery[ExecutionTable]
+  private val RelationshipInstances = TableQuery[RelationshipInstanceTable]
+
+  private val millisecondsBetween = SimpleFunction.ternary[String, Option[Timestamp], Option[Timestamp], Option[Long]]("DATEDIFF")
 
   private def filterByTask(executionId: String, operation: RelationshipOperationEntity) = {
     task: RelationshipTaskTable => {
@@ -76,43 +78,75 @@ class RelationshipTaskDAO @Inject()(protected val dbConfigProvider: DatabaseConf
     }
   }
 
-  private def getRunningExecution = Executions.filter(_.endTime.isEmpty).map(_.id).result.head
+  def insertNewTaskAction(executionId: String, operation: RelationshipOperationEntity) = {
+    RelationshipTasks += RelationshipTaskEntity(executionId, operation.sourceInstanceId, operation.targetInstanceId, operation.relationshipType, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
+  }
+
+  /**
+   * Insert new tasks in batch
+   *
+   * @param tasks execution id and relationship operation of each task
+   */
+  def insertNewTasksAction(tasks: Seq[(String, RelationshipOperationEntity)]) = {
+    RelationshipTasks ++= tasks.map {
+      case (executionId, operation) => RelationshipTaskEntity(executionId, operation.sourceInstanceId, operation.targetInstanceId, operation.relationshipType, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
+    }
+  }
+
+  def startTaskAction(executionId: String, operation: RelationshipOperationEntity, startTime: Timestamp) = {
+    RelationshipTasks.filter(filterByTask(executionId, operation))
+      .filter(_.endTime.isEmpty)
+      .map { task => (task.status, task.startTime) }.update((RUNNING, Some(startTime)))
+  }
+
+  def finishTaskAction(executionId: String, operation: RelationshipOperationEntity, startTime: Option[Timestamp], endTime: Timestamp) = {
+    val unfinishedTask = RelationshipTasks.filter(filterByTask(executionId, operation)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.endTime) }.update((SUCCESS, startTime, Some(endTime)))
+      case None => unfinishedTask.map { task => (task.status, task.endTime) }.update((SUCCESS, Some(endTime)))
+    }
+  }
+
+  def stopTaskAction(executionId: String, operation: RelationshipOperationEntity, startTime: Option[Timestamp], error: String) = {
+    val unfinishedTask = RelationshipTasks.filter(filterByTask(executionId, operation)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.error) }.update((STOPPED, startTime, Some(error)))
+      case None => unfinishedTask.map { task => (task.status, task.error) }.update((STOPPED, Some(error)))
+    }
+  }
+
+  def insertNewTask(executionId: String, operation: RelationshipOperationEntity) = {
+    db.run(insertNewTaskAction(executionId, operation))
+  }
 
-  def insertNewTask(operation: RelationshipOperationEntity) = {
-    db.run(
-      getRunningExecution.flatMap(exId =>
-        RelationshipTasks += RelationshipTaskEntity(exId, operation.sourceInstanceId, operation.targetInstanceId, operation.relationshipType, operation.interfaceName, operation.operationName, INITIAL, None, None, None)
-      )
-    )
+  def startTask(executionId: String, operation: RelationshipOperationEntity) = {
+    db.run(startTaskAction(executionId, operation, new Timestamp(System.currentTimeMillis())))
   }
 
-  def startTask(operation: RelationshipOperationEntity) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      RelationshipTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.startTime) }.update((RUNNING, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def finishTask(executionId: String, operation: RelationshipOperationEntity) = {
+    db.run(finishTaskAction(executionId, operation, None, new Timestamp(System.currentTimeMillis())))
   }
 
-  def finishTask(operation: RelationshipOperationEntity) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      RelationshipTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.endTime) }.update((SUCCESS, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def stopTask(executionId: String, operation: RelationshipOperationEntity, error: String) = {
+    db.run(stopTaskAction(executionId, operation, None, error))
   }
 
-  def stopTask(operation: RelationshipOperationEntity, error: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      RelationshipTasks.filter(filterByTask(exId, operation))
-        .filter(_.endTime.isEmpty)
-        .map { task => (task.status, task.error) }.update((STOPPED, Some(error))))
-    )
+  /**
+    * Average duration in milliseconds of the successful tasks of all executions, by source node, target node and operation.
+    * It's computed by the database so that tasks are not loaded, and by node so that new instances of a node are estimated too.
+    */
+  def getSuccessfulTaskDurations: Future[Map[(String, String, String, String, String), Long]] = {
+    db.run(RelationshipTasks.filter { task => task.status === SUCCESS && task.startTime.isDefined && task.endTime.isDefined }
+      .join(RelationshipInstances).on { case (task, relationship) =>
+      task.sourceInstanceId === relationship.sourceInstanceId && task.targetInstanceId === relationship.targetInstanceId && task.relationshipType === relationship.relationshipType
+    }.map { case (task, relationship) =>
+      (relationship.sourceNodeId, relationship.targetNodeId, task.relationshipType, task.interfaceName, task.operationName, millisecondsBetween(LiteralColumn("MILLISECOND"), task.startTime, task.endTime))
+    }.groupBy { case (sourceNodeId, targetNodeId, relationshipType, interfaceName, operationName, _) => (sourceNodeId, targetNodeId, relationshipType, interfaceName, operationName) }
+      .map { case (operation, tasks) => (operation, tasks.map(_._6).avg) }.result
+    ).map(_.collect { case (operation, Some(duration)) => (operation, duration) }.toMap)
   }
 
-  def getRunningExecutionTasks: Future[Seq[RelationshipTaskEntity]] = {
-    db.run(getRunningExecution.flatMap(exId =>
-      RelationshipTasks.filter { task => task.executionId === exId }.result
-    ))
+  def getExecutionTasks(executionId: String): Future[Seq[RelationshipTaskEntity]] = {
+    db.run(RelationshipTasks.filter { task => task.executionId === executionId }.result)
   }
 }
@@ -8,6 +8,8 @@ import play.api.libs.concurrent.Execution.Implicits.defaultContext
 import slick.driver.JdbcProfile
 import slick.jdbc.meta.MTable
 
+case class SchemaVersionEntity(version: Int)
+
 @Singleton()
 class Schema @Inject()(protected val dbConfigProvider: DatabaseConfigProvider)
   extends HasDatabaseConfigProvider[JdbcProfile]
@@ -30,6 +32,15 @@ class Schema @Inject()(protected val dbConfigProvider: DatabaseConfigProvider)
 
   import driver.api._
 
+  class SchemaVersionTable(tag: Tag) extends Table[SchemaVersionEntity](tag, "SCHEMA_VERSION") {
+
+    def version = column[Int]("VERSION")
+
+    def * = version <> (SchemaVersionEntity.apply, SchemaVersionEntity.unapply)
+  }
+
+  private val SchemaVersions = TableQuery[SchemaVersionTable]
+
   private val Nodes = TableQuery[NodeTable]
   private val Instances = TableQuery[InstanceTable]
   private val Attributes = TableQuery[AttributeTable]
@@ -60,14 +71,62 @@ class Schema @Inject()(protected val dbConfigProvider: DatabaseConfigProvider)
     ExecutionInputs.schema ++
     NodeTasks.schema ++
     RelationshipTasks.schema ++
-    Tasks.schema
+    Tasks.schema ++
+    SchemaVersions.schema
+
+  /**
+    * Migrations to apply on a schema created by a previous version of the deployer, in order of version.
+    * A schema created from scratch already contains all migrations as they are also declared in the tables' definitions.
+    * Version 0 is a schema created before the schema was versioned.
+    */
+  private val migrations: Seq[(Int, DBIO[Int])] = Seq(
+    1 -> DBIO.sequence(Seq(
+      sqlu"""CREATE INDEX IF NOT EXISTS "RELATIONSHIP_INSTANCE_TARGET_IDX" ON "RELATIONSHIP_INSTANCE" ("TARGET_INSTANCE_ID", "TYPE")""",
+      sqlu"""CREATE INDEX IF NOT EXISTS "EXECUTION_END_TIME_IDX" ON "EXECUTION" ("END_TIME", "START_TIME")"""
+    )).map(_.sum)
+  )
+
+  private val latestVersion = migrations.map(_._1).max
 
   def isSchemaCreated = db.run(MTable.getTables.headOption.map(_.isDefined))
 
   def createSchema() = {
     logger.info("Create persistence schema with statements")
     schema.createStatements.foreach(statement => logger.info(statement))
-    db.run(schema.create)
+    db.run((schema.create >> (SchemaVersions += SchemaVersionEntity(latestVersion))).transactionally)
+  }
+
+  private def isVersionTableCreatedAction = MTable.getTables("SCHEMA_VERSION").headOption.map(_.isDefined)
+
+  private def getSchemaVersionAction = isVersionTableCreatedAction.flatMap { versionTableCreated =>
+    if (versionTableCreated) SchemaVersions.map(_.version).max.result.map(_.getOrElse(0)) else DBIO.successful(0)
+  }
+
+  def getSchemaVersion = db.run(getSchemaVersionAction)
+
+  /**
+    * Bring a schema created by a previous version of the deployer to the latest version
+    *
+    * @return the version of the schema after migration
+    */
+  def migrateSchema() = {
+    val migrate = getSchemaVersionAction.flatMap { currentVersion =>
+      val pendingMigrations = migrations.filter(_._1 > currentVersion)
+      if (pendingMigrations.isEmpty) {
+        DBIO.successful(currentVersion)
+      } else {
+        logger.info(s"Migrate persistence schema from version $currentVersion to version $latestVersion")
+        val createVersionTable = isVersionTableCreatedAction.flatMap { versionTableCreated =>
+          if (versionTableCreated) DBIO.successful(()) else SchemaVersions.schema.create
+        }
+        createVersionTable >>
+          DBIO.sequence(pendingMigrations.map(_._2)) >>
+          SchemaVersions.delete >>
+          (SchemaVersions += SchemaVersionEntity(latestVersion)) >>
+          DBIO.successful(latestVersion)
+      }
+    }
+    db.run(migrate.transactionally)
   }
 
   def dropSchema() = {
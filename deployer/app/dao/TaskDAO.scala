@@ -48,40 +48,64 @@ class TaskDAO @Inject()(protected val dbConfigProvider: DatabaseConfigProvider)
 
   private val Tasks = TableQuery[TaskTable]
 
-  private val Executions = TableQuery[ExecutionTable]
+  private def filterByTask(executionId: String, taskId: String) = {
+    task: TaskTable => task.executionId === executionId && task.taskId === taskId
+  }
+
+  def insertNewTaskAction(executionId: String, taskId: String) = {
+    Tasks += TaskEntity(executionId, taskId, INITIAL, None, None, None)
+  }
+
+  /**
+   * Insert new tasks in batch
+   *
+   * @param tasks execution id and task id of each task
+   */
+  def insertNewTasksAction(tasks: Seq[(String, String)]) = {
+    Tasks ++= tasks.map {
+      case (executionId, taskId) => TaskEntity(executionId, taskId, INITIAL, None, None, None)
+    }
+  }
 
-  private def getRunningExecution = Executions.filter(_.endTime.isEmpty).map(_.id).result.head
+  def startTaskAction(executionId: String, taskId: String, startTime: Timestamp) = {
+    Tasks.filter(filterByTask(executionId, taskId))
+      .filter(_.endTime.isEmpty)
+      .map { task => (task.status, task.startTime) }.update((RUNNING, Some(startTime)))
+  }
+
+  def finishTaskAction(executionId: String, taskId: String, startTime: Option[Timestamp], endTime: Timestamp) = {
+    val unfinishedTask = Tasks.filter(filterByTask(executionId, taskId)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.endTime) }.update((SUCCESS, startTime, Some(endTime)))
+      case None => unfinishedTask.map { task => (task.status, task.endTime) }.update((SUCCESS, Some(endTime)))
+    }
+  }
+
+  def stopTaskAction(executionId: String, taskId: String, startTime: Option[Timestamp], error: String) = {
+    val unfinishedTask = Tasks.filter(filterByTask(executionId, taskId)).filter(_.endTime.isEmpty)
+    startTime match {
+      case Some(_) => unfinishedTask.map { task => (task.status, task.startTime, task.error) }.update((STOPPED, startTime, Some(error)))
+      case None => unfinishedTask.map { task => (task.status, task.error) }.update((STOPPED, Some(error)))
+    }
+  }
 
-  def insertNewTask(taskId: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      Tasks += TaskEntity(exId, taskId, INITIAL, None, None, None)
-    ))
+  def insertNewTask(executionId: String, taskId: String) = {
+    db.run(insertNewTaskAction(executionId, taskId))
   }
 
-  def startTask(taskId: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      Tasks.filter(task => task.endTime.isEmpty && task.taskId === taskId)
-        .map { task => (task.status, task.startTime) }.update((RUNNING, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def startTask(executionId: String, taskId: String) = {
+    db.run(startTaskAction(executionId, taskId, new Timestamp(System.currentTimeMillis())))
   }
 
-  def finishTask(taskId: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      Tasks.filter(task => task.endTime.isEmpty && task.taskId === taskId)
-        .map { task => (task.status, task.endTime) }.update((SUCCESS, Some(new Timestamp(System.currentTimeMillis())))))
-    )
+  def finishTask(executionId: String, taskId: String) = {
+    db.run(finishTaskAction(executionId, taskId, None, new Timestamp(System.currentTimeMillis())))
   }
 
-  def stopTask(taskId: String, error: String) = {
-    db.run(getRunningExecution.flatMap(exId =>
-      Tasks.filter(task => task.endTime.isEmpty && task.taskId === taskId)
-        .map { task => (task.status, task.error) }.update((STOPPED, Some(error)))
-    ))
+  def stopTask(executionId: String, taskId: String, error: String) = {
+    db.run(stopTaskAction(executionId, taskId, None, error))
   }
 
-  def getRunningExecutionTasks: Future[Seq[TaskEntity]] = {
-    db.run(getRunningExecution.flatMap(exId =>
-      Tasks.filter { task => task.executionId === exId }.result
-    ))
+  def getExecutionTasks(executionId: String): Future[Seq[TaskEntity]] = {
+    db.run(Tasks.filter { task => task.executionId === executionId }.result)
   }
 }
@@ -1,6 +1,6 @@
 import java.sql.SQLException
 
-import com.toscaruntime.exception.deployment.execution.ConcurrentWorkflowExecutionException
+import com.toscaruntime.deployment.{InstanceDTO, NodeOperationDTO, NodeTaskDTO, RelationshipInstanceDTO, RelationshipOperationDTO, RelationshipTaskDTO, TaskDTO, TaskTransitionDTO}
 import dao.DeploymentDAO
 import org.scalatest.BeforeAndAfter
 import org.scalatest.concurrent.ScalaFutures
@@ -9,6 +9,7 @@ import org.scalatestplus.play.{OneAppPerSuite, PlaySpec}
 import play.api.Application
 import play.api.test.FakeApplication
 
+import scala.collection.JavaConverters._
 import scala.concurrent.Await
 import scala.concurrent.duration.DurationInt
 import scala.language.postfixOps
@@ -184,9 +185,82 @@ class DAOSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfter with Scal
     }
   }
 
+  "DAO" must {
+    "be able to insert and delete instances in batch" in {
+      whenReady(deploymentDAO.insertNodeIfNotExist("Compute", 2)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertNodeIfNotExist("Software", 1)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertRelationshipIfNotExist("Software", "Compute", "HostedOn")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_1", "Compute", "started")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveInstanceAttribute("Compute_1", "tosca_id", "\"old\"")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstancesIfNotExist(Seq(
+        new InstanceDTO("Compute_1", "Compute", "initial", Map("tosca_id" -> "\"Compute_1\"").asJava),
+        new InstanceDTO("Compute_2", "Compute", "initial", Map("tosca_id" -> "\"Compute_2\"", "tosca_name" -> "\"Compute\"").asJava),
+        new InstanceDTO("Software_1", "Software", "initial", Map("tosca_id" -> "\"Software_1\"").asJava)
+      ), Seq(
+        new RelationshipInstanceDTO("Software_1", "Compute_1", "Software", "Compute", "HostedOn", "initial")
+      ))) { result => result must be(()) }
+      whenReady(deploymentDAO.listInstances()) { allInstances =>
+        allInstances.map(instance => (instance.id, instance.state)).toSet must be(Set(("Compute_1", "started"), ("Compute_2", "initial"), ("Software_1", "initial")))
+      }
+      whenReady(deploymentDAO.getAttributes("Compute_1")) { allAttributes => allAttributes must be(Map("tosca_id" -> "\"Compute_1\"")) }
+      whenReady(deploymentDAO.getAttributes("Compute_2")) { allAttributes => allAttributes must be(Map("tosca_id" -> "\"Compute_2\"", "tosca_name" -> "\"Compute\"")) }
+      whenReady(deploymentDAO.listRelationshipInstances()) { relationshipInstances => relationshipInstances must have size 1 }
+      // A failing insert rolls back the whole batch
+      whenReady(deploymentDAO.insertInstancesIfNotExist(Seq(
+        new InstanceDTO("Compute_3", "Compute", "initial", Map.empty[String, String].asJava)
+      ), Seq(
+        new RelationshipInstanceDTO("Software_1", "Compute_error", "Software", "Compute", "HostedOn", "initial")
+      )).failed) { result => result.isInstanceOf[SQLException] must be(true) }
+      whenReady(deploymentDAO.listInstances()) { allInstances => allInstances must have size 3 }
+      whenReady(deploymentDAO.deleteInstances(Seq("Software_1", "Compute_2"), Seq(new RelationshipTaskDTO.Relationship("Software_1", "Compute_1", "HostedOn")))) { result => result must be(2) }
+      whenReady(deploymentDAO.listInstances()) { allInstances => allInstances.map(_.id) must be(Seq("Compute_1")) }
+      whenReady(deploymentDAO.listRelationshipInstances()) { relationshipInstances => relationshipInstances must be(empty) }
+      whenReady(deploymentDAO.getAttributes("Compute_2")) { allAttributes => allAttributes must be(empty) }
+    }
+  }
+
+  "DAO" must {
+    "be able to load snapshots of all instances and relationship instances" in {
+      whenReady(deploymentDAO.insertNodeIfNotExist("Compute", 2)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertNodeIfNotExist("Software", 1)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_1", "Compute", "started")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_2", "Compute", "initial")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Software_1", "Software", "configured")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveInstanceAttribute("Compute_1", "ip_address", "0.0.0.0")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveInstanceAttribute("Compute_1", "public_ip_address", "0.0.0.1")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveAllOutputs("Compute_1", "Standard", "create", Map("openstack_id" -> "great_id"))) { result => result must be(Some(1)) }
+      whenReady(deploymentDAO.saveAllOutputs("Compute_1", "Standard", "start", Map("ip" -> "0.0.0.0", "port" -> "22"))) { result => result must be(Some(2)) }
+      whenReady(deploymentDAO.insertRelationshipIfNotExist("Software", "Compute", "HostedOn")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertRelationshipInstanceIfNotExist("Software_1", "Compute_1", "Software", "Compute", "HostedOn", "established")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveRelationshipAttribute("Software_1", "Compute_1", "HostedOn", "install_dir", "/tmp")) { result => result must be(1) }
+      whenReady(deploymentDAO.saveAllRelationshipOutputs("Software_1", "Compute_1", "HostedOn", "Configure", "add_source", Map("install_dir" -> "/opt"))) { result => result must be(Some(1)) }
+      whenReady(deploymentDAO.getNodeInstancesCounts()) { instancesCounts =>
+        instancesCounts must be(Map("Compute" -> 2, "Software" -> 1))
+      }
+      whenReady(deploymentDAO.getInstanceSnapshots()) { snapshots =>
+        snapshots must have size 3
+        snapshots("Compute_1").getState must be("started")
+        snapshots("Compute_1").getAttributes.asScala must be(Map("ip_address" -> "0.0.0.0", "public_ip_address" -> "0.0.0.1"))
+        snapshots("Compute_1").getOutputs.get("Standard").get("create").asScala must be(Map("openstack_id" -> "great_id"))
+        snapshots("Compute_1").getOutputs.get("Standard").get("start").asScala must be(Map("ip" -> "0.0.0.0", "port" -> "22"))
+        snapshots("Compute_2").getState must be("initial")
+        snapshots("Compute_2").getAttributes.isEmpty must be(true)
+        snapshots("Compute_2").getOutputs.isEmpty must be(true)
+        snapshots("Software_1").getState must be("configured")
+      }
+      whenReady(deploymentDAO.getRelationshipInstanceSnapshots()) { snapshots =>
+        snapshots must have size 1
+        val snapshot = snapshots(new RelationshipTaskDTO.Relationship("Software_1", "Compute_1", "HostedOn"))
+        snapshot.getState must be("established")
+        snapshot.getAttributes.asScala must be(Map("install_dir" -> "/tmp"))
+        snapshot.getOutputs.get("Configure").get("add_source").asScala must be(Map("install_dir" -> "/opt"))
+      }
+    }
+  }
+
   "DAO" must {
     "be able to insert and list executions" in {
-      whenReady(deploymentDAO.startExecution("install", Map("a" -> "b", "c" -> 2))) { result =>
+      val installId = whenReady(deploymentDAO.startExecution("install", Map("a" -> "b", "c" -> 2))) { result =>
         result must not be empty
         result
       }
@@ -199,9 +273,18 @@ class DAOSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfter with Scal
         allExecutions.head.id must not be empty
         allExecutions.head.id
       }
-      whenReady(deploymentDAO.startExecution("install").failed) { result => result.isInstanceOf[ConcurrentWorkflowExecutionException] must be(true) }
-      whenReady(deploymentDAO.finishRunningExecution()) { result => result must be(1) }
-      whenReady(deploymentDAO.listExecutions()) { allExecutions =>
+      // Overlapping executions are rejected by the deployment, the data source accepts several running executions
+      val operationId = whenReady(deploymentDAO.startExecution("execute_node_operation")) { result =>
+        result must not be empty
+        result
+      }
+      whenReady(deploymentDAO.getRunningExecutions) { runningExecutions =>
+        runningExecutions.map(_.id).toSet must be(Set(installId, operationId))
+      }
+      whenReady(deploymentDAO.finishExecution(operationId)) { result => result must be(1) }
+      whenReady(deploymentDAO.finishExecution(installId)) { result => result must be(1) }
+      whenReady(deploymentDAO.finishExecution(installId)) { result => result must be(0) }
+      whenReady(deploymentDAO.getExecution(installId)) { allExecutions =>
         allExecutions must have size 1
         allExecutions.head.endTime must not be empty
         allExecutions.head.error must be(empty)
@@ -213,7 +296,7 @@ class DAOSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfter with Scal
         result must not be empty
         result
       }
-      whenReady(deploymentDAO.cancelRunningExecution()) { result => result must be(1) }
+      whenReady(deploymentDAO.cancelExecution(anotherId)) { result => result must be(1) }
       whenReady(deploymentDAO.getExecution(anotherId)) { allExecutions =>
         allExecutions must have size 1
         allExecutions.head.endTime must not be empty
@@ -225,18 +308,114 @@ class DAOSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfter with Scal
     }
   }
 
+  "DAO" must {
+    "be able to list executions with their inputs page by page" in {
+      val firstId = whenReady(deploymentDAO.startExecution("install", Map("a" -> "b", "c" -> 2))) { result => result }
+      whenReady(deploymentDAO.finishExecution(firstId)) { result => result must be(1) }
+      Thread.sleep(10)
+      val secondId = whenReady(deploymentDAO.startExecution("scale", Map("node_id" -> "Compute"))) { result => result }
+      whenReady(deploymentDAO.finishExecution(secondId)) { result => result must be(1) }
+      val runningId = whenReady(deploymentDAO.startExecution("uninstall")) { result => result }
+      whenReady(deploymentDAO.countExecutions()) { result => result must be(3) }
+      whenReady(deploymentDAO.listExecutionsWithInputs(0, None)) { executions =>
+        executions.map(_._1.id) must be(Seq(runningId, secondId, firstId))
+        executions.map(_._2) must be(Seq(Map.empty, Map("node_id" -> "Compute"), Map("a" -> "b", "c" -> 2)))
+      }
+      whenReady(deploymentDAO.listExecutionsWithInputs(0, Some(1))) { executions => executions.map(_._1.id) must be(Seq(runningId)) }
+      whenReady(deploymentDAO.listExecutionsWithInputs(1, Some(1))) { executions =>
+        executions.map(_._1.id) must be(Seq(secondId))
+        executions.head._2 must be(Map("node_id" -> "Compute"))
+      }
+      whenReady(deploymentDAO.listExecutionsWithInputs(2, None)) { executions => executions.map(_._1.id) must be(Seq(firstId)) }
+      whenReady(deploymentDAO.listExecutionsWithInputs(3, Some(10))) { executions => executions must be(empty) }
+    }
+  }
+
   "DAO" must {
     "be able to insert and list tasks" in {
       whenReady(deploymentDAO.insertNodeIfNotExist("Compute", 1)) { result => result must be(1) }
       whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_1", "Compute", "initial")) { result => result must be(1) }
-      whenReady(deploymentDAO.startExecution("install", Map.empty)) { result => result must not be empty }
-      whenReady(deploymentDAO.insertNewNodeTask("Compute_1", "Standard", "start")) { result => result must be(1) }
-      whenReady(deploymentDAO.getNodeTasks) { allTasks =>
+      val executionId = whenReady(deploymentDAO.startExecution("install", Map.empty)) { result =>
+        result must not be empty
+        result
+      }
+      whenReady(deploymentDAO.insertNewNodeTask(executionId, "Compute_1", "Standard", "start")) { result => result must be(1) }
+      whenReady(deploymentDAO.getNodeTasks(executionId)) { allTasks =>
         allTasks must have size 1
         allTasks.head.interfaceName must be("Standard")
         allTasks.head.operationName must be("start")
         allTasks.head.instanceId must be("Compute_1")
       }
+      whenReady(deploymentDAO.startNodeTask(executionId, "Compute_1", "Standard", "start")) { result => result must be(1) }
+      whenReady(deploymentDAO.finishNodeTask(executionId, "Compute_1", "Standard", "start")) { result => result must be(1) }
+      whenReady(deploymentDAO.getNodeTasks(executionId)) { allTasks => allTasks.head.status must be(SUCCESS) }
+    }
+  }
+
+  "DAO" must {
+    "be able to save task transitions in batch" in {
+      whenReady(deploymentDAO.insertNodeIfNotExist("Compute", 1)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_1", "Compute", "initial")) { result => result must be(1) }
+      val executionId = whenReady(deploymentDAO.startExecution("install", Map.empty)) { result =>
+        result must not be empty
+        result
+      }
+      val createTask = new NodeTaskDTO("Compute_1", "Standard", "create")
+      val startTask = new NodeTaskDTO("Compute_1", "Standard", "start")
+      val persistTask = new TaskDTO("persistence")
+      whenReady(deploymentDAO.saveTaskTransitions(Seq(
+        new TaskTransitionDTO(executionId, persistTask, INITIAL, null, null, null),
+        new TaskTransitionDTO(executionId, createTask, INITIAL, null, null, null),
+        new TaskTransitionDTO(executionId, startTask, INITIAL, null, null, null),
+        new TaskTransitionDTO(executionId, persistTask, RUNNING, 1000L, null, null),
+        new TaskTransitionDTO(executionId, createTask, SUCCESS, 2000L, 3000L, null),
+        new TaskTransitionDTO(executionId, startTask, STOPPED, 4000L, null, "Start failed")
+      ))) { result => result must be(()) }
+      whenReady(deploymentDAO.getNodeTasks(executionId)) { allTasks =>
+        allTasks must have size 2
+        val create = allTasks.find(_.operationName == "create").get
+        create.status must be(SUCCESS)
+        create.startTime.get.getTime must be(2000L)
+        create.endTime.get.getTime must be(3000L)
+        val start = allTasks.find(_.operationName == "start").get
+        start.status must be(STOPPED)
+        start.startTime.get.getTime must be(4000L)
+        start.endTime must be(empty)
+        start.error must be(Some("Start failed"))
+      }
+      whenReady(deploymentDAO.getTasks(executionId)) { allTasks =>
+        allTasks must have size 1
+        allTasks.head.status must be(RUNNING)
+        allTasks.head.startTime.get.getTime must be(1000L)
+      }
+      // Only successful tasks have a duration
+      deploymentDAO.syncGetNodeTaskDurations().asScala must be(Map(new NodeOperationDTO("Compute", "Standard", "create") -> 1000L))
+      // Durations are averaged by node and the cached durations are refreshed once another task succeeds
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Compute_2", "Compute", "initial")) { result => result must be(1) }
+      val otherCreateTask = new NodeTaskDTO("Compute_2", "Standard", "create")
+      whenReady(deploymentDAO.saveTaskTransitions(Seq(
+        new TaskTransitionDTO(executionId, otherCreateTask, INITIAL, null, null, null),
+        new TaskTransitionDTO(executionId, otherCreateTask, SUCCESS, 2000L, 5000L, null)
+      ))) { result => result must be(()) }
+      deploymentDAO.syncGetNodeTaskDurations().asScala must be(Map(new NodeOperationDTO("Compute", "Standard", "create") -> 2000L))
+      whenReady(deploymentDAO.insertNodeIfNotExist("Software", 1)) { result => result must be(1) }
+      whenReady(deploymentDAO.insertInstanceIfNotExist("Software_1", "Software", "initial")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertRelationshipIfNotExist("Software", "Compute", "HostedOn")) { result => result must be(1) }
+      whenReady(deploymentDAO.insertRelationshipInstanceIfNotExist("Software_1", "Compute_1", "Software", "Compute", "HostedOn", "initial")) { result => result must be(1) }
+      val configureTask = new RelationshipTaskDTO("Software_1", "Compute_1", "HostedOn", "Configure", "pre_configure_source")
+      whenReady(deploymentDAO.saveTaskTransitions(Seq(
+        new TaskTransitionDTO(executionId, configureTask, INITIAL, null, null, null),
+        new TaskTransitionDTO(executionId, configureTask, SUCCESS, 6000L, 6500L, null)
+      ))) { result => result must be(()) }
+      deploymentDAO.syncGetRelationshipTaskDurations().asScala must be(Map(new RelationshipOperationDTO("Software", "Compute", "HostedOn", "Configure", "pre_configure_source") -> 500L))
+      // A failing transition rolls back the whole batch
+      whenReady(deploymentDAO.saveTaskTransitions(Seq(
+        new TaskTransitionDTO(executionId, persistTask, SUCCESS, null, 5000L, null),
+        new TaskTransitionDTO(executionId, new NodeTaskDTO("Compute_error", "Standard", "create"), INITIAL, null, null, null)
+      )).failed) { result => result.isInstanceOf[SQLException] must be(true) }
+      whenReady(deploymentDAO.getTasks(executionId)) { allTasks =>
+        allTasks.head.status must be(RUNNING)
+      }
     }
   }
-}
\ No newline at end of file
+}
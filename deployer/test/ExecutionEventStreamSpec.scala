@@ -0,0 +1,76 @@
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import com.toscaruntime.constant.ExecutionConstant._
+import com.toscaruntime.rest.model.ExecutionEventDTO
+import com.toscaruntime.sdk.workflow.{ExecutionEvent, ExecutionEventPublisher}
+import controllers.ExecutionEventStream
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.time.{Millis, Seconds, Span}
+import org.scalatestplus.play.PlaySpec
+import play.api.libs.iteratee.Iteratee
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.Promise
+
+class ExecutionEventStreamSpec extends PlaySpec with ScalaFutures {
+
+  implicit val defaultPatience =
+    PatienceConfig(timeout = Span(5, Seconds), interval = Span(5, Millis))
+
+  private def persisted(executionId: String, status: String) = ExecutionEventDTO(Some(executionId), "install", ExecutionEventDTO.ExecutionEventType, None, status, None, 0L)
+
+  /**
+    * Follow the execution, the persisted state is only given once the test has published the live events
+    */
+  private def follow(publisher: ExecutionEventPublisher, executionId: Option[String], snapshot: Promise[Option[ExecutionEventDTO]]) = {
+    val subscribed = new CountDownLatch(1)
+    val events = ExecutionEventStream(publisher, executionId, () => {
+      subscribed.countDown()
+      snapshot.future
+    }) |>>> Iteratee.getChunks[ExecutionEventDTO]
+    subscribed.await(5, TimeUnit.SECONDS) must be(true)
+    events
+  }
+
+  "Execution event stream" must {
+    "send the persisted state before live events published meanwhile" in {
+      val publisher = new ExecutionEventPublisher
+      val snapshot = Promise[Option[ExecutionEventDTO]]()
+      val events = follow(publisher, Some("1"), snapshot)
+      publisher.publish(ExecutionEvent.task("1", "install", "create", SUCCESS, null))
+      publisher.publish(ExecutionEvent.task("2", "install", "create", SUCCESS, null))
+      snapshot.success(Some(persisted("1", RUNNING)))
+      publisher.publish(ExecutionEvent.execution("1", "install", SUCCESS, null))
+      whenReady(events) { received =>
+        received.map(event => (event.eventType, event.status)) must be(List(
+          (ExecutionEventDTO.ExecutionEventType, RUNNING),
+          (ExecutionEvent.TASK_TYPE, SUCCESS),
+          (ExecutionEventDTO.ExecutionEventType, SUCCESS)
+        ))
+        received.flatMap(_.executionId).distinct must be(List("1"))
+      }
+    }
+
+    "end as soon as the persisted state is terminal" in {
+      val publisher = new ExecutionEventPublisher
+      val snapshot = Promise[Option[ExecutionEventDTO]]()
+      val events = follow(publisher, Some("1"), snapshot)
+      snapshot.success(Some(persisted("1", STOPPED)))
+      whenReady(events) { received =>
+        received.map(_.status) must be(List(STOPPED))
+      }
+      publisher.publish(ExecutionEvent.execution("1", "install", RUNNING, null))
+    }
+
+    "send live events when the persisted state cannot be read" in {
+      val publisher = new ExecutionEventPublisher
+      val snapshot = Promise[Option[ExecutionEventDTO]]()
+      val events = follow(publisher, Some("1"), snapshot)
+      publisher.publish(ExecutionEvent.execution("1", "install", CANCELED, null))
+      snapshot.failure(new RuntimeException("Data source is down"))
+      whenReady(events) { received =>
+        received.map(_.status) must be(List(CANCELED))
+      }
+    }
+  }
+}
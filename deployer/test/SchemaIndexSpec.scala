@@ -0,0 +1,183 @@
+import java.nio.file.{Files, Path}
+
+import com.toscaruntime.deployment.{InstanceDTO, NodeTaskDTO, RelationshipInstanceDTO, TaskTransitionDTO}
+import dao._
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.ScalaFutures
+import org.scalatest.time.{Millis, Seconds, Span}
+import org.scalatestplus.play.{OneAppPerSuite, PlaySpec}
+import play.api.Application
+import play.api.db.slick.DatabaseConfigProvider
+import play.api.libs.concurrent.Execution.Implicits.defaultContext
+import play.api.test.FakeApplication
+import slick.driver.JdbcProfile
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration.DurationInt
+import scala.concurrent.{Await, Future}
+import scala.language.postfixOps
+
+/**
+  * Load a large deployment in a file based database and verify that the deployer's hot queries are backed by an index.
+  * The queries are the ones generated for the DAOs, index usage is asserted on their plans and their latency is only recorded as baseline in the test report.
+  */
+class SchemaIndexSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfterAll with ScalaFutures {
+
+  implicit val defaultPatience =
+    PatienceConfig(timeout = Span(10, Seconds), interval = Span(5, Millis))
+
+  private val instancesPerNode = 1000
+
+  private val finishedExecutionsCount = 50
+
+  private val queryRuns = 200
+
+  private val databaseDir: Path = Files.createTempDirectory("schemaIndexSpec")
+
+  implicit override lazy val app: FakeApplication =
+    FakeApplication(
+      additionalConfiguration = Map(
+        "slick.dbs.default.db.url" -> s"jdbc:h2:file:${databaseDir.resolve("deployment").toAbsolutePath}",
+        "com.toscaruntime.workspace" -> "./deployer/test/resources/testWorkspace"
+      )
+    )
+
+  private lazy val deploymentDAO = Application.instanceCache[DeploymentDAO].apply(app)
+
+  private lazy val schema = Application.instanceCache[Schema].apply(app)
+
+  private lazy val db = DatabaseConfigProvider.get[JdbcProfile](app).db
+
+  private lazy val attributeDAO = Application.instanceCache[AttributeDAO].apply(app)
+
+  private lazy val operationOutputDAO = Application.instanceCache[OperationOutputDAO].apply(app)
+
+  private lazy val relationshipInstanceDAO = Application.instanceCache[RelationshipInstanceDAO].apply(app)
+
+  private lazy val relationshipAttributeDAO = Application.instanceCache[RelationshipAttributeDAO].apply(app)
+
+  private lazy val executionDAO = Application.instanceCache[ExecutionDAO].apply(app)
+
+  private lazy val nodeTaskDAO = Application.instanceCache[NodeTaskDAO].apply(app)
+
+  private var runningExecutionId: String = _
+
+  /**
+    * Description, expected index if the query must use a specific one and SQL generated for the DAO's query
+    */
+  private def hotQueries = Seq(
+    ("attributes of an instance", None,
+      attributeDAO.getAction("Compute_500").statements.head),
+    ("outputs of an instance's operation", None,
+      operationOutputDAO.getAction("Compute_500", "Standard", "create").statements.head),
+    ("relationship instances by source", None,
+      relationshipInstanceDAO.getFromSourceAction("Software_500").statements.head),
+    ("relationship instances by target", Some("RELATIONSHIP_INSTANCE_TARGET_IDX"),
+      relationshipInstanceDAO.getFromTargetAction("Compute_500").statements.head),
+    ("attributes of a relationship instance", None,
+      relationshipAttributeDAO.getAction("Software_500", "Compute_500", "HostedOn").statements.head),
+    ("running executions", Some("EXECUTION_END_TIME_IDX"),
+      executionDAO.getRunningExecutionsAction.statements.head),
+    ("node tasks of an execution", None,
+      nodeTaskDAO.getExecutionTasksAction(runningExecutionId).statements.head)
+  )
+
+  private def explain(query: String) = {
+    import slick.driver.H2Driver.api._
+    Await.result(db.run(sql"EXPLAIN #$query".as[String]), 10 seconds).mkString("\n")
+  }
+
+  private def averageQueryMillis(query: String) = {
+    import slick.driver.H2Driver.api._
+    val start = System.nanoTime()
+    (1 to queryRuns).foreach { _ => Await.result(db.run(sql"#$query".as[String]), 10 seconds) }
+    (System.nanoTime() - start) / 1000000.0 / queryRuns
+  }
+
+  private def assertIndexBacked(description: String, expectedIndex: Option[String], query: String) = {
+    val plan = explain(query)
+    withClue(s"Query plan for $description :\n$plan\n") {
+      plan must not include "tableScan"
+      expectedIndex.foreach(index => plan must include(index))
+    }
+  }
+
+  /**
+    * Create the schema and load a large deployment in it, the deployment is shared by all cases
+    */
+  override protected def beforeAll(): Unit = {
+    Await.result(deploymentDAO.createSchema(), 10 seconds)
+    Await.result(deploymentDAO.insertNodeIfNotExist("Compute", instancesPerNode), 10 seconds)
+    Await.result(deploymentDAO.insertNodeIfNotExist("Software", instancesPerNode), 10 seconds)
+    Await.result(deploymentDAO.insertRelationshipIfNotExist("Software", "Compute", "HostedOn"), 10 seconds)
+    val computes = (1 to instancesPerNode).map { index =>
+      new InstanceDTO(s"Compute_$index", "Compute", "started", (1 to 5).map(key => (s"attribute_$key", s""""value_$key"""")).toMap.asJava)
+    }
+    val softwares = (1 to instancesPerNode).map { index =>
+      new InstanceDTO(s"Software_$index", "Software", "started", Map("tosca_id" -> s""""Software_$index"""").asJava)
+    }
+    val hostedOns = (1 to instancesPerNode).map { index =>
+      new RelationshipInstanceDTO(s"Software_$index", s"Compute_$index", "Software", "Compute", "HostedOn", "established")
+    }
+    Await.result(deploymentDAO.insertInstancesIfNotExist(computes ++ softwares, hostedOns), 60 seconds)
+    Await.result(Future.sequence((1 to instancesPerNode).flatMap { index =>
+      Seq(
+        deploymentDAO.saveAllOutputs(s"Compute_$index", "Standard", "create", Map("ip_address" -> s"10.0.0.$index", "port" -> "22")),
+        deploymentDAO.saveRelationshipAttribute(s"Software_$index", s"Compute_$index", "HostedOn", "install_dir", "\"/opt\"")
+      )
+    }), 60 seconds)
+    Await.result(Future.sequence((1 to finishedExecutionsCount).map { _ =>
+      deploymentDAO.startExecution("install").flatMap(deploymentDAO.finishExecution)
+    }), 60 seconds)
+    runningExecutionId = Await.result(deploymentDAO.startExecution("install"), 10 seconds)
+    Await.result(deploymentDAO.saveTaskTransitions((computes ++ softwares).map { instance =>
+      new TaskTransitionDTO(runningExecutionId, new NodeTaskDTO(instance.getId, "Standard", "create"), "INITIAL", null, null, null)
+    }), 60 seconds)
+  }
+
+  override protected def afterAll(): Unit = {
+    // Walk visits a directory before its content, delete in reverse order
+    Files.walk(databaseDir).iterator().asScala.toList.reverse.foreach(Files.delete)
+  }
+
+  "Schema" must {
+    "be able to hold a large deployment" in {
+      schema.getSchemaVersion.futureValue must be(1)
+      deploymentDAO.countInstances().futureValue must be(2 * instancesPerNode)
+      deploymentDAO.getNodeTasks(runningExecutionId).futureValue must have size (2 * instancesPerNode)
+    }
+
+    "serve hot queries from indexes" in {
+      hotQueries.foreach { case (description, expectedIndex, query) => assertIndexBacked(description, expectedIndex, query) }
+    }
+
+    "record latency baselines of hot queries" in {
+      // Latency depends on the machine, it's a baseline for the report and is not asserted
+      hotQueries.foreach { case (description, _, query) =>
+        info(f"$description : ${averageQueryMillis(query)}%.3f ms on average over $queryRuns runs")
+      }
+    }
+
+    "be able to migrate a schema created before indexes were added" in {
+      import slick.driver.H2Driver.api._
+      // The foreign key on the target instance reuses the new index, before it was added the foreign key had its own index
+      Await.result(db.run(DBIO.seq(
+        sqlu"""ALTER TABLE "RELATIONSHIP_INSTANCE" DROP CONSTRAINT "RELATIONSHIP_INSTANCE_TARGET_INSTANCE_FK"""",
+        sqlu"""DROP INDEX "RELATIONSHIP_INSTANCE_TARGET_IDX"""",
+        sqlu"""ALTER TABLE "RELATIONSHIP_INSTANCE" ADD CONSTRAINT "RELATIONSHIP_INSTANCE_TARGET_INSTANCE_FK" FOREIGN KEY("TARGET_INSTANCE_ID") REFERENCES "INSTANCE"("ID") ON UPDATE CASCADE ON DELETE CASCADE""",
+        sqlu"""DROP INDEX "EXECUTION_END_TIME_IDX"""",
+        sqlu"""DROP TABLE "SCHEMA_VERSION""""
+      )), 10 seconds)
+      schema.getSchemaVersion.futureValue must be(0)
+      explain(hotQueries.find(_._2.contains("EXECUTION_END_TIME_IDX")).get._3) must include("tableScan")
+      deploymentDAO.migrateSchema() must be(1)
+      schema.getSchemaVersion.futureValue must be(1)
+      hotQueries.foreach { case (description, expectedIndex, query) =>
+        // The foreign key of a migrated schema keeps its own index on the target instance, which serves the query as well as the new index
+        assertIndexBacked(description, expectedIndex.filterNot(_ == "RELATIONSHIP_INSTANCE_TARGET_IDX"), query)
+      }
+      // Migrating an up to date schema does nothing
+      deploymentDAO.migrateSchema() must be(1)
+    }
+  }
+}
@@ -1,9 +1,11 @@
 package com.toscaruntime.docker;
 
 import com.github.dockerjava.api.DockerClient;
+import com.toscaruntime.constant.ProviderConstant;
 import com.toscaruntime.docker.nodes.Container;
 import com.toscaruntime.docker.nodes.Network;
 import com.toscaruntime.docker.nodes.Volume;
+import com.toscaruntime.docker.util.ImageManager;
 import com.toscaruntime.docker.util.IpAddressUtil;
 import com.toscaruntime.exception.deployment.creation.ProviderInitializationException;
 import com.toscaruntime.sdk.AbstractProviderHook;
@@ -25,6 +27,8 @@ public class DockerProviderHook extends AbstractProviderHook {
 
     private DockerClient dockerClient;
 
+    private ImageManager imageManager;
+
     private String dockerDaemonIP;
 
     private Map<String, String> swarmNodesIPsMappings;
@@ -36,6 +40,7 @@ public class DockerProviderHook extends AbstractProviderHook {
     @Override
     public void postConstruct(Deployment deployment, Map<String, String> providerProperties, Map<String, Object> bootstrapContext) {
         dockerClient = DockerUtil.buildDockerClient(providerProperties);
+        imageManager = new ImageManager(dockerClient);
         // Only available in swarm bootstrapped environment
         swarmNodesIPsMappings = IpAddressUtil.extractSwarmNodesIpsMappings(bootstrapContext);
         try {
@@ -61,6 +66,7 @@ public class DockerProviderHook extends AbstractProviderHook {
                 Set<Network> connectedNetworks = DeploymentUtil.getTargetInstancesOfRelationship(relationshipInstances, container.getId(), tosca.relationships.Network.class, Network.class);
                 Set<Volume> attachedVolumes = DeploymentUtil.getSourceInstancesOfRelationship(relationshipInstances, container.getId(), tosca.relationships.AttachTo.class, Volume.class);
                 container.setDockerClient(dockerClient);
+                container.setImageManager(imageManager);
                 container.setBootstrapNetworkId(dockerNetworkId);
                 container.setBootstrapNetworkName(dockerNetworkName);
                 container.setNetworks(connectedNetworks);
@@ -77,4 +83,9 @@ public class DockerProviderHook extends AbstractProviderHook {
             }
         }
     }
+
+    @Override
+    public String getProviderName() {
+        return ProviderConstant.DOCKER;
+    }
 }
@@ -8,9 +8,9 @@ import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.ExposedPort;
 import com.github.dockerjava.api.model.NetworkSettings;
 import com.github.dockerjava.api.model.Ports;
-import com.github.dockerjava.core.command.PullImageResultCallback;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.toscaruntime.docker.util.ImageManager;
 import com.toscaruntime.exception.deployment.execution.InvalidOperationExecutionException;
 import com.toscaruntime.exception.deployment.execution.ProviderResourcesNotFoundException;
 import com.toscaruntime.util.ArtifactExecutionUtil;
@@ -69,6 +69,11 @@ public class Container extends Compute {
 
     private DockerExecutor dockerExecutor;
 
+    /**
+     * Shared by all containers of the deployment
+     */
+    private ImageManager imageManager;
+
     @Override
     public void initialLoad() {
         super.initialLoad();
@@ -85,6 +90,7 @@ public class Container extends Compute {
             log.warn("Docker container is not fully initialized, ignoring recipe update request");
             return;
         }
+        dockerExecutor.setRecipeSynchronizer(deployment.getRecipeSynchronizer());
         dockerExecutor.upload(this.config.getArtifactsPath().toString(), getPropertyAsString("recipe_location", RECIPE_LOCATION));
     }
 
@@ -135,14 +141,12 @@ public class Container extends Compute {
             }
         }
         String tag = getPropertyAsString("tag", "latest");
-        log.info("Container [" + getId() + "] : Pulling image " + imageId);
-        try {
-            dockerClient.pullImageCmd(imageId).withTag(tag).exec(new PullImageResultCallback()).awaitCompletion();
-        } catch (InterruptedException e) {
-            throw new InvalidOperationExecutionException("Pull interrupted", e);
-        }
-        log.info("Container [" + getId() + "] : Pulled image " + imageId);
-        CreateContainerCmd createContainerCmd = dockerClient.createContainerCmd(imageId + ":" + tag)
+        ImageManager.PullPolicy pullPolicy = ImageManager.PullPolicy.parse(getPropertyAsString("image_pull_policy"), tag);
+        log.info("Container [" + getId() + "] : Resolving image " + imageId + ":" + tag + " with pull policy " + pullPolicy);
+        String resolvedImageId = imageManager.getImage(imageId, tag, pullPolicy);
+        log.info("Container [" + getId() + "] : Resolved image " + imageId + ":" + tag + " to " + resolvedImageId);
+        // Create from the resolved id and not from the tag which might have been moved by another pull in the meantime
+        CreateContainerCmd createContainerCmd = dockerClient.createContainerCmd(resolvedImageId)
                 .withStdinOpen(Boolean.parseBoolean(getPropertyAsString("interactive", "true")))
                 .withName(DockerUtil.normalizeResourceName(config.getDeploymentName() + "_" + getId()))
                 .withExposedPorts(exposedPorts.toArray(new ExposedPort[exposedPorts.size()]))
@@ -154,7 +158,13 @@ public class Container extends Compute {
         if (commands != null && !commands.isEmpty()) {
             createContainerCmd.withCmd(commands);
         }
-        containerId = createContainerCmd.exec().getId();
+        try {
+            containerId = createContainerCmd.exec().getId();
+        } catch (RuntimeException e) {
+            // The image might have been removed from the daemon, it will be looked up again when the operation is retried
+            imageManager.invalidate(imageId, tag);
+            throw e;
+        }
         dockerExecutor = new DockerExecutor(dockerClient, containerId, Boolean.parseBoolean(getPropertyAsString("elevate_privilege")));
         log.info("Container [" + getId() + "] : Created container with id " + containerId);
     }
@@ -265,6 +275,10 @@ public class Container extends Compute {
         return dockerClient;
     }
 
+    public void setImageManager(ImageManager imageManager) {
+        this.imageManager = imageManager;
+    }
+
     public void setBootstrapNetworkId(String bootstrapNetworkId) {
         this.bootstrapNetworkId = bootstrapNetworkId;
     }
@@ -0,0 +1,181 @@
+package com.toscaruntime.docker.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.core.command.PullImageResultCallback;
+import com.toscaruntime.exception.UnexpectedException;
+import com.toscaruntime.exception.deployment.execution.InvalidOperationExecutionException;
+import com.toscaruntime.exception.deployment.execution.ProviderResourcesNotFoundException;
+
+/**
+ * Make images available on the docker daemon for all containers of the deployment.
+ * Images which are present are resolved to their id without contacting the registry, concurrent pulls of the same image are collapsed into one.
+ *
+ * @author Minh Khang VU
+ */
+public class ImageManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageManager.class);
+
+    public enum PullPolicy {
+        /**
+         * The image is pulled for every container, concurrent containers share the same pull
+         */
+        ALWAYS,
+        /**
+         * The image is only pulled if it does not exist on the daemon
+         */
+        IF_NOT_PRESENT,
+        /**
+         * The image is never pulled, it must exist on the daemon
+         */
+        NEVER;
+
+        /**
+         * @param value the policy, case insensitive, null for the default policy
+         * @param tag   the tag of the image
+         * @return the given policy or if not given {@link #ALWAYS} for the latest tag and {@link #IF_NOT_PRESENT} for others
+         */
+        public static PullPolicy parse(String value, String tag) {
+            if (value == null) {
+                return "latest".equals(tag) ? ALWAYS : IF_NOT_PRESENT;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidOperationExecutionException("Image pull policy " + value + " is not valid, must be one of always, if_not_present or never");
+            }
+        }
+    }
+
+    private DockerClient dockerClient;
+
+    /**
+     * Id of images which were found on the daemon by reference
+     */
+    private Map<String, String> localImages = new ConcurrentHashMap<>();
+
+    /**
+     * Pulls in progress by reference
+     */
+    private Map<String, CompletableFuture<String>> pulls = new ConcurrentHashMap<>();
+
+    public ImageManager(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    /**
+     * Make the image available on the daemon following the pull policy
+     *
+     * @param repository repository of the image
+     * @param tag        tag of the image
+     * @param pullPolicy when to pull the image
+     * @return the id of the image, its content digest
+     */
+    public String getImage(String repository, String tag, PullPolicy pullPolicy) {
+        String reference = repository + ":" + tag;
+        String imageId;
+        switch (pullPolicy) {
+            case NEVER:
+                imageId = getLocalImage(reference);
+                if (imageId == null) {
+                    throw new ProviderResourcesNotFoundException("Image " + reference + " does not exist on the daemon and pull policy is never");
+                }
+                return imageId;
+            case IF_NOT_PRESENT:
+                imageId = getLocalImage(reference);
+                return imageId != null ? imageId : pull(repository, tag);
+            default:
+                return pull(repository, tag);
+        }
+    }
+
+    /**
+     * Forget the image, it will be looked up again on the daemon the next time, to be called if the image has been removed from the daemon
+     *
+     * @param repository repository of the image
+     * @param tag        tag of the image
+     */
+    public void invalidate(String repository, String tag) {
+        localImages.remove(repository + ":" + tag);
+    }
+
+    private String getLocalImage(String reference) {
+        String imageId = localImages.get(reference);
+        if (imageId == null) {
+            imageId = findImage(reference);
+            if (imageId != null) {
+                localImages.put(reference, imageId);
+            }
+        }
+        return imageId;
+    }
+
+    private String findImage(String reference) {
+        try {
+            return dockerClient.inspectImageCmd(reference).exec().getId();
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    private String pull(String repository, String tag) {
+        String reference = repository + ":" + tag;
+        while (true) {
+            CompletableFuture<String> newPull = new CompletableFuture<>();
+            CompletableFuture<String> existingPull = pulls.putIfAbsent(reference, newPull);
+            if (existingPull == null) {
+                try {
+                    String imageId = doPull(repository, tag, reference);
+                    newPull.complete(imageId);
+                    return imageId;
+                } catch (RuntimeException e) {
+                    newPull.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    pulls.remove(reference, newPull);
+                }
+            } else {
+                log.info("Waiting for pull of image {} in progress", reference);
+                try {
+                    return existingPull.get();
+                } catch (InterruptedException e) {
+                    throw new InvalidOperationExecutionException("Pull interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InvalidOperationExecutionException && e.getCause().getCause() instanceof InterruptedException) {
+                        // The task which was pulling has been interrupted, not this one
+                        continue;
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new UnexpectedException("Pull of image " + reference + " failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private String doPull(String repository, String tag, String reference) {
+        log.info("Pulling image {}", reference);
+        try {
+            dockerClient.pullImageCmd(repository).withTag(tag).exec(new PullImageResultCallback()).awaitCompletion();
+        } catch (InterruptedException e) {
+            throw new InvalidOperationExecutionException("Pull interrupted", e);
+        }
+        String imageId = findImage(reference);
+        if (imageId == null) {
+            throw new ProviderResourcesNotFoundException("Image " + reference + " cannot be found on the daemon after pull");
+        }
+        localImages.put(reference, imageId);
+        log.info("Pulled image {} with id {}", reference, imageId);
+        return imageId;
+    }
+}
@@ -18,11 +18,13 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.toscaruntime.deployment.DeploymentPersister;
+import com.toscaruntime.docker.util.ImageManager;
 import com.toscaruntime.sdk.Deployment;
 import com.toscaruntime.sdk.model.DeploymentConfig;
 import com.toscaruntime.util.ClassLoaderUtil;
 import com.toscaruntime.util.DockerDaemonConfig;
 import com.toscaruntime.util.DockerUtil;
+import com.toscaruntime.util.RecipeSynchronizer;
 
 @RunWith(JUnit4.class)
 public class ContainerTest {
@@ -32,6 +34,7 @@ public class ContainerTest {
     private Deployment mockDeployment() {
         Deployment deployment = Mockito.mock(Deployment.class);
         Mockito.when(deployment.getDeploymentPersister()).thenReturn(Mockito.mock(DeploymentPersister.class));
+        Mockito.when(deployment.getRecipeSynchronizer()).thenReturn(new RecipeSynchronizer());
         return deployment;
     }
 
@@ -50,6 +53,7 @@ public class ContainerTest {
         container.setConfig(deploymentConfig);
         DockerDaemonConfig config = DockerUtil.getDefaultDockerDaemonConfig();
         container.setDockerClient(DockerUtil.buildDockerClient(config.getUrl(), config.getCertPath()));
+        container.setImageManager(new ImageManager(container.getDockerClient()));
         Map<String, Object> properties = ImmutableMap.<String, Object>builder()
                 .put("image_id", imageId)
                 .put("tag", "latest")
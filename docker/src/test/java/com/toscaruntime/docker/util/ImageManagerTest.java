@@ -0,0 +1,122 @@
+package com.toscaruntime.docker.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectImageCmd;
+import com.github.dockerjava.api.command.InspectImageResponse;
+import com.github.dockerjava.api.command.PullImageCmd;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.core.command.PullImageResultCallback;
+import com.toscaruntime.exception.deployment.execution.ProviderResourcesNotFoundException;
+
+@RunWith(JUnit4.class)
+public class ImageManagerTest {
+
+    private static final int CONCURRENT_CONTAINERS = 10;
+
+    private InspectImageCmd mockInspectImage(DockerClient dockerClient, String reference) {
+        InspectImageCmd inspectImageCmd = Mockito.mock(InspectImageCmd.class);
+        Mockito.when(dockerClient.inspectImageCmd(reference)).thenReturn(inspectImageCmd);
+        return inspectImageCmd;
+    }
+
+    private InspectImageResponse mockImage(String imageId) {
+        InspectImageResponse image = Mockito.mock(InspectImageResponse.class);
+        Mockito.when(image.getId()).thenReturn(imageId);
+        return image;
+    }
+
+    @Test
+    public void testConcurrentPullsAreCollapsed() throws Exception {
+        DockerClient dockerClient = Mockito.mock(DockerClient.class);
+        PullImageCmd pullImageCmd = Mockito.mock(PullImageCmd.class);
+        Mockito.when(dockerClient.pullImageCmd("nginx")).thenReturn(pullImageCmd);
+        Mockito.when(pullImageCmd.withTag("latest")).thenReturn(pullImageCmd);
+        CountDownLatch pulling = new CountDownLatch(1);
+        CountDownLatch pulled = new CountDownLatch(1);
+        Mockito.when(pullImageCmd.exec(Mockito.any(PullImageResultCallback.class))).thenAnswer(invocation -> {
+            pulling.countDown();
+            pulled.await();
+            PullImageResultCallback callback = (PullImageResultCallback) invocation.getArguments()[0];
+            callback.onComplete();
+            return callback;
+        });
+        InspectImageResponse image = mockImage("sha256:nginx");
+        InspectImageCmd inspectImageCmd = mockInspectImage(dockerClient, "nginx:latest");
+        Mockito.when(inspectImageCmd.exec()).thenReturn(image);
+
+        ImageManager imageManager = new ImageManager(dockerClient);
+        ExecutorService executorService = Executors.newFixedThreadPool(CONCURRENT_CONTAINERS);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            List<Future<String>> images = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(CONCURRENT_CONTAINERS);
+            for (int i = 0; i < CONCURRENT_CONTAINERS; i++) {
+                images.add(executorService.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    started.countDown();
+                    return imageManager.getImage("nginx", "latest", ImageManager.PullPolicy.ALWAYS);
+                }));
+            }
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(pulling.await(10, TimeUnit.SECONDS));
+            // Release the pull once every container is blocked, either pulling or waiting for the pull
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            pulled.countDown();
+            Set<String> imageIds = new HashSet<>();
+            for (Future<String> containerImage : images) {
+                imageIds.add(containerImage.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, imageIds.size());
+            Assert.assertEquals("sha256:nginx", imageIds.iterator().next());
+            Mockito.verify(dockerClient, Mockito.times(1)).pullImageCmd("nginx");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPresentImageIsNotPulled() {
+        DockerClient dockerClient = Mockito.mock(DockerClient.class);
+        InspectImageResponse image = mockImage("sha256:redis");
+        InspectImageCmd inspectImageCmd = mockInspectImage(dockerClient, "redis:3");
+        Mockito.when(inspectImageCmd.exec()).thenReturn(image);
+        ImageManager imageManager = new ImageManager(dockerClient);
+        Assert.assertEquals("sha256:redis", imageManager.getImage("redis", "3", ImageManager.PullPolicy.IF_NOT_PRESENT));
+        Assert.assertEquals("sha256:redis", imageManager.getImage("redis", "3", ImageManager.PullPolicy.NEVER));
+        // The image is only inspected once
+        Mockito.verify(inspectImageCmd, Mockito.times(1)).exec();
+        Mockito.verify(dockerClient, Mockito.never()).pullImageCmd(Mockito.anyString());
+        imageManager.invalidate("redis", "3");
+        imageManager.getImage("redis", "3", ImageManager.PullPolicy.IF_NOT_PRESENT);
+        Mockito.verify(inspectImageCmd, Mockito.times(2)).exec();
+    }
+
+    @Test(expected = ProviderResourcesNotFoundException.class)
+    public void testAbsentImageIsNotPulledWithNeverPolicy() {
+        DockerClient dockerClient = Mockito.mock(DockerClient.class);
+        InspectImageCmd inspectImageCmd = mockInspectImage(dockerClient, "redis:3");
+        Mockito.when(inspectImageCmd.exec()).thenThrow(new NotFoundException("No such image: redis:3"));
+        new ImageManager(dockerClient).getImage("redis", "3", ImageManager.PullPolicy.NEVER);
+    }
+}
@@ -3,6 +3,7 @@ package com.toscaruntime.mock;
 import java.util.Map;
 import java.util.Set;
 
+import com.toscaruntime.constant.ProviderConstant;
 import com.toscaruntime.sdk.AbstractProviderHook;
 import com.toscaruntime.sdk.Deployment;
 
@@ -18,4 +19,9 @@ public class MockProviderHook extends AbstractProviderHook {
     public void postConstructInstances(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances) {
 
     }
+
+    @Override
+    public String getProviderName() {
+        return ProviderConstant.MOCK;
+    }
 }
@@ -2,6 +2,7 @@ package com.toscaruntime.openstack;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Module;
+import com.toscaruntime.constant.ProviderConstant;
 import com.toscaruntime.exception.deployment.creation.ProviderInitializationException;
 import com.toscaruntime.openstack.nodes.Compute;
 import com.toscaruntime.openstack.nodes.ExternalNetwork;
@@ -175,4 +176,9 @@ public class OpenstackProviderHook extends AbstractProviderHook {
             volume.setVolumeApi(volumeApi);
         }
     }
+
+    @Override
+    public String getProviderName() {
+        return ProviderConstant.OPENSTACK;
+    }
 }
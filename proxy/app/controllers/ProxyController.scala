@@ -10,13 +10,15 @@ import com.toscaruntime.rest.model.{DeploymentInfoDTO, RestResponse}
 import com.toscaruntime.util.FileUtil
 import com.typesafe.scalalogging.LazyLogging
 import play.api.cache._
+import play.api.libs.iteratee.Enumerator
 import play.api.libs.json._
-import play.api.libs.ws.{WSClient, WSResponse}
+import play.api.libs.ws.{EmptyBody, FileBody, InMemoryBody, WSClient, WSResponseHeaders}
 import play.api.mvc._
-import play.mvc.Http.MimeTypes
 
 import scala.concurrent.ExecutionContext.Implicits.global
 import scala.concurrent.Future
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
+import scala.language.postfixOps
 import scala.collection.JavaConverters._
 
 class ProxyController @Inject()(ws: WSClient, cache: CacheApi) extends Controller with LazyLogging {
@@ -91,63 +93,86 @@ class ProxyController @Inject()(ws: WSClient, cache: CacheApi) extends Controlle
     Ok(Json.toJson(RestResponse.success[List[DeploymentInfoDTO]](Some(dockerClient.listDeploymentAgents().values.toList))))
   }
 
-  private def handleWSResponse(response: WSResponse) = {
-    response.status match {
-      case play.api.http.Status.OK =>
-        val contentTypeOpt = response.header(play.api.http.HeaderNames.CONTENT_TYPE)
-        val proxyResponse = Ok(response.body)
-        if (contentTypeOpt.isDefined) proxyResponse.withHeaders((play.api.http.HeaderNames.CONTENT_TYPE, contentTypeOpt.get))
-        proxyResponse
-      case play.api.http.Status.BAD_REQUEST => BadRequest(response.body)
-      case _ => InternalServerError(s"Encountered unexpected status ${response.status} :\n ${response.body}")
-    }
+  /**
+    * Headers which only concern the connection to the proxy or to the agent and must not be forwarded
+    */
+  private val hopByHopHeaders = Set(CONNECTION, "Keep-Alive", PROXY_AUTHENTICATE, PROXY_AUTHORIZATION, "TE", "Trailer", TRANSFER_ENCODING, UPGRADE)
+
+  private def getForwardedHeaders(headers: Map[String, Seq[String]], excluded: Set[String]) = {
+    for {
+      (name, values) <- headers.toSeq if !(hopByHopHeaders ++ excluded).exists(_.equalsIgnoreCase(name))
+      value <- values
+    } yield (name, value)
   }
 
-  private def doRedirect(deploymentId: String, path: String, request: Request[AnyContent], webAction: (String, Request[AnyContent]) => Future[WSResponse]) = {
-    val url = getURL(deploymentId).map(_ + path)
-    url.map { url =>
-      webAction(url, request).map(handleWSResponse)
-    }.getOrElse(Future(NotFound(s"Deployment id $deploymentId do not exist")))
+  private def getAllQueryString(request: Request[_]) = {
+    request.queryString.flatMap {
+      case (key, values) => values.map((key, _))
+    }.toSeq
   }
 
-  private def doRedirectPost(deploymentId: String, path: String, request: Request[AnyContent]) = {
-    doRedirect(deploymentId, path, request, (url, request) => {
-      val redirectQuery = ws.url(url)
-      val allQueryString = request.queryString.flatMap {
-        case (key, values) => values.map((key, _))
-      }
-      request.contentType.getOrElse(MimeTypes.TEXT) match {
-        case MimeTypes.JSON => redirectQuery.withQueryString(allQueryString.toSeq: _*).post(request.body.asJson.getOrElse(JsNull))
-        case _ => redirectQuery.withQueryString(allQueryString.toSeq: _*).post(request.body.asText.getOrElse(""))
-      }
-    })
+  /**
+    * The agent's response is streamed as it arrives, with its length when known, so that the proxy never holds the whole body in memory
+    */
+  private def streamWSResponse(headers: WSResponseHeaders, body: Enumerator[Array[Byte]]) = {
+    val forwardedHeaders = getForwardedHeaders(headers.headers, Set.empty)
+    if (forwardedHeaders.exists(_._1.equalsIgnoreCase(CONTENT_LENGTH))) {
+      Result(ResponseHeader(headers.status, forwardedHeaders.toMap), body)
+    } else {
+      Status(headers.status).chunked(body).withHeaders(forwardedHeaders: _*)
+    }
+  }
+
+  /**
+    * Execution events are streamed until the execution ends, which takes much longer than the default request timeout
+    */
+  private val executionEventsTimeout = 24 hours
+
+  /**
+    * Forward the request with its raw body to the deployment agent.
+    * Small bodies are kept in memory by the body parser, larger ones are buffered on disk and sent from the file.
+    *
+    * @param requestTimeout timeout of the request to the agent, the configured default if not given
+    */
+  private def doRedirect(deploymentId: String, path: String, request: Request[RawBuffer], requestTimeout: Option[FiniteDuration] = None) = {
+    getURL(deploymentId).map { agentURL =>
+      val body = if (request.body.size == 0) EmptyBody else request.body.asBytes().map(InMemoryBody).getOrElse(FileBody(request.body.asFile))
+      val wsRequest = ws.url(agentURL + path)
+        .withMethod(request.method)
+        .withHeaders(getForwardedHeaders(request.headers.toMap, Set(HOST, CONTENT_LENGTH)): _*)
+        .withQueryString(getAllQueryString(request): _*)
+        .withBody(body)
+      requestTimeout.map(timeout => wsRequest.withRequestTimeout(timeout.toMillis)).getOrElse(wsRequest)
+        .stream()
+        .map { case (headers, responseBody) => streamWSResponse(headers, responseBody) }
+    }.getOrElse(Future(NotFound(s"Deployment id $deploymentId do not exist")))
   }
 
-  private def doRedirectGet(deploymentId: String, path: String, request: Request[AnyContent]) = {
-    doRedirect(deploymentId, path, request, (url, request) => ws.url(url).get())
+  def execute(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/executions", request)
   }
 
-  def execute(deploymentId: String) = Action.async { request =>
-    doRedirectPost(deploymentId, "/deployment/executions", request)
+  def get(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment", request)
   }
 
-  def get(deploymentId: String) = Action.async { request =>
-    doRedirectGet(deploymentId, "/deployment", request)
+  def cancel(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/executions/cancel", request)
   }
 
-  def cancel(deploymentId: String) = Action.async { request =>
-    doRedirectPost(deploymentId, "/deployment/executions/cancel", request)
+  def resume(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/executions/resume", request)
   }
 
-  def resume(deploymentId: String) = Action.async { request =>
-    doRedirectPost(deploymentId, "/deployment/executions/resume", request)
+  def stop(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/executions/stop", request)
   }
 
-  def stop(deploymentId: String) = Action.async { request =>
-    doRedirectPost(deploymentId, "/deployment/executions/stop", request)
+  def updateRecipe(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/recipe/update", request)
   }
 
-  def updateRecipe(deploymentId: String) = Action.async { request =>
-    doRedirectPost(deploymentId, "/deployment/recipe/update", request)
+  def streamExecutionEvents(deploymentId: String) = Action.async(parse.raw) { request =>
+    doRedirect(deploymentId, "/deployment/executions/events", request, Some(executionEventsTimeout))
   }
 }
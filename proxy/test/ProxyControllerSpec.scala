@@ -0,0 +1,134 @@
+import java.net.InetSocketAddress
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+
+import com.sun.net.httpserver.{HttpExchange, HttpHandler, HttpServer}
+import controllers.ProxyController
+import org.scalatest.BeforeAndAfterAll
+import org.scalatestplus.play.{OneAppPerSuite, PlaySpec}
+import play.api.cache.CacheApi
+import play.api.libs.concurrent.Execution.Implicits.defaultContext
+import play.api.libs.iteratee.Iteratee
+import play.api.mvc.RawBuffer
+import play.api.test.FakeRequest
+import play.api.test.Helpers._
+
+import scala.concurrent.duration.DurationInt
+import scala.concurrent.Await
+import scala.language.postfixOps
+
+/**
+  * Verify that the proxy streams requests and responses between the client and a stub deployment agent instead of buffering them.
+  */
+class ProxyControllerSpec extends PlaySpec with OneAppPerSuite with BeforeAndAfterAll {
+
+  private val deploymentId = "stub"
+
+  private val chunkSize = 64 * 1024
+
+  private val largeResponseSize = 64 * 1024 * 1024
+
+  private val largeRequestSize = 4 * 1024 * 1024
+
+  private val agent = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+
+  private val releaseLargeResponse = new CountDownLatch(1)
+
+  private def handler(respond: HttpExchange => Unit) = new HttpHandler {
+    override def handle(exchange: HttpExchange): Unit = {
+      try {
+        respond(exchange)
+      } finally {
+        exchange.close()
+      }
+    }
+  }
+
+  private def writeString(exchange: HttpExchange, status: Int, contentType: String, body: String) = {
+    val bytes = body.getBytes("UTF-8")
+    exchange.getResponseHeaders.add(CONTENT_TYPE, contentType)
+    exchange.sendResponseHeaders(status, bytes.length)
+    exchange.getResponseBody.write(bytes)
+  }
+
+  private lazy val proxy = app.injector.instanceOf[ProxyController]
+
+  override protected def beforeAll(): Unit = {
+    // Only the first chunk of the large response is sent before the test releases it, the proxy cannot respond if it buffers the whole body
+    agent.createContext("/deployment", handler { exchange =>
+      exchange.getResponseHeaders.add(CONTENT_TYPE, "application/octet-stream")
+      exchange.sendResponseHeaders(OK, largeResponseSize)
+      val chunk = new Array[Byte](chunkSize)
+      exchange.getResponseBody.write(chunk)
+      exchange.getResponseBody.flush()
+      releaseLargeResponse.await(30, TimeUnit.SECONDS)
+      (1 until largeResponseSize / chunkSize).foreach(_ => exchange.getResponseBody.write(chunk))
+    })
+    agent.createContext("/deployment/executions", handler { exchange =>
+      val requestBody = Iterator.continually(exchange.getRequestBody.read()).takeWhile(_ != -1).map(_.toByte).toArray
+      exchange.getResponseHeaders.add("X-Agent-Query", exchange.getRequestURI.getQuery)
+      exchange.getResponseHeaders.add(CONTENT_TYPE, exchange.getRequestHeaders.getFirst(CONTENT_TYPE))
+      exchange.sendResponseHeaders(OK, requestBody.length)
+      exchange.getResponseBody.write(requestBody)
+    })
+    agent.createContext("/deployment/executions/cancel", handler { exchange =>
+      exchange.getResponseHeaders.add("X-Agent-Error", "true")
+      writeString(exchange, BAD_REQUEST, "text/plain", "No execution is running")
+    })
+    agent.createContext("/deployment/executions/events", handler { exchange =>
+      exchange.getResponseHeaders.add(CONTENT_TYPE, "text/event-stream")
+      exchange.sendResponseHeaders(OK, 0)
+      Seq("RUNNING", "SUCCESS").foreach { status =>
+        exchange.getResponseBody.write(s"""data: {"status":"$status"}\n\n""".getBytes("UTF-8"))
+        exchange.getResponseBody.flush()
+      }
+    })
+    agent.start()
+    // The agent URL is normally resolved from docker, it's cached by the proxy after the first resolution
+    app.injector.instanceOf[CacheApi].set("agent_" + deploymentId, s"http://localhost:${agent.getAddress.getPort}")
+  }
+
+  override protected def afterAll(): Unit = {
+    releaseLargeResponse.countDown()
+    agent.stop(0)
+  }
+
+  "Proxy" must {
+    "stream large responses of agents without buffering them" in {
+      val result = Await.result(proxy.get(deploymentId)(FakeRequest(GET, s"/deployments/$deploymentId").withBody(RawBuffer(0))), 10 seconds)
+      result.header.status must be(OK)
+      result.header.headers.get(CONTENT_LENGTH) must be(Some(largeResponseSize.toString))
+      releaseLargeResponse.countDown()
+      val (receivedSize, largestChunkSize) = Await.result(result.body |>>> Iteratee.fold[Array[Byte], (Long, Int)]((0L, 0)) {
+        case ((size, largest), chunk) => (size + chunk.length, math.max(largest, chunk.length))
+      }, 60 seconds)
+      receivedSize must be(largeResponseSize)
+      largestChunkSize must be <= (1024 * 1024)
+    }
+
+    "forward raw request bodies with their content type and query string" in {
+      val upload = Array.tabulate[Byte](largeRequestSize)(_.toByte)
+      val request = FakeRequest(POST, s"/deployments/$deploymentId/executions?workflowId=install")
+        .withHeaders(CONTENT_TYPE -> "application/octet-stream")
+        .withBody(RawBuffer(100 * 1024, upload))
+      val result = proxy.execute(deploymentId)(request)
+      status(result) must be(OK)
+      header("X-Agent-Query", result) must be(Some("workflowId=install"))
+      contentType(result) must be(Some("application/octet-stream"))
+      contentAsBytes(result) must be(upload)
+    }
+
+    "relay status, headers and body of agent's errors" in {
+      val result = proxy.cancel(deploymentId)(FakeRequest(POST, s"/deployments/$deploymentId/executions/cancel").withBody(RawBuffer(0)))
+      status(result) must be(BAD_REQUEST)
+      header("X-Agent-Error", result) must be(Some("true"))
+      contentAsString(result) must be("No execution is running")
+    }
+
+    "relay server sent events of agents" in {
+      val result = proxy.streamExecutionEvents(deploymentId)(FakeRequest(GET, s"/deployments/$deploymentId/executions/events").withBody(RawBuffer(0)))
+      status(result) must be(OK)
+      contentType(result) must be(Some("text/event-stream"))
+      contentAsString(result) must be("data: {\"status\":\"RUNNING\"}\n\ndata: {\"status\":\"SUCCESS\"}\n\n")
+    }
+  }
+}
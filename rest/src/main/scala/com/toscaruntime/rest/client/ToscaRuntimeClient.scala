@@ -2,15 +2,18 @@ package com.toscaruntime.rest.client
 
 import java.io.PrintStream
 import java.net.ConnectException
+import java.nio.charset.StandardCharsets
 import java.nio.file.Path
 
 import akka.pattern._
 import com.ning.http.client.AsyncHttpClientConfig
+import com.toscaruntime.constant.ExecutionConstant
 import com.toscaruntime.exception.UnexpectedException
 import com.toscaruntime.exception.client._
 import com.toscaruntime.rest.model._
 import com.typesafe.scalalogging.LazyLogging
 import play.api.http.Status
+import play.api.libs.iteratee.{Cont, Done, Input, Iteratee}
 import play.api.libs.json.{JsObject, Json}
 import play.api.libs.ws.WSResponse
 import play.api.libs.ws.ning.{NingAsyncHttpClientConfigBuilder, NingWSClient}
@@ -19,6 +22,7 @@ import scala.concurrent.ExecutionContext.Implicits.global
 import scala.concurrent.duration._
 import scala.concurrent.{Await, Future}
 import scala.language.postfixOps
+import scala.util.control.NonFatal
 
 /**
   * Entry point to use toscaruntime service. Offer all available toscaruntime command.
@@ -60,9 +64,19 @@ class ToscaRuntimeClient(url: String, certPath: String) extends LazyLogging {
     }.getOrElse(Future(daemonClient.listDeploymentAgents().values.toList))
   }
 
-  def getDeploymentAgentInfo(deploymentId: String) = {
+  /**
+    * Retrieve information of the deployment
+    *
+    * @param deploymentId     id of the deployment
+    * @param fields           fields of the deployment information to retrieve, the others are returned empty
+    * @param executionsOffset number of most recent executions to skip
+    * @param executionsLimit  maximum number of executions to retrieve, all if not defined
+    * @return the deployment information
+    */
+  def getDeploymentAgentInfo(deploymentId: String, fields: Set[String] = DeploymentDTO.AllFields, executionsOffset: Int = 0, executionsLimit: Option[Int] = None) = {
     val url = getDeploymentAgentURL(deploymentId)
-    wsClient.url(url).get().map { response =>
+    val queryString = Seq("fields" -> fields.mkString(","), "executionsOffset" -> executionsOffset.toString) ++ executionsLimit.map(limit => ("executionsLimit", limit.toString))
+    wsClient.url(url).withQueryString(queryString: _*).get().map { response =>
       if (response.status == 200) {
         response.json.as[RestResponse[DeploymentDTO]].data.get
       } else throw new AgentNotRunningException(s"Agent is down and respond with status ${response.status} and body ${response.body}")
@@ -157,28 +171,79 @@ class ToscaRuntimeClient(url: String, certPath: String) extends LazyLogging {
       .map(handleWSResponse)
   }
 
+  /**
+    * Only the last execution is polled, the full deployment information is retrieved once the execution reached the expected state
+    */
+  private def getLastExecutionInfo(deploymentId: String) = getDeploymentAgentInfo(deploymentId, Set(DeploymentDTO.ExecutionsField), executionsLimit = Some(1))
+
+  /**
+    * Follow the execution events of the agent until an event of the given execution satisfies the condition.
+    *
+    * @return the first execution event which satisfies the condition, or None if the stream ended before or if the agent does not stream its events
+    */
+  private def followExecutionEvents(deploymentId: String, executionId: String)(isReached: ExecutionEventDTO => Boolean): Future[Option[ExecutionEventDTO]] = {
+    // Bytes are split on new lines before being decoded as a multi bytes character may be split between chunks
+    def readEvents(buffer: Array[Byte]): Iteratee[Array[Byte], Option[ExecutionEventDTO]] = Cont {
+      case Input.El(chunk) =>
+        val (lines, remaining) = (buffer ++ chunk).splitAt((buffer ++ chunk).lastIndexOf('\n') + 1)
+        new String(lines, StandardCharsets.UTF_8).split("\n").collect {
+          case line if line.startsWith("data:") => Json.parse(line.substring("data:".length)).as[ExecutionEventDTO]
+        }.find(event => event.eventType == ExecutionEventDTO.ExecutionEventType && isReached(event)) match {
+          case Some(event) => Done(Some(event), Input.Empty)
+          case None => readEvents(remaining)
+        }
+      case Input.Empty => readEvents(buffer)
+      case Input.EOF => Done(None, Input.EOF)
+    }
+    wsClient.url(getDeploymentAgentURL(deploymentId) + "/executions/events").withQueryString("executionId" -> executionId).stream().flatMap {
+      case (headers, body) if headers.status == Status.OK => body |>>> readEvents(Array.empty)
+      case (headers, body) =>
+        logger.debug(s"Agent of $deploymentId does not stream execution events, respond with status ${headers.status}")
+        body |>>> Iteratee.ignore[Array[Byte]].map(_ => None)
+    }.recover {
+      case NonFatal(e) =>
+        logger.debug(s"Could not follow execution events of $deploymentId", e)
+        None
+    }
+  }
+
+  /**
+    * Wait for the last execution to satisfy the condition, its state is pushed by the agent and only polled when the agent does not stream its events
+    */
+  private def waitForLastExecution(deploymentId: String)(isReached: ExecutionEventDTO => Boolean): Future[ExecutionEventDTO] = {
+    getLastExecutionInfo(deploymentId).flatMap { deploymentInfo =>
+      val execution = deploymentInfo.executions.head
+      val lastEvent = ExecutionEventDTO(Some(execution.id), execution.workflowId, ExecutionEventDTO.ExecutionEventType, None, execution.status, execution.error, execution.endTime.getOrElse(execution.startTime).getMillis)
+      if (isReached(lastEvent)) {
+        Future.successful(lastEvent)
+      } else {
+        followExecutionEvents(deploymentId, execution.id)(isReached).flatMap {
+          case Some(event) => Future.successful(event)
+          case None => after(2 seconds, system.scheduler)(waitForLastExecution(deploymentId)(isReached))
+        }
+      }
+    }
+  }
+
   def waitForRunningExecutionToEnd(deploymentId: String): Future[DeploymentDTO] = {
-    getDeploymentAgentInfo(deploymentId).flatMap { deploymentInfo =>
-      if (deploymentInfo.executions.head.error.nonEmpty) {
-        Future.failed(new WorkflowExecutionFailureException(s"Execution of workflow failed ${deploymentInfo.executions.head.error.get}"))
-      } else if (deploymentInfo.executions.head.endTime.isEmpty) {
-        after(2 seconds, system.scheduler)(waitForRunningExecutionToEnd(deploymentId))
+    // Any status other than running is terminal, the agent closes the stream of the execution as soon as it's reached
+    waitForLastExecution(deploymentId) { event =>
+      event.error.nonEmpty || event.status != ExecutionConstant.RUNNING
+    }.flatMap { event =>
+      if (event.error.nonEmpty) {
+        Future.failed(new WorkflowExecutionFailureException(s"Execution of workflow failed ${event.error.get}"))
       } else {
-        Future(deploymentInfo)
+        getDeploymentAgentInfo(deploymentId)
       }
     }
   }
 
   def waitForRunningExecutionToReachStatus(deploymentId: String, currentStatus: String, expectedStatus: String): Future[DeploymentDTO] = {
-    getDeploymentAgentInfo(deploymentId).flatMap { deploymentInfo =>
-      if (deploymentInfo.executions.head.status != currentStatus) {
-        if (deploymentInfo.executions.head.status == expectedStatus) {
-          Future(deploymentInfo)
-        } else {
-          Future.failed(new WorkflowExecutionFailureException(s"Expected to have $expectedStatus as status but instead had ${deploymentInfo.executions.head.status}"))
-        }
+    waitForLastExecution(deploymentId)(_.status != currentStatus).flatMap { event =>
+      if (event.status == expectedStatus) {
+        getDeploymentAgentInfo(deploymentId)
       } else {
-        after(2 seconds, system.scheduler)(waitForRunningExecutionToReachStatus(deploymentId, currentStatus, expectedStatus))
+        Future.failed(new WorkflowExecutionFailureException(s"Expected to have $expectedStatus as status but instead had ${event.status}"))
       }
     }
   }
@@ -203,8 +268,8 @@ class ToscaRuntimeClient(url: String, certPath: String) extends LazyLogging {
     }.getOrElse(Future(Map.empty))
   }
 
-  def getBootstrapAgentInfo(provider: String, target: String) = {
-    getDeploymentAgentInfo(generateDeploymentIdForBootstrap(provider, target))
+  def getBootstrapAgentInfo(provider: String, target: String, fields: Set[String] = DeploymentDTO.AllFields) = {
+    getDeploymentAgentInfo(generateDeploymentIdForBootstrap(provider, target), fields)
   }
 
   def updateBootstrapContext(context: Map[String, String]) = {
@@ -28,9 +28,7 @@ public abstract class AbstractProviderHook implements ProviderHook {
     @Override
     public ProviderWorkflowProcessingResult postConstructInstallWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, Map<Root, InstallLifeCycleTasks> nodeInstancesLifeCycles, Map<tosca.relationships.Root, RelationshipInstallLifeCycleTasks> relationshipInstancesLifeCycles, WorkflowExecution workflowExecution) {
         ProviderWorkflowProcessingResult workflowProcessingResult = getProviderWorkflowProcessingResult(nodeInstances, relationshipInstances);
-        for (Root nodeInstance : workflowProcessingResult.getNodeInstances().values()) {
-            WorkflowUtil.declareNodeInstallDependencies(nodeInstancesLifeCycles.get(nodeInstance), nodeInstancesLifeCycles);
-        }
+        WorkflowUtil.declareNodesInstallDependencies(workflowProcessingResult.getNodeInstances().values(), nodeInstancesLifeCycles);
         // This means all relationships are treated as hostedOn
         // For AttachTo the relationship direction is inverted, it means the volume is hosted on the compute
         for (tosca.relationships.Root relationshipInstance : workflowProcessingResult.getRelationshipInstances()) {
@@ -53,9 +51,7 @@ public abstract class AbstractProviderHook implements ProviderHook {
     @Override
     public ProviderWorkflowProcessingResult postConstructUninstallWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, Map<Root, UninstallLifeCycleTasks> nodeInstancesLifeCycles, Map<tosca.relationships.Root, RelationshipUninstallLifeCycleTasks> relationshipInstancesLifeCycles, WorkflowExecution workflowExecution) {
         ProviderWorkflowProcessingResult workflowProcessingResult = getProviderWorkflowProcessingResult(nodeInstances, relationshipInstances);
-        for (Root processedInstance : workflowProcessingResult.getNodeInstances().values()) {
-            WorkflowUtil.declareNodeUninstallDependencies(nodeInstancesLifeCycles.get(processedInstance), nodeInstancesLifeCycles);
-        }
+        WorkflowUtil.declareNodesUninstallDependencies(workflowProcessingResult.getNodeInstances().values(), nodeInstancesLifeCycles);
         // This means all relationships are treated as hostOn
         // For AttachTo the relationship direction is inverted, it means the volume is hosted on the compute
         for (tosca.relationships.Root relationshipInstance : workflowProcessingResult.getRelationshipInstances()) {
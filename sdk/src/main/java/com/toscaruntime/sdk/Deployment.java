@@ -3,18 +3,27 @@ package com.toscaruntime.sdk;
 import com.toscaruntime.deployment.*;
 import com.toscaruntime.exception.UnexpectedException;
 import com.toscaruntime.exception.deployment.configuration.IllegalFunctionException;
+import com.toscaruntime.exception.deployment.execution.ConcurrentWorkflowExecutionException;
 import com.toscaruntime.exception.deployment.execution.RunningExecutionNotFound;
+import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
 import com.toscaruntime.exception.deployment.workflow.InvalidInstancesCountException;
 import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowArgumentException;
 import com.toscaruntime.exception.deployment.workflow.NodeNotFoundException;
+import com.toscaruntime.sdk.metric.MetricRegistry;
 import com.toscaruntime.sdk.model.*;
 import com.toscaruntime.sdk.util.DeploymentUtil;
+import com.toscaruntime.sdk.workflow.BoundedTaskExecutorFactory;
 import com.toscaruntime.sdk.workflow.DefaultListener;
+import com.toscaruntime.sdk.workflow.ExecutionEventPublisher;
+import com.toscaruntime.sdk.workflow.PublishingListener;
+import com.toscaruntime.sdk.workflow.TaskExecutorFactory;
 import com.toscaruntime.sdk.workflow.WorkflowEngine;
 import com.toscaruntime.sdk.workflow.WorkflowExecution;
 import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
 import com.toscaruntime.util.CodeGeneratorUtil;
 import com.toscaruntime.util.FunctionUtil;
+import com.toscaruntime.util.JSONUtil;
+import com.toscaruntime.util.RecipeSynchronizer;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,7 +32,6 @@ import tosca.nodes.Root;
 
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -41,15 +49,20 @@ public abstract class Deployment {
      */
     protected DeploymentConfig config;
 
+    /**
+     * Indexes of the instances of the deployment, instances are only added or deleted through it
+     */
+    private final DeploymentGraph graph = new DeploymentGraph();
+
     /**
      * id to node instance : A node instance is a physical component of the topology at runtime.
      */
-    protected Map<String, tosca.nodes.Root> nodeInstances = new LinkedHashMap<>();
+    protected Map<String, tosca.nodes.Root> nodeInstances = graph.getNodeInstances();
 
     /**
      * A relationship instance is a link between 2 physical components of the topology
      */
-    protected Set<tosca.relationships.Root> relationshipInstances = new HashSet<>();
+    protected Set<tosca.relationships.Root> relationshipInstances = graph.getRelationshipInstances();
 
     /**
      * A node is an abstract layer over an instance, think of it as a java class and node instance as an instantiation of the java class.
@@ -61,10 +74,17 @@ public abstract class Deployment {
      */
     protected Set<DeploymentRelationshipNode> relationshipNodes = new HashSet<>();
 
+    /**
+     * Metrics of the deployment's workflow executions
+     */
+    private MetricRegistry metricRegistry = new MetricRegistry();
+
     /**
      * The workflow engine to orchestrate the deployment
      */
-    private WorkflowEngine workflowEngine = new WorkflowEngine();
+    private WorkflowEngine workflowEngine = new WorkflowEngine(metricRegistry);
+
+    private ExecutionEventPublisher eventPublisher = new ExecutionEventPublisher();
 
     /**
      * Utility class to help to perform modification on the deployment
@@ -81,40 +101,145 @@ public abstract class Deployment {
      */
     private ProviderHook providerHook;
 
+    /**
+     * Upload the recipe to computes when it's updated
+     */
+    private RecipeUpdater recipeUpdater;
+
     /**
      * Deployment persister save deployment's state to database
      */
     private DeploymentPersister deploymentPersister;
 
     /**
-     * Hold current running workflow execution
+     * Hold current running workflow executions, several executions can run at the same time if their footprints do not overlap
      */
-    private AtomicReference<WorkflowExecution> runningWorkflowExecution = new AtomicReference<>();
+    private final Set<WorkflowExecution> runningWorkflowExecutions = new HashSet<>();
 
-    private void setRunningExecution(WorkflowExecution workflowExecution) {
-        if (!workflowExecution.isTransient()) {
-            if (runningWorkflowExecution.get() != null) {
-                log.error("This running execution is being overwritten \n" + runningWorkflowExecution.get());
-            }
-            runningWorkflowExecution.set(workflowExecution);
-        } else {
+    /**
+     * Undo of the changes made to the deployment by executions which have been admitted but not launched yet, guarded by the running executions
+     */
+    private final Map<WorkflowExecution, Runnable> pendingRollbacks = new HashMap<>();
+
+    private static String describe(WorkflowExecution workflowExecution) {
+        return "execution " + workflowExecution.getExecutionId() + " of workflow " + workflowExecution.getWorkflowId();
+    }
+
+    /**
+     * Register the execution as running if it does not overlap with any running execution
+     *
+     * @param workflowExecution the execution to admit
+     * @throws ConcurrentWorkflowExecutionException if the execution concerns instances which are already concerned by a running execution
+     */
+    public void admit(WorkflowExecution workflowExecution) {
+        if (workflowExecution.isTransient()) {
             log.info("Workflow execution {} is transient so it's not necessary to set new running execution", workflowExecution.getWorkflowId());
+            return;
+        }
+        synchronized (runningWorkflowExecutions) {
+            if (runningWorkflowExecutions.contains(workflowExecution)) {
+                return;
+            }
+            for (WorkflowExecution runningExecution : runningWorkflowExecutions) {
+                if (runningExecution.getFootprint().overlaps(workflowExecution.getFootprint())) {
+                    throw new ConcurrentWorkflowExecutionException("Cannot start execution for workflow " + workflowExecution.getWorkflowId() + " because it concerns instances of the unfinished " + describe(runningExecution) + ", consider running it in transient mode if this option is available");
+                }
+            }
+            runningWorkflowExecutions.add(workflowExecution);
         }
     }
 
-    private void setNullRunningExecution(WorkflowExecution workflowExecution) {
+    /**
+     * Admit the execution which changed the deployment when it was created, the changes are undone if it is rejected before being launched.
+     * Must be called while holding the running executions so that the admission and the changes are atomic.
+     *
+     * @param workflowExecution the execution to admit
+     * @param rollback          undo of the changes made to the deployment
+     */
+    private void admit(WorkflowExecution workflowExecution, Runnable rollback) {
+        try {
+            admit(workflowExecution);
+        } catch (RuntimeException e) {
+            rollback.run();
+            throw e;
+        }
+        pendingRollbacks.put(workflowExecution, rollback);
+    }
+
+    /**
+     * Release the execution which has been admitted but could not be launched, the changes it made to the deployment when it was created are undone
+     *
+     * @param workflowExecution the execution to reject
+     */
+    public void reject(WorkflowExecution workflowExecution) {
+        synchronized (runningWorkflowExecutions) {
+            Runnable rollback = pendingRollbacks.remove(workflowExecution);
+            release(workflowExecution);
+            if (rollback != null) {
+                rollback.run();
+            }
+        }
+    }
+
+    /**
+     * Unregister the execution which has ended
+     *
+     * @param workflowExecution the execution to release
+     */
+    public void release(WorkflowExecution workflowExecution) {
         if (!workflowExecution.isTransient()) {
-            if (runningWorkflowExecution.get() == null) {
-                log.error("No existing running execution to set null");
-            } else if (runningWorkflowExecution.get() != workflowExecution) {
-                log.error("This unknown running execution is being set to null \n" + runningWorkflowExecution.get() + "\n by \n" + workflowExecution);
+            synchronized (runningWorkflowExecutions) {
+                pendingRollbacks.remove(workflowExecution);
+                if (!runningWorkflowExecutions.remove(workflowExecution)) {
+                    log.error("This unknown running execution is being released \n" + workflowExecution);
+                }
             }
-            runningWorkflowExecution.set(null);
         } else {
             log.info("Workflow execution {} is transient so it's not necessary to reset running execution", workflowExecution.getWorkflowId());
         }
     }
 
+    private void checkNoRunningExecution(String workflowId) {
+        synchronized (runningWorkflowExecutions) {
+            if (!runningWorkflowExecutions.isEmpty()) {
+                throw new ConcurrentWorkflowExecutionException("Cannot start execution for workflow " + workflowId + " because deployment has unfinished executions " + runningWorkflowExecutions.stream().map(Deployment::describe).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    /**
+     * Find the running execution with the given id, if no id is given the deployment must have only one running execution
+     *
+     * @param executionId id of the execution or null
+     * @param action      the action to be performed on the execution, for error messages
+     * @return the running execution
+     */
+    private WorkflowExecution getRunningExecution(String executionId, String action) {
+        synchronized (runningWorkflowExecutions) {
+            if (executionId != null) {
+                return runningWorkflowExecutions.stream()
+                        .filter(execution -> executionId.equals(execution.getExecutionId()))
+                        .findFirst()
+                        .orElseThrow(() -> new RunningExecutionNotFound("No running execution with id " + executionId + " is found in memory to " + action));
+            } else if (runningWorkflowExecutions.isEmpty()) {
+                throw new RunningExecutionNotFound("No running execution is found in memory to " + action);
+            } else if (runningWorkflowExecutions.size() > 1) {
+                throw new InvalidWorkflowArgumentException("Deployment has " + runningWorkflowExecutions.size() + " running executions, the id of the execution to " + action + " must be given");
+            } else {
+                return runningWorkflowExecutions.iterator().next();
+            }
+        }
+    }
+
+    /**
+     * @return the executions which are currently running
+     */
+    public Set<WorkflowExecution> getRunningExecutions() {
+        synchronized (runningWorkflowExecutions) {
+            return new HashSet<>(runningWorkflowExecutions);
+        }
+    }
+
     /**
      * This method is overridden by auto-generated code to help initialize the deployment
      */
@@ -153,22 +278,50 @@ public abstract class Deployment {
         this.deploymentPersister = deploymentPersister;
         this.providerHook = providerHook;
         this.workflowEngine.setProviderHook(providerHook);
+        this.workflowEngine.setEventPublisher(eventPublisher);
         this.workflowEngine.setDeploymentPersister(deploymentPersister);
+        this.workflowEngine.setTaskExecutorFactory(new BoundedTaskExecutorFactory(providerHook, providerProperties));
+        this.recipeUpdater = new RecipeUpdater(providerProperties);
         postInitializeConfig();
         this.config.getInputs().putAll(inputs);
         addNodes();
         addRelationships();
+        this.workflowEngine.setTopology(relationshipNodes);
         this.providerHook.postConstruct(this, providerProperties, bootstrapContext);
         if (deploymentPersister.hasExistingData()) {
-            nodes.values().forEach(DeploymentNode::initialLoad);
+            // The persisted state is loaded in bulk then dispatched to nodes and instances, an instance without snapshot loads its own state
+            Map<String, Integer> instancesCounts = deploymentPersister.syncGetNodeInstancesCounts();
+            for (DeploymentNode node : nodes.values()) {
+                Integer instancesCount = instancesCounts.get(node.getId());
+                if (instancesCount != null) {
+                    node.setInstancesCount(instancesCount);
+                } else {
+                    node.initialLoad();
+                }
+            }
             createInstances();
-            nodeInstances.values().forEach(Root::initialLoad);
-            relationshipInstances.forEach(tosca.relationships.Root::initialLoad);
-            RunningExecutionDTO runningExecution = deploymentPersister.syncGetRunningExecution();
-            if (runningExecution != null) {
-                Map<NodeTaskDTO, String> nodeTaskDTOs = deploymentPersister.syncGetRunningExecutionNodeTasks();
-                Map<RelationshipTaskDTO, String> relationshipTaskDTOs = deploymentPersister.syncGetRunningExecutionRelationshipTasks();
-                Map<TaskDTO, String> taskDTOs = deploymentPersister.syncGetRunningExecutionTasks();
+            Map<String, InstanceSnapshotDTO> instanceSnapshots = deploymentPersister.syncGetInstanceSnapshots();
+            for (Root nodeInstance : nodeInstances.values()) {
+                InstanceSnapshotDTO snapshot = instanceSnapshots.get(nodeInstance.getId());
+                if (snapshot != null) {
+                    nodeInstance.initialLoad(snapshot);
+                } else {
+                    nodeInstance.initialLoad();
+                }
+            }
+            Map<RelationshipTaskDTO.Relationship, InstanceSnapshotDTO> relationshipSnapshots = deploymentPersister.syncGetRelationshipInstanceSnapshots();
+            for (tosca.relationships.Root relationshipInstance : relationshipInstances) {
+                InstanceSnapshotDTO snapshot = relationshipSnapshots.get(new RelationshipTaskDTO.Relationship(relationshipInstance.getSource().getId(), relationshipInstance.getTarget().getId(), relationshipInstance.getNode().getRelationshipName()));
+                if (snapshot != null) {
+                    relationshipInstance.initialLoad(snapshot);
+                } else {
+                    relationshipInstance.initialLoad();
+                }
+            }
+            for (RunningExecutionDTO runningExecution : deploymentPersister.syncGetRunningExecutions()) {
+                Map<NodeTaskDTO, String> nodeTaskDTOs = deploymentPersister.syncGetExecutionNodeTasks(runningExecution.getId());
+                Map<RelationshipTaskDTO, String> relationshipTaskDTOs = deploymentPersister.syncGetExecutionRelationshipTasks(runningExecution.getId());
+                Map<TaskDTO, String> taskDTOs = deploymentPersister.syncGetExecutionTasks(runningExecution.getId());
                 WorkflowExecution execution;
                 switch (runningExecution.getWorkflowId()) {
                     case "install":
@@ -183,7 +336,7 @@ public abstract class Deployment {
                         String interfaceName = (String) runningExecution.getInputs().get("interface_name");
                         String operationName = (String) runningExecution.getInputs().get("operation_name");
                         Map<String, Object> executedInputs = (Map<String, Object>) runningExecution.getInputs().get("inputs");
-                        execution = executeNodeOperation(executedNodeId, executedInstanceId, interfaceName, operationName, executedInputs, true);
+                        execution = executeNodeOperation(executedNodeId, executedInstanceId, interfaceName, operationName, executedInputs, false);
                         break;
                     case "execute_relationship_operation":
                         String executedSourceNodeId = (String) runningExecution.getInputs().get("source_node_id");
@@ -213,9 +366,14 @@ public abstract class Deployment {
                     default:
                         throw new UnexpectedException("Not expecting workflow " + runningExecution.getWorkflowId());
                 }
+                execution.setExecutionId(runningExecution.getId());
                 execution.initialLoad(nodeTaskDTOs, relationshipTaskDTOs, taskDTOs);
                 execution.addListener(new DefaultListener(deploymentPersister, execution));
-                setRunningExecution(execution);
+                execution.addListener(new PublishingListener(eventPublisher, execution));
+                // Executions were admitted before the restart, they're restored as is
+                synchronized (runningWorkflowExecutions) {
+                    runningWorkflowExecutions.add(execution);
+                }
             }
         } else {
             for (DeploymentNode node : nodes.values()) {
@@ -262,20 +420,34 @@ public abstract class Deployment {
                                    String targetName,
                                    Map<String, Object> properties,
                                    Class<? extends tosca.relationships.Root> relationshipType) {
-        this.relationshipNodes.add(this.deploymentInitializer.createRelationship(sourceName, targetName, properties, relationshipType));
+        DeploymentRelationshipNode relationshipNode = this.deploymentInitializer.createRelationship(sourceName, targetName, properties, relationshipType);
+        this.relationshipNodes.add(relationshipNode);
+        this.graph.addRelationshipNode(relationshipNode);
     }
 
+    /**
+     * Launch the execution, it's admitted first if it has not been
+     *
+     * @param workflowExecution the execution to launch
+     * @return the launched execution
+     * @throws ConcurrentWorkflowExecutionException if the execution overlaps with a running execution
+     */
     public WorkflowExecution run(WorkflowExecution workflowExecution) {
+        synchronized (runningWorkflowExecutions) {
+            admit(workflowExecution);
+            // Once launched, the execution undoes its changes itself
+            pendingRollbacks.remove(workflowExecution);
+        }
         workflowExecution.addListener(new DefaultListener(deploymentPersister, workflowExecution));
+        workflowExecution.addListener(new PublishingListener(eventPublisher, workflowExecution));
         workflowExecution.launch();
-        setRunningExecution(workflowExecution);
         return workflowExecution;
     }
 
-    private void persistOriginalInstancesCount(int instancesCount) {
+    private void persistOriginalInstancesCount(WorkflowExecution workflowExecution, int instancesCount) {
         Map<String, Object> originalNodeCount = new HashMap<>();
         originalNodeCount.put("original_instances_count", instancesCount);
-        deploymentPersister.syncInsertExecutionInputs(originalNodeCount);
+        deploymentPersister.syncInsertExecutionInputs(workflowExecution.getExecutionId(), originalNodeCount);
     }
 
     /**
@@ -285,25 +457,16 @@ public abstract class Deployment {
      * @param addedRelationshipInstances relationship instances to add
      */
     private void attachCreatedInstancesToDeployment(Map<String, Root> addedNodeInstances, Set<tosca.relationships.Root> addedRelationshipInstances) {
-        // Add node instance to deployment
-        nodeInstances.putAll(addedNodeInstances);
-        // add relationship instance to deployment
-        relationshipInstances.addAll(addedRelationshipInstances);
-        // Add node instance to its corresponding node
-        for (DeploymentNode node : nodes.values()) {
-            node.getInstances().addAll(DeploymentUtil.getNodeInstancesByNodeName(addedNodeInstances, node.getId()));
-        }
-        // Add relationship instance to its corresponding node
-        for (DeploymentRelationshipNode relationshipNode : relationshipNodes) {
-            relationshipNode.getRelationshipInstances().addAll(DeploymentUtil.getRelationshipInstancesByNamesAndType(addedRelationshipInstances, relationshipNode.getSourceNodeId(), relationshipNode.getTargetNodeId(), relationshipNode.getRelationshipType()));
-        }
+        graph.addNodeInstances(addedNodeInstances.values());
+        graph.addRelationshipInstances(addedRelationshipInstances);
+        workflowEngine.topologyChanged();
     }
 
     private WorkflowExecution createScaleUpWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, DeploymentNode node, int newInstancesCount) {
         AbstractGenericTask persistTask = new AbstractGenericTask("persistence") {
             @Override
             protected void doRun() {
-                persistOriginalInstancesCount(node.getInstancesCount());
+                persistOriginalInstancesCount(getWorkflowExecution(), node.getInstancesCount());
                 node.setInstancesCount(newInstancesCount);
                 deploymentPersister.syncSaveNodeInstancesCount(node.getId(), newInstancesCount);
                 persistCreatedInstances(nodeInstances, relationshipInstances);
@@ -314,10 +477,12 @@ public abstract class Deployment {
         AbstractGenericTask postInstallTask = new AbstractGenericTask("post_install") {
             @Override
             protected void doRun() {
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
-        return this.workflowEngine.buildInstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, relationshipInstances, "scale");
+        WorkflowExecution workflowExecution = this.workflowEngine.buildInstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, relationshipInstances, "scale");
+        workflowExecution.setStructural(true);
+        return workflowExecution;
     }
 
 
@@ -328,18 +493,9 @@ public abstract class Deployment {
      * @param deletedRelationshipInstances relationship instances to delete
      */
     private void deleteUninstalledInstancesFromDeployment(Map<String, Root> deletedNodeInstances, Set<tosca.relationships.Root> deletedRelationshipInstances) {
-        // Delete uninstalled node instances from deployment
-        nodeInstances.keySet().removeAll(deletedNodeInstances.keySet());
-        // Delete uninstalled relationship instances from deployment
-        relationshipInstances.removeAll(deletedRelationshipInstances);
-        // Unlinked deleted instances from its corresponding node
-        for (DeploymentNode node : nodes.values()) {
-            node.getInstances().removeAll(DeploymentUtil.getNodeInstancesByNodeName(deletedNodeInstances, node.getId()));
-        }
-        // Unlinked deleted relationship instances from its corresponding node
-        for (DeploymentRelationshipNode relationshipNode : relationshipNodes) {
-            relationshipNode.getRelationshipInstances().removeAll(DeploymentUtil.getRelationshipInstancesByNamesAndType(deletedRelationshipInstances, relationshipNode.getSourceNodeId(), relationshipNode.getTargetNodeId(), relationshipNode.getRelationshipType()));
-        }
+        graph.removeRelationshipInstances(deletedRelationshipInstances);
+        graph.removeNodeInstances(deletedNodeInstances.values());
+        workflowEngine.topologyChanged();
     }
 
     private WorkflowExecution createScaleDownWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, DeploymentNode node, int newInstancesCount) {
@@ -352,22 +508,25 @@ public abstract class Deployment {
         AbstractGenericTask postUninstallTask = new AbstractGenericTask("post_install") {
             @Override
             protected void doRun() {
-                persistOriginalInstancesCount(node.getInstancesCount());
+                persistOriginalInstancesCount(getWorkflowExecution(), node.getInstancesCount());
                 node.setInstancesCount(newInstancesCount);
                 deploymentPersister.syncSaveNodeInstancesCount(node.getId(), newInstancesCount);
                 persistDeletedInstances(nodeInstances, relationshipInstances);
                 deleteUninstalledInstancesFromDeployment(nodeInstances, relationshipInstances);
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
-        return this.workflowEngine.buildUninstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postUninstallTask), nodeInstances, relationshipInstances, "scale");
+        WorkflowExecution workflowExecution = this.workflowEngine.buildUninstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postUninstallTask), nodeInstances, relationshipInstances, "scale");
+        workflowExecution.setStructural(true);
+        return workflowExecution;
     }
 
     /**
-     * Create the scale workflow to scale the given node to the given instances count
+     * Create the scale workflow to scale the given node to the given instances count, the execution is admitted as it's created
      *
      * @param nodeName          name of the node to scale
      * @param newInstancesCount new instances count
+     * @throws ConcurrentWorkflowExecutionException if the execution overlaps with a running execution
      */
     public WorkflowExecution scale(String nodeName, int newInstancesCount) {
         DeploymentNode node = this.nodes.get(nodeName);
@@ -380,17 +539,25 @@ public abstract class Deployment {
         if (newInstancesCount > node.getMaxInstancesCount()) {
             throw new InvalidInstancesCountException("New instances count [" + newInstancesCount + "] is greater than max instances count [" + node.getMaxInstancesCount() + "]");
         }
-        if (newInstancesCount == node.getInstancesCount()) {
-            throw new InvalidInstancesCountException("New instances count [" + newInstancesCount + "] is the same as the current instances count [" + node.getInstancesCount() + "]");
-        }
-        if (newInstancesCount > node.getInstancesCount()) {
-            log.info("Scaling up node " + nodeName + "from [" + node.getInstancesCount() + "] to [" + newInstancesCount + "]");
-            DeploymentAddInstancesModification modification = deploymentImpacter.addNodeInstances(this, node, newInstancesCount - node.getInstancesCount());
-            return createScaleUpWorkflow(modification.getInstancesToAdd(), modification.getRelationshipInstancesToAdd(), node, newInstancesCount);
-        } else {
-            log.info("Scaling down node " + nodeName + " from [" + node.getInstancesCount() + "] to [" + newInstancesCount + "]");
-            DeploymentDeleteInstancesModification modification = deploymentImpacter.deleteNodeInstances(this, node, node.getInstancesCount() - newInstancesCount);
-            return createScaleDownWorkflow(modification.getInstancesToDelete(), modification.getRelationshipInstancesToDelete(), node, newInstancesCount);
+        // The instances count is read and the execution admitted atomically so that concurrent scales of the same node cannot compute the same modification
+        synchronized (runningWorkflowExecutions) {
+            if (newInstancesCount == node.getInstancesCount()) {
+                throw new InvalidInstancesCountException("New instances count [" + newInstancesCount + "] is the same as the current instances count [" + node.getInstancesCount() + "]");
+            }
+            WorkflowExecution workflowExecution;
+            if (newInstancesCount > node.getInstancesCount()) {
+                log.info("Scaling up node " + nodeName + "from [" + node.getInstancesCount() + "] to [" + newInstancesCount + "]");
+                DeploymentAddInstancesModification modification = deploymentImpacter.addNodeInstances(this, node, newInstancesCount - node.getInstancesCount());
+                workflowExecution = createScaleUpWorkflow(modification.getInstancesToAdd(), modification.getRelationshipInstancesToAdd(), node, newInstancesCount);
+            } else {
+                log.info("Scaling down node " + nodeName + " from [" + node.getInstancesCount() + "] to [" + newInstancesCount + "]");
+                DeploymentDeleteInstancesModification modification = deploymentImpacter.deleteNodeInstances(this, node, node.getInstancesCount() - newInstancesCount);
+                workflowExecution = createScaleDownWorkflow(modification.getInstancesToDelete(), modification.getRelationshipInstancesToDelete(), node, newInstancesCount);
+            }
+            // The deployment is only changed by the execution's tasks, there's nothing to undo if it's rejected
+            admit(workflowExecution, () -> {
+            });
+            return workflowExecution;
         }
     }
 
@@ -411,7 +578,7 @@ public abstract class Deployment {
             }
             concernedRelationshipInstances = relationshipNode.getRelationshipInstances();
         } else if (StringUtils.isNotBlank(sourceInstanceId) && StringUtils.isNotBlank(targetInstanceId)) {
-            concernedRelationshipInstances = relationshipInstances.stream().filter(instance -> instance.getSource().getId().equals(sourceInstanceId) && instance.getTarget().getId().equals(targetInstanceId) && instance.getNode().getRelationshipName().equals(relationshipType)).collect(Collectors.toSet());
+            concernedRelationshipInstances = graph.getRelationshipInstancesBySourceId(sourceInstanceId).stream().filter(instance -> instance.getTarget().getId().equals(targetInstanceId) && instance.getNode().getRelationshipName().equals(relationshipType)).collect(Collectors.toSet());
         } else {
             throw new InvalidWorkflowArgumentException("source/target instance id or source/target node name are needed to launch the workflow");
         }
@@ -445,7 +612,7 @@ public abstract class Deployment {
                 if (currentOperationInputs != null) {
                     concernedRelationshipInstances.stream().forEach(relationshipInstance -> relationshipInstance.getOperationInputs().put(javaMethodName, currentOperationInputs.get(relationshipInstance)));
                 }
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
         return workflowEngine.buildExecuteRelationshipOperationWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, concernedRelationshipInstances, concernedRelationshipInstances, interfaceName, operationName, "execute_relationship_operation", transientExecution);
@@ -502,7 +669,7 @@ public abstract class Deployment {
                 if (currentOperationInputs != null) {
                     concernedInstances.stream().forEach(instance -> instance.getOperationInputs().put(javaMethodName, currentOperationInputs.get(instance.getId())));
                 }
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
         return workflowEngine.buildExecuteNodeOperationWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, relationshipInstances, concernedInstances, interfaceName, operationName, "execute_node_operation", transientExecution);
@@ -524,67 +691,83 @@ public abstract class Deployment {
     public void createInstances() {
         nodes.entrySet().stream().filter(nodeEntry -> nodeEntry.getValue().getParent() == null).forEach(nodeEntry -> {
             for (int i = 1; i <= nodeEntry.getValue().getInstancesCount(); i++) {
-                nodeInstances.putAll(createInstanceTree(nodeEntry.getValue(), null, i));
+                graph.addNodeInstances(createInstanceTree(nodeEntry.getValue(), null, i).values());
             }
         });
-        // Add node instance to its corresponding node
-        for (DeploymentNode node : nodes.values()) {
-            node.getInstances().addAll(DeploymentUtil.getNodeInstancesByNodeName(nodeInstances, node.getId()));
-        }
-        relationshipInstances.addAll(relationshipNodes.stream().flatMap(relationship -> {
+        graph.addRelationshipInstances(relationshipNodes.stream().flatMap(relationship -> {
             Set<Root> sources = nodes.get(relationship.getSourceNodeId()).getInstances();
             Set<Root> targets = nodes.get(relationship.getTargetNodeId()).getInstances();
             return deploymentInitializer.generateRelationshipsInstances(sources, targets, relationship, this).stream();
         }).collect(Collectors.toSet()));
-        // Add relationship instance to its corresponding node
-        for (DeploymentRelationshipNode relationshipNode : relationshipNodes) {
-            relationshipNode.getRelationshipInstances().addAll(DeploymentUtil.getRelationshipInstancesByNamesAndType(relationshipInstances, relationshipNode.getSourceNodeId(), relationshipNode.getTargetNodeId(), relationshipNode.getRelationshipType()));
-        }
         providerHook.postConstructInstances(nodeInstances, relationshipInstances);
     }
 
     /**
-     * Cancel the current running execution
+     * Cancel the only running execution
      */
     public void cancel(boolean force) {
-        WorkflowExecution execution = runningWorkflowExecution.get();
-        if (execution == null) {
-            throw new RunningExecutionNotFound("No running execution is found in memory to cancel");
-        } else {
-            execution.cancel(force);
-            setNullRunningExecution(execution);
-        }
+        cancel(null, force);
+    }
+
+    /**
+     * Cancel a running execution
+     *
+     * @param executionId id of the execution, if null the deployment must have only one running execution
+     * @param force       interrupt running tasks
+     * @return the cancelled execution
+     */
+    public WorkflowExecution cancel(String executionId, boolean force) {
+        WorkflowExecution execution = getRunningExecution(executionId, "cancel");
+        execution.cancel(force);
+        release(execution);
+        return execution;
     }
 
     /**
-     * Resume the current running execution
+     * Resume the only running execution
      */
     public void resume() {
-        WorkflowExecution execution = runningWorkflowExecution.get();
-        if (execution == null) {
-            throw new RunningExecutionNotFound("No running execution is found in memory to resume");
-        } else {
-            execution.resume();
-        }
+        resume(null);
+    }
+
+    /**
+     * Resume a running execution
+     *
+     * @param executionId id of the execution, if null the deployment must have only one running execution
+     * @return the resumed execution
+     */
+    public WorkflowExecution resume(String executionId) {
+        WorkflowExecution execution = getRunningExecution(executionId, "resume");
+        execution.resume();
+        return execution;
     }
 
     /**
-     * Stop the current running execution
+     * Stop the only running execution
      */
     public void stop(boolean force) {
-        WorkflowExecution execution = runningWorkflowExecution.get();
-        if (execution == null) {
-            throw new RunningExecutionNotFound("No running execution is found in memory to resume");
-        } else {
-            execution.stop(force);
-        }
+        stop(null, force);
+    }
+
+    /**
+     * Stop a running execution
+     *
+     * @param executionId id of the execution, if null the deployment must have only one running execution
+     * @param force       interrupt running tasks
+     * @return the stopped execution
+     */
+    public WorkflowExecution stop(String executionId, boolean force) {
+        WorkflowExecution execution = getRunningExecution(executionId, "stop");
+        execution.stop(force);
+        return execution;
     }
 
     /**
      * Trigger upload of the recipe on all computes in order to refresh the deployment's recipe on the remote servers
      */
     public void updateRecipe() {
-        getNodeInstancesByType(Compute.class).stream().parallel().forEach(Compute::uploadRecipe);
+        recipeUpdater.update(getNodeInstancesByType(Compute.class));
+        workflowEngine.topologyChanged();
     }
 
     private WorkflowExecution createInstallWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances) {
@@ -598,20 +781,41 @@ public abstract class Deployment {
         AbstractGenericTask postInstallTask = new AbstractGenericTask("post_install") {
             @Override
             protected void doRun() {
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
-        return this.workflowEngine.buildInstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, relationshipInstances, "install");
+        WorkflowExecution workflowExecution = this.workflowEngine.buildInstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postInstallTask), nodeInstances, relationshipInstances, "install");
+        workflowExecution.setExclusive(true);
+        return workflowExecution;
     }
 
     /**
-     * Create install workflow for all nodes of the deployment.
+     * Create install workflow for all nodes of the deployment, the execution is admitted as it's created.
      *
      * @return workflow execution
+     * @throws ConcurrentWorkflowExecutionException if the deployment has running executions
      */
     public WorkflowExecution install() {
-        createInstances();
-        return createInstallWorkflow(nodeInstances, relationshipInstances);
+        // Instances are created before the execution can be admitted, no other execution can be admitted in between
+        synchronized (runningWorkflowExecutions) {
+            checkNoRunningExecution("install");
+            Set<Root> existingNodeInstances = new HashSet<>(nodeInstances.values());
+            Set<tosca.relationships.Root> existingRelationshipInstances = new HashSet<>(relationshipInstances);
+            Runnable rollback = () -> {
+                graph.removeRelationshipInstances(relationshipInstances.stream().filter(instance -> !existingRelationshipInstances.contains(instance)).collect(Collectors.toList()));
+                graph.removeNodeInstances(nodeInstances.values().stream().filter(instance -> !existingNodeInstances.contains(instance)).collect(Collectors.toList()));
+            };
+            WorkflowExecution workflowExecution;
+            try {
+                createInstances();
+                workflowExecution = createInstallWorkflow(nodeInstances, relationshipInstances);
+            } catch (RuntimeException e) {
+                rollback.run();
+                throw e;
+            }
+            admit(workflowExecution, rollback);
+            return workflowExecution;
+        }
     }
 
     /**
@@ -621,37 +825,45 @@ public abstract class Deployment {
      * @param addedRelationshipInstances relationship instances to persist
      */
     private void persistCreatedInstances(Map<String, Root> addedNodeInstances, Set<tosca.relationships.Root> addedRelationshipInstances) {
-        // Persist node instance
+        // Node instances, their initial attributes and relationship instances are persisted in one batch
+        Map<Root, Map<String, Object>> initialAttributes = new HashMap<>();
+        List<InstanceDTO> instanceDTOs = new ArrayList<>(addedNodeInstances.size());
         for (Root instance : addedNodeInstances.values()) {
-            deploymentPersister.syncInsertInstanceIfNotExist(instance.getId(), instance.getName(), instance.getState());
-            instance.setAttribute("tosca_id", instance.getId());
-            instance.setAttribute("tosca_name", instance.getName());
+            Map<String, Object> instanceAttributes = new HashMap<>();
+            instanceAttributes.put("tosca_id", instance.getId());
+            instanceAttributes.put("tosca_name", instance.getName());
+            Map<String, String> rawAttributes = new HashMap<>();
+            for (Map.Entry<String, Object> attributeEntry : instanceAttributes.entrySet()) {
+                try {
+                    rawAttributes.put(attributeEntry.getKey(), JSONUtil.toString(attributeEntry.getValue()));
+                } catch (Exception e) {
+                    throw new DeploymentPersistenceException("Cannot persist attribute " + attributeEntry.getKey() + " of node instance " + instance.getId(), e);
+                }
+            }
+            initialAttributes.put(instance, instanceAttributes);
+            instanceDTOs.add(new InstanceDTO(instance.getId(), instance.getName(), instance.getState(), rawAttributes));
         }
-        // Persist relationship instance
+        List<RelationshipInstanceDTO> relationshipInstanceDTOs = new ArrayList<>(addedRelationshipInstances.size());
         for (tosca.relationships.Root relationshipInstance : addedRelationshipInstances) {
-            deploymentPersister.syncInsertRelationshipInstanceIfNotExist(relationshipInstance.getSource().getId(), relationshipInstance.getTarget().getId(), relationshipInstance.getSource().getName(), relationshipInstance.getTarget().getName(), relationshipInstance.getNode().getRelationshipName(), relationshipInstance.getState());
+            relationshipInstanceDTOs.add(new RelationshipInstanceDTO(relationshipInstance.getSource().getId(), relationshipInstance.getTarget().getId(), relationshipInstance.getSource().getName(), relationshipInstance.getTarget().getName(), relationshipInstance.getNode().getRelationshipName(), relationshipInstance.getState()));
         }
+        deploymentPersister.syncInsertInstancesIfNotExist(instanceDTOs, relationshipInstanceDTOs);
+        initialAttributes.forEach(Root::initAttributes);
     }
 
     /**
      * Clean all deployment's instances
      */
     private void deleteInstances() {
-        nodeInstances.clear();
-        relationshipInstances.clear();
-        nodes.values().stream().forEach(node -> node.getInstances().clear());
-        relationshipNodes.stream().forEach(relationship -> relationship.getRelationshipInstances().clear());
+        graph.clearInstances();
     }
 
     private void persistDeletedInstances(Map<String, Root> deletedNodeInstances, Set<tosca.relationships.Root> deletedRelationshipInstances) {
-        // Delete uninstalled node instances from persistence
-        for (Root instance : deletedNodeInstances.values()) {
-            deploymentPersister.syncDeleteInstance(instance.getId());
-        }
-        // Delete uninstalled relationship instances from persistence
-        for (tosca.relationships.Root relationshipInstance : deletedRelationshipInstances) {
-            deploymentPersister.syncDeleteRelationshipInstance(relationshipInstance.getSource().getId(), relationshipInstance.getTarget().getId(), relationshipInstance.getNode().getRelationshipName());
-        }
+        // Delete uninstalled relationship instances and node instances from persistence in one batch
+        List<RelationshipTaskDTO.Relationship> deletedRelationships = deletedRelationshipInstances.stream()
+                .map(relationshipInstance -> new RelationshipTaskDTO.Relationship(relationshipInstance.getSource().getId(), relationshipInstance.getTarget().getId(), relationshipInstance.getNode().getRelationshipName()))
+                .collect(Collectors.toList());
+        deploymentPersister.syncDeleteInstances(new ArrayList<>(deletedNodeInstances.keySet()), deletedRelationships);
     }
 
     private WorkflowExecution createUninstallWorkflow(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances) {
@@ -666,10 +878,12 @@ public abstract class Deployment {
             protected void doRun() {
                 persistDeletedInstances(nodeInstances, relationshipInstances);
                 deleteInstances();
-                setNullRunningExecution(workflowExecution);
+                release(workflowExecution);
             }
         };
-        return this.workflowEngine.buildUninstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postUninstallTask), nodeInstances, relationshipInstances, "uninstall");
+        WorkflowExecution workflowExecution = this.workflowEngine.buildUninstallWorkflow(Collections.singletonList(persistTask), Collections.singletonList(postUninstallTask), nodeInstances, relationshipInstances, "uninstall");
+        workflowExecution.setExclusive(true);
+        return workflowExecution;
     }
 
     /**
@@ -692,6 +906,13 @@ public abstract class Deployment {
         return createUninstallWorkflow(nativeNodeInstances, nativeRelationshipInstances);
     }
 
+    /**
+     * Release the resources of the deployment when it's not used anymore, task transitions recorded until now are persisted before returning
+     */
+    public void shutdown() {
+        workflowEngine.shutdown();
+    }
+
     public Map<String, Object> getOutputs() {
         return new HashMap<>();
     }
@@ -729,27 +950,27 @@ public abstract class Deployment {
     }
 
     public <T extends tosca.nodes.Root> Set<T> getNodeInstancesByType(Class<T> type) {
-        return DeploymentUtil.getNodeInstancesByType(nodeInstances, type);
+        return graph.getNodeInstancesByType(type);
     }
 
     public <T extends tosca.relationships.Root> Set<T> getRelationshipInstancesByNamesAndType(String sourceName, String targetName, Class<T> relationshipType) {
-        return DeploymentUtil.getRelationshipInstancesByNamesAndType(relationshipInstances, sourceName, targetName, relationshipType);
+        return graph.getRelationshipInstancesByNamesAndType(sourceName, targetName, relationshipType);
     }
 
     public Set<tosca.relationships.Root> getRelationshipInstanceBySourceId(String sourceId) {
-        return DeploymentUtil.getRelationshipInstanceBySourceId(relationshipInstances, sourceId);
+        return graph.getRelationshipInstancesBySourceId(sourceId);
     }
 
     public Set<tosca.relationships.Root> getRelationshipInstanceByTargetId(String targetId) {
-        return DeploymentUtil.getRelationshipInstanceByTargetId(relationshipInstances, targetId);
+        return graph.getRelationshipInstancesByTargetId(targetId);
     }
 
     public Set<DeploymentRelationshipNode> getRelationshipNodeBySourceName(String sourceName) {
-        return DeploymentUtil.getRelationshipNodeBySourceName(relationshipNodes, sourceName);
+        return graph.getRelationshipNodesBySourceName(sourceName);
     }
 
     public Set<DeploymentRelationshipNode> getRelationshipNodeByTargetName(String targetName) {
-        return DeploymentUtil.getRelationshipNodeByTargetName(relationshipNodes, targetName);
+        return graph.getRelationshipNodesByTargetName(targetName);
     }
 
     public DeploymentConfig getConfig() {
@@ -772,12 +993,39 @@ public abstract class Deployment {
         return providerHook;
     }
 
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * @return the publisher of the transitions of the deployment's workflow executions and of their tasks
+     */
+    public ExecutionEventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+
+    /**
+     * @return the synchronizer configured with the provider's properties, computes give it to their executors so that all uploads share it
+     */
+    public RecipeSynchronizer getRecipeSynchronizer() {
+        return recipeUpdater.getRecipeSynchronizer();
+    }
+
+    /**
+     * Plug a custom executor of workflow tasks in place of the default bounded one configured from the provider's properties
+     *
+     * @param taskExecutorFactory the task executor factory
+     */
+    public void setTaskExecutorFactory(TaskExecutorFactory taskExecutorFactory) {
+        this.workflowEngine.setTaskExecutorFactory(taskExecutorFactory);
+    }
+
     public Map<String, Root> getNodeInstances() {
         return nodeInstances;
     }
 
     public Set<Root> getChildren(Root ofInstance) {
-        return DeploymentUtil.getChildren(nodeInstances, ofInstance);
+        return graph.getChildren(ofInstance);
     }
 
     public Set<tosca.relationships.Root> getRelationshipInstances() {
@@ -0,0 +1,209 @@
+package com.toscaruntime.sdk;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
+
+import tosca.nodes.Root;
+
+/**
+ * Indexes of the deployment's instances and of the links between them, so that the topology can be navigated without scanning all instances.
+ * Every addition or deletion of instances of the deployment goes through the graph which keeps the indexes, the nodes' instances and the relationship nodes' instances consistent.
+ * Lookups return read only views of the indexes.
+ *
+ * @author Minh Khang VU
+ */
+@SuppressWarnings("unchecked")
+class DeploymentGraph {
+
+    /**
+     * Copied on write so that instances are iterated in their creation order while workflows of concurrent executions read them
+     */
+    private volatile Map<String, Root> nodeInstancesSnapshot = Collections.emptyMap();
+
+    /**
+     * Read only view of the latest snapshot of the node instances
+     */
+    private final Map<String, Root> nodeInstances = new AbstractMap<String, Root>() {
+
+        @Override
+        public Set<Entry<String, Root>> entrySet() {
+            return nodeInstancesSnapshot.entrySet();
+        }
+
+        @Override
+        public Root get(Object key) {
+            return nodeInstancesSnapshot.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return nodeInstancesSnapshot.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return nodeInstancesSnapshot.size();
+        }
+    };
+
+    private final Set<tosca.relationships.Root> relationshipInstances = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Parent instance's id to its children
+     */
+    private final Map<String, Set<Root>> childrenByParentId = new ConcurrentHashMap<>();
+
+    /**
+     * Instance's concrete type to instances, lookups by type only go through the few concrete types of the topology
+     */
+    private final Map<Class<?>, Set<Root>> instancesByClass = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<tosca.relationships.Root>> relationshipsBySourceId = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<tosca.relationships.Root>> relationshipsByTargetId = new ConcurrentHashMap<>();
+
+    /**
+     * Source node name, target node name and concrete relationship type to relationship instances
+     */
+    private final Map<List<Object>, Set<tosca.relationships.Root>> relationshipsByNamesAndType = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<DeploymentRelationshipNode>> relationshipNodesBySourceName = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<DeploymentRelationshipNode>> relationshipNodesByTargetName = new ConcurrentHashMap<>();
+
+    private static <K, V> void index(Map<K, Set<V>> index, K key, V value) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    private static <K, V> void unindex(Map<K, Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values != null) {
+            values.remove(value);
+        }
+    }
+
+    private static <K, V> Set<V> lookup(Map<K, Set<V>> index, K key) {
+        Set<V> values = index.get(key);
+        return values != null ? Collections.unmodifiableSet(values) : Collections.emptySet();
+    }
+
+    private static List<Object> namesAndType(String sourceName, String targetName, Class<?> relationshipType) {
+        return Arrays.asList(sourceName, targetName, relationshipType);
+    }
+
+    void addRelationshipNode(DeploymentRelationshipNode relationshipNode) {
+        index(relationshipNodesBySourceName, relationshipNode.getSourceNodeId(), relationshipNode);
+        index(relationshipNodesByTargetName, relationshipNode.getTargetNodeId(), relationshipNode);
+    }
+
+    void addNodeInstances(Collection<Root> instances) {
+        synchronized (this) {
+            Map<String, Root> newSnapshot = new LinkedHashMap<>(nodeInstancesSnapshot);
+            instances.forEach(instance -> newSnapshot.put(instance.getId(), instance));
+            nodeInstancesSnapshot = Collections.unmodifiableMap(newSnapshot);
+        }
+        for (Root instance : instances) {
+            instance.getNode().getInstances().add(instance);
+            if (instance.getParent() != null) {
+                index(childrenByParentId, instance.getParent().getId(), instance);
+            }
+            index(instancesByClass, instance.getClass(), instance);
+        }
+    }
+
+    void addRelationshipInstances(Collection<tosca.relationships.Root> instances) {
+        for (tosca.relationships.Root instance : instances) {
+            relationshipInstances.add(instance);
+            instance.getNode().getRelationshipInstances().add(instance);
+            index(relationshipsBySourceId, instance.getSource().getId(), instance);
+            index(relationshipsByTargetId, instance.getTarget().getId(), instance);
+            index(relationshipsByNamesAndType, namesAndType(instance.getSource().getName(), instance.getTarget().getName(), instance.getClass()), instance);
+        }
+    }
+
+    void removeNodeInstances(Collection<Root> instances) {
+        synchronized (this) {
+            Map<String, Root> newSnapshot = new LinkedHashMap<>(nodeInstancesSnapshot);
+            instances.forEach(instance -> newSnapshot.remove(instance.getId()));
+            nodeInstancesSnapshot = Collections.unmodifiableMap(newSnapshot);
+        }
+        for (Root instance : instances) {
+            instance.getNode().getInstances().remove(instance);
+            if (instance.getParent() != null) {
+                unindex(childrenByParentId, instance.getParent().getId(), instance);
+            }
+            childrenByParentId.remove(instance.getId());
+            unindex(instancesByClass, instance.getClass(), instance);
+        }
+    }
+
+    void removeRelationshipInstances(Collection<tosca.relationships.Root> instances) {
+        for (tosca.relationships.Root instance : instances) {
+            relationshipInstances.remove(instance);
+            instance.getNode().getRelationshipInstances().remove(instance);
+            unindex(relationshipsBySourceId, instance.getSource().getId(), instance);
+            unindex(relationshipsByTargetId, instance.getTarget().getId(), instance);
+            unindex(relationshipsByNamesAndType, namesAndType(instance.getSource().getName(), instance.getTarget().getName(), instance.getClass()), instance);
+        }
+    }
+
+    /**
+     * Remove all instances, the topology's relationship nodes are kept
+     */
+    void clearInstances() {
+        removeRelationshipInstances(new HashSet<>(relationshipInstances));
+        removeNodeInstances(nodeInstancesSnapshot.values());
+    }
+
+    Map<String, Root> getNodeInstances() {
+        return nodeInstances;
+    }
+
+    Set<tosca.relationships.Root> getRelationshipInstances() {
+        return relationshipInstances;
+    }
+
+    Set<Root> getChildren(Root ofInstance) {
+        return lookup(childrenByParentId, ofInstance.getId());
+    }
+
+    <T extends Root> Set<T> getNodeInstancesByType(Class<T> type) {
+        Set<T> instances = new HashSet<>();
+        instancesByClass.forEach((instanceClass, classInstances) -> {
+            if (type.isAssignableFrom(instanceClass)) {
+                instances.addAll((Set<T>) classInstances);
+            }
+        });
+        return instances;
+    }
+
+    Set<tosca.relationships.Root> getRelationshipInstancesBySourceId(String sourceId) {
+        return lookup(relationshipsBySourceId, sourceId);
+    }
+
+    Set<tosca.relationships.Root> getRelationshipInstancesByTargetId(String targetId) {
+        return lookup(relationshipsByTargetId, targetId);
+    }
+
+    <T extends tosca.relationships.Root> Set<T> getRelationshipInstancesByNamesAndType(String sourceName, String targetName, Class<T> relationshipType) {
+        return (Set<T>) lookup(relationshipsByNamesAndType, namesAndType(sourceName, targetName, relationshipType));
+    }
+
+    Set<DeploymentRelationshipNode> getRelationshipNodesBySourceName(String sourceName) {
+        return lookup(relationshipNodesBySourceName, sourceName);
+    }
+
+    Set<DeploymentRelationshipNode> getRelationshipNodesByTargetName(String targetName) {
+        return lookup(relationshipNodesByTargetName, targetName);
+    }
+}
@@ -1,8 +1,10 @@
 package com.toscaruntime.sdk;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.toscaruntime.exception.deployment.creation.InvalidDeploymentStateException;
 import com.toscaruntime.sdk.model.DeploymentAddInstancesModification;
@@ -79,7 +81,9 @@ public class DeploymentImpacter {
             Root toBeDeleted;
             int index = node.getInstancesCount() - i;
             if (parent != null) {
-                toBeDeleted = getDeletedInstance(node.getInstances(), node.getId(), index);
+                // Only instances of the node which are children of the parent instance must be considered
+                Set<Root> siblings = deployment.getChildren(parent).stream().filter(child -> child.getName().equals(node.getId())).collect(Collectors.toSet());
+                toBeDeleted = getDeletedInstance(siblings, node.getId(), index);
             } else {
                 toBeDeleted = getDeletedInstance(deployment.getNodeInstancesByNodeName(node.getId()), node.getId(), index);
             }
@@ -96,10 +100,11 @@ public class DeploymentImpacter {
         }
         Map<String, Root> allImpactedInstancesByAddition = new HashMap<>(deploymentModification.getInstancesToAdd());
         allImpactedInstancesByAddition.putAll(deploymentModification.getImpactedInstancesByAddition());
+        Map<String, Set<Root>> allImpactedInstancesByNodeName = allImpactedInstancesByAddition.values().stream().collect(Collectors.groupingBy(Root::getName, Collectors.toSet()));
         for (DeploymentRelationshipNode relationshipNode : deploymentModification.getImpactedRelationshipNodesByAddition()) {
             Set<tosca.relationships.Root> newRelationshipInstances = deploymentInitializer.generateRelationshipsInstances(
-                    DeploymentUtil.getNodeInstancesByNodeName(allImpactedInstancesByAddition, relationshipNode.getSourceNodeId()),
-                    DeploymentUtil.getNodeInstancesByNodeName(allImpactedInstancesByAddition, relationshipNode.getTargetNodeId()),
+                    allImpactedInstancesByNodeName.getOrDefault(relationshipNode.getSourceNodeId(), Collections.emptySet()),
+                    allImpactedInstancesByNodeName.getOrDefault(relationshipNode.getTargetNodeId(), Collections.emptySet()),
                     relationshipNode, deployment);
             // Sometime a relationship has already existed in the deployment, in this case must not add it to the scaling operation
             newRelationshipInstances.removeAll(deployment.getRelationshipInstances());
@@ -1,7 +1,10 @@
 package com.toscaruntime.sdk;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -9,6 +12,7 @@ import com.toscaruntime.exception.deployment.creation.InvalidDeploymentStateExce
 import com.toscaruntime.sdk.model.DeploymentNode;
 import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
 import com.toscaruntime.sdk.util.DeploymentUtil;
+import com.toscaruntime.sdk.util.RuntimeTypeRegistry;
 
 import tosca.nodes.Root;
 import tosca.relationships.ManyToMany;
@@ -41,7 +45,7 @@ public class DeploymentInitializer {
 
     public Root createInstance(Deployment deployment, DeploymentNode node, Root parent, int index) {
         try {
-            Root instance = node.getType().newInstance();
+            Root instance = RuntimeTypeRegistry.newInstance(node.getType());
             Root host = null;
             if (parent != null && node.getHost() != null && parent.getName().equals(node.getHost())) {
                 host = parent;
@@ -61,6 +65,33 @@ public class DeploymentInitializer {
         }
     }
 
+    /**
+     * Search the scaling group that the source and the target belong to. The scaling group is determined by the nodes of the source and the target,
+     * so it's the same for all pairs of instances of a relationship node.
+     *
+     * @return name of the farthest common ancestor node of the source and the target (or of themselves) or null if they do not belong to the same scaling group
+     */
+    private String getCommonScalingGroup(tosca.nodes.Root sourceInstance, tosca.nodes.Root targetInstance) {
+        LinkedHashMap<String, tosca.nodes.Root> sourceAncestors = DeploymentUtil.getInstanceAncestors(sourceInstance);
+        LinkedHashMap<String, tosca.nodes.Root> targetAncestors = DeploymentUtil.getInstanceAncestors(targetInstance);
+        // Go up the ancestors to search for the common node / scaling group
+        String commonScalingGroup = null;
+        for (String sourceAncestor : sourceAncestors.keySet()) {
+            if (targetAncestors.containsKey(sourceAncestor)) {
+                commonScalingGroup = sourceAncestor;
+            }
+        }
+        return commonScalingGroup;
+    }
+
+    private static tosca.nodes.Root getAncestor(tosca.nodes.Root instance, String ancestorName) {
+        tosca.nodes.Root current = instance;
+        while (current != null && !current.getName().equals(ancestorName)) {
+            current = current.getParent();
+        }
+        return current;
+    }
+
     public boolean shouldFilterRelationship(tosca.nodes.Root sourceInstance, tosca.nodes.Root targetInstance, Class<? extends tosca.relationships.Root> relationshipType) {
         // Always generate relationship of type many to many
         if (ManyToMany.class.isAssignableFrom(relationshipType)) {
@@ -68,18 +99,9 @@ public class DeploymentInitializer {
         }
         // The relationship will be filtered if the nodes belong to the same scaling group but not the same scaling group instance
         // For ex: If the nodes are hosted on the same compute node, but on different instances of this same compute node
-        LinkedHashMap<String, tosca.nodes.Root> sourceAncestors = DeploymentUtil.getInstanceAncestors(sourceInstance);
-        LinkedHashMap<String, tosca.nodes.Root> targetAncestors = DeploymentUtil.getInstanceAncestors(targetInstance);
-        // Go up the ancestors to search for the common node / scaling group but different instance to filter out the relationship
-        String nearestCommonScalingGroup = null;
-        for (String sourceAncestor : sourceAncestors.keySet()) {
-            if (targetAncestors.containsKey(sourceAncestor)) {
-                nearestCommonScalingGroup = sourceAncestor;
-            }
-        }
-        // The source and target belong to the same scaling group but different instance, must filter out
         // For the future, the scaling group will also consider group defined by scaling policy and not only by parent child hierarchy
-        return nearestCommonScalingGroup != null && !sourceAncestors.get(nearestCommonScalingGroup).getId().equals(targetAncestors.get(nearestCommonScalingGroup).getId());
+        String commonScalingGroup = getCommonScalingGroup(sourceInstance, targetInstance);
+        return commonScalingGroup != null && !getAncestor(sourceInstance, commonScalingGroup).getId().equals(getAncestor(targetInstance, commonScalingGroup).getId());
     }
 
 
@@ -95,24 +117,59 @@ public class DeploymentInitializer {
         return relationshipNode;
     }
 
+    private tosca.relationships.Root createRelationshipInstance(tosca.nodes.Root sourceInstance,
+                                                                tosca.nodes.Root targetInstance,
+                                                                DeploymentRelationshipNode relationshipNode,
+                                                                Deployment deployment) {
+        try {
+            tosca.relationships.Root relationshipInstance = RuntimeTypeRegistry.newInstance(relationshipNode.getRelationshipType());
+            relationshipInstance.setSource(sourceInstance);
+            relationshipInstance.setTarget(targetInstance);
+            relationshipInstance.setNode(relationshipNode);
+            relationshipInstance.setProperties(relationshipNode.getProperties());
+            relationshipInstance.setDeployment(deployment);
+            return relationshipInstance;
+        } catch (InstantiationException e) {
+            throw new InvalidDeploymentStateException("Could not create relationship instance of type " + relationshipNode.getRelationshipType().getName(), e);
+        }
+    }
+
+    /**
+     * Generate relationship instances between the given sources and targets. If they belong to the same scaling group, sources and targets are partitioned by
+     * their scaling group instance and only instances of the same partition are linked, else every source is linked to every target.
+     *
+     * @return the generated relationship instances, the same as if every pair were checked with {@link #shouldFilterRelationship(Root, Root, Class)}
+     */
     public Set<tosca.relationships.Root> generateRelationshipsInstances(Set<Root> sourceInstances,
                                                                         Set<Root> targetInstances,
                                                                         DeploymentRelationshipNode relationshipNode,
                                                                         Deployment deployment) {
         Set<tosca.relationships.Root> newRelationshipInstances = new HashSet<>();
-        for (tosca.nodes.Root sourceInstance : sourceInstances) {
+        if (sourceInstances.isEmpty() || targetInstances.isEmpty()) {
+            return newRelationshipInstances;
+        }
+        String commonScalingGroup = null;
+        // Always generate relationship of type many to many
+        if (!ManyToMany.class.isAssignableFrom(relationshipNode.getRelationshipType())) {
+            commonScalingGroup = getCommonScalingGroup(sourceInstances.iterator().next(), targetInstances.iterator().next());
+        }
+        if (commonScalingGroup == null) {
+            for (tosca.nodes.Root sourceInstance : sourceInstances) {
+                for (tosca.nodes.Root targetInstance : targetInstances) {
+                    newRelationshipInstances.add(createRelationshipInstance(sourceInstance, targetInstance, relationshipNode, deployment));
+                }
+            }
+        } else {
+            // Only the source and the target which belong to the same instance of the scaling group are linked
+            Map<String, List<Root>> targetsByScalingGroupInstance = new HashMap<>();
             for (tosca.nodes.Root targetInstance : targetInstances) {
-                if (!shouldFilterRelationship(sourceInstance, targetInstance, relationshipNode.getRelationshipType())) {
-                    try {
-                        tosca.relationships.Root relationshipInstance = relationshipNode.getRelationshipType().newInstance();
-                        relationshipInstance.setSource(sourceInstance);
-                        relationshipInstance.setTarget(targetInstance);
-                        relationshipInstance.setNode(relationshipNode);
-                        relationshipInstance.setProperties(relationshipNode.getProperties());
-                        relationshipInstance.setDeployment(deployment);
-                        newRelationshipInstances.add(relationshipInstance);
-                    } catch (InstantiationException | IllegalAccessException e) {
-                        throw new InvalidDeploymentStateException("Could not create relationship instance of type " + relationshipNode.getRelationshipType().getName(), e);
+                targetsByScalingGroupInstance.computeIfAbsent(getAncestor(targetInstance, commonScalingGroup).getId(), key -> new ArrayList<>()).add(targetInstance);
+            }
+            for (tosca.nodes.Root sourceInstance : sourceInstances) {
+                List<Root> partitionTargets = targetsByScalingGroupInstance.get(getAncestor(sourceInstance, commonScalingGroup).getId());
+                if (partitionTargets != null) {
+                    for (tosca.nodes.Root targetInstance : partitionTargets) {
+                        newRelationshipInstances.add(createRelationshipInstance(sourceInstance, targetInstance, relationshipNode, deployment));
                     }
                 }
             }
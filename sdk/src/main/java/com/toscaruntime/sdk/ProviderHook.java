@@ -61,4 +61,13 @@ public interface ProviderHook {
      * @return true if native false otherwise
      */
     boolean isNativeType(Class<?> type);
+
+    /**
+     * Name of the provider, it's used as key of the provider's metrics
+     *
+     * @return name of the provider, the simple name of the hook's class if the provider does not declare one
+     */
+    default String getProviderName() {
+        return getClass().getSimpleName();
+    }
 }
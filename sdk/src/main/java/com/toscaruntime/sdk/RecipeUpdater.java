@@ -0,0 +1,108 @@
+package com.toscaruntime.sdk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.toscaruntime.exception.UnexpectedException;
+import com.toscaruntime.exception.deployment.artifact.ArtifactInterruptedException;
+import com.toscaruntime.util.PropertyUtil;
+import com.toscaruntime.util.RecipeSynchronizer;
+
+import tosca.nodes.Compute;
+
+/**
+ * Upload the recipe to computes on a bounded pool dedicated to uploads, computes only receive the files which changed.
+ * The total bandwidth of all uploads can be capped.
+ *
+ * @author Minh Khang VU
+ */
+public class RecipeUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipeUpdater.class);
+
+    public static final String MAX_CONCURRENT_UPLOADS_KEY = "recipe_upload_max_concurrency";
+
+    public static final String MAX_BYTES_PER_SECOND_KEY = "recipe_upload_max_bytes_per_second";
+
+    public static final String COMPRESS_KEY = "recipe_upload_compress";
+
+    public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 4;
+
+    private ThreadPoolExecutor uploaders;
+
+    /**
+     * Shared by the executors of all computes so that uploads share the bandwidth limit
+     */
+    private RecipeSynchronizer recipeSynchronizer;
+
+    /**
+     * Create the updater from the provider's properties, the bandwidth is unlimited and archives are compressed if not configured
+     *
+     * @param providerProperties properties of the provider
+     */
+    public RecipeUpdater(Map<String, String> providerProperties) {
+        String maxConcurrentUploadsValue = providerProperties != null ? PropertyUtil.getPropertyAsString(providerProperties, MAX_CONCURRENT_UPLOADS_KEY) : null;
+        String maxBytesPerSecond = providerProperties != null ? PropertyUtil.getPropertyAsString(providerProperties, MAX_BYTES_PER_SECOND_KEY) : null;
+        String compress = providerProperties != null ? PropertyUtil.getPropertyAsString(providerProperties, COMPRESS_KEY) : null;
+        int maxConcurrentUploads = maxConcurrentUploadsValue != null ? Integer.parseInt(maxConcurrentUploadsValue.trim()) : DEFAULT_MAX_CONCURRENT_UPLOADS;
+        if (maxConcurrentUploads <= 0) {
+            throw new IllegalArgumentException("Property " + MAX_CONCURRENT_UPLOADS_KEY + " must be a positive integer but is " + maxConcurrentUploadsValue);
+        }
+        this.recipeSynchronizer = new RecipeSynchronizer(maxBytesPerSecond != null ? Long.parseLong(maxBytesPerSecond.trim()) : 0, compress == null || Boolean.parseBoolean(compress.trim()));
+        AtomicInteger count = new AtomicInteger();
+        this.uploaders = new ThreadPoolExecutor(maxConcurrentUploads, maxConcurrentUploads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread t = new Thread(runnable);
+            t.setDaemon(true);
+            t.setName("RecipeUploadThread_" + count.incrementAndGet());
+            return t;
+        });
+        this.uploaders.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the synchronizer configured with the provider's properties, to be given to the executors of the computes
+     */
+    public RecipeSynchronizer getRecipeSynchronizer() {
+        return recipeSynchronizer;
+    }
+
+    /**
+     * Upload the recipe to the given computes and wait for all uploads to finish
+     *
+     * @param computes computes to update
+     */
+    public void update(Collection<Compute> computes) {
+        List<Future<?>> uploads = new ArrayList<>();
+        computes.forEach(compute -> uploads.add(uploaders.submit(compute::uploadRecipe)));
+        RuntimeException firstError = null;
+        try {
+            for (Future<?> upload : uploads) {
+                try {
+                    upload.get();
+                } catch (ExecutionException e) {
+                    log.error("Could not update recipe", e.getCause());
+                    if (firstError == null) {
+                        firstError = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new UnexpectedException("Could not update recipe", e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            uploads.forEach(upload -> upload.cancel(true));
+            throw new ArtifactInterruptedException("Recipe update has been interrupted", e);
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+}
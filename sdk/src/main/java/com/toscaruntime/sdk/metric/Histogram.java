@@ -0,0 +1,80 @@
+package com.toscaruntime.sdk.metric;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in milliseconds, values are counted in fixed buckets so that recording is lock free and the memory used does not depend on the number of values.
+ * Percentiles are estimated with the upper bound of the bucket which contains them.
+ *
+ * @author Minh Khang VU
+ */
+public class Histogram {
+
+    /**
+     * Upper bounds (inclusive) of the buckets in milliseconds, values above the last bound go to an overflow bucket
+     */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000, 600000, 1800000, 3600000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    private static int getBucketIndex(long value) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (value <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    /**
+     * @param value the duration to record in milliseconds, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(value, 0L);
+        buckets.incrementAndGet(getBucketIndex(recorded));
+        sum.add(recorded);
+        min.accumulateAndGet(recorded, Math::min);
+        max.accumulateAndGet(recorded, Math::max);
+    }
+
+    /**
+     * @return a copy of the histogram's current values, values recorded concurrently may or may not be taken into account
+     */
+    public HistogramSnapshot snapshot() {
+        long[] bucketCounts = new long[buckets.length()];
+        long snapshotCount = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = buckets.get(i);
+            snapshotCount += bucketCounts[i];
+        }
+        if (snapshotCount == 0) {
+            return new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0, new long[0], new long[0]);
+        }
+        long snapshotMax = max.get();
+        return new HistogramSnapshot(snapshotCount, sum.sum(), min.get(), snapshotMax,
+                getPercentile(bucketCounts, snapshotCount, snapshotMax, 0.5),
+                getPercentile(bucketCounts, snapshotCount, snapshotMax, 0.95),
+                getPercentile(bucketCounts, snapshotCount, snapshotMax, 0.99),
+                BUCKET_BOUNDS.clone(), bucketCounts);
+    }
+
+    private static long getPercentile(long[] bucketCounts, long totalCount, long max, double percentile) {
+        long rank = (long) Math.ceil(percentile * totalCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+}
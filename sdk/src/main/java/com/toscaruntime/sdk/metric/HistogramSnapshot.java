@@ -0,0 +1,82 @@
+package com.toscaruntime.sdk.metric;
+
+/**
+ * Immutable values of a {@link Histogram} at a given time, all durations are in milliseconds
+ *
+ * @author Minh Khang VU
+ */
+public class HistogramSnapshot {
+
+    private final long count;
+
+    private final long sum;
+
+    private final long min;
+
+    private final long max;
+
+    private final long p50;
+
+    private final long p95;
+
+    private final long p99;
+
+    private final long[] bucketBounds;
+
+    private final long[] bucketCounts;
+
+    public HistogramSnapshot(long count, long sum, long min, long max, long p50, long p95, long p99, long[] bucketBounds, long[] bucketCounts) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.bucketBounds = bucketBounds;
+        this.bucketCounts = bucketCounts;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return inclusive upper bounds of the buckets, the last bucket of {@link #getBucketCounts()} has no upper bound
+     */
+    public long[] getBucketBounds() {
+        return bucketBounds.clone();
+    }
+
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+}
@@ -0,0 +1,80 @@
+package com.toscaruntime.sdk.metric;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the deployment's metrics, histograms of durations and counters are created on first use and aggregated for the whole life of the deployment.
+ *
+ * @author Minh Khang VU
+ */
+public class MetricRegistry {
+
+    /**
+     * Time between the moment a task is ready and the moment a worker begins to run it
+     */
+    public static final String TASK_QUEUE_WAIT = "task.queue_wait";
+
+    /**
+     * Time to run a task, it's also recorded per operation with the operation's generated method name as suffix (for example task.execution.create)
+     */
+    public static final String TASK_EXECUTION = "task.execution";
+
+    /**
+     * Time between the moment a task's state transition is recorded and the moment it's persisted
+     */
+    public static final String TASK_PERSISTENCE = "task.persistence";
+
+    /**
+     * Number of times tasks have been run again after a failure or a stop
+     */
+    public static final String TASK_RETRIES = "task.retries";
+
+    /**
+     * Time to execute an artifact on a compute, it's recorded per provider with the provider's name as suffix (for example artifact.execution.docker)
+     */
+    public static final String ARTIFACT_EXECUTION = "artifact.execution";
+
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Record a duration in the histogram with the given name
+     *
+     * @param name      name of the histogram
+     * @param startTime start time given by {@link System#nanoTime()}
+     */
+    public void recordSince(String name, long startTime) {
+        histogram(name).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return snapshot of all histograms sorted by name
+     */
+    public Map<String, HistogramSnapshot> getHistograms() {
+        Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * @return current value of all counters sorted by name
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+}
@@ -1,17 +1,23 @@
 package com.toscaruntime.sdk.model;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.toscaruntime.deployment.InstanceSnapshotDTO;
 import com.toscaruntime.exception.deployment.configuration.IllegalFunctionException;
 import com.toscaruntime.sdk.Deployment;
+import com.toscaruntime.sdk.metric.MetricRegistry;
 import com.toscaruntime.util.CodeGeneratorUtil;
 import com.toscaruntime.util.FunctionUtil;
 import com.toscaruntime.util.PropertyUtil;
 
 import tosca.constants.InstanceState;
+import tosca.nodes.Compute;
 
 public abstract class AbstractRuntimeType {
     /**
@@ -38,6 +44,13 @@ public abstract class AbstractRuntimeType {
 
     protected Map<String, String> deploymentArtifacts = new HashMap<>();
 
+    private AttributeDependencies attributeDependencies = new AttributeDependencies();
+
+    /**
+     * Snapshot prefetched in bulk for the duration of the initial load, null if the instance must load its state by itself
+     */
+    private InstanceSnapshotDTO prefetchedSnapshot;
+
     public String getState() {
         return state;
     }
@@ -78,6 +91,24 @@ public abstract class AbstractRuntimeType {
      */
     public abstract void initialLoad();
 
+    /**
+     * Restore the instance's state from a snapshot prefetched in bulk for the whole deployment instead of querying the persistence for each instance
+     *
+     * @param snapshot persisted state of the instance
+     */
+    public void initialLoad(InstanceSnapshotDTO snapshot) {
+        this.prefetchedSnapshot = snapshot;
+        try {
+            initialLoad();
+        } finally {
+            this.prefetchedSnapshot = null;
+        }
+    }
+
+    protected InstanceSnapshotDTO getPrefetchedSnapshot() {
+        return prefetchedSnapshot;
+    }
+
     public Map<String, Object> getProperties() {
         return properties;
     }
@@ -112,6 +143,7 @@ public abstract class AbstractRuntimeType {
     }
 
     public String getAttributeAsString(String attributeName) {
+        attributeDependencies.recordRead(AttributeDependencies.attributeKey(attributeName));
         String attributeValue = PropertyUtil.getPropertyAsString(attributes, attributeName);
         if (StringUtils.isEmpty(attributeValue)) {
             return getPropertyAsString(attributeName);
@@ -121,6 +153,7 @@ public abstract class AbstractRuntimeType {
     }
 
     public Object getAttribute(String attributeName) {
+        attributeDependencies.recordRead(AttributeDependencies.attributeKey(attributeName));
         Object attributeValue = PropertyUtil.getProperty(attributes, attributeName, null);
         if (attributeValue == null) {
             return getProperty(attributeName);
@@ -135,6 +168,7 @@ public abstract class AbstractRuntimeType {
 
     protected String getOperationOutput(String interfaceName, String operationName, String outputName) {
         String methodName = CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName);
+        attributeDependencies.recordRead(AttributeDependencies.operationOutputsKey(methodName));
         Map<String, String> outputs = operationOutputs.get(methodName);
         if (outputs != null) {
             String output = outputs.get(outputName);
@@ -160,12 +194,71 @@ public abstract class AbstractRuntimeType {
         }
     }
 
+    /**
+     * Evaluate again the attribute definitions which have read an attribute or an operation output that changed since their last evaluation
+     */
     public void refreshAttributes() {
-        for (Map.Entry<String, AttributeDefinition> attributeDefinitionEntry : attributeDefinitions.entrySet()) {
-            setAttribute(attributeDefinitionEntry.getKey(), attributeDefinitionEntry.getValue().evaluateAttribute());
+        Set<String> notEvaluated = new HashSet<>(attributeDependencies.pollDirtyDefinitions(attributeDefinitions.keySet()));
+        try {
+            Iterator<String> notEvaluatedIterator = notEvaluated.iterator();
+            while (notEvaluatedIterator.hasNext()) {
+                String attributeName = notEvaluatedIterator.next();
+                AttributeDefinition attributeDefinition = attributeDefinitions.get(attributeName);
+                if (attributeDefinition != null) {
+                    setAttribute(attributeName, AttributeDependencies.evaluate(this, attributeName, attributeDefinition));
+                }
+                notEvaluatedIterator.remove();
+            }
+        } finally {
+            // The attribute which failed and the ones which were not reached must be tried again the next time
+            notEvaluated.forEach(attributeDependencies::markDirty);
         }
     }
 
+    /**
+     * Must be called by implementations once an attribute has been modified so that the attribute definitions that read it are refreshed
+     *
+     * @param key key of the attribute
+     */
+    protected void attributeChanged(String key) {
+        attributeDependencies.valueChanged(AttributeDependencies.attributeKey(key));
+    }
+
+    /**
+     * Must be called by implementations once outputs of an operation have been modified so that the attribute definitions that read them are refreshed
+     *
+     * @param interfaceName interface name
+     * @param operationName operation name
+     */
+    protected void operationOutputsChanged(String interfaceName, String operationName) {
+        attributeDependencies.valueChanged(AttributeDependencies.operationOutputsKey(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName)));
+    }
+
+    /**
+     * Execute an operation's artifact on the given compute, the time it takes is recorded in the deployment's metrics
+     *
+     * @param host                  the compute where the artifact is executed
+     * @param nodeId                id of the instance which owns the operation
+     * @param operationArtifactPath path of the artifact
+     * @param inputs                inputs of the operation
+     * @param deploymentArtifacts   deployment artifacts available to the operation
+     * @return outputs of the operation
+     */
+    protected Map<String, String> executeOnHost(Compute host, String nodeId, String operationArtifactPath, Map<String, Object> inputs, Map<String, String> deploymentArtifacts) {
+        long startTime = System.nanoTime();
+        try {
+            return host.execute(nodeId, operationArtifactPath, inputs, deploymentArtifacts);
+        } finally {
+            if (deployment != null) {
+                deployment.getMetricRegistry().recordSince(MetricRegistry.ARTIFACT_EXECUTION + "." + deployment.getProviderHook().getProviderName(), startTime);
+            }
+        }
+    }
+
+    AttributeDependencies getAttributeDependencies() {
+        return attributeDependencies;
+    }
+
     public Map<String, String> getDeploymentArtifacts() {
         return deploymentArtifacts;
     }
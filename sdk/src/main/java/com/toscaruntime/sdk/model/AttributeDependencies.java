@@ -0,0 +1,146 @@
+package com.toscaruntime.sdk.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Track, for a runtime type's instance, which attribute definitions have read its values (attributes and operation outputs) the last time they were evaluated.
+ * When a value changes, only the attribute definitions which have read it are marked to be evaluated again at the next refresh.
+ * Properties and inputs do not change once the deployment is initialized and so are not tracked.
+ *
+ * @author Minh Khang VU
+ */
+class AttributeDependencies {
+
+    /**
+     * The attribute definition being evaluated by the current thread
+     */
+    private static final ThreadLocal<Dependent> currentEvaluation = new ThreadLocal<>();
+
+    private final Map<String, Set<Dependent>> dependentsByValue = new ConcurrentHashMap<>();
+
+    private final Set<String> dirtyDefinitions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean evaluatedOnce = false;
+
+    static String attributeKey(String attributePath) {
+        // Nested paths are tracked by their root attribute
+        int end = attributePath.length();
+        int dotIndex = attributePath.indexOf('.');
+        if (dotIndex > 0) {
+            end = dotIndex;
+        }
+        int bracketIndex = attributePath.indexOf('[');
+        if (bracketIndex > 0 && bracketIndex < end) {
+            end = bracketIndex;
+        }
+        return "attribute:" + attributePath.substring(0, end);
+    }
+
+    static String operationOutputsKey(String operationMethodName) {
+        return "output:" + operationMethodName;
+    }
+
+    /**
+     * Record that the attribute definition being evaluated, if any, reads the given value of the tracked instance
+     *
+     * @param valueKey key of the value read
+     */
+    void recordRead(String valueKey) {
+        Dependent dependent = currentEvaluation.get();
+        if (dependent != null) {
+            dependentsByValue.computeIfAbsent(valueKey, key -> ConcurrentHashMap.newKeySet()).add(dependent);
+        }
+    }
+
+    /**
+     * Mark to be evaluated again all attribute definitions which have read the given value of the tracked instance. They will register again what they read when evaluated.
+     *
+     * @param valueKey key of the value which has changed
+     */
+    void valueChanged(String valueKey) {
+        Set<Dependent> dependents = dependentsByValue.remove(valueKey);
+        if (dependents != null) {
+            dependents.forEach(dependent -> dependent.owner.getAttributeDependencies().markDirty(dependent.attributeName));
+        }
+    }
+
+    /**
+     * Mark an attribute definition of the tracked instance to be evaluated at the next refresh
+     *
+     * @param attributeName name of the attribute
+     */
+    void markDirty(String attributeName) {
+        dirtyDefinitions.add(attributeName);
+    }
+
+    /**
+     * @param allDefinitions all attribute definitions of the tracked instance
+     * @return the attribute definitions which must be evaluated, they are no longer dirty once returned
+     */
+    Set<String> pollDirtyDefinitions(Set<String> allDefinitions) {
+        if (!evaluatedOnce) {
+            // Nothing is known before the first evaluation
+            evaluatedOnce = true;
+            dirtyDefinitions.addAll(allDefinitions);
+        }
+        if (dirtyDefinitions.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> polled = new HashSet<>();
+        for (String definition : dirtyDefinitions) {
+            // Only one thread claims a dirty definition when refreshes happen concurrently
+            if (dirtyDefinitions.remove(definition)) {
+                polled.add(definition);
+            }
+        }
+        return polled;
+    }
+
+    /**
+     * Evaluate an attribute definition of the given instance while recording the values that it reads
+     *
+     * @param owner         instance which owns the definition
+     * @param attributeName name of the attribute
+     * @param definition    definition of the attribute
+     * @return the evaluated value
+     */
+    static Object evaluate(AbstractRuntimeType owner, String attributeName, AttributeDefinition definition) {
+        Dependent previous = currentEvaluation.get();
+        currentEvaluation.set(new Dependent(owner, attributeName));
+        try {
+            return definition.evaluateAttribute();
+        } finally {
+            currentEvaluation.set(previous);
+        }
+    }
+
+    private static class Dependent {
+
+        private final AbstractRuntimeType owner;
+
+        private final String attributeName;
+
+        private Dependent(AbstractRuntimeType owner, String attributeName) {
+            this.owner = owner;
+            this.attributeName = attributeName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Dependent dependent = (Dependent) o;
+            return owner == dependent.owner && attributeName.equals(dependent.attributeName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(owner), attributeName);
+        }
+    }
+}
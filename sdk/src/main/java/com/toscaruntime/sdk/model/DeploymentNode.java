@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.toscaruntime.sdk.Deployment;
 
@@ -27,7 +28,7 @@ public class DeploymentNode {
 
     private Map<String, Map<String, Object>> capabilitiesProperties = new HashMap<>();
 
-    private Set<Root> instances = new HashSet<>();
+    private Set<Root> instances = ConcurrentHashMap.newKeySet();
 
     private int instancesCount;
 
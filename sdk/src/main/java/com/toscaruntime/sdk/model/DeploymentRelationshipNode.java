@@ -1,8 +1,8 @@
 package com.toscaruntime.sdk.model;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import tosca.relationships.Root;
 
@@ -16,7 +16,7 @@ public class DeploymentRelationshipNode {
 
     private Map<String, Object> properties;
 
-    private Set<Root> relationshipInstances = new HashSet<>();
+    private Set<Root> relationshipInstances = ConcurrentHashMap.newKeySet();
 
     public String getSourceNodeId() {
         return sourceNodeId;
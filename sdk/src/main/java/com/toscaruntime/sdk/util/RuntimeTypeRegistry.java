@@ -0,0 +1,130 @@
+package com.toscaruntime.sdk.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.toscaruntime.sdk.model.AbstractRuntimeType;
+import com.toscaruntime.util.CaseUtil;
+
+/**
+ * Cache of method handles to create runtime types' instances and to invoke their operations. Generated types register once per class a method reference for each of their operations,
+ * operations of hand written types (for example types implemented natively by providers) are resolved once per type by reflection.
+ *
+ * @author Minh Khang VU
+ */
+public class RuntimeTypeRegistry {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType OPERATION_TYPE = MethodType.methodType(void.class, AbstractRuntimeType.class);
+
+    private static final ClassValue<MethodHandle> constructors = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // Resolution failure is reported each time an instance is asked for
+                return null;
+            }
+        }
+    };
+
+    /**
+     * Operation's generated method name to method reference, for each generated type, only the operations declared by the type itself are registered
+     */
+    private static final ClassValue<Map<String, Consumer<AbstractRuntimeType>>> declaredOperations = new ClassValue<Map<String, Consumer<AbstractRuntimeType>>>() {
+        @Override
+        protected Map<String, Consumer<AbstractRuntimeType>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Operation's generated method name to handle, for each hand written type
+     */
+    private static final ClassValue<Map<String, MethodHandle>> operations = new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * Create a new instance of the given type with its public no-arg constructor
+     *
+     * @param type the type to instantiate
+     * @return the new instance
+     * @throws InstantiationException if the type cannot be instantiated
+     */
+    public static <T> T newInstance(Class<T> type) throws InstantiationException {
+        MethodHandle constructor = constructors.get(type);
+        if (constructor == null) {
+            throw new InstantiationException("Type " + type.getName() + " does not have any public no-arg constructor");
+        }
+        try {
+            return type.cast(constructor.invokeExact());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            InstantiationException instantiationException = new InstantiationException("Could not instantiate type " + type.getName());
+            instantiationException.initCause(e);
+            throw instantiationException;
+        }
+    }
+
+    /**
+     * Register an operation of a generated type, it's called once from the static initializer of the type
+     *
+     * @param type       the generated type which declares the operation
+     * @param methodName the generated method name of the operation
+     * @param operation  method reference to the operation
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends AbstractRuntimeType> void registerOperation(Class<T> type, String methodName, Consumer<T> operation) {
+        declaredOperations.get(type).put(methodName, (Consumer<AbstractRuntimeType>) operation);
+    }
+
+    /**
+     * The registered operation of the nearest generated type in the hierarchy, the method reference is virtual so it invokes the override of the instance's type if any
+     */
+    private static Consumer<AbstractRuntimeType> getRegisteredOperation(Class<?> type, String methodName) {
+        for (Class<?> currentType = type; currentType != null && AbstractRuntimeType.class.isAssignableFrom(currentType); currentType = currentType.getSuperclass()) {
+            Consumer<AbstractRuntimeType> operation = declaredOperations.get(currentType).get(methodName);
+            if (operation != null) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Invoke an operation of a runtime type's instance, from the registered method reference if it's a generated type or else from the cached method handle of its type.
+     * Exceptions thrown by the operation are rethrown as is.
+     *
+     * @param runtimeType the instance
+     * @param methodName  the generated method name of the operation (see {@link com.toscaruntime.util.CodeGeneratorUtil#getGeneratedMethodName(String, String)})
+     * @throws NoSuchMethodException if the type does not implement the operation
+     * @throws IllegalAccessException if the method which implements the operation is not accessible
+     */
+    public static void invokeOperation(AbstractRuntimeType runtimeType, String methodName) throws Throwable {
+        Consumer<AbstractRuntimeType> operation = getRegisteredOperation(runtimeType.getClass(), methodName);
+        if (operation != null) {
+            operation.accept(runtimeType);
+        } else {
+            Map<String, MethodHandle> typeOperations = operations.get(runtimeType.getClass());
+            MethodHandle handle = typeOperations.get(methodName);
+            if (handle == null) {
+                handle = MethodHandles.publicLookup()
+                        .unreflect(runtimeType.getClass().getMethod(CaseUtil.lowerUnderscoreToCamelCase(methodName)))
+                        .asType(OPERATION_TYPE);
+                typeOperations.put(methodName, handle);
+            }
+            handle.invokeExact(runtimeType);
+        }
+    }
+}
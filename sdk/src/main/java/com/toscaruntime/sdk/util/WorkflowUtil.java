@@ -7,24 +7,19 @@ import com.toscaruntime.sdk.model.DeploymentNode;
 import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
 import com.toscaruntime.sdk.workflow.tasks.InstallLifeCycleTasks;
 import com.toscaruntime.sdk.workflow.tasks.MockNodeTask;
-import com.toscaruntime.sdk.workflow.tasks.MockRelationshipTask;
 import com.toscaruntime.sdk.workflow.tasks.RelationshipInstallLifeCycleTasks;
 import com.toscaruntime.sdk.workflow.tasks.RelationshipUninstallLifeCycleTasks;
 import com.toscaruntime.sdk.workflow.tasks.UninstallLifeCycleTasks;
 import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
-import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
-import com.toscaruntime.util.CaseUtil;
 import com.toscaruntime.util.CodeGeneratorUtil;
 import org.apache.commons.lang.StringUtils;
 import tosca.nodes.Root;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class WorkflowUtil {
 
@@ -65,34 +60,38 @@ public class WorkflowUtil {
         }
     }
 
-    private static AbstractTask[] getNodeInstallTasks(DeploymentNode node, Map<Root, InstallLifeCycleTasks> allNodesTasks, Function<InstallLifeCycleTasks, AbstractTask> taskExtractor) {
-        List<AbstractTask> result = node.getInstances().stream()
-                .filter(allNodesTasks::containsKey)
-                .map(allNodesTasks::get)
-                .map(taskExtractor)
-                .collect(Collectors.toList());
-        return result.toArray(new AbstractTask[result.size()]);
-    }
-
-    private static AbstractTask[] getNodeUninstallTasks(DeploymentNode node, Map<Root, UninstallLifeCycleTasks> allNodesTasks, Function<UninstallLifeCycleTasks, AbstractTask> taskExtractor) {
-        List<AbstractTask> result = node.getInstances().stream()
-                .filter(allNodesTasks::containsKey)
-                .map(allNodesTasks::get)
-                .map(taskExtractor)
-                .collect(Collectors.toList());
-        return result.toArray(new AbstractTask[result.size()]);
-    }
-
-    public static void declareNodeInstallDependencies(InstallLifeCycleTasks installLifeCycleTasks, Map<Root, InstallLifeCycleTasks> allNodesTasks) {
-        // Configure is executed after create
-        installLifeCycleTasks.getConfigureTask().dependsOn(getNodeInstallTasks(installLifeCycleTasks.getNodeInstance().getNode(), allNodesTasks, InstallLifeCycleTasks::getCreateTask));
-        // Start is executed after configure
-        installLifeCycleTasks.getStartTask().dependsOn(getNodeInstallTasks(installLifeCycleTasks.getNodeInstance().getNode(), allNodesTasks, InstallLifeCycleTasks::getConfigureTask));
+    /**
+     * For each node, tasks of the node's instances that belong to the workflow. It's computed once per node and not once per instance as all instances of a node share the same dependencies.
+     */
+    private static <T> Map<DeploymentNode, AbstractTask[]> groupTasksByNode(Collection<Root> nodeInstances, Map<Root, T> allNodesTasks, Function<T, AbstractTask> taskExtractor) {
+        Map<DeploymentNode, AbstractTask[]> tasksByNode = new HashMap<>();
+        for (Root nodeInstance : nodeInstances) {
+            tasksByNode.computeIfAbsent(nodeInstance.getNode(), node -> node.getInstances().stream()
+                    .filter(allNodesTasks::containsKey)
+                    .map(instance -> taskExtractor.apply(allNodesTasks.get(instance)))
+                    .toArray(AbstractTask[]::new));
+        }
+        return tasksByNode;
+    }
+
+    public static void declareNodesInstallDependencies(Collection<Root> nodeInstances, Map<Root, InstallLifeCycleTasks> allNodesTasks) {
+        Map<DeploymentNode, AbstractTask[]> createTasks = groupTasksByNode(nodeInstances, allNodesTasks, InstallLifeCycleTasks::getCreateTask);
+        Map<DeploymentNode, AbstractTask[]> configureTasks = groupTasksByNode(nodeInstances, allNodesTasks, InstallLifeCycleTasks::getConfigureTask);
+        for (Root nodeInstance : nodeInstances) {
+            InstallLifeCycleTasks installLifeCycleTasks = allNodesTasks.get(nodeInstance);
+            // Configure is executed after create
+            installLifeCycleTasks.getConfigureTask().dependsOn(createTasks.get(nodeInstance.getNode()));
+            // Start is executed after configure
+            installLifeCycleTasks.getStartTask().dependsOn(configureTasks.get(nodeInstance.getNode()));
+        }
     }
 
-    public static void declareNodeUninstallDependencies(UninstallLifeCycleTasks uninstallLifeCycleTasks, Map<Root, UninstallLifeCycleTasks> allNodesTasks) {
-        // Delete is executed after stop
-        uninstallLifeCycleTasks.getDeleteTask().dependsOn(getNodeUninstallTasks(uninstallLifeCycleTasks.getNodeInstance().getNode(), allNodesTasks, UninstallLifeCycleTasks::getStopTask));
+    public static void declareNodesUninstallDependencies(Collection<Root> nodeInstances, Map<Root, UninstallLifeCycleTasks> allNodesTasks) {
+        Map<DeploymentNode, AbstractTask[]> stopTasks = groupTasksByNode(nodeInstances, allNodesTasks, UninstallLifeCycleTasks::getStopTask);
+        for (Root nodeInstance : nodeInstances) {
+            // Delete is executed after stop
+            allNodesTasks.get(nodeInstance).getDeleteTask().dependsOn(stopTasks.get(nodeInstance.getNode()));
+        }
     }
 
     public static void declareRelationshipInstallDependencies(RelationshipInstallLifeCycleTasks relationshipInstallLifeCycleTasks, InstallLifeCycleTasks sourceInstallLifeCycleTasks, InstallLifeCycleTasks targetInstallLifeCycleTasks) {
@@ -178,41 +177,18 @@ public class WorkflowUtil {
         return new InstallLifeCycleTasks(createTask, configureTask, startTask, nodeInstance);
     }
 
-    public static RelationshipInstallLifeCycleTasks mockRelationshipInstallLifeCycleTasks(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, tosca.relationships.Root relationshipInstance) {
-        AbstractRelationshipTask preConfigureSourceTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.PRE_CONFIGURE_SOURCE_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask preConfigureTargetTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.PRE_CONFIGURE_TARGET_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask postConfigureSourceTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.POST_CONFIGURE_SOURCE_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask postConfigureTargetTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.POST_CONFIGURE_TARGET_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask addSourceTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.ADD_SOURCE_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask addTargetTask = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.ADD_TARGET_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        return new RelationshipInstallLifeCycleTasks(preConfigureSourceTask, preConfigureTargetTask, postConfigureSourceTask, postConfigureTargetTask, addSourceTask, addTargetTask);
-    }
-
     public static UninstallLifeCycleTasks mockUninstallLifeCycleTasks(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, Root nodeInstance) {
         AbstractNodeTask stopTask = new MockNodeTask(ToscaInterfaceConstant.NODE_STANDARD_INTERFACE, ToscaInterfaceConstant.STOP_OPERATION, nodeInstances, relationshipInstances, nodeInstance);
         AbstractNodeTask deleteTask = new MockNodeTask(ToscaInterfaceConstant.NODE_STANDARD_INTERFACE, ToscaInterfaceConstant.DELETE_OPERATION, nodeInstances, relationshipInstances, nodeInstance);
         return new UninstallLifeCycleTasks(stopTask, deleteTask, nodeInstance);
     }
 
-    public static RelationshipUninstallLifeCycleTasks mockRelationshipUninstallLifeCycleTasks(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, tosca.relationships.Root relationshipInstance) {
-        AbstractRelationshipTask removeSource = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.REMOVE_SOURCE_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        AbstractRelationshipTask removeTarget = new MockRelationshipTask(ToscaInterfaceConstant.RELATIONSHIP_STANDARD_INTERFACE, ToscaInterfaceConstant.REMOVE_TARGET_OPERATION, nodeInstances, relationshipInstances, relationshipInstance);
-        return new RelationshipUninstallLifeCycleTasks(removeSource, removeTarget);
-    }
-
     public static void invokeRuntimeTypeMethod(AbstractRuntimeType runtimeType, Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, String interfaceName, String operationName) throws Throwable {
         try {
-            Method method = runtimeType.getClass().getMethod(CaseUtil.lowerUnderscoreToCamelCase(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName)));
-            method.invoke(runtimeType);
+            RuntimeTypeRegistry.invokeOperation(runtimeType, CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName));
             WorkflowUtil.refreshAttributes(nodeInstances, relationshipInstances);
         } catch (IllegalAccessException | NoSuchMethodException e) {
             throw new InvalidWorkflowCommandException(e.getMessage(), e);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() != null) {
-                throw e.getCause();
-            } else {
-                throw e;
-            }
         }
     }
 }
@@ -0,0 +1,334 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.sdk.ProviderHook;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
+import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
+import com.toscaruntime.util.PropertyUtil;
+import tosca.nodes.Compute;
+import tosca.nodes.Root;
+
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Default {@link TaskExecutorFactory}, all workflow executions of the deployment share a bounded pool of workers.
+ * Tasks are queued by the resource they act on: the compute which hosts the concerned instance, or the provider for instances that it manages natively.
+ * Each queue has its own concurrency limit and queues are served in round robin, so that a wide workflow on one host does not starve the others.
+ *
+ * @author Minh Khang VU
+ */
+public class BoundedTaskExecutorFactory implements TaskExecutorFactory {
+
+    public static final String MAX_WORKERS_KEY = "workflow_max_workers";
+
+    public static final String MAX_TASKS_PER_COMPUTE_KEY = "workflow_max_tasks_per_compute";
+
+    public static final String MAX_PROVIDER_TASKS_KEY = "workflow_max_provider_tasks";
+
+    public static final int DEFAULT_MAX_WORKERS = 64;
+
+    public static final int DEFAULT_MAX_TASKS_PER_COMPUTE = 8;
+
+    public static final int DEFAULT_MAX_PROVIDER_TASKS = 16;
+
+    private static final String PROVIDER_QUEUE_KEY = "provider";
+
+    private static final String GENERIC_QUEUE_KEY = "generic";
+
+    private ProviderHook providerHook;
+
+    private int maxWorkers;
+
+    private int maxTasksPerCompute;
+
+    private int maxProviderTasks;
+
+    private ThreadPoolExecutor workers;
+
+    private ReentrantLock lock = new ReentrantLock();
+
+    private Map<String, TaskQueue> queues = new HashMap<>();
+
+    /**
+     * Queues which have waiting tasks and which have not reached their limit, in the order they will be served
+     */
+    private Deque<TaskQueue> servedQueues = new ArrayDeque<>();
+
+    private int runningCount = 0;
+
+    private long submittedCount = 0;
+
+    public BoundedTaskExecutorFactory(ProviderHook providerHook, int maxWorkers, int maxTasksPerCompute, int maxProviderTasks) {
+        this.providerHook = providerHook;
+        this.maxWorkers = maxWorkers;
+        this.maxTasksPerCompute = maxTasksPerCompute;
+        this.maxProviderTasks = maxProviderTasks;
+        AtomicInteger count = new AtomicInteger();
+        // At most max workers tasks are handed to the pool at the same time, so its queue never grows beyond that
+        this.workers = new ThreadPoolExecutor(maxWorkers, maxWorkers, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread t = new Thread(runnable);
+            t.setDaemon(true);
+            t.setName("WorkflowThread_" + count.incrementAndGet());
+            return t;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Create the factory from the provider's properties, limits which are not configured take their default values
+     *
+     * @param providerHook       hook of the provider, used to know which instances are natively managed by the provider
+     * @param providerProperties properties of the provider
+     */
+    public BoundedTaskExecutorFactory(ProviderHook providerHook, Map<String, String> providerProperties) {
+        this(providerHook,
+                getLimit(providerProperties, MAX_WORKERS_KEY, DEFAULT_MAX_WORKERS),
+                getLimit(providerProperties, MAX_TASKS_PER_COMPUTE_KEY, DEFAULT_MAX_TASKS_PER_COMPUTE),
+                getLimit(providerProperties, MAX_PROVIDER_TASKS_KEY, DEFAULT_MAX_PROVIDER_TASKS));
+    }
+
+    private static int getLimit(Map<String, String> providerProperties, String key, int defaultValue) {
+        String value = providerProperties != null ? PropertyUtil.getPropertyAsString(providerProperties, key) : null;
+        if (value == null) {
+            return defaultValue;
+        }
+        int limit = Integer.parseInt(value.trim());
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Property " + key + " must be a positive integer but is " + value);
+        }
+        return limit;
+    }
+
+    @Override
+    public TaskExecutor createTaskExecutor(String workflowId) {
+        return new BoundedTaskExecutor();
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public int getMaxTasksPerCompute() {
+        return maxTasksPerCompute;
+    }
+
+    public int getMaxProviderTasks() {
+        return maxProviderTasks;
+    }
+
+    private String getQueueKey(Root instance) {
+        if (providerHook != null && providerHook.isNativeType(instance.getClass())) {
+            return PROVIDER_QUEUE_KEY;
+        }
+        Compute host = instance.getComputableHost();
+        return host != null ? "compute:" + host.getId() : GENERIC_QUEUE_KEY;
+    }
+
+    private String getQueueKey(AbstractTask task) {
+        if (task instanceof AbstractNodeTask) {
+            return getQueueKey(((AbstractNodeTask) task).getNodeInstance());
+        } else if (task instanceof AbstractRelationshipTask) {
+            AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
+            tosca.relationships.Root relationshipInstance = relationshipTask.getRelationshipInstance();
+            if (tosca.relationships.Root.isSourceOperation(relationshipTask.getOperationName())) {
+                return getQueueKey(relationshipInstance.getSource());
+            } else {
+                return getQueueKey(relationshipInstance.getTarget());
+            }
+        } else {
+            return GENERIC_QUEUE_KEY;
+        }
+    }
+
+    private int getQueueLimit(String key) {
+        switch (key) {
+            case PROVIDER_QUEUE_KEY:
+                return maxProviderTasks;
+            case GENERIC_QUEUE_KEY:
+                return maxWorkers;
+            default:
+                return maxTasksPerCompute;
+        }
+    }
+
+    private void markServable(TaskQueue queue) {
+        if (!queue.served && !queue.waiting.isEmpty() && queue.runningCount < queue.limit) {
+            queue.served = true;
+            servedQueues.add(queue);
+        }
+    }
+
+    private void dispatch() {
+        while (runningCount < maxWorkers && !servedQueues.isEmpty()) {
+            TaskQueue queue = servedQueues.poll();
+            queue.served = false;
+            QueuedTask queuedTask = queue.waiting.poll();
+            queue.runningCount++;
+            runningCount++;
+            queuedTask.executor.running.add(queuedTask);
+            // Put back the queue at the end of the line if it can still run tasks
+            markServable(queue);
+            workers.execute(queuedTask);
+        }
+    }
+
+    private void submit(BoundedTaskExecutor executor, AbstractTask task, Runnable runnable) {
+        try {
+            lock.lock();
+            if (executor.isShutdown) {
+                throw new RejectedExecutionException("Executor of the workflow has been shut down");
+            }
+            String key = getQueueKey(task);
+            TaskQueue queue = queues.computeIfAbsent(key, k -> new TaskQueue(getQueueLimit(k)));
+            queue.waiting.add(new QueuedTask(executor, queue, runnable, task.getPriority(), submittedCount++));
+            markServable(queue);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onStarted(QueuedTask queuedTask) {
+        try {
+            lock.lock();
+            queuedTask.runner = Thread.currentThread();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onFinished(QueuedTask queuedTask) {
+        try {
+            lock.lock();
+            queuedTask.runner = null;
+            queuedTask.executor.running.remove(queuedTask);
+            TaskQueue queue = queuedTask.queue;
+            queue.runningCount--;
+            runningCount--;
+            markServable(queue);
+            if (queue.waiting.isEmpty() && queue.runningCount == 0) {
+                // Do not keep queues of computes which might have been deleted
+                queues.values().remove(queue);
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Runnable> shutdownNow(BoundedTaskExecutor executor) {
+        try {
+            lock.lock();
+            executor.isShutdown = true;
+            List<Runnable> neverRun = new ArrayList<>();
+            for (Iterator<TaskQueue> queueIterator = queues.values().iterator(); queueIterator.hasNext(); ) {
+                TaskQueue queue = queueIterator.next();
+                for (Iterator<QueuedTask> taskIterator = queue.waiting.iterator(); taskIterator.hasNext(); ) {
+                    QueuedTask queuedTask = taskIterator.next();
+                    if (queuedTask.executor == executor) {
+                        taskIterator.remove();
+                        neverRun.add(queuedTask.runnable);
+                    }
+                }
+                if (queue.waiting.isEmpty()) {
+                    if (queue.served) {
+                        queue.served = false;
+                        servedQueues.remove(queue);
+                    }
+                    if (queue.runningCount == 0) {
+                        queueIterator.remove();
+                    }
+                }
+            }
+            executor.running.stream().filter(queuedTask -> queuedTask.runner != null).forEach(queuedTask -> queuedTask.runner.interrupt());
+            return neverRun;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class TaskQueue {
+
+        private int limit;
+
+        /**
+         * Tasks with higher priority are run first, tasks with the same priority are run in the order they were submitted
+         */
+        private Queue<QueuedTask> waiting = new PriorityQueue<>(Comparator.comparingLong((QueuedTask queuedTask) -> queuedTask.priority).reversed().thenComparingLong(queuedTask -> queuedTask.sequence));
+
+        private int runningCount = 0;
+
+        private boolean served = false;
+
+        private TaskQueue(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    private class QueuedTask implements Runnable {
+
+        private BoundedTaskExecutor executor;
+
+        private TaskQueue queue;
+
+        private Runnable runnable;
+
+        private long priority;
+
+        private long sequence;
+
+        private Thread runner;
+
+        private QueuedTask(BoundedTaskExecutor executor, TaskQueue queue, Runnable runnable, long priority, long sequence) {
+            this.executor = executor;
+            this.queue = queue;
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            onStarted(this);
+            try {
+                runnable.run();
+            } finally {
+                onFinished(this);
+            }
+        }
+    }
+
+    /**
+     * The view of a workflow execution on the shared workers
+     */
+    private class BoundedTaskExecutor implements TaskExecutor {
+
+        private volatile boolean isShutdown = false;
+
+        /**
+         * Tasks of this executor which have been handed to the workers, guarded by the factory's lock
+         */
+        private Set<QueuedTask> running = new HashSet<>();
+
+        @Override
+        public void execute(AbstractTask task, Runnable runnable) {
+            submit(this, task, runnable);
+        }
+
+        @Override
+        public void shutdown() {
+            isShutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return BoundedTaskExecutorFactory.this.shutdownNow(this);
+        }
+    }
+}
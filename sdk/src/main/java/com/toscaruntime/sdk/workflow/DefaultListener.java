@@ -28,7 +28,7 @@ public class DefaultListener implements Listener {
     @Override
     public void onStop() {
         if (!this.workflowExecution.isTransient()) {
-            deploymentPersister.syncStopRunningExecution();
+            deploymentPersister.syncStopExecution(this.workflowExecution.getExecutionId());
         }
         log.info("Execution for {} workflow has been stopped", this.workflowExecution.getWorkflowId());
     }
@@ -36,7 +36,7 @@ public class DefaultListener implements Listener {
     @Override
     public void onCancel() {
         if (!this.workflowExecution.isTransient()) {
-            deploymentPersister.syncCancelRunningExecution();
+            deploymentPersister.syncCancelExecution(this.workflowExecution.getExecutionId());
         }
         log.info("Execution for {} workflow has been cancelled", this.workflowExecution.getWorkflowId());
     }
@@ -44,7 +44,7 @@ public class DefaultListener implements Listener {
     @Override
     public void onFinish() {
         if (!this.workflowExecution.isTransient()) {
-            deploymentPersister.syncFinishRunningExecution();
+            deploymentPersister.syncFinishExecution(this.workflowExecution.getExecutionId());
         }
         log.info("Execution for {} workflow has finished successfully", this.workflowExecution.getWorkflowId());
     }
@@ -53,7 +53,7 @@ public class DefaultListener implements Listener {
     public void onFailure(Collection<Throwable> errors) {
         errors.forEach(error -> log.error("Execution for workflow " + this.workflowExecution.getWorkflowId() + " encountered error", error));
         if (!this.workflowExecution.isTransient()) {
-            deploymentPersister.syncStopRunningExecution(errors.stream().map(Throwable::getMessage).collect(Collectors.joining(", ")));
+            deploymentPersister.syncStopExecution(this.workflowExecution.getExecutionId(), errors.stream().map(Throwable::getMessage).collect(Collectors.joining(", ")));
         }
     }
 }
@@ -0,0 +1,83 @@
+package com.toscaruntime.sdk.workflow;
+
+/**
+ * Transition of a workflow execution or of one of its tasks, the status is one of {@link com.toscaruntime.constant.ExecutionConstant}
+ *
+ * @author Minh Khang VU
+ */
+public class ExecutionEvent {
+
+    public static final String EXECUTION_TYPE = "execution";
+
+    public static final String TASK_TYPE = "task";
+
+    private final String executionId;
+
+    private final String workflowId;
+
+    private final String type;
+
+    private final String task;
+
+    private final String status;
+
+    private final String error;
+
+    private final long timestamp = System.currentTimeMillis();
+
+    private ExecutionEvent(String executionId, String workflowId, String type, String task, String status, String error) {
+        this.executionId = executionId;
+        this.workflowId = workflowId;
+        this.type = type;
+        this.task = task;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static ExecutionEvent execution(String executionId, String workflowId, String status, String error) {
+        return new ExecutionEvent(executionId, workflowId, EXECUTION_TYPE, null, status, error);
+    }
+
+    public static ExecutionEvent task(String executionId, String workflowId, String task, String status, String error) {
+        return new ExecutionEvent(executionId, workflowId, TASK_TYPE, task, status, error);
+    }
+
+    /**
+     * @return id of the execution in the data source, null for a transient execution
+     */
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public String getWorkflowId() {
+        return workflowId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return description of the task for a task event, null for an execution event
+     */
+    public String getTask() {
+        return task;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " event " + status + " of execution " + executionId + (task != null ? " for " + task : "");
+    }
+}
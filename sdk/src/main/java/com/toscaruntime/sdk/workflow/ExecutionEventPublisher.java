@@ -0,0 +1,39 @@
+package com.toscaruntime.sdk.workflow;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publish the transitions of the deployment's workflow executions to subscribers as they happen.
+ * Subscribers are called on the thread which makes the transition, they must not block.
+ *
+ * @author Minh Khang VU
+ */
+public class ExecutionEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionEventPublisher.class);
+
+    private final Set<Consumer<ExecutionEvent>> subscribers = ConcurrentHashMap.newKeySet();
+
+    public void subscribe(Consumer<ExecutionEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<ExecutionEvent> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public void publish(ExecutionEvent event) {
+        for (Consumer<ExecutionEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (Throwable e) {
+                log.error("Subscriber failed to handle " + event, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
+import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
+import tosca.relationships.Root;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The part of the deployment that a workflow execution works on. Two executions can run at the same time only if their footprints do not overlap.
+ * An exclusive execution (install, uninstall, teardown) overlaps with any other execution, a structural execution (scale) adds or deletes instances
+ * and so overlaps with any other structural execution, else executions overlap if they have node instances in common.
+ *
+ * @author Minh Khang VU
+ */
+public class ExecutionFootprint {
+
+    private final boolean exclusive;
+
+    private final boolean structural;
+
+    private final Set<String> nodeInstanceIds;
+
+    ExecutionFootprint(Collection<AbstractTask> tasks, boolean exclusive, boolean structural) {
+        this.exclusive = exclusive;
+        this.structural = structural;
+        Set<String> ids = new HashSet<>();
+        for (AbstractTask task : tasks) {
+            if (task instanceof AbstractNodeTask) {
+                ids.add(((AbstractNodeTask) task).getNodeInstance().getId());
+            } else if (task instanceof AbstractRelationshipTask) {
+                Root relationshipInstance = ((AbstractRelationshipTask) task).getRelationshipInstance();
+                ids.add(relationshipInstance.getSource().getId());
+                ids.add(relationshipInstance.getTarget().getId());
+            }
+        }
+        this.nodeInstanceIds = Collections.unmodifiableSet(ids);
+    }
+
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    public boolean isStructural() {
+        return structural;
+    }
+
+    /**
+     * @return ids of the node instances concerned by the execution's tasks, directly or through a relationship
+     */
+    public Set<String> getNodeInstanceIds() {
+        return nodeInstanceIds;
+    }
+
+    public boolean overlaps(ExecutionFootprint other) {
+        if (exclusive || other.exclusive || (structural && other.structural)) {
+            return true;
+        }
+        Set<String> smaller = nodeInstanceIds.size() <= other.nodeInstanceIds.size() ? nodeInstanceIds : other.nodeInstanceIds;
+        Set<String> larger = smaller == nodeInstanceIds ? other.nodeInstanceIds : nodeInstanceIds;
+        return smaller.stream().anyMatch(larger::contains);
+    }
+}
@@ -0,0 +1,48 @@
+package com.toscaruntime.sdk.workflow;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import com.toscaruntime.constant.ExecutionConstant;
+
+/**
+ * Publish the end of a workflow execution, it must be added after the {@link DefaultListener} so that the outcome is published once it has been persisted
+ *
+ * @author Minh Khang VU
+ */
+public class PublishingListener implements Listener {
+
+    private ExecutionEventPublisher publisher;
+
+    private WorkflowExecution workflowExecution;
+
+    public PublishingListener(ExecutionEventPublisher publisher, WorkflowExecution workflowExecution) {
+        this.publisher = publisher;
+        this.workflowExecution = workflowExecution;
+    }
+
+    private void publish(String status, String error) {
+        publisher.publish(ExecutionEvent.execution(workflowExecution.getExecutionId(), workflowExecution.getWorkflowId(), status, error));
+    }
+
+    @Override
+    public void onStop() {
+        publish(ExecutionConstant.STOPPED, null);
+    }
+
+    @Override
+    public void onCancel() {
+        publish(ExecutionConstant.CANCELED, null);
+    }
+
+    @Override
+    public void onFinish() {
+        publish(ExecutionConstant.SUCCESS, null);
+    }
+
+    @Override
+    public void onFailure(Collection<Throwable> errors) {
+        // As for the persisted execution, an execution in error is stopped and can be resumed
+        publish(ExecutionConstant.STOPPED, errors.stream().map(Throwable::getMessage).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,34 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+
+import java.util.List;
+
+/**
+ * Executor of the tasks of a workflow execution, it's created for each workflow execution by a {@link TaskExecutorFactory}
+ *
+ * @author Minh Khang VU
+ */
+public interface TaskExecutor {
+
+    /**
+     * Execute asynchronously the runnable of a task, the task is given so that the executor can decide when and where to run it
+     *
+     * @param task     the workflow task
+     * @param runnable what must be run for the task
+     * @throws java.util.concurrent.RejectedExecutionException if the executor has been shut down
+     */
+    void execute(AbstractTask task, Runnable runnable);
+
+    /**
+     * Do not accept new tasks anymore, tasks which have already been submitted will be run
+     */
+    void shutdown();
+
+    /**
+     * Do not accept new tasks anymore, drop tasks which are waiting to be run and interrupt tasks which are running
+     *
+     * @return the runnables which have been submitted but were never run
+     */
+    List<Runnable> shutdownNow();
+}
@@ -0,0 +1,17 @@
+package com.toscaruntime.sdk.workflow;
+
+/**
+ * Factory of {@link TaskExecutor}, it's the extension point to control how workflow tasks are run
+ *
+ * @author Minh Khang VU
+ */
+public interface TaskExecutorFactory {
+
+    /**
+     * Create the executor for a new workflow execution
+     *
+     * @param workflowId id of the workflow
+     * @return the executor of the workflow execution's tasks
+     */
+    TaskExecutor createTaskExecutor(String workflowId);
+}
@@ -0,0 +1,277 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.constant.ExecutionConstant;
+import com.toscaruntime.deployment.DeploymentPersister;
+import com.toscaruntime.deployment.NodeTaskDTO;
+import com.toscaruntime.deployment.RelationshipTaskDTO;
+import com.toscaruntime.deployment.TaskDTO;
+import com.toscaruntime.deployment.TaskTransitionDTO;
+import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
+import com.toscaruntime.sdk.metric.MetricRegistry;
+import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
+import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tosca.relationships.Root;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind journal of task state transitions. Transitions are recorded without any round trip to the data source, then written in order by a single writer thread.
+ * Each batch is persisted in a single transaction, so the persisted state is always a prefix of the recorded transitions: a task's success is never visible without the success of the tasks it depends on.
+ * After a failure, nothing more is written for the executions of the failed batch so that their persisted state stays consistent for the next initial load,
+ * other executions are not affected and the failure is forgotten when the execution begins again.
+ * The journal must be closed once it's not used anymore to stop its writer thread.
+ *
+ * @author Minh Khang VU
+ */
+public class TaskStateJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskStateJournal.class);
+
+    private static final int MAX_BATCH_SIZE = 512;
+
+    /**
+     * Enqueued when the journal is closed, the writer stops once it has written the transitions recorded before
+     */
+    private static final PendingTransition END_OF_JOURNAL = new PendingTransition(null);
+
+    private DeploymentPersister deploymentPersister;
+
+    private MetricRegistry metricRegistry;
+
+    private LinkedBlockingQueue<PendingTransition> transitions = new LinkedBlockingQueue<>();
+
+    private ReentrantLock lock = new ReentrantLock();
+
+    private Condition writtenCondition = lock.newCondition();
+
+    private long recordedCount = 0;
+
+    private long writtenCount = 0;
+
+    private boolean closed = false;
+
+    private Thread writer;
+
+    /**
+     * Persistence failure by execution id, transitions of a failed execution are dropped until it begins again
+     */
+    private Map<String, Throwable> failures = new HashMap<>();
+
+    public TaskStateJournal(DeploymentPersister deploymentPersister) {
+        this(deploymentPersister, new MetricRegistry());
+    }
+
+    public TaskStateJournal(DeploymentPersister deploymentPersister, MetricRegistry metricRegistry) {
+        this.deploymentPersister = deploymentPersister;
+        this.metricRegistry = metricRegistry;
+        writer = new Thread(this::write);
+        writer.setDaemon(true);
+        writer.setName("TaskStateJournalWriter");
+        writer.start();
+    }
+
+    /**
+     * Signal that the execution begins or is resumed, a previous persistence failure of the execution is forgotten
+     *
+     * @param executionId id of the execution
+     */
+    public void begin(String executionId) {
+        try {
+            lock.lock();
+            failures.remove(executionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void insert(AbstractTask task) {
+        record(task, ExecutionConstant.INITIAL, null, null, null);
+    }
+
+    public void start(AbstractTask task) {
+        record(task, ExecutionConstant.RUNNING, System.currentTimeMillis(), null, null);
+    }
+
+    public void finish(AbstractTask task) {
+        record(task, ExecutionConstant.SUCCESS, null, System.currentTimeMillis(), null);
+    }
+
+    public void stop(AbstractTask task, String error) {
+        record(task, ExecutionConstant.STOPPED, null, null, error);
+    }
+
+    /**
+     * Wait until all transitions recorded until now have been persisted
+     *
+     * @param executionId id of the execution whose transitions must have been persisted
+     * @throws DeploymentPersistenceException if any transition of the execution could not be persisted
+     */
+    public void flush(String executionId) {
+        try {
+            lock.lock();
+            long toBeWritten = recordedCount;
+            while (writtenCount < toBeWritten) {
+                writtenCondition.await();
+            }
+            Throwable failure = failures.get(executionId);
+            if (failure != null) {
+                throw new DeploymentPersistenceException("Could not persist task transitions of execution " + executionId, failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeploymentPersistenceException("Interrupted while waiting for task transitions to be persisted", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(AbstractTask task, String status, Long startTime, Long endTime, String error) {
+        TaskTransitionDTO transition;
+        String executionId = task.getWorkflowExecution().getExecutionId();
+        if (task instanceof AbstractNodeTask) {
+            AbstractNodeTask nodeTask = (AbstractNodeTask) task;
+            transition = new TaskTransitionDTO(executionId, new NodeTaskDTO(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName()), status, startTime, endTime, error);
+        } else if (task instanceof AbstractRelationshipTask) {
+            AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
+            Root relationship = relationshipTask.getRelationshipInstance();
+            transition = new TaskTransitionDTO(executionId, new RelationshipTaskDTO(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName()), status, startTime, endTime, error);
+        } else {
+            transition = new TaskTransitionDTO(executionId, new TaskDTO(((AbstractGenericTask) task).getTaskId()), status, startTime, endTime, error);
+        }
+        try {
+            lock.lock();
+            if (closed) {
+                throw new DeploymentPersistenceException("Task state journal is closed, transition " + transition.getStatus() + " of execution " + executionId + " cannot be persisted");
+            }
+            // Enqueue under the lock so that the recorded count and the queue's order stay consistent for flush
+            recordedCount++;
+            transitions.add(new PendingTransition(transition));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write() {
+        List<PendingTransition> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(transitions.take());
+            } catch (InterruptedException e) {
+                log.warn("Task state journal writer has been interrupted, pending transitions will not be persisted");
+                return;
+            }
+            transitions.drainTo(batch, MAX_BATCH_SIZE - 1);
+            // Nothing is recorded after the end of the journal, it can only be the last of the batch
+            boolean endOfJournal = batch.remove(END_OF_JOURNAL);
+            List<PendingTransition> toBeWritten;
+            try {
+                lock.lock();
+                toBeWritten = batch.stream().filter(pending -> !failures.containsKey(pending.transition.getExecutionId())).collect(Collectors.toList());
+            } finally {
+                lock.unlock();
+            }
+            Throwable batchFailure = null;
+            if (!toBeWritten.isEmpty()) {
+                try {
+                    deploymentPersister.syncSaveTaskTransitions(coalesce(toBeWritten.stream().map(pending -> pending.transition).collect(Collectors.toList())));
+                    toBeWritten.forEach(pending -> metricRegistry.recordSince(MetricRegistry.TASK_PERSISTENCE, pending.recordedTime));
+                } catch (Throwable e) {
+                    log.error("Could not persist " + toBeWritten.size() + " task transitions, no further transition of their executions will be persisted", e);
+                    batchFailure = e;
+                }
+            }
+            try {
+                lock.lock();
+                if (batchFailure != null) {
+                    for (PendingTransition pending : toBeWritten) {
+                        failures.putIfAbsent(pending.transition.getExecutionId(), batchFailure);
+                    }
+                }
+                writtenCount += batch.size();
+                writtenCondition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            batch.clear();
+            if (endOfJournal) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop recording transitions and wait until the transitions recorded until now have been persisted, then stop the writer thread.
+     * Recording a transition after the journal has been closed fails.
+     */
+    public void close() {
+        try {
+            lock.lock();
+            if (closed) {
+                return;
+            }
+            closed = true;
+            transitions.add(END_OF_JOURNAL);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the task state journal writer to stop");
+        }
+    }
+
+    /**
+     * Merge a start with the finish or the stop of the same task within the batch so that only one write is done for the task.
+     * The merged transition takes the place of the start, as the whole batch is persisted in one transaction the order of the tasks' inserts is kept.
+     */
+    static List<TaskTransitionDTO> coalesce(List<TaskTransitionDTO> batch) {
+        List<TaskTransitionDTO> coalesced = new ArrayList<>(batch.size());
+        Map<Object, Integer> pendingStarts = new HashMap<>();
+        for (TaskTransitionDTO transition : batch) {
+            Integer startIndex = pendingStarts.remove(transition.getTaskKey());
+            if (startIndex != null && (ExecutionConstant.SUCCESS.equals(transition.getStatus()) || ExecutionConstant.STOPPED.equals(transition.getStatus()))) {
+                coalesced.set(startIndex, merge(coalesced.get(startIndex), transition));
+            } else {
+                if (ExecutionConstant.RUNNING.equals(transition.getStatus())) {
+                    pendingStarts.put(transition.getTaskKey(), coalesced.size());
+                }
+                coalesced.add(transition);
+            }
+        }
+        return coalesced;
+    }
+
+    private static TaskTransitionDTO merge(TaskTransitionDTO start, TaskTransitionDTO end) {
+        if (end.getNodeTask() != null) {
+            return new TaskTransitionDTO(end.getExecutionId(), end.getNodeTask(), end.getStatus(), start.getStartTime(), end.getEndTime(), end.getError());
+        } else if (end.getRelationshipTask() != null) {
+            return new TaskTransitionDTO(end.getExecutionId(), end.getRelationshipTask(), end.getStatus(), start.getStartTime(), end.getEndTime(), end.getError());
+        } else {
+            return new TaskTransitionDTO(end.getExecutionId(), end.getTask(), end.getStatus(), start.getStartTime(), end.getEndTime(), end.getError());
+        }
+    }
+
+    private static class PendingTransition {
+
+        private final TaskTransitionDTO transition;
+
+        private final long recordedTime = System.nanoTime();
+
+        private PendingTransition(TaskTransitionDTO transition) {
+            this.transition = transition;
+        }
+    }
+}
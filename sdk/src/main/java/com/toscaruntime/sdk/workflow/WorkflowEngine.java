@@ -1,9 +1,10 @@
 package com.toscaruntime.sdk.workflow;
 
 import com.toscaruntime.deployment.DeploymentPersister;
-import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowException;
 import com.toscaruntime.sdk.ProviderHook;
 import com.toscaruntime.sdk.ProviderWorkflowProcessingResult;
+import com.toscaruntime.sdk.metric.MetricRegistry;
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
 import com.toscaruntime.sdk.util.WorkflowUtil;
 import com.toscaruntime.sdk.workflow.tasks.*;
 import com.toscaruntime.sdk.workflow.tasks.nodes.GenericNodeTask;
@@ -11,17 +12,12 @@ import com.toscaruntime.sdk.workflow.tasks.relationships.GenericRelationshipTask
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tosca.nodes.Root;
-import tosca.relationships.HostedOn;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -35,46 +31,27 @@ public class WorkflowEngine {
 
     private DeploymentPersister deploymentPersister;
 
-    private static final Logger log = LoggerFactory.getLogger(WorkflowEngine.class);
+    private TaskStateJournal taskStateJournal;
 
-    private static ExecutorService createWorkflowExecutorService() {
-        return Executors.newCachedThreadPool(new ThreadFactory() {
+    /**
+     * Created with default limits on first use if none has been set, the deployment sets the one configured from the provider's properties
+     */
+    private TaskExecutorFactory taskExecutorFactory;
 
-            private AtomicInteger count = new AtomicInteger();
+    private final MetricRegistry metricRegistry;
 
-            @Override
-            public Thread newThread(Runnable runnable) {
-                Thread t = new Thread(runnable);
-                t.setDaemon(true);
-                t.setName("WorkflowThread_" + count.incrementAndGet());
-                return t;
-            }
-        });
-    }
+    private Set<DeploymentRelationshipNode> relationshipNodes = Collections.emptySet();
 
-    private InstallLifeCycleTasksFactory mockInstallLifeCycleTasksFactory = new InstallLifeCycleTasksFactory() {
-        @Override
-        public InstallLifeCycleTasks create(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, Root nodeInstance) {
-            return WorkflowUtil.mockInstallLifeCycleTasks(nodeInstances, relationshipInstances, nodeInstance);
-        }
+    /**
+     * Incremented each time the topology changes, the cached workflow template is rebuilt when it's built for an older version
+     */
+    private long topologyVersion;
 
-        @Override
-        public RelationshipInstallLifeCycleTasks create(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, tosca.relationships.Root relationshipInstance) {
-            return WorkflowUtil.mockRelationshipInstallLifeCycleTasks(nodeInstances, relationshipInstances, relationshipInstance);
-        }
-    };
+    private WorkflowTemplate workflowTemplate;
 
-    private UninstallLifeCycleTasksFactory mockUninstallLifeCycleTasksFactory = new UninstallLifeCycleTasksFactory() {
-        @Override
-        public UninstallLifeCycleTasks create(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, Root nodeInstance) {
-            return WorkflowUtil.mockUninstallLifeCycleTasks(nodeInstances, relationshipInstances, nodeInstance);
-        }
+    private ExecutionEventPublisher eventPublisher = new ExecutionEventPublisher();
 
-        @Override
-        public RelationshipUninstallLifeCycleTasks create(Map<String, Root> nodeInstances, Set<tosca.relationships.Root> relationshipInstances, tosca.relationships.Root relationshipInstance) {
-            return WorkflowUtil.mockRelationshipUninstallLifeCycleTasks(nodeInstances, relationshipInstances, relationshipInstance);
-        }
-    };
+    private static final Logger log = LoggerFactory.getLogger(WorkflowEngine.class);
 
     private InstallLifeCycleTasksFactory installLifeCycleTasksFactory = new InstallLifeCycleTasksFactory() {
         @Override
@@ -100,30 +77,43 @@ public class WorkflowEngine {
         }
     };
 
-    private void validateDryRun(WorkflowExecution dryRunWorkflowExecution) {
-        try {
-            // Normally the mock tasks do nothing and so it must be immediate
-            boolean dryRunFinished = dryRunWorkflowExecution.waitForCompletion(1, TimeUnit.DAYS);
-            if (!dryRunFinished) {
-                log.error("Workflow did not finish: \n {}", dryRunWorkflowExecution.toString());
-                throw new InvalidWorkflowException("Workflow is invalid and did not finish");
-            } else {
-                log.info("Workflow dry run finished successfully");
-            }
-        } catch (InvalidWorkflowException e) {
-            throw e;
-        } catch (Throwable e) {
-            throw new InvalidWorkflowException("Workflow is invalid and did not pass through dry run", e);
+    /**
+     * @param metricRegistry the registry where the metrics of the workflow executions and of the persistence of their tasks are recorded
+     */
+    public WorkflowEngine(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    private synchronized TaskExecutorFactory getTaskExecutorFactory() {
+        if (taskExecutorFactory == null) {
+            taskExecutorFactory = new BoundedTaskExecutorFactory(null, new HashMap<>());
         }
+        return taskExecutorFactory;
+    }
+
+    private WorkflowExecution createWorkflowExecution(String workflowId, boolean transientExecution) {
+        if (transientExecution || taskStateJournal == null) {
+            WorkflowExecution workflowExecution = new WorkflowExecution(workflowId, getTaskExecutorFactory().createTaskExecutor(workflowId));
+            workflowExecution.setMetricRegistry(metricRegistry);
+            workflowExecution.setEventPublisher(eventPublisher);
+            return workflowExecution;
+        }
+        WorkflowExecution workflowExecution = new WorkflowExecution(workflowId, getTaskExecutorFactory().createTaskExecutor(workflowId), taskStateJournal);
+        workflowExecution.setMetricRegistry(metricRegistry);
+        workflowExecution.setEventPublisher(eventPublisher);
+        // Durations of past executions help to prioritize the longest path of the workflow
+        workflowExecution.setTaskDurations(deploymentPersister.syncGetNodeTaskDurations(), deploymentPersister.syncGetRelationshipTaskDurations());
+        return workflowExecution;
     }
 
     private void augmentWorkflow(WorkflowExecution workflowExecution, List<AbstractTask> beforeTasks, List<AbstractTask> afterTasks) {
-        // Make all runnable task depends on before tasks, so that it will be run in the first place
-        workflowExecution.getTasksLeft().stream().filter(AbstractTask::canRun).forEach(task -> task.dependsOn(beforeTasks.toArray(new AbstractTask[beforeTasks.size()])));
+        // Make all tasks without dependency depend on before tasks, so that before tasks will be run in the first place
+        workflowExecution.getTasksLeft().stream().filter(task -> !task.hasDependencies()).forEach(task -> task.dependsOn(beforeTasks.toArray(new AbstractTask[beforeTasks.size()])));
         // After tasks are run at the end
         afterTasks.forEach(afterTask -> afterTask.dependsOn(workflowExecution.getTasksLeft().toArray(new AbstractTask[workflowExecution.getTasksLeft().size()])));
         workflowExecution.addTasks(beforeTasks);
         workflowExecution.addTasks(afterTasks);
+        WorkflowValidator.validate(workflowExecution.getWorkflowId(), workflowExecution.getTasksLeft());
     }
 
     /**
@@ -140,8 +130,7 @@ public class WorkflowEngine {
                                                   Map<String, Root> nodeInstances,
                                                   Set<tosca.relationships.Root> relationshipInstances,
                                                   String workflowId) {
-        validateDryRun(doInstall(nodeInstances, relationshipInstances, mockInstallLifeCycleTasksFactory, () -> new WorkflowExecution(workflowId, createWorkflowExecutorService(), null)));
-        WorkflowExecution workflowExecution = doBuildInstallWorkflow(nodeInstances, relationshipInstances, installLifeCycleTasksFactory, () -> new WorkflowExecution(workflowId, createWorkflowExecutorService(), deploymentPersister));
+        WorkflowExecution workflowExecution = doBuildInstallWorkflow(nodeInstances, relationshipInstances, installLifeCycleTasksFactory, () -> createWorkflowExecution(workflowId, false));
         augmentWorkflow(workflowExecution, beforeTasks, afterTasks);
         return workflowExecution;
     }
@@ -201,35 +190,8 @@ public class WorkflowEngine {
 
         // Let the provider process the workflow, for example the provider will handle the workflow of every native IAAS resources and relationships
         ProviderWorkflowProcessingResult providerWorkflowResult = providerHook.postConstructInstallWorkflow(nodeInstances, relationshipInstances, allNodesTasks, allRelationshipsTasks, workflowExecution);
-        // Only process life cycles of nodes that were not processed by the provider
-        allNodesTasks.entrySet().stream()
-                .filter(taskEntry -> !providerWorkflowResult.getNodeInstances().containsKey(taskEntry.getKey().getId()))
-                .forEach(taskEntry -> WorkflowUtil.declareNodeInstallDependencies(taskEntry.getValue(), allNodesTasks));
-        // Only process life cycles of relationships that were not processed by the provider
-        allRelationshipsTasks.entrySet().stream()
-                .filter(taskEntry -> !providerWorkflowResult.getRelationshipInstances().contains(taskEntry.getKey()))
-                .forEach(taskEntry -> {
-                    tosca.relationships.Root relationshipInstance = taskEntry.getKey();
-                    InstallLifeCycleTasks sourceInstallLifeCycleTasks = allNodesTasks.get(relationshipInstance.getSource());
-                    InstallLifeCycleTasks targetInstallLifeCycleTasks = allNodesTasks.get(relationshipInstance.getTarget());
-                    WorkflowUtil.declareRelationshipInstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    if (relationshipInstance instanceof HostedOn) {
-                        // Specific hosted on task dependencies
-                        WorkflowUtil.declareHostedOnInstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    } else {
-                        // Specific depends on task dependencies
-                        WorkflowUtil.declareDependsOnInstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    }
-                });
-        return workflowExecution;
-    }
-
-    private WorkflowExecution doInstall(Map<String, Root> nodeInstances,
-                                        Set<tosca.relationships.Root> relationshipInstances,
-                                        InstallLifeCycleTasksFactory lifeCycleTasksFactory,
-                                        WorkflowExecutionFactory workflowExecutionFactory) {
-        WorkflowExecution workflowExecution = doBuildInstallWorkflow(nodeInstances, relationshipInstances, lifeCycleTasksFactory, workflowExecutionFactory);
-        workflowExecution.launch();
+        // Only process life cycles of nodes and relationships that were not processed by the provider
+        getWorkflowTemplate().bindInstall(allNodesTasks, allRelationshipsTasks, providerWorkflowResult);
         return workflowExecution;
     }
 
@@ -244,12 +206,7 @@ public class WorkflowEngine {
                                                                boolean transientExecution) {
         List<AbstractTask> nodeTasks = concernedInstances.stream().map(instance -> new GenericNodeTask(nodeInstances, relationshipInstances, instance, interfaceName, operationName)).collect(Collectors.toList());
 
-        WorkflowExecution workflowExecution;
-        if (transientExecution) {
-            workflowExecution = new WorkflowExecution(workflowId, createWorkflowExecutorService());
-        } else {
-            workflowExecution = new WorkflowExecution(workflowId, createWorkflowExecutorService(), deploymentPersister);
-        }
+        WorkflowExecution workflowExecution = createWorkflowExecution(workflowId, transientExecution);
         workflowExecution.addTasks(nodeTasks);
         augmentWorkflow(workflowExecution, beforeTasks, afterTasks);
         return workflowExecution;
@@ -265,12 +222,7 @@ public class WorkflowEngine {
                                                                        String workflowId,
                                                                        boolean transientExecution) {
         List<AbstractTask> relationshipTasks = concernedRelationshipInstances.stream().map(relationshipInstance -> new GenericRelationshipTask(nodeInstances, relationshipInstances, relationshipInstance, interfaceName, operationName)).collect(Collectors.toList());
-        WorkflowExecution workflowExecution;
-        if (transientExecution) {
-            workflowExecution = new WorkflowExecution(workflowId, createWorkflowExecutorService());
-        } else {
-            workflowExecution = new WorkflowExecution(workflowId, createWorkflowExecutorService(), deploymentPersister);
-        }
+        WorkflowExecution workflowExecution = createWorkflowExecution(workflowId, transientExecution);
         workflowExecution.addTasks(relationshipTasks);
         augmentWorkflow(workflowExecution, beforeTasks, afterTasks);
         return workflowExecution;
@@ -290,8 +242,7 @@ public class WorkflowEngine {
                                                     Map<String, Root> nodeInstances,
                                                     Set<tosca.relationships.Root> relationshipInstances,
                                                     String workflowId) {
-        validateDryRun(doUninstall(nodeInstances, relationshipInstances, mockUninstallLifeCycleTasksFactory, () -> new WorkflowExecution(workflowId, createWorkflowExecutorService(), null)));
-        WorkflowExecution workflowExecution = doBuildUninstallWorkflow(nodeInstances, relationshipInstances, uninstallLifeCycleTasksFactory, () -> new WorkflowExecution(workflowId, createWorkflowExecutorService(), deploymentPersister));
+        WorkflowExecution workflowExecution = doBuildUninstallWorkflow(nodeInstances, relationshipInstances, uninstallLifeCycleTasksFactory, () -> createWorkflowExecution(workflowId, false));
         augmentWorkflow(workflowExecution, beforeTasks, afterTasks);
         return workflowExecution;
     }
@@ -332,36 +283,36 @@ public class WorkflowEngine {
             }
         });
         ProviderWorkflowProcessingResult providerWorkflowResult = providerHook.postConstructUninstallWorkflow(nodeInstances, relationshipInstances, allNodesTasks, allRelationshipsTasks, workflowExecution);
-        // Only process life cycles of nodes that were not processed by the provider
-        allNodesTasks.entrySet().stream()
-                .filter(taskEntry -> !providerWorkflowResult.getNodeInstances().containsKey(taskEntry.getKey().getId()))
-                .forEach(taskEntry -> WorkflowUtil.declareNodeUninstallDependencies(taskEntry.getValue(), allNodesTasks));
-        // Only process life cycles of relationships that were not processed by the provider
-        allRelationshipsTasks.entrySet().stream()
-                .filter(taskEntry -> !providerWorkflowResult.getRelationshipInstances().contains(taskEntry.getKey()))
-                .forEach(taskEntry -> {
-                    tosca.relationships.Root relationshipInstance = taskEntry.getKey();
-                    UninstallLifeCycleTasks sourceInstallLifeCycleTasks = allNodesTasks.get(relationshipInstance.getSource());
-                    UninstallLifeCycleTasks targetInstallLifeCycleTasks = allNodesTasks.get(relationshipInstance.getTarget());
-                    WorkflowUtil.declareRelationshipUninstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    if (relationshipInstance instanceof HostedOn) {
-                        // Specific hosted on task dependencies
-                        WorkflowUtil.declareHostedOnUninstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    } else {
-                        // Specific depends on task dependencies
-                        WorkflowUtil.declareDependsOnUninstallDependencies(taskEntry.getValue(), sourceInstallLifeCycleTasks, targetInstallLifeCycleTasks);
-                    }
-                });
+        // Only process life cycles of nodes and relationships that were not processed by the provider
+        getWorkflowTemplate().bindUninstall(allNodesTasks, allRelationshipsTasks, providerWorkflowResult);
         return workflowExecution;
     }
 
-    private WorkflowExecution doUninstall(Map<String, Root> nodeInstances,
-                                          Set<tosca.relationships.Root> relationshipInstances,
-                                          UninstallLifeCycleTasksFactory uninstallLifeCycleTasksFactory,
-                                          WorkflowExecutionFactory workflowExecutionFactory) {
-        WorkflowExecution workflowExecution = doBuildUninstallWorkflow(nodeInstances, relationshipInstances, uninstallLifeCycleTasksFactory, workflowExecutionFactory);
-        workflowExecution.launch();
-        return workflowExecution;
+    /**
+     * @return the template of install and uninstall workflows for the current version of the topology, it's reused by every workflow built until the topology changes
+     */
+    synchronized WorkflowTemplate getWorkflowTemplate() {
+        if (workflowTemplate == null || workflowTemplate.getTopologyVersion() != topologyVersion) {
+            workflowTemplate = new WorkflowTemplate(topologyVersion, relationshipNodes);
+        }
+        return workflowTemplate;
+    }
+
+    /**
+     * Set the topology of the deployment, the workflow template will be rebuilt for the next workflow
+     *
+     * @param relationshipNodes all relationship nodes of the topology
+     */
+    public synchronized void setTopology(Set<DeploymentRelationshipNode> relationshipNodes) {
+        this.relationshipNodes = relationshipNodes;
+        topologyChanged();
+    }
+
+    /**
+     * Notify the engine that the topology has changed (recipe update, scale), the workflow template will be rebuilt for the next workflow
+     */
+    public synchronized void topologyChanged() {
+        topologyVersion++;
     }
 
     public void setProviderHook(ProviderHook providerHook) {
@@ -370,5 +321,32 @@ public class WorkflowEngine {
 
     public void setDeploymentPersister(DeploymentPersister deploymentPersister) {
         this.deploymentPersister = deploymentPersister;
+        if (this.taskStateJournal != null) {
+            this.taskStateJournal.close();
+        }
+        // Task transitions of all executions go through the same journal so that they are persisted in order
+        this.taskStateJournal = deploymentPersister != null ? new TaskStateJournal(deploymentPersister, metricRegistry) : null;
+    }
+
+    /**
+     * Release the resources of the engine, task transitions recorded until now are persisted before returning
+     */
+    public void shutdown() {
+        if (this.taskStateJournal != null) {
+            this.taskStateJournal.close();
+        }
+    }
+
+    /**
+     * Set the factory which creates the executors of the workflow executions' tasks, it will be used for executions built from now on
+     *
+     * @param taskExecutorFactory the task executor factory
+     */
+    public synchronized void setTaskExecutorFactory(TaskExecutorFactory taskExecutorFactory) {
+        this.taskExecutorFactory = taskExecutorFactory;
+    }
+
+    public void setEventPublisher(ExecutionEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
     }
 }
@@ -1,25 +1,31 @@
 package com.toscaruntime.sdk.workflow;
 
 import com.toscaruntime.constant.ExecutionConstant;
-import com.toscaruntime.deployment.DeploymentPersister;
+import com.toscaruntime.deployment.NodeOperationDTO;
 import com.toscaruntime.deployment.NodeTaskDTO;
+import com.toscaruntime.deployment.RelationshipOperationDTO;
 import com.toscaruntime.deployment.RelationshipTaskDTO;
 import com.toscaruntime.deployment.TaskDTO;
+import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
 import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowCommandException;
-import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowException;
+import com.toscaruntime.sdk.metric.MetricRegistry;
 import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
+import com.toscaruntime.sdk.workflow.tasks.AbstractOperationTask;
 import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
 import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
 import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
+import com.toscaruntime.util.CodeGeneratorUtil;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tosca.relationships.Root;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -30,54 +36,121 @@ public class WorkflowExecution {
 
     private String workflowId;
 
+    /**
+     * Id of the execution in the data source, null for a transient execution
+     */
+    private String executionId;
+
+    /**
+     * An exclusive execution cannot run at the same time as any other execution of the deployment
+     */
+    private boolean exclusive;
+
+    /**
+     * A structural execution adds or deletes instances of the deployment
+     */
+    private boolean structural;
+
+    private volatile ExecutionFootprint footprint;
+
     private Set<AbstractTask> totalTasks = new HashSet<>();
 
-    private Set<AbstractTask> tasksLeft = new HashSet<>();
+    private Set<AbstractTask> tasksLeft = ConcurrentHashMap.newKeySet();
 
-    private Map<AbstractTask, Throwable> tasksInError = new HashMap<>();
+    private Map<AbstractTask, Throwable> tasksInError = new ConcurrentHashMap<>();
 
-    private Map<AbstractTask, Future> tasksRunning = new HashMap<>();
+    private Map<AbstractTask, TaskRunner> tasksRunning = new ConcurrentHashMap<>();
 
+    /**
+     * Number of launched tasks which have not yet reported their completion or their failure, plus one while ready tasks are being dispatched.
+     * The execution can only finish when it drops to 0.
+     */
+    private AtomicInteger activeCount = new AtomicInteger();
+
+    private volatile WorkflowScheduler scheduler;
+
+    /**
+     * The lock only guards the execution's state changes (finish, stop, cancel and resume), tasks are scheduled without it
+     */
     private ReentrantLock lock = new ReentrantLock();
 
     private Condition finishedCondition = lock.newCondition();
 
-    private boolean isCancelled = false;
+    private volatile boolean isCancelled = false;
 
-    private boolean isInterrupted = false;
+    private volatile boolean isInterrupted = false;
 
-    private boolean isStoppedByError = false;
+    private volatile boolean isStoppedByError = false;
 
     private List<Listener> listeners = new ArrayList<>();
 
-    private ExecutorService executorService;
+    private TaskExecutor taskExecutor;
+
+    private TaskStateJournal taskStateJournal;
+
+    private Map<NodeOperationDTO, Long> nodeTaskDurations = Collections.emptyMap();
+
+    private Map<RelationshipOperationDTO, Long> relationshipTaskDurations = Collections.emptyMap();
+
+    private MetricRegistry metricRegistry = new MetricRegistry();
 
-    private DeploymentPersister deploymentPersister;
+    private ExecutionEventPublisher eventPublisher = new ExecutionEventPublisher();
 
-    public WorkflowExecution(String workflowId, ExecutorService executorService) {
+    /**
+     * Tasks which have been launched at least once, a task launched again is a retry
+     */
+    private Set<AbstractTask> launchedTasks = ConcurrentHashMap.newKeySet();
+
+    public WorkflowExecution(String workflowId, TaskExecutor taskExecutor) {
         this.workflowId = workflowId;
-        this.executorService = executorService;
+        this.taskExecutor = taskExecutor;
     }
 
-    public WorkflowExecution(String workflowId, ExecutorService executorService, DeploymentPersister deploymentPersister) {
-        this(workflowId, executorService);
-        this.deploymentPersister = deploymentPersister;
+    public WorkflowExecution(String workflowId, TaskExecutor taskExecutor, TaskStateJournal taskStateJournal) {
+        this(workflowId, taskExecutor);
+        this.taskStateJournal = taskStateJournal;
     }
 
     public boolean isTransient() {
-        return this.deploymentPersister == null;
+        return this.taskStateJournal == null;
     }
 
     public String getWorkflowId() {
         return workflowId;
     }
 
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public void setExecutionId(String executionId) {
+        this.executionId = executionId;
+    }
+
+    public void setExclusive(boolean exclusive) {
+        this.exclusive = exclusive;
+    }
+
+    public void setStructural(boolean structural) {
+        this.structural = structural;
+    }
+
+    /**
+     * @return the part of the deployment that the execution works on, it's computed once all tasks have been added
+     */
+    public ExecutionFootprint getFootprint() {
+        if (footprint == null) {
+            footprint = new ExecutionFootprint(totalTasks, exclusive, structural);
+        }
+        return footprint;
+    }
+
     public ReentrantLock getLock() {
         return lock;
     }
 
     /**
-     * Perform initial loads from persistence to take into account only non executed tasks
+     * Perform initial loads from persistence to take into account only non executed tasks, tasks which were not yet persisted are considered as non executed
      *
      * @param nodeTaskDTOs         map of node task to task status
      * @param relationshipTaskDTOs map of relationship task to task status
@@ -88,113 +161,220 @@ public class WorkflowExecution {
         Set<AbstractTask> allToBeRun = tasksLeft.stream().filter(task -> {
             if (task instanceof AbstractNodeTask) {
                 AbstractNodeTask nodeTask = (AbstractNodeTask) task;
-                return !nodeTaskDTOs.get(new NodeTaskDTO(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName())).equals(ExecutionConstant.SUCCESS);
+                return !ExecutionConstant.SUCCESS.equals(nodeTaskDTOs.get(new NodeTaskDTO(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName())));
             } else if (task instanceof AbstractRelationshipTask) {
                 AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
                 Root relationship = relationshipTask.getRelationshipInstance();
-                return !relationshipTaskDTOs.get(new RelationshipTaskDTO(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName())).equals(ExecutionConstant.SUCCESS);
+                return !ExecutionConstant.SUCCESS.equals(relationshipTaskDTOs.get(new RelationshipTaskDTO(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName())));
             } else {
                 AbstractGenericTask genericTask = (AbstractGenericTask) task;
-                return !taskDTOs.get(new TaskDTO(genericTask.getTaskId())).equals(ExecutionConstant.SUCCESS);
+                return !ExecutionConstant.SUCCESS.equals(taskDTOs.get(new TaskDTO(genericTask.getTaskId())));
             }
         }).collect(Collectors.toSet());
-        allToBeRun.stream().forEach(toBeRun -> {
-            // Filter out tasks that has already finished from the dependencies
-            Set<AbstractTask> toBeRunDependencies = toBeRun.getDependsOnTasks().stream().filter(allToBeRun::contains).collect(Collectors.toSet());
-            toBeRun.setDependsOnTasks(toBeRunDependencies);
-        });
-        tasksLeft = allToBeRun;
+        // Tasks that has already finished are not taken into account as dependencies by the scheduler as they are not in tasks left
+        tasksLeft = ConcurrentHashMap.newKeySet();
+        tasksLeft.addAll(allToBeRun);
+    }
+
+    /**
+     * Set durations recorded in past executions, they are used to run first the tasks on the longest path of the workflow
+     *
+     * @param nodeTaskDurations         map of node operation to its duration in milliseconds
+     * @param relationshipTaskDurations map of relationship operation to its duration in milliseconds
+     */
+    public void setTaskDurations(Map<NodeOperationDTO, Long> nodeTaskDurations, Map<RelationshipOperationDTO, Long> relationshipTaskDurations) {
+        this.nodeTaskDurations = nodeTaskDurations;
+        this.relationshipTaskDurations = relationshipTaskDurations;
+    }
+
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public void setEventPublisher(ExecutionEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public ExecutionEventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+
+    private void publishTaskEvent(AbstractTask task, String status, String error) {
+        eventPublisher.publish(ExecutionEvent.task(executionId, workflowId, task.toString(), status, error));
+    }
+
+    /**
+     * Record the time the task took to run, whatever its outcome
+     *
+     * @param task      the task which has been run
+     * @param startTime start time of the task given by {@link System#nanoTime()}
+     */
+    public void recordTaskExecution(AbstractTask task, long startTime) {
+        metricRegistry.recordSince(MetricRegistry.TASK_EXECUTION, startTime);
+        if (task instanceof AbstractOperationTask) {
+            AbstractOperationTask operationTask = (AbstractOperationTask) task;
+            metricRegistry.recordSince(MetricRegistry.TASK_EXECUTION + "." + CodeGeneratorUtil.getGeneratedMethodName(operationTask.getInterfaceName(), operationTask.getOperationName()), startTime);
+        }
+    }
+
+    private Long getRecordedDuration(AbstractTask task) {
+        if (task instanceof AbstractNodeTask) {
+            AbstractNodeTask nodeTask = (AbstractNodeTask) task;
+            // Durations are recorded by node so that new instances of a scaled node are estimated too
+            return nodeTaskDurations.get(new NodeOperationDTO(nodeTask.getNodeInstance().getName(), nodeTask.getInterfaceName(), nodeTask.getOperationName()));
+        } else if (task instanceof AbstractRelationshipTask) {
+            AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
+            Root relationship = relationshipTask.getRelationshipInstance();
+            return relationshipTaskDurations.get(new RelationshipOperationDTO(relationship.getSource().getName(), relationship.getTarget().getName(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName()));
+        } else {
+            return null;
+        }
+    }
+
+    private WorkflowScheduler createScheduler() {
+        Map<AbstractTask, Long> recordedDurations = new HashMap<>();
+        for (AbstractTask task : tasksLeft) {
+            Long duration = getRecordedDuration(task);
+            if (duration != null) {
+                recordedDurations.put(task, Math.max(duration, 1L));
+            }
+        }
+        if (recordedDurations.isEmpty()) {
+            // Without history every task weighs the same, the priority of a task is then the number of tasks of its longest remaining chain
+            return new WorkflowScheduler(tasksLeft, task -> 1L);
+        }
+        // Tasks which have never been run are estimated to take the average time of the others
+        long defaultDuration = Math.max(recordedDurations.values().stream().mapToLong(Long::longValue).sum() / recordedDurations.size(), 1L);
+        return new WorkflowScheduler(tasksLeft, task -> recordedDurations.getOrDefault(task, defaultDuration));
     }
 
     public void onTaskFailure(AbstractTask errorTask, Throwable t) {
-        try {
-            lock.lock();
-            if (tasksRunning.remove(errorTask) == null) {
-                log.warn("Notified of errors of unknown task {}", errorTask);
-            } else {
-                if (!isTransient()) {
-                    if (errorTask instanceof AbstractNodeTask) {
-                        AbstractNodeTask nodeTask = (AbstractNodeTask) errorTask;
-                        deploymentPersister.syncStopNodeTask(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName(), t.getMessage());
-                    } else if (errorTask instanceof AbstractRelationshipTask) {
-                        AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) errorTask;
-                        Root relationship = relationshipTask.getRelationshipInstance();
-                        deploymentPersister.syncStopRelationshipTask(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName(), t.getMessage());
-                    } else {
-                        deploymentPersister.syncStopTask(((AbstractGenericTask) errorTask).getTaskId(), t.getMessage());
-                    }
+        if (tasksRunning.remove(errorTask) == null) {
+            log.warn("Notified of errors of unknown task {}", errorTask);
+            return;
+        }
+        if (!isTransient()) {
+            taskStateJournal.stop(errorTask, t.getMessage());
+        }
+        publishTaskEvent(errorTask, ExecutionConstant.FAILURE, t.getMessage());
+        if (tasksInError.put(errorTask, t) != null) {
+            log.warn("Notified more than once of errors task {}", errorTask);
+        }
+        releaseActiveSlot();
+    }
+
+    public void onTaskCompletion(AbstractTask completedTask) {
+        if (tasksRunning.remove(completedTask) == null) {
+            log.warn("Notified of completion of unknown task {}", completedTask);
+            return;
+        }
+        if (!isTransient()) {
+            taskStateJournal.finish(completedTask);
+        }
+        publishTaskEvent(completedTask, ExecutionConstant.SUCCESS, null);
+        // Launch the tasks which become ready before releasing the slot of the completed task, so that the execution cannot be seen as finished in between
+        scheduler.release(completedTask);
+        launchReadyTasks();
+        releaseActiveSlot();
+    }
+
+    private void releaseActiveSlot() {
+        if (activeCount.decrementAndGet() == 0) {
+            try {
+                lock.lock();
+                if (tryFinishingExecution()) {
+                    finishedCondition.signalAll();
                 }
+            } finally {
+                lock.unlock();
             }
-            if (tasksInError.put(errorTask, t) != null) {
-                log.warn("Notified more than once of errors task {}", errorTask);
-            }
-            if (tryFinishingExecution()) {
-                finishedCondition.signalAll();
-            }
-        } finally {
-            lock.unlock();
         }
     }
 
-    public void onTaskCompletion(AbstractTask completedTask) {
-        try {
-            lock.lock();
-            if (tasksRunning.remove(completedTask) == null) {
-                log.warn("Notified of completion of unknown task {}", completedTask);
-            } else {
+    private void launchReadyTasks() {
+        AbstractTask task;
+        while ((task = scheduler.pollReady()) != null) {
+            if (isInterrupted || isCancelled) {
+                // The task stays in tasks left and will be enqueued again on resume
+                continue;
+            }
+            // Removing the task from tasks left is what claims it, a task which has been enqueued more than once is only launched once
+            if (tasksLeft.remove(task)) {
+                activeCount.incrementAndGet();
+                if (!launchedTasks.add(task)) {
+                    metricRegistry.increment(MetricRegistry.TASK_RETRIES);
+                }
                 if (!isTransient()) {
-                    if (completedTask instanceof AbstractNodeTask) {
-                        AbstractNodeTask nodeTask = (AbstractNodeTask) completedTask;
-                        deploymentPersister.syncFinishNodeTask(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName());
-                    } else if (completedTask instanceof AbstractRelationshipTask) {
-                        AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) completedTask;
-                        Root relationship = relationshipTask.getRelationshipInstance();
-                        deploymentPersister.syncFinishRelationshipTask(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName());
-                    } else {
-                        deploymentPersister.syncFinishTask(((AbstractGenericTask) completedTask).getTaskId());
-                    }
+                    taskStateJournal.start(task);
+                }
+                publishTaskEvent(task, ExecutionConstant.RUNNING, null);
+                TaskRunner taskRunner = new TaskRunner(task);
+                tasksRunning.put(task, taskRunner);
+                try {
+                    taskExecutor.execute(task, taskRunner);
+                } catch (RejectedExecutionException e) {
+                    // The executor has been shut down by a cancel
+                    taskRunner.cancel(false);
                 }
             }
-            if (tryFinishingExecution()) {
-                finishedCondition.signalAll();
-            } else {
-                // Check if tasks can be run, if yes run it
-                doLaunch(completedTask.getDependedByTasks());
+        }
+    }
+
+    /**
+     * Make sure that every task transition has been persisted before notifying the listeners, as they might end the running execution in the data source
+     *
+     * @return the persistence error or null if every transition has been persisted
+     */
+    private DeploymentPersistenceException flushTaskStateJournal() {
+        if (!isTransient()) {
+            try {
+                taskStateJournal.flush(executionId);
+            } catch (DeploymentPersistenceException e) {
+                log.error("Task transitions of workflow " + workflowId + " could not be persisted", e);
+                return e;
             }
-        } finally {
-            lock.unlock();
         }
+        return null;
     }
 
     private boolean tryFinishingExecution() {
-        if (!tasksRunning.isEmpty()) {
+        if (activeCount.get() > 0) {
             // Has running tasks then so cannot finish the execution
             return false;
         }
         if (isCancelled) {
+            flushTaskStateJournal();
             listeners.forEach(this::notifyCancelledToListener);
             listeners.clear();
             return true;
         } else if (isInterrupted) {
             long numberOfTasksInterrupted = tasksInError.values().stream().filter(error -> ExceptionUtils.indexOfType(error, InterruptedException.class) > -1).count();
             log.info("Execution of workflow {} has been stopped, number of tasks not executed {}, number of tasks interrupted {}, number of tasks in error {}, total number of tasks {}", workflowId, tasksLeft.size(), numberOfTasksInterrupted, tasksInError.values().size() - numberOfTasksInterrupted, totalTasks.size());
+            flushTaskStateJournal();
             listeners.forEach(this::notifyInterruptedToListener);
             tasksLeft.addAll(tasksInError.keySet());
             tasksInError.clear();
             return true;
         } else if (!tasksInError.isEmpty()) {
             log.info("Execution of workflow {} has been stopped by error, number of tasks not executed {}, number of tasks in error {}, total number of tasks {}", workflowId, tasksLeft.size(), tasksInError.values().size(), totalTasks.size());
+            flushTaskStateJournal();
             listeners.forEach(listener -> notifyErrorToListener(listener, tasksInError.values()));
             isStoppedByError = true;
             tasksLeft.addAll(tasksInError.keySet());
             tasksInError.clear();
             return true;
-        } else if (tasksLeft.isEmpty()) {
-            listeners.forEach(this::notifyCompletionToListener);
-            executorService.shutdown();
-            return true;
         } else {
-            return false;
+            // Nothing is running and nothing failed, as the workflow has been validated to be acyclic every task has then been run
+            assert tasksLeft.isEmpty() : tasksLeft.size() + " tasks can never be run, the workflow has not been validated";
+            DeploymentPersistenceException persistenceError = flushTaskStateJournal();
+            if (persistenceError != null) {
+                // The execution cannot be considered finished as its state could not be fully persisted
+                listeners.forEach(listener -> notifyErrorToListener(listener, Collections.singleton(persistenceError)));
+            } else {
+                listeners.forEach(this::notifyCompletionToListener);
+            }
+            taskExecutor.shutdown();
+            return true;
         }
     }
 
@@ -240,7 +420,7 @@ public class WorkflowExecution {
     }
 
     private boolean checkWorkflowExecutionFinish() throws Throwable {
-        if ((tasksLeft.isEmpty() && tasksRunning.isEmpty() && tasksInError.isEmpty())) {
+        if ((tasksLeft.isEmpty() && activeCount.get() == 0 && tasksInError.isEmpty())) {
             return true;
         } else if (isCancelled) {
             throw new InterruptedException("Workflow execution has been cancelled");
@@ -265,6 +445,7 @@ public class WorkflowExecution {
     }
 
     public void addTasks(List<AbstractTask> tasks) {
+        footprint = null;
         tasksLeft.addAll(tasks);
         totalTasks.addAll(tasks);
         tasks.stream().forEach(task -> task.setWorkflowExecution(this));
@@ -274,73 +455,32 @@ public class WorkflowExecution {
         return tasksLeft;
     }
 
-    private void doLaunch(Set<AbstractTask> tasksToRun) {
-        try {
-            lock.lock();
-            Set<AbstractTask> tasksCanBeRun = tasksToRun.stream().filter(task -> task.canRun() && !tasksRunning.containsKey(task)).collect(Collectors.toSet());
-            if (tasksCanBeRun.isEmpty()) {
-                if (tasksRunning.isEmpty()) {
-                    // Check to see if the deployment can continue
-                    boolean canRunTask = false;
-                    for (AbstractTask task : tasksLeft) {
-                        if (task.canRun()) {
-                            canRunTask = true;
-                            break;
-                        }
-                    }
-                    if (!canRunTask) {
-                        log.error("Cyclic dependencies detected: \n {}", toString());
-                        finishedCondition.signalAll();
-                        listeners.forEach(listener -> notifyErrorToListener(listener, Collections.singleton(new InvalidWorkflowException("Cyclic dependency detected in the workflow"))));
-                    }
-                }
-            } else {
-                tasksCanBeRun.stream().forEach(task -> {
-                    if (!isTransient()) {
-                        if (task instanceof AbstractNodeTask) {
-                            AbstractNodeTask nodeTask = (AbstractNodeTask) task;
-                            deploymentPersister.syncStartNodeTask(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName());
-                        } else if (task instanceof AbstractRelationshipTask) {
-                            AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
-                            Root relationship = relationshipTask.getRelationshipInstance();
-                            deploymentPersister.syncStartRelationshipTask(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName());
-                        } else {
-                            deploymentPersister.syncStartTask(((AbstractGenericTask) task).getTaskId());
-                        }
-                    }
-                    if (!tasksLeft.remove(task)) {
-                        log.error("Running unknown task {}", task);
-                    }
-                    if (tasksRunning.put(task, executorService.submit(task)) != null) {
-                        log.error("Running {} more than once", task);
-                    }
-                });
-            }
-        } finally {
-            lock.unlock();
-        }
-    }
-
     public void persist() {
         // Persist tasks when they are added to the execution
         if (!isTransient()) {
-            for (AbstractTask task : totalTasks) {
-                if (task instanceof AbstractNodeTask) {
-                    AbstractNodeTask nodeTask = (AbstractNodeTask) task;
-                    deploymentPersister.syncInsertNewNodeTask(nodeTask.getNodeInstance().getId(), nodeTask.getInterfaceName(), nodeTask.getOperationName());
-                } else if (task instanceof AbstractRelationshipTask) {
-                    AbstractRelationshipTask relationshipTask = (AbstractRelationshipTask) task;
-                    Root relationship = relationshipTask.getRelationshipInstance();
-                    deploymentPersister.syncInsertNewRelationshipTask(relationship.getSource().getId(), relationship.getTarget().getId(), relationship.getNode().getRelationshipName(), relationshipTask.getInterfaceName(), relationshipTask.getOperationName());
-                } else {
-                    deploymentPersister.syncInsertNewTask(((AbstractGenericTask) task).getTaskId());
-                }
-            }
+            taskStateJournal.begin(executionId);
+            totalTasks.forEach(taskStateJournal::insert);
         }
     }
 
+    /**
+     * Dispatch ready tasks while holding an active slot, so that the execution is only evaluated for finish once every ready task has been launched
+     */
+    private void dispatch() {
+        activeCount.incrementAndGet();
+        launchReadyTasks();
+        releaseActiveSlot();
+    }
+
     public void launch() {
-        doLaunch(tasksLeft);
+        try {
+            lock.lock();
+            scheduler = createScheduler();
+            eventPublisher.publish(ExecutionEvent.execution(executionId, workflowId, ExecutionConstant.RUNNING, null));
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void resume() {
@@ -349,7 +489,14 @@ public class WorkflowExecution {
             log.info("Trying to resume execution of workflow {}", workflowId);
             isInterrupted = false;
             isStoppedByError = false;
-            launch();
+            if (scheduler == null) {
+                scheduler = createScheduler();
+            } else {
+                // Tasks that were not launched because of the stop or that failed have no pending dependency
+                scheduler.requeue(tasksLeft);
+            }
+            eventPublisher.publish(ExecutionEvent.execution(executionId, workflowId, ExecutionConstant.RUNNING, null));
+            dispatch();
         } finally {
             lock.unlock();
         }
@@ -370,9 +517,10 @@ public class WorkflowExecution {
             } else {
                 log.info("Trying to stop execution gracefully, all running tasks will continue to run, but no new tasks will be submitted");
             }
-            if (!tasksRunning.isEmpty()) {
+            if (activeCount.get() > 0) {
                 tasksRunning.values().forEach(task -> task.cancel(force));
             } else {
+                flushTaskStateJournal();
                 listeners.forEach(this::notifyInterruptedToListener);
                 listeners.clear();
             }
@@ -385,9 +533,11 @@ public class WorkflowExecution {
         try {
             lock.lock();
             isCancelled = true;
-            executorService.shutdownNow();
-            if (force || tasksRunning.isEmpty()) {
+            // Tasks which were waiting for a worker will never run, report them as cancelled so that the execution can finish
+            taskExecutor.shutdownNow().forEach(taskRunner -> ((TaskRunner) taskRunner).cancel(false));
+            if (force || activeCount.get() == 0) {
                 // If not forcing the cancel then the listeners will be notified only when every tasks have successfully been cancelled
+                flushTaskStateJournal();
                 listeners.forEach(this::notifyCancelledToListener);
                 listeners.clear();
             }
@@ -398,15 +548,59 @@ public class WorkflowExecution {
 
     @Override
     public String toString() {
-        try {
-            lock.lock();
-            StringBuilder buffer = new StringBuilder("Workflow execution has ").append(tasksLeft.size()).append(" tasks left:\n");
-            for (AbstractTask task : tasksLeft) {
-                buffer.append("\t- ").append(task).append(" depends on [").append(task.getDependsOnTasks()).append("]\n");
+        StringBuilder buffer = new StringBuilder("Workflow execution has ").append(tasksLeft.size()).append(" tasks left:\n");
+        for (AbstractTask task : tasksLeft) {
+            buffer.append("\t- ").append(task).append(" depends on [").append(task.getDependsOnTasks().stream().filter(tasksLeft::contains).collect(Collectors.toSet())).append("]\n");
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Runs a launched task, a task cancelled before it could start is reported as failed so that the execution does not wait for it
+     */
+    private class TaskRunner implements Runnable {
+
+        private AbstractTask task;
+
+        private AtomicBoolean claimed = new AtomicBoolean(false);
+
+        private Thread runner;
+
+        private long submittedTime = System.nanoTime();
+
+        private TaskRunner(AbstractTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                // Already cancelled
+                return;
+            }
+            metricRegistry.recordSince(MetricRegistry.TASK_QUEUE_WAIT, submittedTime);
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                task.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+            }
+        }
+
+        private void cancel(boolean mayInterruptIfRunning) {
+            if (claimed.compareAndSet(false, true)) {
+                onTaskFailure(task, new InterruptedException("Task " + task + " has been cancelled before it could start"));
+            } else if (mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
             }
-            return buffer.toString();
-        } finally {
-            lock.unlock();
         }
     }
 }
@@ -0,0 +1,126 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+
+import java.util.*;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Scheduling core of a workflow execution. Each task has a counter of its unfinished dependencies, computed once from the dependency graph.
+ * The completion of a task decrements the counters of the tasks that depend on it and enqueues those which become ready,
+ * so that it costs only the task's out degree and it does not need any global lock.
+ * Ready tasks are polled by priority, the task which heads the longest remaining chain of tasks comes first so that the critical path is never queued behind short tasks.
+ * Workflows are validated to be acyclic by {@link WorkflowValidator} when they are built, the scheduler does not check it again.
+ *
+ * @author Minh Khang VU
+ */
+public class WorkflowScheduler {
+
+    private final Map<AbstractTask, AtomicInteger> pendingDependencies;
+
+    private final Queue<AbstractTask> readyTasks = new PriorityBlockingQueue<>(11, Comparator.comparingLong(AbstractTask::getPriority).reversed());
+
+    /**
+     * Compute dependency counters and priorities of the given tasks, only dependencies that belong to the given tasks are taken into account as others are considered as finished
+     *
+     * @param tasks   the tasks to schedule, they must not contain cyclic dependencies
+     * @param weights the estimated cost of each task
+     */
+    public WorkflowScheduler(Set<AbstractTask> tasks, ToLongFunction<AbstractTask> weights) {
+        int prioritizedCount = computePriorities(tasks, weights);
+        assert prioritizedCount == tasks.size() : (tasks.size() - prioritizedCount) + " tasks are on or depended by a cycle, the workflow has not been validated";
+        pendingDependencies = new HashMap<>(tasks.size() * 2);
+        for (AbstractTask task : tasks) {
+            int pendingCount = 0;
+            for (AbstractTask dependency : task.getDependsOnTasks()) {
+                if (tasks.contains(dependency)) {
+                    pendingCount++;
+                }
+            }
+            pendingDependencies.put(task, new AtomicInteger(pendingCount));
+            if (pendingCount == 0) {
+                readyTasks.add(task);
+            }
+        }
+    }
+
+    /**
+     * The priority of a task is its weight plus the highest priority of the tasks which depend on it. It's computed from the last tasks of the workflow back to the first ones,
+     * a task being processed once all the tasks which depend on it have been processed. Tasks on a cycle, or which a cycle depends on, are never processed.
+     *
+     * @return the number of processed tasks
+     */
+    private static int computePriorities(Set<AbstractTask> tasks, ToLongFunction<AbstractTask> weights) {
+        Map<AbstractTask, Integer> pendingDependents = new HashMap<>(tasks.size() * 2);
+        Map<AbstractTask, Long> highestDependentPriorities = new HashMap<>(tasks.size() * 2);
+        Deque<AbstractTask> processableTasks = new ArrayDeque<>();
+        for (AbstractTask task : tasks) {
+            int dependentCount = 0;
+            for (AbstractTask dependent : task.getDependedByTasks()) {
+                if (tasks.contains(dependent)) {
+                    dependentCount++;
+                }
+            }
+            pendingDependents.put(task, dependentCount);
+            task.setPriority(weights.applyAsLong(task));
+            if (dependentCount == 0) {
+                processableTasks.add(task);
+            }
+        }
+        int processedCount = 0;
+        while (!processableTasks.isEmpty()) {
+            AbstractTask task = processableTasks.poll();
+            processedCount++;
+            long priority = weights.applyAsLong(task) + highestDependentPriorities.getOrDefault(task, 0L);
+            task.setPriority(priority);
+            for (AbstractTask dependency : task.getDependsOnTasks()) {
+                Integer dependentCount = pendingDependents.get(dependency);
+                if (dependentCount != null) {
+                    highestDependentPriorities.merge(dependency, priority, Math::max);
+                    pendingDependents.put(dependency, dependentCount - 1);
+                    if (dependentCount == 1) {
+                        processableTasks.add(dependency);
+                    }
+                }
+            }
+        }
+        return processedCount;
+    }
+
+    /**
+     * Release the tasks which depend on the given completed task, those which do not have any pending dependency anymore become ready
+     *
+     * @param completedTask the task which has completed successfully
+     */
+    public void release(AbstractTask completedTask) {
+        for (AbstractTask dependent : completedTask.getDependedByTasks()) {
+            AtomicInteger pendingCount = pendingDependencies.get(dependent);
+            if (pendingCount != null && pendingCount.decrementAndGet() == 0) {
+                readyTasks.add(dependent);
+            }
+        }
+    }
+
+    /**
+     * Enqueue again the given tasks which do not have any pending dependency, it's used to re-launch tasks that were not run or that failed
+     *
+     * @param tasks tasks to be enqueued if they are ready
+     */
+    public void requeue(Collection<AbstractTask> tasks) {
+        tasks.stream().filter(task -> getPendingDependencies(task) == 0).forEach(readyTasks::add);
+    }
+
+    /**
+     * @return the next ready task or null if there's none
+     */
+    public AbstractTask pollReady() {
+        return readyTasks.poll();
+    }
+
+    public int getPendingDependencies(AbstractTask task) {
+        AtomicInteger pendingCount = pendingDependencies.get(task);
+        return pendingCount != null ? pendingCount.get() : 0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.sdk.ProviderWorkflowProcessingResult;
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
+import com.toscaruntime.sdk.util.WorkflowUtil;
+import com.toscaruntime.sdk.workflow.tasks.InstallLifeCycleTasks;
+import com.toscaruntime.sdk.workflow.tasks.RelationshipInstallLifeCycleTasks;
+import com.toscaruntime.sdk.workflow.tasks.RelationshipUninstallLifeCycleTasks;
+import com.toscaruntime.sdk.workflow.tasks.UninstallLifeCycleTasks;
+import tosca.nodes.Root;
+import tosca.relationships.HostedOn;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Instance agnostic template of the install and uninstall workflows for a version of the topology. For each relationship node, it holds the dependencies to declare between the tasks of
+ * the relationship, of its source and of its target. It's immutable and cached by the workflow engine until the topology changes, building a workflow then binds it to the tasks of the
+ * concerned instances.
+ *
+ * @author Minh Khang VU
+ */
+public class WorkflowTemplate {
+
+    private interface DependenciesDeclarer<R, N> {
+        void declare(R relationshipTasks, N sourceTasks, N targetTasks);
+    }
+
+    private static final List<DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks>> HOSTED_ON_INSTALL = Collections.unmodifiableList(Arrays.asList(
+            WorkflowUtil::declareRelationshipInstallDependencies,
+            WorkflowUtil::declareHostedOnInstallDependencies
+    ));
+
+    private static final List<DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks>> DEPENDS_ON_INSTALL = Collections.unmodifiableList(Arrays.asList(
+            WorkflowUtil::declareRelationshipInstallDependencies,
+            WorkflowUtil::declareDependsOnInstallDependencies
+    ));
+
+    private static final List<DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks>> HOSTED_ON_UNINSTALL = Collections.unmodifiableList(Arrays.asList(
+            WorkflowUtil::declareRelationshipUninstallDependencies,
+            WorkflowUtil::declareHostedOnUninstallDependencies
+    ));
+
+    private static final List<DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks>> DEPENDS_ON_UNINSTALL = Collections.unmodifiableList(Arrays.asList(
+            WorkflowUtil::declareRelationshipUninstallDependencies,
+            WorkflowUtil::declareDependsOnUninstallDependencies
+    ));
+
+    private final long topologyVersion;
+
+    private final Map<DeploymentRelationshipNode, List<DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks>>> installDeclarers;
+
+    private final Map<DeploymentRelationshipNode, List<DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks>>> uninstallDeclarers;
+
+    /**
+     * Compute the template of the given topology
+     *
+     * @param topologyVersion   version of the topology
+     * @param relationshipNodes all relationship nodes of the topology
+     */
+    public WorkflowTemplate(long topologyVersion, Set<DeploymentRelationshipNode> relationshipNodes) {
+        this.topologyVersion = topologyVersion;
+        Map<DeploymentRelationshipNode, List<DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks>>> install = new HashMap<>();
+        Map<DeploymentRelationshipNode, List<DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks>>> uninstall = new HashMap<>();
+        for (DeploymentRelationshipNode relationshipNode : relationshipNodes) {
+            boolean hostedOn = HostedOn.class.isAssignableFrom(relationshipNode.getRelationshipType());
+            install.put(relationshipNode, hostedOn ? HOSTED_ON_INSTALL : DEPENDS_ON_INSTALL);
+            uninstall.put(relationshipNode, hostedOn ? HOSTED_ON_UNINSTALL : DEPENDS_ON_UNINSTALL);
+        }
+        this.installDeclarers = Collections.unmodifiableMap(install);
+        this.uninstallDeclarers = Collections.unmodifiableMap(uninstall);
+    }
+
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    private List<DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks>> getInstallDeclarers(tosca.relationships.Root relationshipInstance) {
+        // A relationship out of the topology of the template is planned from its type
+        return installDeclarers.getOrDefault(relationshipInstance.getNode(), relationshipInstance instanceof HostedOn ? HOSTED_ON_INSTALL : DEPENDS_ON_INSTALL);
+    }
+
+    private List<DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks>> getUninstallDeclarers(tosca.relationships.Root relationshipInstance) {
+        return uninstallDeclarers.getOrDefault(relationshipInstance.getNode(), relationshipInstance instanceof HostedOn ? HOSTED_ON_UNINSTALL : DEPENDS_ON_UNINSTALL);
+    }
+
+    /**
+     * Bind the template to the install tasks of the nodes and the relationships which have not been processed by the provider
+     *
+     * @param allNodesTasks          install tasks of all nodes of the workflow
+     * @param allRelationshipsTasks  install tasks of all relationships of the workflow
+     * @param providerWorkflowResult nodes and relationships which have been processed by the provider
+     */
+    public void bindInstall(Map<Root, InstallLifeCycleTasks> allNodesTasks,
+                            Map<tosca.relationships.Root, RelationshipInstallLifeCycleTasks> allRelationshipsTasks,
+                            ProviderWorkflowProcessingResult providerWorkflowResult) {
+        WorkflowUtil.declareNodesInstallDependencies(allNodesTasks.keySet().stream()
+                .filter(nodeInstance -> !providerWorkflowResult.getNodeInstances().containsKey(nodeInstance.getId()))
+                .collect(Collectors.toList()), allNodesTasks);
+        allRelationshipsTasks.entrySet().stream()
+                .filter(taskEntry -> !providerWorkflowResult.getRelationshipInstances().contains(taskEntry.getKey()))
+                .forEach(taskEntry -> {
+                    tosca.relationships.Root relationshipInstance = taskEntry.getKey();
+                    InstallLifeCycleTasks sourceTasks = allNodesTasks.get(relationshipInstance.getSource());
+                    InstallLifeCycleTasks targetTasks = allNodesTasks.get(relationshipInstance.getTarget());
+                    for (DependenciesDeclarer<RelationshipInstallLifeCycleTasks, InstallLifeCycleTasks> declarer : getInstallDeclarers(relationshipInstance)) {
+                        declarer.declare(taskEntry.getValue(), sourceTasks, targetTasks);
+                    }
+                });
+    }
+
+    /**
+     * Bind the template to the uninstall tasks of the nodes and the relationships which have not been processed by the provider
+     *
+     * @param allNodesTasks          uninstall tasks of all nodes of the workflow
+     * @param allRelationshipsTasks  uninstall tasks of all relationships of the workflow
+     * @param providerWorkflowResult nodes and relationships which have been processed by the provider
+     */
+    public void bindUninstall(Map<Root, UninstallLifeCycleTasks> allNodesTasks,
+                              Map<tosca.relationships.Root, RelationshipUninstallLifeCycleTasks> allRelationshipsTasks,
+                              ProviderWorkflowProcessingResult providerWorkflowResult) {
+        WorkflowUtil.declareNodesUninstallDependencies(allNodesTasks.keySet().stream()
+                .filter(nodeInstance -> !providerWorkflowResult.getNodeInstances().containsKey(nodeInstance.getId()))
+                .collect(Collectors.toList()), allNodesTasks);
+        allRelationshipsTasks.entrySet().stream()
+                .filter(taskEntry -> !providerWorkflowResult.getRelationshipInstances().contains(taskEntry.getKey()))
+                .forEach(taskEntry -> {
+                    tosca.relationships.Root relationshipInstance = taskEntry.getKey();
+                    UninstallLifeCycleTasks sourceTasks = allNodesTasks.get(relationshipInstance.getSource());
+                    UninstallLifeCycleTasks targetTasks = allNodesTasks.get(relationshipInstance.getTarget());
+                    for (DependenciesDeclarer<RelationshipUninstallLifeCycleTasks, UninstallLifeCycleTasks> declarer : getUninstallDeclarers(relationshipInstance)) {
+                        declarer.declare(taskEntry.getValue(), sourceTasks, targetTasks);
+                    }
+                });
+    }
+}
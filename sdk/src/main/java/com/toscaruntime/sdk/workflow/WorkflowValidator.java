@@ -0,0 +1,91 @@
+package com.toscaruntime.sdk.workflow;
+
+import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowException;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Static validation of a built workflow, it checks the task graph in one topological pass (linear in the number of tasks and dependencies) without running anything.
+ * A workflow is invalid if a task depends on a task which does not belong to the workflow (dangling dependency) or if it contains a cycle.
+ * Tasks which are not on a cycle but depend on one can never be run, they are reported as unreachable.
+ *
+ * @author Minh Khang VU
+ */
+public class WorkflowValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowValidator.class);
+
+    /**
+     * Validate the graph of the given tasks
+     *
+     * @param workflowId id of the workflow
+     * @param tasks      all tasks of the workflow
+     * @throws InvalidWorkflowException if the workflow has dangling dependencies or cycles
+     */
+    public static void validate(String workflowId, Set<AbstractTask> tasks) {
+        Map<AbstractTask, Integer> pendingDependencies = new HashMap<>(tasks.size() * 2);
+        Deque<AbstractTask> readyTasks = new ArrayDeque<>();
+        List<String> danglingDependencies = new ArrayList<>();
+        for (AbstractTask task : tasks) {
+            for (AbstractTask dependency : task.getDependsOnTasks()) {
+                if (!tasks.contains(dependency)) {
+                    danglingDependencies.add(task + " depends on " + dependency);
+                }
+            }
+            int pendingCount = task.getDependsOnTasks().size();
+            pendingDependencies.put(task, pendingCount);
+            if (pendingCount == 0) {
+                readyTasks.add(task);
+            }
+        }
+        if (!danglingDependencies.isEmpty()) {
+            log.error("Workflow {} has dependencies on tasks which do not belong to it: \n {}", workflowId, String.join("\n ", danglingDependencies));
+            throw new InvalidWorkflowException("Workflow " + workflowId + " is invalid, " + danglingDependencies.size() + " dependencies are on tasks which do not belong to the workflow, first one is: " + danglingDependencies.get(0));
+        }
+        int visitedCount = 0;
+        while (!readyTasks.isEmpty()) {
+            AbstractTask task = readyTasks.poll();
+            visitedCount++;
+            for (AbstractTask dependent : task.getDependedByTasks()) {
+                Integer pendingCount = pendingDependencies.get(dependent);
+                if (pendingCount != null) {
+                    pendingDependencies.put(dependent, pendingCount - 1);
+                    if (pendingCount == 1) {
+                        readyTasks.add(dependent);
+                    }
+                }
+            }
+        }
+        if (visitedCount < tasks.size()) {
+            Set<AbstractTask> blockedTasks = pendingDependencies.entrySet().stream().filter(entry -> entry.getValue() > 0).map(Map.Entry::getKey).collect(Collectors.toSet());
+            List<AbstractTask> cycle = findCycle(blockedTasks);
+            String cycleChain = cycle.stream().map(Object::toString).collect(Collectors.joining(" depends on "));
+            log.error("Workflow {} has cyclic dependencies: \n {} \n {} tasks can never be run: \n {}", workflowId, cycleChain, blockedTasks.size(),
+                    blockedTasks.stream().map(Object::toString).collect(Collectors.joining("\n ")));
+            throw new InvalidWorkflowException("Workflow " + workflowId + " is invalid, it contains cyclic dependencies " + cycleChain + ", " + (blockedTasks.size() - cycle.size() + 1) + " other tasks are unreachable");
+        }
+    }
+
+    /**
+     * Every blocked task has at least one blocked dependency, so following blocked dependencies always ends up on a task already met
+     *
+     * @return the tasks of the cycle, the first task is repeated at the end to close the chain
+     */
+    private static List<AbstractTask> findCycle(Set<AbstractTask> blockedTasks) {
+        Map<AbstractTask, Integer> positions = new HashMap<>();
+        List<AbstractTask> path = new ArrayList<>();
+        AbstractTask current = blockedTasks.iterator().next();
+        while (!positions.containsKey(current)) {
+            positions.put(current, path.size());
+            path.add(current);
+            current = current.getDependsOnTasks().stream().filter(blockedTasks::contains).findFirst().get();
+        }
+        List<AbstractTask> cycle = new ArrayList<>(path.subList(positions.get(current), path.size()));
+        cycle.add(current);
+        return cycle;
+    }
+}
@@ -4,48 +4,32 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.toscaruntime.sdk.workflow.WorkflowExecution;
 
 public abstract class AbstractTask implements Runnable {
 
-    private static final Logger log = LoggerFactory.getLogger(AbstractTask.class);
-
+    /**
+     * Dependencies are declared while the workflow is built and are not modified anymore once the execution has been launched
+     */
     protected Set<AbstractTask> dependsOnTasks = new HashSet<>();
 
     protected Set<AbstractTask> dependedByTasks = new HashSet<>();
 
     protected WorkflowExecution workflowExecution;
 
+    /**
+     * Length of the longest chain of tasks that remains to be run from this task, tasks with higher priority are run first
+     */
+    private volatile long priority;
+
     private void notifyTaskCompletion() {
-        try {
-            workflowExecution.getLock().lock();
-            dependedByTasks.stream().forEach(dependedByInstance -> dependedByInstance.onDependencyCompletion(this));
-            // The dependency is notified about the completion of the task before the workflow execution
-            // This way the workflow execution can validate that there is no cyclic dependencies
-            workflowExecution.onTaskCompletion(this);
-        } finally {
-            workflowExecution.getLock().unlock();
-        }
+        workflowExecution.onTaskCompletion(this);
     }
 
     private void notifyTaskError(Throwable e) {
         workflowExecution.onTaskFailure(this, e);
     }
 
-    private void onDependencyCompletion(AbstractTask dependency) {
-        try {
-            workflowExecution.getLock().lock();
-            if (!dependsOnTasks.remove(dependency)) {
-                log.error("Notified completion of an unknown dependency {} for task {}", dependency, toString());
-            }
-        } finally {
-            workflowExecution.getLock().unlock();
-        }
-    }
-
     public void dependsOn(AbstractTask... others) {
         this.dependsOnTasks.addAll(Arrays.asList(others));
         for (AbstractTask other : others) {
@@ -57,16 +41,26 @@ public abstract class AbstractTask implements Runnable {
 
     @Override
     public void run() {
+        long startTime = System.nanoTime();
+        Throwable error = null;
         try {
             doRun();
-            notifyTaskCompletion();
         } catch (Throwable e) {
-            notifyTaskError(e);
+            error = e;
+        }
+        workflowExecution.recordTaskExecution(this, startTime);
+        if (error == null) {
+            notifyTaskCompletion();
+        } else {
+            notifyTaskError(error);
         }
     }
 
-    public boolean canRun() {
-        return dependsOnTasks.isEmpty();
+    /**
+     * @return true if the task is declared to depend on other tasks, whether they have already been run or not
+     */
+    public boolean hasDependencies() {
+        return !dependsOnTasks.isEmpty();
     }
 
     public WorkflowExecution getWorkflowExecution() {
@@ -88,4 +82,12 @@ public abstract class AbstractTask implements Runnable {
     public Set<AbstractTask> getDependedByTasks() {
         return dependedByTasks;
     }
+
+    public long getPriority() {
+        return priority;
+    }
+
+    public void setPriority(long priority) {
+        this.priority = priority;
+    }
 }
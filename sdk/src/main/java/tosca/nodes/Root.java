@@ -2,12 +2,13 @@ package tosca.nodes;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.toscaruntime.deployment.InstanceSnapshotDTO;
 import com.toscaruntime.exception.UnexpectedException;
 import com.toscaruntime.exception.deployment.configuration.IllegalFunctionException;
 import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
@@ -44,6 +45,16 @@ public abstract class Root extends AbstractRuntimeType {
 
     private Set<DeploymentRelationshipNode> postConfiguredRelationshipNodes = Collections.synchronizedSet(new HashSet<>());
 
+    /**
+     * Memoized indexes of the instance and of its ancestors (for example _1_2), they're assigned at the instance's creation and do not change afterward
+     */
+    private volatile String indexPath;
+
+    /**
+     * Memoized id of the instance
+     */
+    private volatile String id;
+
     public Object getCapabilityProperty(String capabilityName, String propertyName) {
         if (capabilitiesProperties.containsKey(capabilityName)) {
             return PropertyUtil.getProperty(capabilitiesProperties.get(capabilityName), propertyName);
@@ -62,6 +73,7 @@ public abstract class Root extends AbstractRuntimeType {
 
     public void setName(String name) {
         this.name = name;
+        this.id = null;
     }
 
     public String getName() {
@@ -78,23 +90,33 @@ public abstract class Root extends AbstractRuntimeType {
 
     @Override
     public void initialLoad() {
-        Map<String, String> rawAttributes = deployment.getDeploymentPersister().syncGetAttributes(getId());
-        for (Map.Entry<String, String> rawAttributeEntry : rawAttributes.entrySet()) {
+        InstanceSnapshotDTO snapshot = getPrefetchedSnapshot();
+        if (snapshot == null) {
+            snapshot = loadSnapshot();
+        }
+        for (Map.Entry<String, String> rawAttributeEntry : snapshot.getAttributes().entrySet()) {
             try {
                 getAttributes().put(rawAttributeEntry.getKey(), JSONUtil.toObject(rawAttributeEntry.getValue()));
             } catch (IOException e) {
                 throw new DeploymentPersistenceException("Cannot read as json from persistence attribute " + rawAttributeEntry.getKey() + " of node instance " + getId(), e);
             }
         }
+        snapshot.getOutputs().forEach((interfaceName, operations) -> operations.forEach((operationName, outputs) ->
+                operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs)
+        ));
+        this.state = snapshot.getState();
+    }
+
+    private InstanceSnapshotDTO loadSnapshot() {
+        Map<String, Map<String, Map<String, String>>> outputs = new HashMap<>();
         List<String> outputInterfaces = deployment.getDeploymentPersister().syncGetOutputInterfaces(getId());
         for (String interfaceName : outputInterfaces) {
             List<String> operationNames = deployment.getDeploymentPersister().syncGetOutputOperations(getId(), interfaceName);
             for (String operationName : operationNames) {
-                Map<String, String> outputs = deployment.getDeploymentPersister().syncGetOutputs(getId(), interfaceName, operationName);
-                operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs);
+                outputs.computeIfAbsent(interfaceName, key -> new HashMap<>()).put(operationName, deployment.getDeploymentPersister().syncGetOutputs(getId(), interfaceName, operationName));
             }
         }
-        this.state = deployment.getDeploymentPersister().syncGetInstanceState(getId());
+        return new InstanceSnapshotDTO(deployment.getDeploymentPersister().syncGetInstanceState(getId()), deployment.getDeploymentPersister().syncGetAttributes(getId()), outputs);
     }
 
     @Override
@@ -105,6 +127,18 @@ public abstract class Root extends AbstractRuntimeType {
         }
     }
 
+    /**
+     * Set the initial attributes of a new instance, they are not persisted as they've been inserted with the instance
+     *
+     * @param initialAttributes initial attributes of the instance
+     */
+    public void initAttributes(Map<String, Object> initialAttributes) {
+        for (Map.Entry<String, Object> initialAttributeEntry : initialAttributes.entrySet()) {
+            getAttributes().put(initialAttributeEntry.getKey(), initialAttributeEntry.getValue());
+            attributeChanged(initialAttributeEntry.getKey());
+        }
+    }
+
     @Override
     public void setAttribute(String key, Object newValue) {
         Object oldValue = getAttributes().get(key);
@@ -117,40 +151,53 @@ public abstract class Root extends AbstractRuntimeType {
                 throw new DeploymentPersistenceException("Cannot persist attribute " + key + " of node instance " + getId(), e);
             }
             getAttributes().put(key, newValue);
+            attributeChanged(key);
         }
     }
 
     @Override
     public void removeAttribute(String key) {
         deployment.getDeploymentPersister().syncDeleteInstanceAttribute(getId(), key);
-        getAttributes().remove(key);
+        if (getAttributes().remove(key) != null) {
+            attributeChanged(key);
+        }
     }
 
     @Override
     public void setOperationOutputs(String interfaceName, String operationName, Map<String, String> outputs) {
         deployment.getDeploymentPersister().syncSaveInstanceOutputs(getId(), interfaceName, operationName, outputs);
         operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs);
+        operationOutputsChanged(interfaceName, operationName);
     }
 
     /**
      * Id of a node is generated based on its index within its parent and its parent index within its grandparent etc ...
      * For example: A war hosted on a tomcat which is hosted on a compute will have as id war_1_1_1 or war_2_1_1 (if the compute is scaled with 2 instances)
+     * The id is computed once, it's used as identity of the instance in every map and set of the deployment.
      *
      * @return generated id of the node
      */
     public String getId() {
-        String id = getName();
-        LinkedList<Integer> indexQueue = new LinkedList<>();
-        indexQueue.push(index);
-        Root currentParent = getParent();
-        while (currentParent != null) {
-            indexQueue.push(currentParent.getIndex());
-            currentParent = currentParent.getParent();
+        String currentId = id;
+        if (currentId == null) {
+            currentId = getName() + getIndexPath();
+            id = currentId;
         }
-        for (Integer index : indexQueue) {
-            id += "_" + index;
+        return currentId;
+    }
+
+    private String getIndexPath() {
+        String currentIndexPath = indexPath;
+        if (currentIndexPath == null) {
+            currentIndexPath = (parent != null ? parent.getIndexPath() : "") + "_" + index;
+            indexPath = currentIndexPath;
         }
-        return id;
+        return currentIndexPath;
+    }
+
+    private void resetIdentity() {
+        this.indexPath = null;
+        this.id = null;
     }
 
     public int getIndex() {
@@ -159,6 +206,7 @@ public abstract class Root extends AbstractRuntimeType {
 
     public void setIndex(int index) {
         this.index = index;
+        resetIdentity();
     }
 
     public Compute getComputableHost() {
@@ -186,6 +234,7 @@ public abstract class Root extends AbstractRuntimeType {
 
     public void setParent(Root parent) {
         this.parent = parent;
+        resetIdentity();
     }
 
     public Root getHost() {
@@ -221,7 +270,7 @@ public abstract class Root extends AbstractRuntimeType {
             Map<String, OperationInputDefinition> siblingInputDefinitions = sibling.getOperationInputs().get(operationName);
             inputs.putAll(OperationInputUtil.evaluateInputDefinitions(sibling.getId(), siblingInputDefinitions));
         }
-        return host.execute(getId(), operationArtifactPath, inputs, getDeploymentArtifacts());
+        return executeOnHost(host, getId(), operationArtifactPath, inputs, getDeploymentArtifacts());
     }
 
     public void create() {
@@ -1,6 +1,7 @@
 package tosca.relationships;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.toscaruntime.deployment.InstanceSnapshotDTO;
 import com.toscaruntime.exception.UnexpectedException;
 import com.toscaruntime.exception.deployment.configuration.IllegalFunctionException;
 import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
@@ -26,6 +27,11 @@ public abstract class Root extends AbstractRuntimeType {
 
     private DeploymentRelationshipNode node;
 
+    /**
+     * Memoized hash code, 0 if not yet computed, the relationship's source, target and node do not change once the relationship is created
+     */
+    private volatile int hash;
+
     public tosca.nodes.Root getSource() {
         return source;
     }
@@ -54,31 +60,61 @@ public abstract class Root extends AbstractRuntimeType {
             Map<String, OperationInputDefinition> siblingInputDefinitions = sibling.getOperationInputs().get(operationName);
             inputs.putAll(OperationInputUtil.evaluateInputDefinitions(sibling.getTarget().getId(), siblingInputDefinitions));
         }
+        if (isSourceOperation(operationName)) {
+            return executeSourceOperation(operationArtifactPath, inputs);
+        } else if (isTargetOperation(operationName)) {
+            return executeTargetOperation(operationArtifactPath, inputs);
+        } else {
+            // This is unexpected as this kind of error should be detected in compilation phase
+            throw new UnexpectedException("Operation does not specify to be executed on source or target node (must be suffixed by _source or _target)");
+        }
+    }
+
+    /**
+     * @param operationName name of the relationship operation
+     * @return true if the operation is executed on the source's host, false if it's executed on the target's host, null if it does not specify
+     */
+    private static Boolean isExecutedOnSource(String operationName) {
         switch (operationName) {
             case "pre_configure_source":
             case "post_configure_source":
             case "add_target":
             case "target_changed":
             case "remove_target":
-                return executeSourceOperation(operationArtifactPath, inputs);
+                return true;
             case "pre_configure_target":
             case "post_configure_target":
             case "add_source":
             case "source_changed":
             case "remove_source":
-                return executeTargetOperation(operationArtifactPath, inputs);
+                return false;
             default:
                 if (operationName.endsWith("_source")) {
-                    return executeSourceOperation(operationArtifactPath, inputs);
+                    return true;
                 } else if (operationName.endsWith("_target")) {
-                    return executeTargetOperation(operationArtifactPath, inputs);
+                    return false;
                 } else {
-                    // This is unexpected as this kind of error should be detected in compilation phase
-                    throw new UnexpectedException("Operation does not specify to be executed on source or target node (must be suffixed by _source or _target)");
+                    return null;
                 }
         }
     }
 
+    /**
+     * @param operationName name of the relationship operation
+     * @return true if the operation is executed on the source's host
+     */
+    public static boolean isSourceOperation(String operationName) {
+        return Boolean.TRUE.equals(isExecutedOnSource(operationName));
+    }
+
+    /**
+     * @param operationName name of the relationship operation
+     * @return true if the operation is executed on the target's host
+     */
+    public static boolean isTargetOperation(String operationName) {
+        return Boolean.FALSE.equals(isExecutedOnSource(operationName));
+    }
+
     protected Map<String, String> executeSourceOperation(String operationArtifactPath, Map<String, Object> inputs) {
         Compute sourceHost = source.getComputableHost();
         if (sourceHost == null) {
@@ -87,7 +123,7 @@ public abstract class Root extends AbstractRuntimeType {
         }
         Map<String, String> operationDeploymentArtifacts = new HashMap<>(getDeploymentArtifacts());
         operationDeploymentArtifacts.putAll(source.getDeploymentArtifacts());
-        return sourceHost.execute(source.getId(), operationArtifactPath, inputs, operationDeploymentArtifacts);
+        return executeOnHost(sourceHost, source.getId(), operationArtifactPath, inputs, operationDeploymentArtifacts);
     }
 
     protected Map<String, String> executeTargetOperation(String operationArtifactPath, Map<String, Object> inputs) {
@@ -98,7 +134,7 @@ public abstract class Root extends AbstractRuntimeType {
         }
         Map<String, String> operationDeploymentArtifacts = new HashMap<>(getDeploymentArtifacts());
         operationDeploymentArtifacts.putAll(target.getDeploymentArtifacts());
-        return targetHost.execute(target.getId(), operationArtifactPath, inputs, operationDeploymentArtifacts);
+        return executeOnHost(targetHost, target.getId(), operationArtifactPath, inputs, operationDeploymentArtifacts);
     }
 
     public Object evaluateFunction(String functionName, String... paths) {
@@ -128,14 +164,17 @@ public abstract class Root extends AbstractRuntimeType {
 
     public void setSource(tosca.nodes.Root source) {
         this.source = source;
+        this.hash = 0;
     }
 
     public void setTarget(tosca.nodes.Root target) {
         this.target = target;
+        this.hash = 0;
     }
 
     public void setNode(DeploymentRelationshipNode node) {
         this.node = node;
+        this.hash = 0;
     }
 
     public void preConfigureSource() {
@@ -164,23 +203,37 @@ public abstract class Root extends AbstractRuntimeType {
 
     @Override
     public void initialLoad() {
-        Map<String, String> rawAttributes = deployment.getDeploymentPersister().syncGetRelationshipAttributes(getSource().getId(), getTarget().getId(), node.getRelationshipName());
-        for (Map.Entry<String, String> rawAttributeEntry : rawAttributes.entrySet()) {
+        InstanceSnapshotDTO snapshot = getPrefetchedSnapshot();
+        if (snapshot == null) {
+            snapshot = loadSnapshot();
+        }
+        for (Map.Entry<String, String> rawAttributeEntry : snapshot.getAttributes().entrySet()) {
             try {
                 getAttributes().put(rawAttributeEntry.getKey(), JSONUtil.toObject(rawAttributeEntry.getValue()));
             } catch (IOException e) {
                 throw new DeploymentPersistenceException("Cannot read as json from persistence attribute " + rawAttributeEntry.getKey() + " of relationship instance " + this, e);
             }
         }
-        List<String> outputInterfaces = deployment.getDeploymentPersister().syncGetRelationshipOutputInterfaces(getSource().getId(), getTarget().getId(), node.getRelationshipName());
+        snapshot.getOutputs().forEach((interfaceName, operations) -> operations.forEach((operationName, outputs) ->
+                operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs)
+        ));
+        this.state = snapshot.getState();
+    }
+
+    private InstanceSnapshotDTO loadSnapshot() {
+        String sourceId = getSource().getId();
+        String targetId = getTarget().getId();
+        String relationshipName = node.getRelationshipName();
+        Map<String, Map<String, Map<String, String>>> outputs = new HashMap<>();
+        List<String> outputInterfaces = deployment.getDeploymentPersister().syncGetRelationshipOutputInterfaces(sourceId, targetId, relationshipName);
         for (String interfaceName : outputInterfaces) {
-            List<String> operationNames = deployment.getDeploymentPersister().syncGetRelationshipOutputOperations(getSource().getId(), getTarget().getId(), node.getRelationshipName(), interfaceName);
+            List<String> operationNames = deployment.getDeploymentPersister().syncGetRelationshipOutputOperations(sourceId, targetId, relationshipName, interfaceName);
             for (String operationName : operationNames) {
-                Map<String, String> outputs = deployment.getDeploymentPersister().syncGetRelationshipOutputs(getSource().getId(), getTarget().getId(), node.getRelationshipName(), interfaceName, operationName);
-                operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs);
+                outputs.computeIfAbsent(interfaceName, key -> new HashMap<>()).put(operationName, deployment.getDeploymentPersister().syncGetRelationshipOutputs(sourceId, targetId, relationshipName, interfaceName, operationName));
             }
         }
-        this.state = deployment.getDeploymentPersister().syncGetRelationshipInstanceState(getSource().getId(), getTarget().getId(), node.getRelationshipName());
+        return new InstanceSnapshotDTO(deployment.getDeploymentPersister().syncGetRelationshipInstanceState(sourceId, targetId, relationshipName),
+                deployment.getDeploymentPersister().syncGetRelationshipAttributes(sourceId, targetId, relationshipName), outputs);
     }
 
     @Override
@@ -203,6 +256,7 @@ public abstract class Root extends AbstractRuntimeType {
                 throw new DeploymentPersistenceException("Cannot persist attribute " + key + " with value " + newValue + " of relationship instance from " + getSource().getId() + " to " + getTarget().getId() + " of type " + node.getRelationshipName(), e);
             }
             getAttributes().put(key, newValue);
+            attributeChanged(key);
             // Attribute of the relationship is copied to the node
             getSource().setAttribute(key, newValue);
             getTarget().setAttribute(key, newValue);
@@ -213,6 +267,7 @@ public abstract class Root extends AbstractRuntimeType {
     public void setOperationOutputs(String interfaceName, String operationName, Map<String, String> outputs) {
         deployment.getDeploymentPersister().syncSaveRelationshipOutputs(source.getId(), target.getId(), node.getRelationshipName(), interfaceName, operationName, outputs);
         operationOutputs.put(CodeGeneratorUtil.getGeneratedMethodName(interfaceName, operationName), outputs);
+        operationOutputsChanged(interfaceName, operationName);
     }
 
     @Override
@@ -220,7 +275,9 @@ public abstract class Root extends AbstractRuntimeType {
         getSource().removeAttribute(key);
         getTarget().removeAttribute(key);
         deployment.getDeploymentPersister().syncDeleteRelationshipAttribute(source.getId(), target.getId(), node.getRelationshipName(), key);
-        getAttributes().remove(key);
+        if (getAttributes().remove(key) != null) {
+            attributeChanged(key);
+        }
     }
 
     @Override
@@ -230,6 +287,7 @@ public abstract class Root extends AbstractRuntimeType {
 
         Root root = (Root) o;
 
+        if (hash != 0 && root.hash != 0 && hash != root.hash) return false;
         if (!source.equals(root.source)) return false;
         if (!target.equals(root.target)) return false;
         return node.getRelationshipType().equals(root.node.getRelationshipType());
@@ -238,9 +296,13 @@ public abstract class Root extends AbstractRuntimeType {
 
     @Override
     public int hashCode() {
-        int result = source.hashCode();
-        result = 31 * result + target.hashCode();
-        result = 31 * result + node.getRelationshipType().hashCode();
+        int result = hash;
+        if (result == 0) {
+            result = source.hashCode();
+            result = 31 * result + target.hashCode();
+            result = 31 * result + node.getRelationshipType().hashCode();
+            hash = result;
+        }
         return result;
     }
 
@@ -0,0 +1,192 @@
+package com.toscaruntime.sdk;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Matchers;
+
+import com.toscaruntime.sdk.model.DeploymentDeleteInstancesModification;
+import com.toscaruntime.sdk.model.DeploymentNode;
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
+
+import tosca.nodes.BlockStorage;
+import tosca.nodes.Root;
+import tosca.relationships.ConnectsTo;
+
+@RunWith(JUnit4.class)
+public class DeploymentGraphTest {
+
+    public static class SpecialBlockStorage extends BlockStorage {
+    }
+
+    public static class SpecialConnectsTo extends ConnectsTo {
+    }
+
+    private static DeploymentNode createNode(String name, String parent, int instancesCount) {
+        DeploymentNode node = new DeploymentNode();
+        node.setId(name);
+        node.setParent(parent);
+        node.setInstancesCount(instancesCount);
+        return node;
+    }
+
+    private static Root createInstance(Root instance, DeploymentNode node, Root parent, int index) {
+        instance.setName(node.getId());
+        instance.setNode(node);
+        instance.setParent(parent);
+        instance.setIndex(index);
+        return instance;
+    }
+
+    private static DeploymentRelationshipNode createRelationshipNode(String sourceName, String targetName, Class<? extends tosca.relationships.Root> relationshipType) {
+        DeploymentRelationshipNode relationshipNode = new DeploymentRelationshipNode();
+        relationshipNode.setSourceNodeId(sourceName);
+        relationshipNode.setTargetNodeId(targetName);
+        relationshipNode.setRelationshipType(relationshipType);
+        return relationshipNode;
+    }
+
+    private static tosca.relationships.Root createRelationshipInstance(tosca.relationships.Root instance, DeploymentRelationshipNode relationshipNode, Root source, Root target) {
+        instance.setNode(relationshipNode);
+        instance.setSource(source);
+        instance.setTarget(target);
+        return instance;
+    }
+
+    private static Set<Object> asSet(Object... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    public void testChildrenAreIndexedByParent() {
+        DeploymentGraph graph = new DeploymentGraph();
+        DeploymentNode computeNode = createNode("compute", null, 2);
+        DeploymentNode volumeNode = createNode("volume", "compute", 1);
+        Root compute1 = createInstance(new BlockStorage(), computeNode, null, 1);
+        Root compute2 = createInstance(new BlockStorage(), computeNode, null, 2);
+        Root volume1 = createInstance(new BlockStorage(), volumeNode, compute1, 1);
+        Root volume2 = createInstance(new BlockStorage(), volumeNode, compute2, 1);
+        graph.addNodeInstances(Arrays.asList(compute1, compute2, volume1, volume2));
+        Assert.assertEquals(asSet(volume1), graph.getChildren(compute1));
+        Assert.assertEquals(asSet(volume2), graph.getChildren(compute2));
+        Assert.assertTrue(graph.getChildren(volume1).isEmpty());
+        Assert.assertEquals(asSet(volume1, volume2), volumeNode.getInstances());
+        // Instances are iterated in their creation order
+        Assert.assertEquals(Arrays.asList("compute_1", "compute_2", "volume_1_1", "volume_2_1"), Arrays.asList(graph.getNodeInstances().keySet().toArray()));
+        try {
+            graph.getChildren(compute1).add(volume2);
+            Assert.fail("Lookups must be read only");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testNodeInstancesByTypeIncludeSubTypes() {
+        DeploymentGraph graph = new DeploymentGraph();
+        DeploymentNode volumeNode = createNode("volume", null, 1);
+        DeploymentNode specialVolumeNode = createNode("special_volume", null, 1);
+        Root volume = createInstance(new BlockStorage(), volumeNode, null, 1);
+        Root specialVolume = createInstance(new SpecialBlockStorage(), specialVolumeNode, null, 1);
+        graph.addNodeInstances(Arrays.asList(volume, specialVolume));
+        Assert.assertEquals(asSet(volume, specialVolume), graph.getNodeInstancesByType(BlockStorage.class));
+        Assert.assertEquals(asSet(specialVolume), graph.getNodeInstancesByType(SpecialBlockStorage.class));
+        graph.removeNodeInstances(Arrays.asList(specialVolume));
+        Assert.assertEquals(asSet(volume), graph.getNodeInstancesByType(BlockStorage.class));
+        Assert.assertTrue(graph.getNodeInstancesByType(SpecialBlockStorage.class).isEmpty());
+        Assert.assertTrue(specialVolumeNode.getInstances().isEmpty());
+    }
+
+    @Test
+    public void testRelationshipInstancesByNamesAndTypeUseExactClass() {
+        DeploymentGraph graph = new DeploymentGraph();
+        DeploymentNode sourceNode = createNode("source", null, 1);
+        DeploymentNode targetNode = createNode("target", null, 1);
+        Root source = createInstance(new BlockStorage(), sourceNode, null, 1);
+        Root target = createInstance(new BlockStorage(), targetNode, null, 1);
+        graph.addNodeInstances(Arrays.asList(source, target));
+        DeploymentRelationshipNode connectsToNode = createRelationshipNode("source", "target", ConnectsTo.class);
+        DeploymentRelationshipNode specialConnectsToNode = createRelationshipNode("source", "target", SpecialConnectsTo.class);
+        graph.addRelationshipNode(connectsToNode);
+        graph.addRelationshipNode(specialConnectsToNode);
+        tosca.relationships.Root connectsTo = createRelationshipInstance(new ConnectsTo(), connectsToNode, source, target);
+        tosca.relationships.Root specialConnectsTo = createRelationshipInstance(new SpecialConnectsTo(), specialConnectsToNode, source, target);
+        graph.addRelationshipInstances(Arrays.asList(connectsTo, specialConnectsTo));
+
+        // Same as DeploymentUtil.getRelationshipInstancesByNamesAndType, the sub type's instances are not returned for the super type
+        Assert.assertEquals(asSet(connectsTo), graph.getRelationshipInstancesByNamesAndType("source", "target", ConnectsTo.class));
+        Assert.assertEquals(asSet(specialConnectsTo), graph.getRelationshipInstancesByNamesAndType("source", "target", SpecialConnectsTo.class));
+        Assert.assertTrue(graph.getRelationshipInstancesByNamesAndType("target", "source", ConnectsTo.class).isEmpty());
+        Assert.assertEquals(asSet(connectsTo, specialConnectsTo), graph.getRelationshipInstancesBySourceId("source_1"));
+        Assert.assertEquals(asSet(connectsTo, specialConnectsTo), graph.getRelationshipInstancesByTargetId("target_1"));
+        Assert.assertEquals(asSet(connectsToNode, specialConnectsToNode), graph.getRelationshipNodesBySourceName("source"));
+        Assert.assertEquals(asSet(connectsToNode, specialConnectsToNode), graph.getRelationshipNodesByTargetName("target"));
+        Assert.assertEquals(asSet(connectsTo), connectsToNode.getRelationshipInstances());
+
+        graph.removeRelationshipInstances(Arrays.asList(specialConnectsTo));
+        Assert.assertEquals(asSet(connectsTo), graph.getRelationshipInstancesByNamesAndType("source", "target", ConnectsTo.class));
+        Assert.assertTrue(graph.getRelationshipInstancesByNamesAndType("source", "target", SpecialConnectsTo.class).isEmpty());
+        Assert.assertEquals(asSet(connectsTo), graph.getRelationshipInstancesBySourceId("source_1"));
+        Assert.assertEquals(asSet(connectsTo), graph.getRelationshipInstancesByTargetId("target_1"));
+        Assert.assertEquals(asSet(connectsTo), graph.getRelationshipInstances());
+        Assert.assertTrue(specialConnectsToNode.getRelationshipInstances().isEmpty());
+    }
+
+    @Test
+    public void testClearInstancesKeepsRelationshipNodes() {
+        DeploymentGraph graph = new DeploymentGraph();
+        DeploymentNode computeNode = createNode("compute", null, 1);
+        DeploymentNode volumeNode = createNode("volume", "compute", 1);
+        Root compute = createInstance(new BlockStorage(), computeNode, null, 1);
+        Root volume = createInstance(new BlockStorage(), volumeNode, compute, 1);
+        graph.addNodeInstances(Arrays.asList(compute, volume));
+        DeploymentRelationshipNode relationshipNode = createRelationshipNode("volume", "compute", ConnectsTo.class);
+        graph.addRelationshipNode(relationshipNode);
+        graph.addRelationshipInstances(Arrays.asList(createRelationshipInstance(new ConnectsTo(), relationshipNode, volume, compute)));
+        graph.clearInstances();
+        Assert.assertTrue(graph.getNodeInstances().isEmpty());
+        Assert.assertTrue(graph.getRelationshipInstances().isEmpty());
+        Assert.assertTrue(graph.getChildren(compute).isEmpty());
+        Assert.assertTrue(graph.getNodeInstancesByType(BlockStorage.class).isEmpty());
+        Assert.assertTrue(graph.getRelationshipInstancesBySourceId("volume_1_1").isEmpty());
+        Assert.assertTrue(computeNode.getInstances().isEmpty());
+        Assert.assertTrue(relationshipNode.getRelationshipInstances().isEmpty());
+        Assert.assertEquals(asSet(relationshipNode), graph.getRelationshipNodesBySourceName("volume"));
+    }
+
+    @Test
+    public void testScaleDownDeletesLastChildOfEachParent() {
+        DeploymentGraph graph = new DeploymentGraph();
+        DeploymentNode computeNode = createNode("compute", null, 2);
+        DeploymentNode volumeNode = createNode("volume", "compute", 2);
+        Root compute1 = createInstance(new BlockStorage(), computeNode, null, 1);
+        Root compute2 = createInstance(new BlockStorage(), computeNode, null, 2);
+        Root volume11 = createInstance(new BlockStorage(), volumeNode, compute1, 1);
+        Root volume12 = createInstance(new BlockStorage(), volumeNode, compute1, 2);
+        Root volume21 = createInstance(new BlockStorage(), volumeNode, compute2, 1);
+        Root volume22 = createInstance(new BlockStorage(), volumeNode, compute2, 2);
+        graph.addNodeInstances(Arrays.asList(compute1, compute2, volume11, volume21, volume12, volume22));
+
+        Deployment deployment = mock(Deployment.class);
+        when(deployment.getNodeInstancesByNodeName("compute")).thenReturn(computeNode.getInstances());
+        when(deployment.getChildren(Matchers.any(Root.class))).thenAnswer(invocation -> graph.getChildren((Root) invocation.getArguments()[0]));
+        when(deployment.getRelationshipInstanceBySourceId(Matchers.anyString())).thenAnswer(invocation -> graph.getRelationshipInstancesBySourceId((String) invocation.getArguments()[0]));
+        when(deployment.getRelationshipInstanceByTargetId(Matchers.anyString())).thenAnswer(invocation -> graph.getRelationshipInstancesByTargetId((String) invocation.getArguments()[0]));
+
+        DeploymentDeleteInstancesModification modification = new DeploymentImpacter().deleteNodeInstances(deployment, volumeNode, 1);
+        // The instance with the last index is deleted among the children of each parent, not twice the same instance of the node
+        Assert.assertEquals(asSet("volume_1_2", "volume_2_2"), new HashSet<>(modification.getInstancesToDelete().keySet()));
+        graph.removeNodeInstances(modification.getInstancesToDelete().values());
+        Assert.assertEquals(asSet(volume11), graph.getChildren(compute1));
+        Assert.assertEquals(asSet(volume21), graph.getChildren(compute2));
+        Assert.assertEquals(asSet(volume11, volume21), volumeNode.getInstances());
+    }
+}
@@ -0,0 +1,168 @@
+package com.toscaruntime.sdk;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Matchers;
+
+import com.toscaruntime.sdk.model.DeploymentAddInstancesModification;
+import com.toscaruntime.sdk.model.DeploymentNode;
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
+
+import tosca.nodes.BlockStorage;
+import tosca.nodes.Root;
+import tosca.relationships.AttachTo;
+import tosca.relationships.ConnectsTo;
+
+@RunWith(JUnit4.class)
+public class DeploymentInitializerTest {
+
+    private DeploymentInitializer initializer = new DeploymentInitializer();
+
+    private DeploymentGraph graph;
+
+    private Map<String, DeploymentNode> nodes;
+
+    private Deployment deployment;
+
+    @Before
+    public void setup() {
+        graph = new DeploymentGraph();
+        nodes = new LinkedHashMap<>();
+        deployment = mock(Deployment.class);
+        when(deployment.getNodeMap()).thenReturn(nodes);
+        when(deployment.getNodeInstancesByNodeName(Matchers.anyString())).thenAnswer(invocation -> nodes.get(invocation.getArguments()[0]).getInstances());
+        when(deployment.getRelationshipNodeBySourceName(Matchers.anyString())).thenAnswer(invocation -> graph.getRelationshipNodesBySourceName((String) invocation.getArguments()[0]));
+        when(deployment.getRelationshipNodeByTargetName(Matchers.anyString())).thenAnswer(invocation -> graph.getRelationshipNodesByTargetName((String) invocation.getArguments()[0]));
+        when(deployment.getRelationshipInstances()).thenAnswer(invocation -> graph.getRelationshipInstances());
+        when(deployment.getProviderHook()).thenReturn(mock(ProviderHook.class));
+    }
+
+    private DeploymentNode addNode(String name, String parent, int instancesCount) {
+        DeploymentNode node = initializer.createNode(name, BlockStorage.class, parent, parent, deployment, Collections.emptyMap(), Collections.emptyMap());
+        node.setInstancesCount(instancesCount);
+        if (parent != null) {
+            nodes.get(parent).getChildren().add(name);
+        }
+        nodes.put(name, node);
+        return node;
+    }
+
+    private void createInstanceTree(DeploymentNode node, Root parent, List<Root> instances) {
+        for (int i = 1; i <= node.getInstancesCount(); i++) {
+            Root instance = initializer.createInstance(deployment, node, parent, i);
+            instances.add(instance);
+            for (String child : node.getChildren()) {
+                createInstanceTree(nodes.get(child), instance, instances);
+            }
+        }
+    }
+
+    private void createInstances() {
+        List<Root> instances = new ArrayList<>();
+        nodes.values().stream().filter(node -> node.getParent() == null).forEach(node -> createInstanceTree(node, null, instances));
+        graph.addNodeInstances(instances);
+    }
+
+    private DeploymentRelationshipNode addRelationship(String source, String target, Class<? extends tosca.relationships.Root> relationshipType) {
+        DeploymentRelationshipNode relationshipNode = initializer.createRelationship(source, target, Collections.emptyMap(), relationshipType);
+        graph.addRelationshipNode(relationshipNode);
+        Set<tosca.relationships.Root> relationshipInstances = initializer.generateRelationshipsInstances(nodes.get(source).getInstances(), nodes.get(target).getInstances(), relationshipNode, deployment);
+        Assert.assertEquals(generatePairwise(nodes.get(source).getInstances(), nodes.get(target).getInstances(), relationshipNode), relationshipInstances);
+        graph.addRelationshipInstances(relationshipInstances);
+        return relationshipNode;
+    }
+
+    /**
+     * Generate relationship instances by checking every pair of source and target, as it was done before the instances were partitioned by scaling group
+     */
+    private Set<tosca.relationships.Root> generatePairwise(Set<Root> sourceInstances, Set<Root> targetInstances, DeploymentRelationshipNode relationshipNode) {
+        Set<tosca.relationships.Root> relationshipInstances = new HashSet<>();
+        for (Root sourceInstance : sourceInstances) {
+            for (Root targetInstance : targetInstances) {
+                if (!initializer.shouldFilterRelationship(sourceInstance, targetInstance, relationshipNode.getRelationshipType())) {
+                    try {
+                        tosca.relationships.Root relationshipInstance = relationshipNode.getRelationshipType().newInstance();
+                        relationshipInstance.setSource(sourceInstance);
+                        relationshipInstance.setTarget(targetInstance);
+                        relationshipInstance.setNode(relationshipNode);
+                        relationshipInstances.add(relationshipInstance);
+                    } catch (InstantiationException | IllegalAccessException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }
+        }
+        return relationshipInstances;
+    }
+
+    /**
+     * Scale out the node and check that the relationship instances to add are those the pairwise check generates for the scaled deployment minus the existing ones
+     */
+    private void assertScaleOutMatchesPairwise(String nodeName, int numberOfInstancesToAdd, DeploymentRelationshipNode relationshipNode) {
+        DeploymentAddInstancesModification modification = new DeploymentImpacter().addNodeInstances(deployment, nodes.get(nodeName), numberOfInstancesToAdd);
+        Set<tosca.relationships.Root> existingRelationshipInstances = new HashSet<>(graph.getRelationshipInstances());
+        graph.addNodeInstances(modification.getInstancesToAdd().values());
+        Set<tosca.relationships.Root> expected = generatePairwise(nodes.get(relationshipNode.getSourceNodeId()).getInstances(), nodes.get(relationshipNode.getTargetNodeId()).getInstances(), relationshipNode);
+        expected.removeAll(existingRelationshipInstances);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, modification.getRelationshipInstancesToAdd());
+        graph.addRelationshipInstances(modification.getRelationshipInstancesToAdd());
+        nodes.get(nodeName).setInstancesCount(nodes.get(nodeName).getInstancesCount() + numberOfInstancesToAdd);
+    }
+
+    @Test
+    public void testManyToManyLinksEveryPair() {
+        addNode("compute", null, 2);
+        addNode("web", "compute", 2);
+        addNode("database", "compute", 2);
+        createInstances();
+        DeploymentRelationshipNode connectsTo = addRelationship("web", "database", ConnectsTo.class);
+        // Same scaling group but a many to many relationship is never filtered
+        Assert.assertEquals(16, graph.getRelationshipInstances().size());
+        assertScaleOutMatchesPairwise("compute", 1, connectsTo);
+    }
+
+    @Test
+    public void testSameScalingGroupOnDifferentHostsLinksOnlyTheSameGroupInstance() {
+        addNode("compute", null, 3);
+        addNode("tomcat", "compute", 2);
+        addNode("war", "tomcat", 1);
+        addNode("agent", "compute", 2);
+        createInstances();
+        DeploymentRelationshipNode attachTo = addRelationship("war", "agent", AttachTo.class);
+        // 2 wars and 2 agents on each of the 3 computes
+        Assert.assertEquals(12, graph.getRelationshipInstances().size());
+        for (tosca.relationships.Root relationshipInstance : graph.getRelationshipInstances()) {
+            Assert.assertEquals(relationshipInstance.getSource().getParent().getParent(), relationshipInstance.getTarget().getParent());
+        }
+        assertScaleOutMatchesPairwise("compute", 1, attachTo);
+        assertScaleOutMatchesPairwise("tomcat", 1, attachTo);
+    }
+
+    @Test
+    public void testNoCommonAncestorLinksEveryPair() {
+        addNode("front_compute", null, 2);
+        addNode("apache", "front_compute", 1);
+        addNode("back_compute", null, 3);
+        addNode("mysql", "back_compute", 2);
+        createInstances();
+        DeploymentRelationshipNode attachTo = addRelationship("apache", "mysql", AttachTo.class);
+        Assert.assertEquals(12, graph.getRelationshipInstances().size());
+        assertScaleOutMatchesPairwise("back_compute", 1, attachTo);
+        assertScaleOutMatchesPairwise("front_compute", 2, attachTo);
+    }
+}
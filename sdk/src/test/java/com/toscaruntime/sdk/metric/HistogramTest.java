@@ -0,0 +1,107 @@
+package com.toscaruntime.sdk.metric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        HistogramSnapshot snapshot = new Histogram().snapshot();
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMin());
+        Assert.assertEquals(0, snapshot.getMax());
+        Assert.assertEquals(0, snapshot.getMean());
+        Assert.assertEquals(0, snapshot.getP99());
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(100, snapshot.getCount());
+        Assert.assertEquals(5050, snapshot.getSum());
+        Assert.assertEquals(1, snapshot.getMin());
+        Assert.assertEquals(100, snapshot.getMax());
+        Assert.assertEquals(50, snapshot.getMean());
+        // Percentiles are the upper bounds of the buckets which contain them
+        Assert.assertEquals(50, snapshot.getP50());
+        Assert.assertEquals(100, snapshot.getP95());
+        Assert.assertEquals(100, snapshot.getP99());
+        long[] bucketCounts = snapshot.getBucketCounts();
+        Assert.assertEquals(snapshot.getBucketBounds().length + 1, bucketCounts.length);
+        // Values 26 to 50 are in the bucket bounded by 50
+        Assert.assertEquals(25, bucketCounts[5]);
+        Assert.assertEquals(50, snapshot.getBucketBounds()[5]);
+    }
+
+    @Test
+    public void testPercentileDoesNotExceedMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(6);
+        histogram.record(7);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        // Both values are in the bucket bounded by 10
+        Assert.assertEquals(7, snapshot.getP50());
+        Assert.assertEquals(7, snapshot.getP99());
+    }
+
+    @Test
+    public void testNegativeAndOverflowValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(4000000);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(0, snapshot.getMin());
+        Assert.assertEquals(4000000, snapshot.getMax());
+        long[] bucketCounts = snapshot.getBucketCounts();
+        Assert.assertEquals(1, bucketCounts[0]);
+        Assert.assertEquals(1, bucketCounts[bucketCounts.length - 1]);
+        // Values above the last bound are estimated with the max
+        Assert.assertEquals(4000000, snapshot.getP99());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(j % 1000);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(80000, snapshot.getCount());
+        Assert.assertEquals(8 * 10 * 499500L, snapshot.getSum());
+        Assert.assertEquals(0, snapshot.getMin());
+        Assert.assertEquals(999, snapshot.getMax());
+    }
+
+    @Test
+    public void testRegistryAggregatesByName() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        metricRegistry.histogram(MetricRegistry.ARTIFACT_EXECUTION + ".docker").record(10);
+        metricRegistry.histogram(MetricRegistry.ARTIFACT_EXECUTION + ".docker").record(20);
+        metricRegistry.histogram(MetricRegistry.ARTIFACT_EXECUTION + ".openstack").record(30);
+        metricRegistry.increment(MetricRegistry.TASK_RETRIES);
+        Assert.assertEquals(2, metricRegistry.getHistograms().get("artifact.execution.docker").getCount());
+        Assert.assertEquals(1, metricRegistry.getHistograms().get("artifact.execution.openstack").getCount());
+        Assert.assertEquals(Long.valueOf(1), metricRegistry.getCounters().get(MetricRegistry.TASK_RETRIES));
+    }
+}
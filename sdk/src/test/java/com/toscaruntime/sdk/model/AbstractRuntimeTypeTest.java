@@ -0,0 +1,88 @@
+package com.toscaruntime.sdk.model;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AbstractRuntimeTypeTest {
+
+    private static class TestRuntimeType extends AbstractRuntimeType {
+
+        @Override
+        public void setState(String state) {
+            this.state = state;
+        }
+
+        @Override
+        public void setOperationOutputs(String interfaceName, String operationName, Map<String, String> outputs) {
+            operationOutputs.put(interfaceName + "_" + operationName, outputs);
+        }
+
+        @Override
+        public void setAttribute(String key, Object value) {
+            attributes.put(key, value);
+            attributeChanged(key);
+        }
+
+        @Override
+        public void removeAttribute(String key) {
+            attributes.remove(key);
+            attributeChanged(key);
+        }
+
+        @Override
+        public void initialLoad() {
+        }
+    }
+
+    @Test
+    public void testDefinitionsNotEvaluatedAfterFailureAreRefreshedAgain() {
+        TestRuntimeType instance = new TestRuntimeType();
+        boolean[] failing = {true};
+        instance.attributeDefinitions.put("failing", () -> {
+            if (failing[0]) {
+                throw new IllegalStateException("Cannot evaluate");
+            }
+            return "failing_value";
+        });
+        for (int i = 0; i < 10; i++) {
+            String value = "value_" + i;
+            instance.attributeDefinitions.put("attribute_" + i, () -> value);
+        }
+        try {
+            instance.refreshAttributes();
+            Assert.fail("Refresh should fail");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        failing[0] = false;
+        instance.refreshAttributes();
+        Assert.assertEquals("failing_value", instance.getAttribute("failing"));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("value_" + i, instance.getAttribute("attribute_" + i));
+        }
+    }
+
+    @Test
+    public void testOnlyDefinitionsReadingChangedValuesAreRefreshed() {
+        TestRuntimeType instance = new TestRuntimeType();
+        int[] evaluations = {0};
+        instance.attributeDefinitions.put("derived", () -> {
+            evaluations[0]++;
+            return "derived_" + instance.getAttribute("source");
+        });
+        instance.setAttribute("source", "a");
+        instance.refreshAttributes();
+        Assert.assertEquals("derived_a", instance.getAttribute("derived"));
+        instance.refreshAttributes();
+        Assert.assertEquals(1, evaluations[0]);
+        instance.setAttribute("source", "b");
+        instance.refreshAttributes();
+        Assert.assertEquals("derived_b", instance.getAttribute("derived"));
+        Assert.assertEquals(2, evaluations[0]);
+    }
+}
@@ -0,0 +1,125 @@
+package com.toscaruntime.sdk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.sdk.model.AbstractRuntimeType;
+
+@RunWith(JUnit4.class)
+public class RuntimeTypeRegistryTest {
+
+    public static class TestRuntimeType extends AbstractRuntimeType {
+
+        public final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void setState(String state) {
+            this.state = state;
+        }
+
+        @Override
+        public void setOperationOutputs(String interfaceName, String operationName, Map<String, String> outputs) {
+        }
+
+        @Override
+        public void setAttribute(String key, Object value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void removeAttribute(String key) {
+            attributes.remove(key);
+        }
+
+        @Override
+        public void initialLoad() {
+        }
+    }
+
+    /**
+     * Mimic a generated type which registers its operations once in its static initializer
+     */
+    public static class GeneratedType extends TestRuntimeType {
+
+        static {
+            RuntimeTypeRegistry.registerOperation(GeneratedType.class, "tosca_interfaces_node_lifecycle_standard_create", GeneratedType::toscaInterfacesNodeLifecycleStandardCreate);
+        }
+
+        public void toscaInterfacesNodeLifecycleStandardCreate() {
+            calls.add("GeneratedType.create");
+        }
+    }
+
+    public static class GeneratedChildType extends GeneratedType {
+
+        static {
+            RuntimeTypeRegistry.registerOperation(GeneratedChildType.class, "tosca_interfaces_node_lifecycle_standard_start", GeneratedChildType::toscaInterfacesNodeLifecycleStandardStart);
+        }
+
+        @Override
+        public void toscaInterfacesNodeLifecycleStandardCreate() {
+            calls.add("GeneratedChildType.create");
+        }
+
+        public void toscaInterfacesNodeLifecycleStandardStart() {
+            calls.add("GeneratedChildType.start");
+        }
+    }
+
+    public static class HandWrittenType extends TestRuntimeType {
+
+        public void toscaInterfacesNodeLifecycleStandardCreate() {
+            calls.add("HandWrittenType.create");
+        }
+
+        public void failingOperation() {
+            throw new IllegalStateException("Operation failed");
+        }
+    }
+
+    @Test
+    public void testRegisteredOperationIsDispatched() throws Throwable {
+        GeneratedType first = new GeneratedType();
+        GeneratedType second = new GeneratedType();
+        RuntimeTypeRegistry.invokeOperation(first, "tosca_interfaces_node_lifecycle_standard_create");
+        RuntimeTypeRegistry.invokeOperation(second, "tosca_interfaces_node_lifecycle_standard_create");
+        // The operation registered once for the type is invoked on each instance
+        Assert.assertEquals(1, first.calls.size());
+        Assert.assertEquals("GeneratedType.create", first.calls.get(0));
+        Assert.assertEquals(1, second.calls.size());
+    }
+
+    @Test
+    public void testInheritedOperationDispatchesToOverride() throws Throwable {
+        GeneratedChildType instance = new GeneratedChildType();
+        RuntimeTypeRegistry.invokeOperation(instance, "tosca_interfaces_node_lifecycle_standard_create");
+        RuntimeTypeRegistry.invokeOperation(instance, "tosca_interfaces_node_lifecycle_standard_start");
+        Assert.assertEquals("GeneratedChildType.create", instance.calls.get(0));
+        Assert.assertEquals("GeneratedChildType.start", instance.calls.get(1));
+    }
+
+    @Test
+    public void testHandWrittenTypeFallsBackToMethodHandle() throws Throwable {
+        HandWrittenType instance = new HandWrittenType();
+        RuntimeTypeRegistry.invokeOperation(instance, "tosca_interfaces_node_lifecycle_standard_create");
+        RuntimeTypeRegistry.invokeOperation(instance, "tosca_interfaces_node_lifecycle_standard_create");
+        Assert.assertEquals(2, instance.calls.size());
+        Assert.assertEquals("HandWrittenType.create", instance.calls.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOperationExceptionIsRethrown() throws Throwable {
+        RuntimeTypeRegistry.invokeOperation(new HandWrittenType(), "failing_operation");
+    }
+
+    @Test(expected = NoSuchMethodException.class)
+    public void testUnknownOperation() throws Throwable {
+        RuntimeTypeRegistry.invokeOperation(new GeneratedType(), "tosca_interfaces_node_lifecycle_standard_delete");
+    }
+}
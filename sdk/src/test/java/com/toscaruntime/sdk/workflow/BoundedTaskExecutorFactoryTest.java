@@ -0,0 +1,194 @@
+package com.toscaruntime.sdk.workflow;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.sdk.ProviderHook;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.AbstractNodeTask;
+import com.toscaruntime.sdk.workflow.tasks.relationships.AbstractRelationshipTask;
+
+import tosca.nodes.Compute;
+import tosca.nodes.Root;
+
+@RunWith(JUnit4.class)
+public class BoundedTaskExecutorFactoryTest {
+
+    /**
+     * Block submitted tasks until released and record how many tasks of each category run at the same time
+     */
+    private static class ConcurrencyRecorder {
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private final Map<String, Integer> running = new HashMap<>();
+
+        private final Map<String, Integer> maxRunning = new HashMap<>();
+
+        private int totalRunning = 0;
+
+        private int maxTotalRunning = 0;
+
+        private int finished = 0;
+
+        private Runnable createRunnable(String category) {
+            return () -> {
+                synchronized (this) {
+                    running.merge(category, 1, Integer::sum);
+                    maxRunning.merge(category, running.get(category), Math::max);
+                    totalRunning++;
+                    maxTotalRunning = Math.max(maxTotalRunning, totalRunning);
+                    notifyAll();
+                }
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (this) {
+                    running.merge(category, -1, Integer::sum);
+                    totalRunning--;
+                    finished++;
+                    notifyAll();
+                }
+            };
+        }
+
+        private synchronized void waitForRunning(int expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (totalRunning < expected && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            Assert.assertEquals(expected, totalRunning);
+        }
+
+        private void releaseAndWaitForAll(int expected) throws InterruptedException {
+            // Leave time to tasks beyond the limits to be started if the limits were not enforced
+            Thread.sleep(100);
+            released.countDown();
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (finished < expected && System.currentTimeMillis() < deadline) {
+                    wait(100);
+                }
+                Assert.assertEquals(expected, finished);
+            }
+        }
+
+        private synchronized int getMaxRunning(String category) {
+            return maxRunning.getOrDefault(category, 0);
+        }
+    }
+
+    private static Compute mockCompute(String id) {
+        Compute compute = mock(Compute.class);
+        when(compute.getId()).thenReturn(id);
+        when(compute.getComputableHost()).thenReturn(compute);
+        return compute;
+    }
+
+    private static Root mockHostedInstance(Compute host) {
+        Root instance = mock(Root.class);
+        when(instance.getComputableHost()).thenReturn(host);
+        return instance;
+    }
+
+    private static AbstractTask mockNodeTask(Root instance) {
+        AbstractNodeTask task = mock(AbstractNodeTask.class);
+        when(task.getNodeInstance()).thenReturn(instance);
+        return task;
+    }
+
+    private static AbstractTask mockRelationshipTask(Root source, Root target, String operationName) {
+        tosca.relationships.Root relationshipInstance = mock(tosca.relationships.Root.class);
+        when(relationshipInstance.getSource()).thenReturn(source);
+        when(relationshipInstance.getTarget()).thenReturn(target);
+        AbstractRelationshipTask task = mock(AbstractRelationshipTask.class);
+        when(task.getRelationshipInstance()).thenReturn(relationshipInstance);
+        when(task.getOperationName()).thenReturn(operationName);
+        return task;
+    }
+
+    @Test
+    public void testTasksPerComputeAreBounded() throws Exception {
+        BoundedTaskExecutorFactory factory = new BoundedTaskExecutorFactory(null, 10, 2, 3);
+        TaskExecutor executor = factory.createTaskExecutor("install");
+        ConcurrencyRecorder recorder = new ConcurrencyRecorder();
+        Compute computeA = mockCompute("A");
+        Compute computeB = mockCompute("B");
+        for (int i = 0; i < 5; i++) {
+            executor.execute(mockNodeTask(mockHostedInstance(computeA)), recorder.createRunnable("A"));
+            executor.execute(mockNodeTask(mockHostedInstance(computeB)), recorder.createRunnable("B"));
+        }
+        // Relationship operations are queued with the host of the side they are executed on
+        executor.execute(mockRelationshipTask(mockHostedInstance(computeA), mockHostedInstance(computeB), "add_target"), recorder.createRunnable("A"));
+        executor.execute(mockRelationshipTask(mockHostedInstance(computeA), mockHostedInstance(computeB), "add_source"), recorder.createRunnable("B"));
+        recorder.waitForRunning(4);
+        recorder.releaseAndWaitForAll(12);
+        Assert.assertEquals(2, recorder.getMaxRunning("A"));
+        Assert.assertEquals(2, recorder.getMaxRunning("B"));
+    }
+
+    @Test
+    public void testProviderTasksAreBounded() throws Exception {
+        Compute nativeCompute = mockCompute("native");
+        ProviderHook providerHook = mock(ProviderHook.class);
+        when(providerHook.isNativeType(nativeCompute.getClass())).thenReturn(true);
+        BoundedTaskExecutorFactory factory = new BoundedTaskExecutorFactory(providerHook, 10, 2, 3);
+        TaskExecutor executor = factory.createTaskExecutor("install");
+        ConcurrencyRecorder recorder = new ConcurrencyRecorder();
+        for (int i = 0; i < 6; i++) {
+            executor.execute(mockNodeTask(nativeCompute), recorder.createRunnable("provider"));
+        }
+        recorder.waitForRunning(3);
+        recorder.releaseAndWaitForAll(6);
+        Assert.assertEquals(3, recorder.getMaxRunning("provider"));
+    }
+
+    @Test
+    public void testWorkersAreBoundedAcrossExecutions() throws Exception {
+        BoundedTaskExecutorFactory factory = new BoundedTaskExecutorFactory(null, 3, 2, 2);
+        List<TaskExecutor> executors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            executors.add(factory.createTaskExecutor("workflow_" + i));
+        }
+        ConcurrencyRecorder recorder = new ConcurrencyRecorder();
+        for (int i = 0; i < 3; i++) {
+            Compute compute = mockCompute("compute_" + i);
+            for (int j = 0; j < 2; j++) {
+                executors.get(i).execute(mockNodeTask(mockHostedInstance(compute)), recorder.createRunnable("compute_" + i));
+            }
+        }
+        recorder.waitForRunning(3);
+        recorder.releaseAndWaitForAll(6);
+        Assert.assertEquals(3, recorder.maxTotalRunning);
+    }
+
+    @Test
+    public void testWaitingTasksAreDroppedOnShutdownNow() throws Exception {
+        BoundedTaskExecutorFactory factory = new BoundedTaskExecutorFactory(null, 10, 1, 1);
+        TaskExecutor executor = factory.createTaskExecutor("install");
+        ConcurrencyRecorder recorder = new ConcurrencyRecorder();
+        Compute compute = mockCompute("A");
+        for (int i = 0; i < 3; i++) {
+            executor.execute(mockNodeTask(mockHostedInstance(compute)), recorder.createRunnable("A"));
+        }
+        recorder.waitForRunning(1);
+        // The running task is interrupted and the two waiting ones are never run
+        Assert.assertEquals(2, executor.shutdownNow().size());
+        recorder.releaseAndWaitForAll(1);
+        Assert.assertEquals(1, recorder.getMaxRunning("A"));
+    }
+}
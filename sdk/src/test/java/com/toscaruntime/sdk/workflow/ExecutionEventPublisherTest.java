@@ -0,0 +1,57 @@
+package com.toscaruntime.sdk.workflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.constant.ExecutionConstant;
+
+@RunWith(JUnit4.class)
+public class ExecutionEventPublisherTest {
+
+    @Test
+    public void testEventsArePublishedToSubscribersInOrder() {
+        ExecutionEventPublisher publisher = new ExecutionEventPublisher();
+        List<ExecutionEvent> received = new ArrayList<>();
+        publisher.subscribe(received::add);
+        ExecutionEvent running = ExecutionEvent.execution("1", "install", ExecutionConstant.RUNNING, null);
+        ExecutionEvent task = ExecutionEvent.task("1", "install", "create", ExecutionConstant.SUCCESS, null);
+        ExecutionEvent success = ExecutionEvent.execution("1", "install", ExecutionConstant.SUCCESS, null);
+        publisher.publish(running);
+        publisher.publish(task);
+        publisher.publish(success);
+        Assert.assertEquals(3, received.size());
+        Assert.assertSame(running, received.get(0));
+        Assert.assertSame(task, received.get(1));
+        Assert.assertSame(success, received.get(2));
+    }
+
+    @Test
+    public void testUnsubscribedSubscriberDoesNotReceiveEvents() {
+        ExecutionEventPublisher publisher = new ExecutionEventPublisher();
+        List<ExecutionEvent> received = new ArrayList<>();
+        Consumer<ExecutionEvent> subscriber = received::add;
+        publisher.subscribe(subscriber);
+        publisher.publish(ExecutionEvent.execution("1", "install", ExecutionConstant.RUNNING, null));
+        publisher.unsubscribe(subscriber);
+        publisher.publish(ExecutionEvent.execution("1", "install", ExecutionConstant.SUCCESS, null));
+        Assert.assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testFailingSubscriberDoesNotPreventOthersFromReceivingEvents() {
+        ExecutionEventPublisher publisher = new ExecutionEventPublisher();
+        List<ExecutionEvent> received = new ArrayList<>();
+        publisher.subscribe(event -> {
+            throw new IllegalStateException("Subscriber is broken");
+        });
+        publisher.subscribe(received::add);
+        publisher.publish(ExecutionEvent.execution("1", "install", ExecutionConstant.RUNNING, null));
+        Assert.assertEquals(1, received.size());
+    }
+}
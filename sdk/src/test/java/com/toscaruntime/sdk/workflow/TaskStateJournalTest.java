@@ -0,0 +1,165 @@
+package com.toscaruntime.sdk.workflow;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.constant.ExecutionConstant;
+import com.toscaruntime.deployment.DeploymentPersister;
+import com.toscaruntime.deployment.TaskDTO;
+import com.toscaruntime.deployment.TaskTransitionDTO;
+import com.toscaruntime.exception.deployment.persistence.DeploymentPersistenceException;
+import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+
+@RunWith(JUnit4.class)
+public class TaskStateJournalTest {
+
+    private List<TaskTransitionDTO> persisted = new ArrayList<>();
+
+    private volatile String failingExecutionId;
+
+    private TaskStateJournal journal;
+
+    @After
+    public void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private DeploymentPersister createPersister() {
+        DeploymentPersister persister = mock(DeploymentPersister.class);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            List<TaskTransitionDTO> batch = (List<TaskTransitionDTO>) invocation.getArguments()[0];
+            if (batch.stream().anyMatch(transition -> transition.getExecutionId().equals(failingExecutionId))) {
+                throw new RuntimeException("Data source is down");
+            }
+            synchronized (persisted) {
+                persisted.addAll(batch);
+            }
+            return null;
+        }).when(persister).syncSaveTaskTransitions(anyListOf(TaskTransitionDTO.class));
+        return persister;
+    }
+
+    private static AbstractTask createTask(String taskId, String executionId) {
+        WorkflowExecution execution = new WorkflowExecution("install", null);
+        execution.setExecutionId(executionId);
+        AbstractTask task = new AbstractGenericTask(taskId) {
+            @Override
+            protected void doRun() {
+            }
+        };
+        task.setWorkflowExecution(execution);
+        return task;
+    }
+
+    private static TaskTransitionDTO transition(String taskId, String status, Long startTime, Long endTime) {
+        return new TaskTransitionDTO("execution", new TaskDTO(taskId), status, startTime, endTime, null);
+    }
+
+    @Test
+    public void testStartIsMergedWithEndOfTheSameTask() {
+        List<TaskTransitionDTO> coalesced = TaskStateJournal.coalesce(Arrays.asList(
+                transition("a", ExecutionConstant.RUNNING, 1L, null),
+                transition("b", ExecutionConstant.RUNNING, 2L, null),
+                transition("a", ExecutionConstant.SUCCESS, null, 3L),
+                transition("c", ExecutionConstant.RUNNING, 4L, null)));
+        Assert.assertEquals(3, coalesced.size());
+        Assert.assertEquals(new TaskDTO("a"), coalesced.get(0).getTask());
+        Assert.assertEquals(ExecutionConstant.SUCCESS, coalesced.get(0).getStatus());
+        Assert.assertEquals(Long.valueOf(1L), coalesced.get(0).getStartTime());
+        Assert.assertEquals(Long.valueOf(3L), coalesced.get(0).getEndTime());
+        Assert.assertEquals(new TaskDTO("b"), coalesced.get(1).getTask());
+        Assert.assertEquals(ExecutionConstant.RUNNING, coalesced.get(1).getStatus());
+        Assert.assertEquals(new TaskDTO("c"), coalesced.get(2).getTask());
+    }
+
+    @Test
+    public void testInsertAndEndWithoutStartAreNotMerged() {
+        List<TaskTransitionDTO> coalesced = TaskStateJournal.coalesce(Arrays.asList(
+                transition("a", ExecutionConstant.INITIAL, null, null),
+                transition("a", ExecutionConstant.STOPPED, null, null),
+                transition("a", ExecutionConstant.RUNNING, 1L, null),
+                transition("a", ExecutionConstant.STOPPED, null, 2L)));
+        Assert.assertEquals(Arrays.asList(ExecutionConstant.INITIAL, ExecutionConstant.STOPPED, ExecutionConstant.STOPPED), coalesced.stream().map(TaskTransitionDTO::getStatus).collect(Collectors.toList()));
+        Assert.assertEquals(Long.valueOf(1L), coalesced.get(2).getStartTime());
+    }
+
+    @Test
+    public void testTransitionsArePersistedInOrder() {
+        journal = new TaskStateJournal(createPersister());
+        List<String> taskIds = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            taskIds.add("task_" + i);
+            journal.insert(createTask("task_" + i, "execution"));
+        }
+        journal.flush("execution");
+        Assert.assertEquals(taskIds, persisted.stream().map(transition -> transition.getTask().getTaskId()).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testFailureIsScopedToItsExecution() {
+        journal = new TaskStateJournal(createPersister());
+        failingExecutionId = "failed";
+        journal.insert(createTask("task_1", "failed"));
+        try {
+            journal.flush("failed");
+            Assert.fail("Flush of the failed execution should fail");
+        } catch (DeploymentPersistenceException e) {
+            // Expected
+        }
+        failingExecutionId = null;
+        // Later transitions of the failed execution are not persisted so that its persisted state stays consistent
+        journal.insert(createTask("task_2", "failed"));
+        journal.insert(createTask("task_3", "other"));
+        journal.flush("other");
+        Assert.assertEquals(Arrays.asList("task_3"), persisted.stream().map(transition -> transition.getTask().getTaskId()).collect(Collectors.toList()));
+        try {
+            journal.flush("failed");
+            Assert.fail("Flush of the failed execution should fail");
+        } catch (DeploymentPersistenceException e) {
+            // Expected
+        }
+        // The failure is forgotten when the execution begins again
+        journal.begin("failed");
+        journal.insert(createTask("task_4", "failed"));
+        journal.flush("failed");
+        Assert.assertEquals(Arrays.asList("task_3", "task_4"), persisted.stream().map(transition -> transition.getTask().getTaskId()).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCloseWritesPendingTransitions() {
+        journal = new TaskStateJournal(createPersister());
+        List<String> taskIds = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            taskIds.add("task_" + i);
+            journal.insert(createTask("task_" + i, "execution"));
+        }
+        journal.close();
+        // Transitions recorded before the close are persisted when it returns
+        Assert.assertEquals(taskIds, persisted.stream().map(transition -> transition.getTask().getTaskId()).collect(Collectors.toList()));
+        Assert.assertFalse(Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("TaskStateJournalWriter")));
+        try {
+            journal.insert(createTask("task_2000", "execution"));
+            Assert.fail("Recording after close should fail");
+        } catch (DeploymentPersistenceException e) {
+            // Expected
+        }
+        // Closing again does nothing
+        journal.close();
+    }
+}
@@ -0,0 +1,109 @@
+package com.toscaruntime.sdk.workflow;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Matchers;
+
+import com.toscaruntime.sdk.ProviderHook;
+import com.toscaruntime.sdk.ProviderWorkflowProcessingResult;
+import com.toscaruntime.sdk.metric.MetricRegistry;
+import com.toscaruntime.sdk.model.DeploymentNode;
+import com.toscaruntime.sdk.model.DeploymentRelationshipNode;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.CreateTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.DeleteTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.StartTask;
+import com.toscaruntime.sdk.workflow.tasks.nodes.StopTask;
+
+import tosca.nodes.BlockStorage;
+import tosca.nodes.Root;
+import tosca.relationships.HostedOn;
+
+@RunWith(JUnit4.class)
+public class WorkflowEngineTest {
+
+    private WorkflowEngine workflowEngine;
+
+    private Map<String, Root> nodeInstances;
+
+    private Set<tosca.relationships.Root> relationshipInstances;
+
+    private Root compute;
+
+    private Root software;
+
+    private static Root createInstance(String name) {
+        DeploymentNode node = new DeploymentNode();
+        node.setId(name);
+        Root instance = new BlockStorage();
+        instance.setName(name);
+        instance.setNode(node);
+        instance.setIndex(1);
+        node.getInstances().add(instance);
+        return instance;
+    }
+
+    @Before
+    public void setup() {
+        ProviderHook providerHook = mock(ProviderHook.class);
+        ProviderWorkflowProcessingResult nothingProcessed = new ProviderWorkflowProcessingResult(Collections.emptyMap(), Collections.emptySet());
+        when(providerHook.postConstructInstallWorkflow(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any())).thenReturn(nothingProcessed);
+        when(providerHook.postConstructUninstallWorkflow(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any())).thenReturn(nothingProcessed);
+        workflowEngine = new WorkflowEngine(new MetricRegistry());
+        workflowEngine.setProviderHook(providerHook);
+
+        compute = createInstance("compute");
+        software = createInstance("software");
+        nodeInstances = new LinkedHashMap<>();
+        nodeInstances.put(compute.getId(), compute);
+        nodeInstances.put(software.getId(), software);
+        DeploymentRelationshipNode hostedOnNode = new DeploymentRelationshipNode();
+        hostedOnNode.setSourceNodeId("software");
+        hostedOnNode.setTargetNodeId("compute");
+        hostedOnNode.setRelationshipType(HostedOn.class);
+        tosca.relationships.Root hostedOn = new HostedOn();
+        hostedOn.setSource(software);
+        hostedOn.setTarget(compute);
+        hostedOn.setNode(hostedOnNode);
+        relationshipInstances = new HashSet<>(Collections.singletonList(hostedOn));
+        workflowEngine.setTopology(new HashSet<>(Collections.singletonList(hostedOnNode)));
+    }
+
+    private static AbstractTask getTask(WorkflowExecution workflowExecution, AbstractTask expected) {
+        return workflowExecution.getTasksLeft().stream().filter(expected::equals).findFirst().orElseThrow(() -> new AssertionError("Task " + expected + " not found"));
+    }
+
+    @Test
+    public void testWorkflowTemplateIsReusedUntilTopologyChanges() {
+        WorkflowExecution firstInstall = workflowEngine.buildInstallWorkflow(Collections.emptyList(), Collections.emptyList(), nodeInstances, relationshipInstances, "install");
+        WorkflowTemplate template = workflowEngine.getWorkflowTemplate();
+        WorkflowExecution secondInstall = workflowEngine.buildInstallWorkflow(Collections.emptyList(), Collections.emptyList(), nodeInstances, relationshipInstances, "install");
+        WorkflowExecution uninstall = workflowEngine.buildUninstallWorkflow(Collections.emptyList(), Collections.emptyList(), nodeInstances, relationshipInstances, "uninstall");
+        // The template is built once for the topology and bound to the tasks of every workflow
+        Assert.assertSame(template, workflowEngine.getWorkflowTemplate());
+        for (WorkflowExecution install : new WorkflowExecution[]{firstInstall, secondInstall}) {
+            // The software is created after its host is started
+            Assert.assertTrue(getTask(install, new CreateTask(nodeInstances, relationshipInstances, software)).getDependsOnTasks().contains(getTask(install, new StartTask(nodeInstances, relationshipInstances, compute))));
+        }
+        // The host is stopped after the software is deleted
+        Assert.assertTrue(getTask(uninstall, new StopTask(nodeInstances, relationshipInstances, compute)).getDependsOnTasks().contains(getTask(uninstall, new DeleteTask(nodeInstances, relationshipInstances, software))));
+
+        workflowEngine.topologyChanged();
+        workflowEngine.buildInstallWorkflow(Collections.emptyList(), Collections.emptyList(), nodeInstances, relationshipInstances, "scale");
+        WorkflowTemplate newTemplate = workflowEngine.getWorkflowTemplate();
+        Assert.assertNotSame(template, newTemplate);
+        Assert.assertTrue(newTemplate.getTopologyVersion() > template.getTopologyVersion());
+    }
+}
@@ -0,0 +1,120 @@
+package com.toscaruntime.sdk.workflow;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+
+@RunWith(JUnit4.class)
+public class WorkflowSchedulerTest {
+
+    private static AbstractTask createTask(String taskId) {
+        return new AbstractGenericTask(taskId) {
+            @Override
+            protected void doRun() {
+            }
+
+            @Override
+            public String toString() {
+                return taskId;
+            }
+        };
+    }
+
+    private static Set<AbstractTask> asSet(AbstractTask... tasks) {
+        return new HashSet<>(Arrays.asList(tasks));
+    }
+
+    @Test
+    public void testLongestChainIsReadyFirst() {
+        // a -> b -> c is the critical path, d is alone
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        AbstractTask d = createTask("d");
+        b.dependsOn(a);
+        c.dependsOn(b);
+        WorkflowScheduler scheduler = new WorkflowScheduler(asSet(a, b, c, d), task -> 1L);
+        Assert.assertEquals(3L, a.getPriority());
+        Assert.assertEquals(1L, d.getPriority());
+        Assert.assertSame(a, scheduler.pollReady());
+        Assert.assertSame(d, scheduler.pollReady());
+        Assert.assertNull(scheduler.pollReady());
+    }
+
+    @Test
+    public void testWeightsDecideTheOrder() {
+        // The chain a -> b is shorter in number of tasks but longer in duration than c alone
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        b.dependsOn(a);
+        Map<AbstractTask, Long> weights = new HashMap<>();
+        weights.put(a, 10L);
+        weights.put(b, 100L);
+        weights.put(c, 50L);
+        WorkflowScheduler scheduler = new WorkflowScheduler(asSet(a, b, c), weights::get);
+        Assert.assertEquals(110L, a.getPriority());
+        Assert.assertSame(a, scheduler.pollReady());
+        Assert.assertSame(c, scheduler.pollReady());
+    }
+
+    @Test
+    public void testCompletionReleasesDependents() {
+        // d depends on both b and c which both depend on a
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        AbstractTask d = createTask("d");
+        b.dependsOn(a);
+        c.dependsOn(a);
+        d.dependsOn(b, c);
+        WorkflowScheduler scheduler = new WorkflowScheduler(asSet(a, b, c, d), task -> 1L);
+        Assert.assertEquals(2, scheduler.getPendingDependencies(d));
+        Assert.assertSame(a, scheduler.pollReady());
+        Assert.assertNull(scheduler.pollReady());
+        scheduler.release(a);
+        Set<AbstractTask> ready = asSet(scheduler.pollReady(), scheduler.pollReady());
+        Assert.assertEquals(asSet(b, c), ready);
+        Assert.assertNull(scheduler.pollReady());
+        scheduler.release(b);
+        Assert.assertEquals(1, scheduler.getPendingDependencies(d));
+        Assert.assertNull(scheduler.pollReady());
+        scheduler.release(c);
+        Assert.assertSame(d, scheduler.pollReady());
+    }
+
+    @Test
+    public void testDependenciesOutsideOfScheduledTasksAreFinished() {
+        // a has already been run, only b and c are left
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        b.dependsOn(a);
+        c.dependsOn(b);
+        WorkflowScheduler scheduler = new WorkflowScheduler(asSet(b, c), task -> 1L);
+        Assert.assertEquals(0, scheduler.getPendingDependencies(b));
+        Assert.assertSame(b, scheduler.pollReady());
+        Assert.assertNull(scheduler.pollReady());
+        // A task which failed is enqueued again, its dependent is not as it's still pending
+        scheduler.requeue(asSet(b, c));
+        Assert.assertSame(b, scheduler.pollReady());
+        Assert.assertNull(scheduler.pollReady());
+    }
+
+    @Test
+    public void testEmptyWorkflow() {
+        WorkflowScheduler scheduler = new WorkflowScheduler(Collections.emptySet(), task -> 1L);
+        Assert.assertNull(scheduler.pollReady());
+    }
+}
@@ -0,0 +1,96 @@
+package com.toscaruntime.sdk.workflow;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.toscaruntime.exception.deployment.workflow.InvalidWorkflowException;
+import com.toscaruntime.sdk.workflow.tasks.AbstractGenericTask;
+import com.toscaruntime.sdk.workflow.tasks.AbstractTask;
+
+@RunWith(JUnit4.class)
+public class WorkflowValidatorTest {
+
+    private static AbstractTask createTask(String taskId) {
+        return new AbstractGenericTask(taskId) {
+            @Override
+            protected void doRun() {
+            }
+
+            @Override
+            public String toString() {
+                return taskId;
+            }
+        };
+    }
+
+    private static Set<AbstractTask> asSet(AbstractTask... tasks) {
+        return new HashSet<>(Arrays.asList(tasks));
+    }
+
+    @Test
+    public void testValidWorkflow() {
+        // Diamond a -> (b, c) -> d
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        AbstractTask d = createTask("d");
+        b.dependsOn(a);
+        c.dependsOn(a);
+        d.dependsOn(b, c);
+        WorkflowValidator.validate("install", asSet(a, b, c, d));
+    }
+
+    @Test
+    public void testMissingDependency() {
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        b.dependsOn(a);
+        c.dependsOn(b);
+        try {
+            // a is not part of the workflow
+            WorkflowValidator.validate("install", asSet(b, c));
+            Assert.fail("Missing dependency must be detected");
+        } catch (InvalidWorkflowException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("1 dependencies are on tasks which do not belong to the workflow, first one is: b depends on a"));
+        }
+    }
+
+    @Test
+    public void testCycle() {
+        AbstractTask a = createTask("a");
+        AbstractTask b = createTask("b");
+        AbstractTask c = createTask("c");
+        AbstractTask d = createTask("d");
+        b.dependsOn(a, c);
+        c.dependsOn(b);
+        // d is not on the cycle but can never be run
+        d.dependsOn(c);
+        try {
+            WorkflowValidator.validate("install", asSet(a, b, c, d));
+            Assert.fail("Cycle must be detected");
+        } catch (InvalidWorkflowException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("b depends on c depends on b") || e.getMessage().contains("c depends on b depends on c"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("1 other tasks are unreachable"));
+        }
+    }
+
+    @Test
+    public void testSelfDependency() {
+        AbstractTask a = createTask("a");
+        a.dependsOn(a);
+        try {
+            WorkflowValidator.validate("install", asSet(a));
+            Assert.fail("Cycle must be detected");
+        } catch (InvalidWorkflowException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("a depends on a"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("0 other tasks are unreachable"));
+        }
+    }
+}
@@ -116,6 +116,7 @@ public abstract class SSHEnabledCompute extends Compute {
             return;
         }
         String recipeLocation = getMandatoryPropertyAsString("recipe_location");
+        artifactExecutor.setRecipeSynchronizer(deployment.getRecipeSynchronizer());
         artifactExecutor.upload(this.config.getArtifactsPath().toString(), recipeLocation);
     }
 